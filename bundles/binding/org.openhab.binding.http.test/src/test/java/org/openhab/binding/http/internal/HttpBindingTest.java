@@ -0,0 +1,309 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.http.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.http.HttpBindingProvider;
+import org.openhab.binding.http.internal.HttpBinding.EndpointStatistics;
+import org.openhab.core.events.EventPublisher;
+import org.openhab.core.library.items.StringItem;
+import org.openhab.core.types.State;
+import org.osgi.service.cm.ConfigurationException;
+
+
+/**
+ * @since 1.8.0
+ */
+public class HttpBindingTest {
+
+	private TestHttpBinding binding;
+
+	private TestBindingProvider provider;
+
+	/** the states posted by the binding, by item name */
+	private Map<String, State> states;
+
+	@Before
+	public void init() {
+		states = new ConcurrentHashMap<String, State>();
+		provider = new TestBindingProvider();
+		binding = new TestHttpBinding();
+		binding.setEventPublisher(createEventPublisher());
+		binding.addBindingProvider(provider.proxy);
+	}
+
+	@After
+	public void shutdown() {
+		binding.deactivate();
+	}
+
+	@Test
+	public void testEndpointStatistics() {
+		HttpBinding binding = new HttpBinding();
+		EndpointStatistics statistics = binding.getEndpointStatistics("http://localhost/weather");
+
+		statistics.record(100, true, 5000);
+		statistics.record(300, true, 5000);
+		statistics.record(200, false, 5000);
+		statistics.record(5000, false, 5000);
+
+		Assert.assertSame(statistics, binding.getEndpointStatistics("http://localhost/weather"));
+		Assert.assertEquals(4, statistics.getRequestCount());
+		Assert.assertEquals(2, statistics.getFailedCount());
+		Assert.assertEquals(1, statistics.getTimeoutCount());
+		Assert.assertEquals(1400, statistics.getAverageLatency());
+		Assert.assertEquals(5000, statistics.getMaxLatency());
+	}
+
+	@Test
+	public void testEndpointsHaveSeparateStatistics() {
+		HttpBinding binding = new HttpBinding();
+		binding.getEndpointStatistics("http://localhost/weather").record(100, true, 5000);
+
+		Assert.assertEquals(0, binding.getEndpointStatistics("http://localhost/power").getRequestCount());
+	}
+
+	@Test
+	public void testItemsAreGroupedByUrlAndHeaders() throws InterruptedException {
+		Properties headers = new Properties();
+		headers.setProperty("Accept", "text/plain");
+		provider.addItem("Temperature", "http://localhost/weather", null);
+		provider.addItem("Humidity", "http://localhost/weather", null);
+		provider.addItem("Pressure", "http://localhost/weather", headers);
+		provider.addItem("Power", "http://localhost/power", null);
+
+		binding.execute();
+		binding.awaitRequests();
+
+		Assert.assertEquals(3, binding.requestedUrls.size());
+		Assert.assertEquals(2, Collections.frequency(binding.requestedUrls, "http://localhost/weather"));
+		Assert.assertEquals(1, Collections.frequency(binding.requestedUrls, "http://localhost/power"));
+		Assert.assertEquals(4, states.size());
+		Assert.assertEquals("response of http://localhost/weather", states.get("Humidity").toString());
+		Assert.assertEquals(2, binding.getEndpointStatistics("http://localhost/weather").getRequestCount());
+	}
+
+	@Test
+	public void testRunningRequestIsNotStartedAgain() throws InterruptedException {
+		provider.addItem("Temperature", "http://localhost/weather", null);
+		binding.block("http://localhost/weather");
+
+		binding.execute();
+		binding.awaitRequest("http://localhost/weather");
+		binding.execute();
+		binding.execute();
+		binding.unblock();
+		binding.awaitRequests();
+
+		Assert.assertEquals(Arrays.asList("http://localhost/weather"), binding.requestedUrls);
+		Assert.assertEquals("response of http://localhost/weather", states.get("Temperature").toString());
+	}
+
+	@Test
+	public void testSlowEndpointDoesNotDelayOthers() throws InterruptedException {
+		provider.addItem("Temperature", "http://localhost/weather", null);
+		provider.addItem("Power", "http://localhost/power", null);
+		binding.block("http://localhost/weather");
+
+		binding.execute();
+		binding.awaitRequest("http://localhost/weather");
+		awaitState("Power");
+
+		Assert.assertNull(states.get("Temperature"));
+
+		binding.unblock();
+		binding.awaitRequests();
+
+		Assert.assertEquals("response of http://localhost/weather", states.get("Temperature").toString());
+	}
+
+	@Test
+	public void testCacheIsUpdatedOnce() throws Exception {
+		Properties headers = new Properties();
+		headers.setProperty("Accept", "text/plain");
+		provider.addItem("Temperature", "weather", null);
+		provider.addItem("Humidity", "weather", headers);
+		binding.updated(createCacheConfig());
+		binding.block("http://localhost/weather");
+
+		// both requests use the cache, but only one of them updates it
+		binding.execute();
+		binding.awaitRequest("http://localhost/weather");
+		binding.unblock();
+		binding.awaitRequests();
+
+		Assert.assertEquals(Arrays.asList("http://localhost/weather"), binding.requestedUrls);
+		Assert.assertEquals("response of http://localhost/weather", states.get("Temperature").toString());
+		Assert.assertEquals("response of http://localhost/weather", states.get("Humidity").toString());
+		Assert.assertEquals(1, binding.getEndpointStatistics("http://localhost/weather").getRequestCount());
+	}
+
+	@Test
+	public void testConfigurationIsUpdatedWhileCacheIsUpdated() throws Exception {
+		provider.addItem("Temperature", "weather", null);
+		binding.updated(createCacheConfig());
+		binding.block("http://localhost/weather");
+
+		binding.execute();
+		binding.awaitRequest("http://localhost/weather");
+		binding.updated(createCacheConfig());
+
+		Assert.assertNull(states.get("Temperature"));
+
+		binding.unblock();
+		binding.awaitRequests();
+
+		Assert.assertEquals("response of http://localhost/weather", states.get("Temperature").toString());
+	}
+
+	@Test(expected = ConfigurationException.class)
+	public void testThreadsMustBePositive() throws ConfigurationException {
+		Hashtable<String, String> config = new Hashtable<String, String>();
+		config.put(HttpBinding.CONFIG_THREADS, "0");
+		binding.updated(config);
+	}
+
+	private void awaitState(String itemName) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while (!states.containsKey(itemName) && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		Assert.assertTrue(states.containsKey(itemName));
+	}
+
+	private static Hashtable<String, String> createCacheConfig() {
+		Hashtable<String, String> config = new Hashtable<String, String>();
+		config.put("weather.url", "http://localhost/weather");
+		config.put("weather.updateInterval", "60000");
+		return config;
+	}
+
+	private EventPublisher createEventPublisher() {
+		return (EventPublisher) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { EventPublisher.class },
+			new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if ("postUpdate".equals(method.getName())) {
+						states.put((String) args[0], (State) args[1]);
+					}
+					return null;
+				}
+			});
+	}
+
+	/**
+	 * A binding which does not send requests, but answers them itself. Requests
+	 * to a blocked url do not return before the binding is unblocked.
+	 */
+	static class TestHttpBinding extends HttpBinding {
+
+		final List<String> requestedUrls = Collections.synchronizedList(new ArrayList<String>());
+
+		private volatile String blockedUrl;
+
+		private final CountDownLatch blocked = new CountDownLatch(1);
+
+		void block(String url) {
+			blockedUrl = url;
+		}
+
+		void unblock() {
+			blocked.countDown();
+		}
+
+		@Override
+		String executeUrl(String url, Properties headers) {
+			requestedUrls.add(url);
+			if (url.equals(blockedUrl)) {
+				try {
+					blocked.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return "response of " + url;
+		}
+
+		void awaitRequest(String url) throws InterruptedException {
+			long end = System.currentTimeMillis() + 5000;
+			while (!requestedUrls.contains(url) && System.currentTimeMillis() < end) {
+				Thread.sleep(10);
+			}
+			Assert.assertTrue(requestedUrls.contains(url));
+		}
+
+		void awaitRequests() throws InterruptedException {
+			long end = System.currentTimeMillis() + 5000;
+			while (!runningRequests.isEmpty() && System.currentTimeMillis() < end) {
+				Thread.sleep(10);
+			}
+			Assert.assertTrue(runningRequests.isEmpty());
+		}
+	}
+
+	/**
+	 * Provides string items which are refreshed every minute and are not transformed.
+	 */
+	static class TestBindingProvider implements InvocationHandler {
+
+		final HttpBindingProvider proxy = (HttpBindingProvider) Proxy.newProxyInstance(
+			HttpBindingTest.class.getClassLoader(), new Class<?>[] { HttpBindingProvider.class }, this);
+
+		private final List<String> itemNames = new ArrayList<String>();
+
+		private final Map<String, String> urls = new HashMap<String, String>();
+
+		private final Map<String, Properties> headers = new HashMap<String, Properties>();
+
+		void addItem(String itemName, String url, Properties itemHeaders) {
+			itemNames.add(itemName);
+			urls.put(itemName, url);
+			headers.put(itemName, itemHeaders);
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if ("getInBindingItemNames".equals(name)) {
+				return itemNames;
+			} else if ("getUrl".equals(name)) {
+				return urls.get(args[0]);
+			} else if ("getHttpHeaders".equals(name)) {
+				return headers.get(args[0]);
+			} else if ("getRefreshInterval".equals(name)) {
+				return 60000;
+			} else if ("getTransformation".equals(name)) {
+				return "default(none)";
+			} else if ("getItemType".equals(name)) {
+				return StringItem.class;
+			} else if ("providesBinding".equals(name) || "providesBindingFor".equals(name)) {
+				return false;
+			}
+			return null;
+		}
+	}
+
+}
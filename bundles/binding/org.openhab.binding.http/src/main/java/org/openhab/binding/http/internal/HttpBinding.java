@@ -11,12 +11,24 @@ package org.openhab.binding.http.internal;
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 import static org.openhab.binding.http.internal.HttpGenericBindingProvider.CHANGED_COMMAND_KEY;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,6 +47,7 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.transform.DocumentTransformationService;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationHelper;
 import org.openhab.core.transform.TransformationService;
@@ -64,6 +77,10 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 
 	protected static final String CONFIG_TIMEOUT = "timeout";
 	protected static final String CONFIG_GRANULARITY = "granularity";
+	protected static final String CONFIG_THREADS = "threads";
+	
+	/** the interval in which the endpoint statistics are logged */
+	private static final long STATISTICS_INTERVAL = 60000L;
 	
 	/** the timeout to use for connecting to a given host (defaults to 5000 milliseconds) */
 	private int timeout = 5000;
@@ -71,7 +88,21 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 	/** the interval to find new refresh candidates (defaults to 1000 milliseconds)*/ 
 	private int granularity = 1000;
 	
-	private Map<String, Long> lastUpdateMap = new HashMap<String, Long>();
+	/** the number of requests which are executed concurrently (defaults to 5) */
+	private int threads = 5;
+	
+	private Map<String, Long> lastUpdateMap = new ConcurrentHashMap<String, Long>();
+	
+	/** the pool which executes the requests */
+	private ExecutorService executor;
+	
+	/** the requests which are currently executed, by their url and headers */
+	final ConcurrentMap<String, HttpRequest> runningRequests = new ConcurrentHashMap<String, HttpRequest>();
+	
+	/** the statistics of every requested endpoint, by their url */
+	private final ConcurrentMap<String, EndpointStatistics> endpointStatistics = new ConcurrentHashMap<String, EndpointStatistics>();
+	
+	private long lastStatistics = System.currentTimeMillis();
 	
 	/** RegEx to extract a parse a function String <code>'(.*?)\((.*)\)'</code> */
 	private static final Pattern EXTRACT_FUNCTION_PATTERN = 
@@ -130,17 +161,32 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 	 * @{inheritDoc}
 	 */
 	@Override
+	public void deactivate() {
+		super.deactivate();
+		shutdownExecutor();
+	}
+	
+	/**
+	 * Collects the items which have to be refreshed and groups them by their
+	 * request, so that every URL is requested only once for all of its items.
+	 * The requests are executed concurrently by a pool of worker threads. A
+	 * request which is still running is not started again.
+	 * 
+	 * @{inheritDoc}
+	 */
+	@Override
 	public void execute() {
 		
+		Map<String, HttpRequest> requests = new LinkedHashMap<String, HttpRequest>();
+		
 		for (HttpBindingProvider provider : providers) {
 			for (String itemName : provider.getInBindingItemNames()) {
 				
-				String url = provider.getUrl(itemName);
-				url = String.format(url, Calendar.getInstance().getTime());
+				String endpoint = provider.getUrl(itemName);
+				String url = String.format(endpoint, Calendar.getInstance().getTime());
 
 				Properties headers = provider.getHttpHeaders(itemName);
 				int refreshInterval = provider.getRefreshInterval(itemName);
-				String transformation = provider.getTransformation(itemName);
 				
 				Long lastUpdateTimeStamp = lastUpdateMap.get(itemName);
 				if (lastUpdateTimeStamp == null) {
@@ -152,62 +198,167 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 				
 				if (needsUpdate) {
 					
-					String response = null;
-					
 					// check if special URL is used and data should get from
 					// cache rather than directly from server
-					if (isCacheConfig(url)) {
-						logger.debug("item '{}' is fetched from cache", itemName);
-						response = getCacheData(url);
-					} else if (isValidUrl(url)) {
-						logger.debug("item '{}' is about to be refreshed now", itemName);
-						response = HttpUtil.executeUrl("GET", url, headers, null, null, timeout);
-					} else {
+					if (!isCacheConfig(url) && !isValidUrl(url)) {
 						logger.debug("item '{}' is not a valid URL or is a cache id yet to be initialised ({})", itemName, url);
 						continue;
 					}
 					
-					if (response==null) {
-						logger.error("No response received from '{}'", url);
-					} else {
-						String transformedResponse;
-						try {
-							String[] parts = splitTransformationConfig(transformation);
-							String transformationType = parts[0];
-							String transformationFunction = parts[1];
-							
-							TransformationService transformationService = 
-								TransformationHelper.getTransformationService(HttpActivator.getContext(), transformationType);
-							if (transformationService != null) {
-								transformedResponse = transformationService.transform(transformationFunction, response);
-							} else {
-								transformedResponse = response;
-								logger.warn("couldn't transform response because transformationService of type '{}' is unavailable", transformationType);
-							}
-						}
-						catch (TransformationException te) {
-							logger.error("transformation throws exception [transformation="
-									+ transformation + ", response=" + response + "]", te);
-							
-							// in case of an error we return the response without any
-							// transformation
-							transformedResponse = response;
-						}
-						
-						logger.debug("transformed response is '{}'", transformedResponse);
-						
-						Class<? extends Item> itemType = provider.getItemType(itemName);
-						State state = createState(itemType, transformedResponse);
-						
-						if (state != null) {
-							eventPublisher.postUpdate(itemName, state);
-						}
+					String requestKey = url + " " + headers;
+					HttpRequest request = requests.get(requestKey);
+					if (request == null) {
+						request = new HttpRequest(requestKey, url, endpoint, headers);
+						requests.put(requestKey, request);
 					}
-					
-					lastUpdateMap.put(itemName, System.currentTimeMillis());
+					request.addItem(provider, itemName);
 				}					
 			}
 		}
+		
+		ExecutorService executor = getExecutor();
+		for (HttpRequest request : requests.values()) {
+			if (runningRequests.putIfAbsent(request.key, request) == null) {
+				try {
+					executor.execute(request);
+				} catch (RejectedExecutionException e) {
+					runningRequests.remove(request.key);
+					logger.debug("request to '{}' has been rejected, as the binding is shutting down", request.url);
+				}
+			} else {
+				logger.debug("request to '{}' is still running, skipping it", request.url);
+			}
+		}
+		
+		logStatistics();
+	}
+	
+	/**
+	 * Transforms a response and posts the resulting state for the given item.
+	 * 
+	 * @param provider the provider of the item
+	 * @param itemName the item to update
+	 * @param response the response received for the item
+	 * @param parsedResponses the responses which have already been parsed for other items
+	 */
+	private void updateItem(HttpBindingProvider provider, String itemName, String response, 
+			Map<String, Map<String, Object>> parsedResponses) {
+		String transformation = provider.getTransformation(itemName);
+		String transformedResponse;
+		try {
+			String[] parts = splitTransformationConfig(transformation);
+			String transformationType = parts[0];
+			String transformationFunction = parts[1];
+			
+			TransformationService transformationService = 
+				TransformationHelper.getTransformationService(HttpActivator.getContext(), transformationType);
+			if (transformationService instanceof DocumentTransformationService) {
+				DocumentTransformationService documentService = (DocumentTransformationService) transformationService;
+				Object document = getParsedResponse(parsedResponses, response, transformationType, documentService);
+				transformedResponse = documentService.transformDocument(transformationFunction, document);
+			} else if (transformationService != null) {
+				transformedResponse = transformationService.transform(transformationFunction, response);
+			} else {
+				transformedResponse = response;
+				logger.warn("couldn't transform response because transformationService of type '{}' is unavailable", transformationType);
+			}
+		}
+		catch (TransformationException te) {
+			logger.error("transformation throws exception [transformation="
+					+ transformation + ", response=" + response + "]", te);
+			
+			// in case of an error we return the response without any
+			// transformation
+			transformedResponse = response;
+		}
+		
+		logger.debug("transformed response is '{}'", transformedResponse);
+		
+		Class<? extends Item> itemType = provider.getItemType(itemName);
+		State state = createState(itemType, transformedResponse);
+		
+		if (state != null) {
+			eventPublisher.postUpdate(itemName, state);
+		}
+	}
+	
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private final AtomicInteger threadNumber = new AtomicInteger();
+
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "HTTP Refresh " + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+	
+	private synchronized void shutdownExecutor() {
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+	
+	private void logStatistics() {
+		long now = System.currentTimeMillis();
+		if (now - lastStatistics >= STATISTICS_INTERVAL) {
+			lastStatistics = now;
+			for (EndpointStatistics statistics : endpointStatistics.values()) {
+				logger.debug("HTTP endpoint '{}': requests={}, failed={}, timeouts={}, avgLatency={}ms, maxLatency={}ms",
+						new Object[] { statistics.url, statistics.getRequestCount(), statistics.getFailedCount(),
+							statistics.getTimeoutCount(), statistics.getAverageLatency(), statistics.getMaxLatency() });
+			}
+		}
+	}
+	
+	/**
+	 * Returns the statistics of the given endpoint and creates them, if the endpoint
+	 * has not been requested before.
+	 * 
+	 * @param url the url of the endpoint
+	 * @return the statistics of the endpoint
+	 */
+	EndpointStatistics getEndpointStatistics(String url) {
+		EndpointStatistics statistics = endpointStatistics.get(url);
+		if (statistics == null) {
+			statistics = new EndpointStatistics(url);
+			EndpointStatistics existingStatistics = endpointStatistics.putIfAbsent(url, statistics);
+			if (existingStatistics != null) {
+				statistics = existingStatistics;
+			}
+		}
+		return statistics;
+	}
+	
+	/**
+	 * Returns the parsed form of a response for the given transformation type. The
+	 * response is only parsed, if it has not been parsed by the same type before.
+	 * 
+	 * @param parsedResponses the responses which have already been parsed
+	 * @param response the response to parse
+	 * @param transformationType the type of the transformation, e.g. XPATH
+	 * @param transformationService the service which parses the response
+	 * @return the parsed response
+	 * @throws TransformationException if the response cannot be parsed
+	 */
+	private Object getParsedResponse(Map<String, Map<String, Object>> parsedResponses, String response,
+			String transformationType, DocumentTransformationService transformationService) throws TransformationException {
+		Map<String, Object> documents = parsedResponses.get(response);
+		if (documents == null) {
+			documents = new HashMap<String, Object>();
+			parsedResponses.put(response, documents);
+		}
+		Object document = documents.get(transformationType);
+		if (document == null) {
+			document = transformationService.parse(response);
+			documents.put(transformationType, document);
+		}
+		return document;
 	}
 	
 	/**
@@ -346,37 +497,88 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 	}
 
 	/**
-	 * Synchronized access to the item cache. Checks the <code>cacheId</code>
-	 * is a cached item and returns the cached value. If the cache has 
-	 * expired, refresh the cache value by making a new HTTP request.
+	 * Checks the <code>cacheId</code> is a cached item and returns the cached
+	 * value. If the cache has expired, refresh the cache value by making a new
+	 * HTTP request. The request is made without holding the lock of the item
+	 * cache, and requests for the same <code>cacheId</code> wait for the
+	 * update which is already running instead of requesting the data again.
 	 * 
 	 * @param cacheId
-	 * @return the cached (or refreshed) dats
+	 * @return the cached (or refreshed) data
 	 */
 	private String getCacheData(String cacheId) {
+		CacheConfig cacheConfig;
+		String url;
+		Properties headers;
 		synchronized(itemCacheLock) {
 			// check again in case the cache was cleared in between taking
 			// the lock when checking in isCacheConfig() and now
-			if (!itemCache.containsKey(cacheId))
+			cacheConfig = itemCache.get(cacheId);
+			if (cacheConfig == null)
 				return null;
-				
-			CacheConfig cacheConfig = itemCache.get(cacheId);
+			
+			while (cacheConfig.updating) {
+				try {
+					itemCacheLock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return cacheConfig.data;
+				}
+			}
 			
 			long cacheAge = System.currentTimeMillis() - cacheConfig.lastUpdate;
 			boolean cacheNeedsUpdate = cacheAge >= cacheConfig.updateInterval;
-
-			if (cacheNeedsUpdate) {
-
-				// update and store data on cache
-				logger.debug("updating cache for '{}' ('{}')", cacheId, cacheConfig.url);
-				cacheConfig.data = HttpUtil.executeUrl("GET", cacheConfig.url, cacheConfig.headers, null, null, timeout);
-
-				if (cacheConfig.data != null)
+			
+			if (!cacheNeedsUpdate) {
+				return cacheConfig.data;
+			}
+			
+			cacheConfig.updating = true;
+			url = cacheConfig.url;
+			headers = cacheConfig.headers;
+		}
+		
+		// update and store data on cache
+		logger.debug("updating cache for '{}' ('{}')", cacheId, url);
+		String data = null;
+		try {
+			data = fetch(url, url, headers);
+		} finally {
+			synchronized(itemCacheLock) {
+				cacheConfig.data = data;
+				if (data != null)
 					cacheConfig.lastUpdate = System.currentTimeMillis();
+				cacheConfig.updating = false;
+				itemCacheLock.notifyAll();
 			}
-
-			return cacheConfig.data;
-		}								
+		}
+		return data;
+	}
+	
+	/**
+	 * Executes a GET request and records it in the statistics of the given endpoint.
+	 * 
+	 * @param endpoint the endpoint whose statistics are updated
+	 * @param url the url to request
+	 * @param headers the headers to send
+	 * @return the response or <code>null</code>, if the request failed
+	 */
+	private String fetch(String endpoint, String url, Properties headers) {
+		long start = System.currentTimeMillis();
+		String response = executeUrl(url, headers);
+		getEndpointStatistics(endpoint).record(System.currentTimeMillis() - start, response != null, timeout);
+		return response;
+	}
+	
+	/**
+	 * Executes a GET request to the given url.
+	 * 
+	 * @param url the url to request
+	 * @param headers the headers to send
+	 * @return the response or <code>null</code>, if the request failed
+	 */
+	String executeUrl(String url, Properties headers) {
+		return HttpUtil.executeUrl("GET", url, headers, null, null, timeout);
 	}
 	
 	/**
@@ -399,6 +601,20 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 					granularity = Integer.parseInt(granularityString);
 				}
 				
+				String threadsString = (String) config.get(CONFIG_THREADS);
+				if (StringUtils.isNotBlank(threadsString)) {
+					int newThreads = Integer.parseInt(threadsString);
+					if (newThreads <= 0) {
+						throw new ConfigurationException(CONFIG_THREADS, "the number of threads must be positive, but is '"
+								+ threadsString + "'");
+					}
+					if (newThreads != threads) {
+						threads = newThreads;
+						// the pool is created again with the new size on the next refresh
+						shutdownExecutor();
+					}
+				}
+				
 				// Parse page cache config
 				
 				@SuppressWarnings("unchecked")
@@ -410,7 +626,7 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 					// the config-key enumeration contains additional keys that we
 					// don't want to process here ...
 					if (CONFIG_TIMEOUT.equals(key) || CONFIG_GRANULARITY.equals(key)
-							|| "service.pid".equals(key)) {
+							|| CONFIG_THREADS.equals(key) || "service.pid".equals(key)) {
 						continue;
 					}
 	
@@ -503,6 +719,9 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 		/** Last time when data is updated */
 		long lastUpdate;
 		
+		/** Whether the data is currently updated */
+		boolean updating;
+		
 		public CacheConfig(String id) {
 			this.id = id;
 		}
@@ -513,4 +732,124 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 					+ updateInterval + "]";
 		}
 	}
+	
+	/**
+	 * A request which is shared by all items with the same url and headers.
+	 * The response is fanned out to all of these items.
+	 */
+	class HttpRequest implements Runnable {
+		
+		final String key;
+		
+		final String url;
+		
+		/** the url before the formatting markers have been replaced, used for the statistics */
+		final String endpoint;
+		
+		final Properties headers;
+		
+		final List<HttpBindingProvider> providers = new ArrayList<HttpBindingProvider>();
+		
+		final List<String> itemNames = new ArrayList<String>();
+		
+		HttpRequest(String key, String url, String endpoint, Properties headers) {
+			this.key = key;
+			this.url = url;
+			this.endpoint = endpoint;
+			this.headers = headers;
+		}
+		
+		void addItem(HttpBindingProvider provider, String itemName) {
+			providers.add(provider);
+			itemNames.add(itemName);
+		}
+		
+		public void run() {
+			try {
+				String response;
+				if (isCacheConfig(url)) {
+					logger.debug("items {} are fetched from cache", itemNames);
+					response = getCacheData(url);
+				} else {
+					logger.debug("items {} are about to be refreshed now", itemNames);
+					response = fetch(endpoint, url, headers);
+				}
+				
+				if (response==null) {
+					logger.error("No response received from '{}'", url);
+				} else {
+					Map<String, Map<String, Object>> parsedResponses = new IdentityHashMap<String, Map<String, Object>>();
+					for (int i = 0; i < itemNames.size(); i++) {
+						updateItem(providers.get(i), itemNames.get(i), response, parsedResponses);
+					}
+				}
+				
+				long now = System.currentTimeMillis();
+				for (String itemName : itemNames) {
+					lastUpdateMap.put(itemName, now);
+				}
+			} catch (RuntimeException e) {
+				logger.error("refreshing items " + itemNames + " from '" + url + "' throws exception", e);
+			} finally {
+				runningRequests.remove(key);
+			}
+		}
+	}
+	
+	/**
+	 * The latency and error statistics of an endpoint.
+	 */
+	static class EndpointStatistics {
+		
+		final String url;
+		
+		private final AtomicLong requestCount = new AtomicLong();
+		private final AtomicLong failedCount = new AtomicLong();
+		private final AtomicLong timeoutCount = new AtomicLong();
+		private final AtomicLong totalLatency = new AtomicLong();
+		private final AtomicLong maxLatency = new AtomicLong();
+		
+		EndpointStatistics(String url) {
+			this.url = url;
+		}
+		
+		/**
+		 * Records a request. A failed request which took at least the timeout is 
+		 * counted as a timeout.
+		 */
+		void record(long latency, boolean successful, int timeout) {
+			requestCount.incrementAndGet();
+			totalLatency.addAndGet(latency);
+			if (latency > maxLatency.get()) {
+				maxLatency.set(latency);
+			}
+			if (!successful) {
+				failedCount.incrementAndGet();
+				if (latency >= timeout) {
+					timeoutCount.incrementAndGet();
+				}
+			}
+		}
+		
+		long getRequestCount() {
+			return requestCount.get();
+		}
+		
+		long getFailedCount() {
+			return failedCount.get();
+		}
+		
+		long getTimeoutCount() {
+			return timeoutCount.get();
+		}
+		
+		long getAverageLatency() {
+			long count = requestCount.get();
+			return count > 0 ? totalLatency.get() / count : 0;
+		}
+		
+		long getMaxLatency() {
+			return maxLatency.get();
+		}
+	}
 }
@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.modbus.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.cm.ConfigurationException;
+
+/**
+ * @since 1.8.0
+ */
+public class ModbusBindingTest {
+
+	private ModbusBinding binding;
+
+	private Map<String, ModbusSlave> slaves;
+
+	/** the number of slaves which are currently polled by endpoint */
+	private final Map<String, AtomicInteger> activePolls = new ConcurrentHashMap<String, AtomicInteger>();
+
+	private final AtomicInteger maxActivePollsPerEndpoint = new AtomicInteger();
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		binding = new ModbusBinding();
+		Field field = ModbusBinding.class.getDeclaredField("modbusSlaves");
+		field.setAccessible(true);
+		slaves = (Map<String, ModbusSlave>) field.get(null);
+		slaves.clear();
+	}
+
+	@After
+	public void tearDown() {
+		binding.deactivate();
+		slaves.clear();
+	}
+
+	@Test
+	public void testUnreachableConnectionDoesNotDelayOthers() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch polled = new CountDownLatch(4);
+		addSlave(new TestSlave("gateway1", "tcp:gateway1:502", release, null));
+		addSlave(new TestSlave("device1", "tcp:gateway2:502", null, polled));
+		addSlave(new TestSlave("device2", "tcp:gateway2:502", null, polled));
+		addSlave(new TestSlave("device3", "tcp:gateway3:502", null, polled));
+		addSlave(new TestSlave("device4", "udp:gateway4:502", null, polled));
+
+		binding.execute();
+
+		assertTrue(polled.await(5, TimeUnit.SECONDS));
+		release.countDown();
+	}
+
+	@Test
+	public void testSlavesOfConnectionArePolledSerially() throws InterruptedException {
+		CountDownLatch polled = new CountDownLatch(6);
+		for (int i = 0; i < 6; i++) {
+			addSlave(new TestSlave("slave" + i, "serial:/dev/ttyS0", null, polled));
+		}
+
+		binding.execute();
+
+		assertTrue(polled.await(5, TimeUnit.SECONDS));
+		assertEquals(1, maxActivePollsPerEndpoint.get());
+	}
+
+	@Test
+	public void testRunningConnectionIsSkipped() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		TestSlave slave = new TestSlave("gateway", "tcp:gateway:502", release, null);
+		addSlave(slave);
+
+		for (int i = 0; i < 5; i++) {
+			binding.execute();
+		}
+		release.countDown();
+		waitForPolls(binding.getSlaveStatistics("gateway"), 1);
+
+		assertEquals(1, slave.polls.get());
+	}
+
+	@Test
+	public void testStatistics() throws InterruptedException {
+		TestSlave slave = new TestSlave("device", "tcp:device:502", null, null);
+		slave.successful = false;
+		addSlave(slave);
+
+		binding.execute();
+		ModbusBinding.SlaveStatistics statistics = binding.getSlaveStatistics("device");
+		waitForPolls(statistics, 1);
+
+		assertEquals(1, statistics.getPollCount());
+		assertEquals(1, statistics.getFailedCount());
+	}
+
+	@Test(expected = ConfigurationException.class)
+	public void testThreadsMustBePositive() throws ConfigurationException {
+		Hashtable<String, Object> config = new Hashtable<String, Object>();
+		config.put("threads", "0");
+		binding.updated(config);
+	}
+
+	private void addSlave(TestSlave slave) {
+		slaves.put(slave.getName(), slave);
+	}
+
+	private static void waitForPolls(ModbusBinding.SlaveStatistics statistics, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (statistics.getPollCount() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * A slave which waits until it is released instead of reading from a device.
+	 */
+	private class TestSlave extends ModbusSlave {
+
+		final String endpoint;
+		final CountDownLatch release;
+		final CountDownLatch polled;
+		final AtomicInteger polls = new AtomicInteger();
+		boolean successful = true;
+
+		TestSlave(String name, String endpoint, CountDownLatch release, CountDownLatch polled) {
+			super(name);
+			this.endpoint = endpoint;
+			this.release = release;
+			this.polled = polled;
+		}
+
+		@Override
+		public boolean update(ModbusBinding binding) {
+			AtomicInteger active = activePolls.get(endpoint);
+			if (active == null) {
+				active = new AtomicInteger();
+				activePolls.put(endpoint, active);
+			}
+			int current = active.incrementAndGet();
+			if (current > maxActivePollsPerEndpoint.get()) {
+				maxActivePollsPerEndpoint.set(current);
+			}
+			try {
+				polls.incrementAndGet();
+				if (release != null) {
+					release.await(5, TimeUnit.SECONDS);
+				} else {
+					Thread.sleep(10);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				active.decrementAndGet();
+				if (polled != null) {
+					polled.countDown();
+				}
+			}
+			return successful;
+		}
+
+		@Override
+		String getEndpoint() {
+			return endpoint;
+		}
+
+		public boolean isConnected() {
+			return true;
+		}
+
+		public boolean connect() {
+			return true;
+		}
+
+		public void resetConnection() {
+		}
+	}
+
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.modbus.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.wimpi.modbus.procimg.InputRegister;
+import net.wimpi.modbus.procimg.SimpleInputRegister;
+import net.wimpi.modbus.util.BitVector;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.modbus.internal.ModbusDecodePlan.ValueDecoder;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.types.State;
+import org.openhab.model.item.binding.BindingConfigParseException;
+
+/**
+ * @since 1.8.0
+ */
+public class ModbusDecodePlanTest {
+
+	private ModbusGenericBindingProvider provider;
+
+	private RecordingEventPublisher eventPublisher;
+
+	@Before
+	public void setUp() {
+		provider = new ModbusGenericBindingProvider();
+		eventPublisher = new RecordingEventPublisher();
+	}
+
+	@Test
+	public void testDecodersMatchByteOrder() {
+		Random random = new Random(42);
+		InputRegister[] registers = new InputRegister[8];
+		for (int i = 0; i < 1000; i++) {
+			for (int j = 0; j < registers.length; j++) {
+				registers[j] = new SimpleInputRegister(random.nextInt(0x10000));
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(registers.length * 2);
+			for (InputRegister register : registers) {
+				buffer.put(register.toBytes());
+			}
+			int index = random.nextInt(4);
+			assertEquals(buffer.getShort(index * 2), ValueDecoder.INT16.decode(registers, index));
+			assertEquals(buffer.getShort(index * 2) & 0xffff, ValueDecoder.UINT16.decode(registers, index));
+			assertEquals(buffer.getInt(index * 4), ValueDecoder.INT32.decode(registers, index));
+			assertEquals(buffer.getInt(index * 4) & 0xffffffffL, ValueDecoder.UINT32.decode(registers, index));
+			assertEquals(Float.floatToRawIntBits(buffer.getFloat(index * 4)),
+					(int) ValueDecoder.FLOAT32.decode(registers, index));
+			assertEquals(registers[index / 2].toBytes()[1 - (index % 2)], ValueDecoder.INT8.decode(registers, index));
+			assertEquals(registers[index / 2].toBytes()[1 - (index % 2)] & 0xff, ValueDecoder.UINT8.decode(registers, index));
+			int bit = random.nextInt(registers.length * 16);
+			assertEquals((registers[bit / 16].toUnsignedShort() >> (bit % 16)) & 1, ValueDecoder.BIT.decode(registers, bit));
+		}
+	}
+
+	@Test
+	public void testBitsOfLaterRegisters() {
+		InputRegister[] registers = registers(0, 0x8001, 0x0004);
+
+		assertEquals(0, ValueDecoder.BIT.decode(registers, 15));
+		assertEquals(1, ValueDecoder.BIT.decode(registers, 16));
+		assertEquals(0, ValueDecoder.BIT.decode(registers, 17));
+		assertEquals(1, ValueDecoder.BIT.decode(registers, 31));
+		assertEquals(0, ValueDecoder.BIT.decode(registers, 32));
+		assertEquals(1, ValueDecoder.BIT.decode(registers, 34));
+	}
+
+	@Test
+	public void testUnchangedValueIsNotPosted() throws BindingConfigParseException {
+		NumberItem item = new NumberItem("Temperature");
+		ModbusDecodePlan plan = createPlan("int16", 1.0, item, "slave:1");
+
+		plan.update(registers(0, 0xfff6), eventPublisher);
+		assertEquals(1, eventPublisher.updates.size());
+		assertEquals(new DecimalType(-10), eventPublisher.updates.get(0));
+		State state = eventPublisher.updates.get(0);
+		item.setState(state);
+
+		for (int i = 0; i < 10; i++) {
+			plan.update(registers(i, 0xfff6), eventPublisher);
+		}
+		assertEquals(1, eventPublisher.updates.size());
+		assertSame(state, item.getState());
+
+		plan.update(registers(0, 5), eventPublisher);
+		assertEquals(2, eventPublisher.updates.size());
+		assertEquals(new DecimalType(5), eventPublisher.updates.get(1));
+	}
+
+	@Test
+	public void testChangedItemStateIsPostedAgain() throws BindingConfigParseException {
+		NumberItem item = new NumberItem("Setpoint");
+		ModbusDecodePlan plan = createPlan("uint16", 1.0, item, "slave:0");
+
+		plan.update(registers(20), eventPublisher);
+		item.setState(eventPublisher.updates.get(0));
+		item.setState(new DecimalType(22));
+
+		plan.update(registers(20), eventPublisher);
+		assertEquals(2, eventPublisher.updates.size());
+		assertEquals(new DecimalType(20), eventPublisher.updates.get(1));
+	}
+
+	@Test
+	public void testSwitchAndMultiplier() throws BindingConfigParseException {
+		SwitchItem pump = new SwitchItem("Pump");
+		NumberItem power = new NumberItem("Power");
+		ModbusDecodePlan plan = createPlan("uint16", 0.1, pump, "slave:0", power, "slave:1");
+
+		plan.update(registers(1, 2345), eventPublisher);
+		assertEquals(OnOffType.ON, eventPublisher.updates.get(0));
+		assertEquals(new DecimalType(String.valueOf(2345 * 0.1)), eventPublisher.updates.get(1));
+	}
+
+	@Test
+	public void testCoils() throws BindingConfigParseException {
+		SwitchItem item = new SwitchItem("Light");
+		ModbusDecodePlan plan = createPlan("uint16", 1.0, item, "slave:3");
+		BitVector coils = new BitVector(8);
+		coils.setBit(3, true);
+
+		plan.update(coils, eventPublisher);
+		item.setState(eventPublisher.updates.get(0));
+		plan.update(coils, eventPublisher);
+		coils.setBit(3, false);
+		plan.update(coils, eventPublisher);
+
+		assertEquals(2, eventPublisher.updates.size());
+		assertEquals(OnOffType.ON, eventPublisher.updates.get(0));
+		assertEquals(OnOffType.OFF, eventPublisher.updates.get(1));
+	}
+
+	@Test
+	public void testPlanContainsItemsOfSlaveOnly() throws BindingConfigParseException {
+		provider.processBindingConfiguration("test", new NumberItem("First"), "slave1:0");
+		provider.processBindingConfiguration("test", new NumberItem("Second"), "slave2:0");
+		provider.processBindingConfiguration("test", new NumberItem("Third"), "slave1:1");
+		ModbusBinding binding = new ModbusBinding();
+		binding.addBindingProvider(provider);
+		ModbusSlave slave = new ModbusTcpSlave("slave1");
+
+		ModbusDecodePlan plan = binding.getDecodePlan(slave);
+		assertEquals(2, plan.size());
+		assertSame(plan, binding.getDecodePlan(slave));
+
+		provider.processBindingConfiguration("test", new NumberItem("Fourth"), "slave1:2");
+		binding.bindingChanged(provider, "Fourth");
+		assertNotSame(plan, binding.getDecodePlan(slave));
+		assertEquals(3, binding.getDecodePlan(slave).size());
+	}
+
+	@Test
+	public void testUnchangedPollsOfManyItems() throws BindingConfigParseException {
+		int itemCount = 100;
+		int pollCount = 100;
+		List<ModbusGenericBindingProvider.ModbusBindingConfig> configs = new ArrayList<ModbusGenericBindingProvider.ModbusBindingConfig>();
+		InputRegister[] registers = new InputRegister[itemCount * 2];
+		for (int i = 0; i < registers.length; i++) {
+			registers[i] = new SimpleInputRegister(i);
+		}
+		List<NumberItem> items = new ArrayList<NumberItem>();
+		for (int i = 0; i < itemCount; i++) {
+			items.add(new NumberItem("Item" + i));
+			configs.add(provider.new ModbusBindingConfig(items.get(i), "slave:" + i));
+		}
+		ModbusTcpSlave slave = new ModbusTcpSlave("slave");
+		slave.setValueType("float32");
+		ModbusDecodePlan plan = new ModbusDecodePlan(slave, configs);
+		plan.update(registers, eventPublisher);
+		for (int i = 0; i < itemCount; i++) {
+			items.get(i).setState(eventPublisher.updates.get(i));
+		}
+
+		// the unchanged values are not posted again
+		for (int i = 0; i < pollCount; i++) {
+			plan.update(registers, eventPublisher);
+		}
+		assertEquals(itemCount, eventPublisher.updates.size());
+
+		registers[2 * 42 + 1] = new SimpleInputRegister(0x4000);
+		plan.update(registers, eventPublisher);
+		assertEquals(itemCount + 1, eventPublisher.updates.size());
+	}
+
+	private ModbusDecodePlan createPlan(String valueType, double rawDataMultiplier, Object... itemsAndConfigs)
+			throws BindingConfigParseException {
+		ModbusTcpSlave slave = new ModbusTcpSlave("slave");
+		slave.setValueType(valueType);
+		slave.setRawDataMultiplier(rawDataMultiplier);
+		List<ModbusGenericBindingProvider.ModbusBindingConfig> configs = new ArrayList<ModbusGenericBindingProvider.ModbusBindingConfig>();
+		for (int i = 0; i < itemsAndConfigs.length; i += 2) {
+			configs.add(provider.new ModbusBindingConfig((GenericItem) itemsAndConfigs[i], (String) itemsAndConfigs[i + 1]));
+		}
+		return new ModbusDecodePlan(slave, configs);
+	}
+
+	private static InputRegister[] registers(int... values) {
+		InputRegister[] registers = new InputRegister[values.length];
+		for (int i = 0; i < values.length; i++) {
+			registers[i] = new SimpleInputRegister(values[i]);
+		}
+		return registers;
+	}
+
+}
@@ -0,0 +1,355 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.modbus.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.wimpi.modbus.ModbusCoupler;
+import net.wimpi.modbus.ModbusException;
+import net.wimpi.modbus.ModbusIOException;
+import net.wimpi.modbus.net.ModbusTCPListener;
+import net.wimpi.modbus.procimg.IllegalAddressException;
+import net.wimpi.modbus.procimg.InputRegister;
+import net.wimpi.modbus.procimg.Register;
+import net.wimpi.modbus.procimg.SimpleInputRegister;
+import net.wimpi.modbus.procimg.SimpleProcessImage;
+import net.wimpi.modbus.procimg.SimpleRegister;
+import net.wimpi.modbus.util.BitVector;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+
+/**
+ * @since 1.8.0
+ */
+public class ModbusReadRangeTest {
+
+	private static final int SLAVE_COUNT = 10;
+	private static final int SLAVE_LENGTH = 8;
+	private static final int SLAVE_DISTANCE = 10;
+
+	private Map<String, ModbusSlave> slaves;
+
+	private ModbusTCPListener listener;
+
+	private final AtomicInteger requestCount = new AtomicInteger();
+
+	/** the reads of the {@link FlakySlave}s, as start and length */
+	private final List<String> reads = new ArrayList<String>();
+
+	/** the number of reads of the {@link FlakySlave}s which are still going to fail */
+	private int failingReads;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		Field field = ModbusBinding.class.getDeclaredField("modbusSlaves");
+		field.setAccessible(true);
+		slaves = (Map<String, ModbusSlave>) field.get(null);
+		slaves.clear();
+	}
+
+	@After
+	public void tearDown() {
+		if (listener != null) {
+			listener.stop();
+		}
+		slaves.clear();
+	}
+
+	@Test
+	public void testAdjacentAndNearbySlavesAreMerged() {
+		List<ModbusReadRange> ranges = ModbusReadRange.merge(Arrays.asList(
+				slave("a", "holding", 1, 20, 10), slave("b", "holding", 1, 0, 10),
+				slave("c", "holding", 1, 10, 5), slave("d", "holding", 1, 40, 10)), 5);
+
+		assertEquals(2, ranges.size());
+		assertEquals(0, ranges.get(0).getStart());
+		assertEquals(30, ranges.get(0).getLength());
+		assertEquals(3, ranges.get(0).getSlaves().size());
+		assertTrue(ranges.get(0).isMerged());
+		assertEquals(40, ranges.get(1).getStart());
+		assertFalse(ranges.get(1).isMerged());
+	}
+
+	@Test
+	public void testSlavesOfOtherUnitsAndTypesAreNotMerged() {
+		List<ModbusReadRange> ranges = ModbusReadRange.merge(Arrays.asList(
+				slave("a", "holding", 1, 0, 10), slave("b", "holding", 2, 10, 10),
+				slave("c", "input", 1, 10, 10)), 5);
+
+		assertEquals(3, ranges.size());
+	}
+
+	@Test
+	public void testRangesDoNotExceedPduLimits() {
+		List<ModbusSlave> registerSlaves = new ArrayList<ModbusSlave>();
+		List<ModbusSlave> coilSlaves = new ArrayList<ModbusSlave>();
+		for (int i = 0; i < 10; i++) {
+			registerSlaves.add(slave("r" + i, "holding", 1, i * 50, 50));
+			coilSlaves.add(slave("c" + i, "coil", 1, i * 500, 500));
+		}
+
+		assertEquals(5, ModbusReadRange.merge(registerSlaves, 0).size());
+		assertEquals(3, ModbusReadRange.merge(coilSlaves, 0).size());
+		assertEquals(10, ModbusReadRange.merge(registerSlaves, -1).size());
+		for (ModbusReadRange range : ModbusReadRange.merge(registerSlaves, 0)) {
+			assertTrue(range.getLength() <= ModbusReadRange.MAX_REGISTERS);
+		}
+	}
+
+	@Test
+	public void testSlice() {
+		InputRegister[] registers = new InputRegister[10];
+		for (int i = 0; i < registers.length; i++) {
+			registers[i] = new SimpleInputRegister(i);
+		}
+		InputRegister[] registerSlice = (InputRegister[]) ModbusReadRange.slice(registers, 3, 4);
+		assertEquals(4, registerSlice.length);
+		assertEquals(3, registerSlice[0].getValue());
+
+		BitVector coils = new BitVector(24);
+		coils.setBit(17, true);
+		BitVector coilSlice = (BitVector) ModbusReadRange.slice(coils, 16, 8);
+		assertEquals(8, coilSlice.size());
+		assertTrue(coilSlice.getBit(1));
+		assertFalse(coilSlice.getBit(0));
+	}
+
+	@Test
+	public void testMergedPollAgainstSimulator() throws Exception {
+		int port = startSimulator(SLAVE_COUNT * SLAVE_DISTANCE, false);
+		int cycles = 20;
+
+		poll(port, -1, cycles);
+		int separateRequests = requestCount.getAndSet(0);
+		poll(port, SLAVE_DISTANCE - SLAVE_LENGTH, cycles);
+		int mergedRequests = requestCount.get();
+
+		assertEquals(SLAVE_COUNT * cycles, separateRequests);
+		assertEquals(cycles, mergedRequests);
+	}
+
+	@Test
+	public void testRejectedMergedRequestIsSplit() throws Exception {
+		// the device answers requests for the registers between the slaves with an exception
+		int port = startSimulator(2 * SLAVE_DISTANCE, true);
+		ModbusBinding binding = configureBinding(port, 1000, 2, SLAVE_DISTANCE);
+		ModbusBinding.SlavePoll poll = createPoll(binding, port);
+
+		poll.run();
+		List<ModbusReadRange> ranges = binding.getReadRanges(poll.endpoint, poll.slaves);
+		assertEquals(1, ranges.size());
+		assertFalse(ranges.get(0).isMerged());
+		assertEquals(0, binding.getSlaveStatistics("slave0").getFailedCount());
+		assertEquals(0, binding.getSlaveStatistics("slave1").getFailedCount());
+
+		requestCount.set(0);
+		poll.run();
+		assertEquals(2, requestCount.get());
+		binding.deactivate();
+	}
+
+	@Test
+	public void testRangeWithFailingSlaveIsNotSplit() throws Exception {
+		// the registers behind the first slave do not exist in the simulator
+		int port = startSimulator(SLAVE_LENGTH, false);
+		ModbusBinding binding = configureBinding(port, 1000, 2, SLAVE_LENGTH + 10);
+		ModbusBinding.SlavePoll poll = createPoll(binding, port);
+
+		poll.run();
+		List<ModbusReadRange> ranges = binding.getReadRanges(poll.endpoint, poll.slaves);
+		assertEquals(1, ranges.size());
+		assertTrue(ranges.get(0).isMerged());
+		assertEquals(0, binding.getSlaveStatistics("slave0").getFailedCount());
+		assertEquals(1, binding.getSlaveStatistics("slave1").getFailedCount());
+		binding.deactivate();
+	}
+
+	@Test
+	public void testFailedMergedRequestIsRetried() throws Exception {
+		ModbusBinding binding = configureBinding(0, 1000, 0, SLAVE_DISTANCE);
+		ModbusBinding.SlavePoll poll = binding.new SlavePoll("tcp:flaky");
+		poll.slaves.add(new FlakySlave("slave0", 0));
+		poll.slaves.add(new FlakySlave("slave1", SLAVE_DISTANCE));
+		failingReads = 1;
+
+		poll.run();
+		poll.run();
+
+		// the single reads replace the failed merged read, the next poll merges again
+		assertEquals(Arrays.asList("0+18", "0+8", "10+8", "0+18"), reads);
+		assertTrue(binding.getReadRanges(poll.endpoint, poll.slaves).get(0).isMerged());
+		assertEquals(0, binding.getSlaveStatistics("slave1").getFailedCount());
+		binding.deactivate();
+	}
+
+	/**
+	 * Polls the slaves of the simulator and checks the item states.
+	 */
+	private void poll(int port, int maxGap, int cycles) throws Exception {
+		slaves.clear();
+		ModbusBinding binding = configureBinding(port, maxGap, SLAVE_COUNT, SLAVE_DISTANCE);
+		ModbusGenericBindingProvider provider = new ModbusGenericBindingProvider();
+		RecordingEventPublisher eventPublisher = new RecordingEventPublisher();
+		for (int i = 0; i < SLAVE_COUNT; i++) {
+			for (int j = 0; j < SLAVE_LENGTH; j++) {
+				NumberItem item = new NumberItem("Item" + i + "_" + j);
+				provider.processBindingConfiguration("test", item, "slave" + i + ":" + j);
+				eventPublisher.items.put(item.getName(), item);
+			}
+		}
+		binding.addBindingProvider(provider);
+		binding.setEventPublisher(eventPublisher);
+		ModbusBinding.SlavePoll poll = createPoll(binding, port);
+
+		for (int i = 0; i < cycles; i++) {
+			poll.run();
+		}
+
+		assertEquals(SLAVE_COUNT * SLAVE_LENGTH, eventPublisher.updates.size());
+		assertEquals(new DecimalType(3 * (SLAVE_DISTANCE + 2)), eventPublisher.items.get("Item1_2").getState());
+		assertEquals(0, binding.getSlaveStatistics("slave9").getFailedCount());
+		binding.deactivate();
+	}
+
+	private ModbusBinding configureBinding(int port, int maxGap, int slaveCount, int distance) throws Exception {
+		Hashtable<String, Object> config = new Hashtable<String, Object>();
+		config.put("maxgap", String.valueOf(maxGap));
+		for (int i = 0; i < slaveCount; i++) {
+			config.put("tcp.slave" + i + ".connection", "127.0.0.1:" + port);
+			config.put("tcp.slave" + i + ".type", "holding");
+			config.put("tcp.slave" + i + ".start", String.valueOf(i * distance));
+			config.put("tcp.slave" + i + ".length", String.valueOf(SLAVE_LENGTH));
+		}
+		ModbusBinding binding = new ModbusBinding();
+		binding.updated(config);
+		return binding;
+	}
+
+	private ModbusBinding.SlavePoll createPoll(ModbusBinding binding, int port) {
+		ModbusBinding.SlavePoll poll = binding.new SlavePoll("tcp:127.0.0.1:" + port);
+		poll.slaves.addAll(slaves.values());
+		return poll;
+	}
+
+	/**
+	 * Starts a Modbus TCP slave on a free port whose holding register <i>n</i>
+	 * contains the value <i>3n</i>.
+	 *
+	 * @param gapsRejected true, if the registers between the slaves cannot be read
+	 * @return the port of the simulator
+	 */
+	private int startSimulator(int registerCount, final boolean gapsRejected) throws Exception {
+		SimpleProcessImage processImage = new SimpleProcessImage() {
+			@Override
+			public Register[] getRegisterRange(int ref, int count) {
+				requestCount.incrementAndGet();
+				for (int i = ref; gapsRejected && i < ref + count; i++) {
+					if (i % SLAVE_DISTANCE >= SLAVE_LENGTH) {
+						throw new IllegalAddressException();
+					}
+				}
+				return super.getRegisterRange(ref, count);
+			}
+		};
+		for (int i = 0; i < registerCount; i++) {
+			processImage.addRegister(new SimpleRegister(3 * i));
+		}
+		ModbusCoupler.getReference().setProcessImage(processImage);
+		ModbusCoupler.getReference().setMaster(false);
+		ModbusCoupler.getReference().setUnitID(1);
+
+		ServerSocket socket = new ServerSocket(0);
+		int port = socket.getLocalPort();
+		socket.close();
+
+		// every slave has its own connection, which occupies a thread of the simulator
+		listener = new ModbusTCPListener(SLAVE_COUNT + 2, InetAddress.getByName("127.0.0.1"));
+		listener.setPort(port);
+		listener.start();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (true) {
+			try {
+				new Socket("127.0.0.1", port).close();
+				return port;
+			} catch (Exception e) {
+				if (System.currentTimeMillis() > deadline) {
+					throw e;
+				}
+				Thread.sleep(10);
+			}
+		}
+	}
+
+	private static ModbusSlave slave(String name, String type, int id, int start, int length) {
+		ModbusSlave slave = new ModbusTcpSlave(name);
+		slave.setType(type);
+		slave.setId(id);
+		slave.setStart(start);
+		slave.setLength(length);
+		return slave;
+	}
+
+	/**
+	 * A holding register slave which does not connect to a device. Its register
+	 * <i>n</i> contains the value <i>3n</i>, unless the read fails like a lost
+	 * connection.
+	 */
+	class FlakySlave extends ModbusTcpSlave {
+
+		FlakySlave(String name, int start) {
+			super(name);
+			setType("holding");
+			setId(1);
+			setStart(start);
+			setLength(SLAVE_LENGTH);
+		}
+
+		@Override
+		public boolean connect() {
+			return true;
+		}
+
+		@Override
+		public void resetConnection() {
+		}
+
+		@Override
+		Object read(int start, int length) throws ModbusException {
+			reads.add(start + "+" + length);
+			if (failingReads > 0) {
+				failingReads--;
+				throw new ModbusIOException("Executing transaction failed");
+			}
+			InputRegister[] registers = new InputRegister[length];
+			for (int i = 0; i < length; i++) {
+				registers[i] = new SimpleInputRegister(3 * (start + i));
+			}
+			return registers;
+		}
+	}
+
+}
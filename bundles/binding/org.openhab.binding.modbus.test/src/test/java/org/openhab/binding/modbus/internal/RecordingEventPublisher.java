@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openhab.core.events.EventPublisher;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+
+/**
+ * Records the posted updates instead of sending them to the event bus. The
+ * updates of registered items are applied to them like the event bus would.
+ *
+ * @since 1.8.0
+ */
+class RecordingEventPublisher implements EventPublisher {
+
+	final List<State> updates = new ArrayList<State>();
+
+	final Map<String, GenericItem> items = new HashMap<String, GenericItem>();
+
+	public void sendCommand(String itemName, Command command) {
+	}
+
+	public void postCommand(String itemName, Command command) {
+	}
+
+	public synchronized void postUpdate(String itemName, State newState) {
+		updates.add(newState);
+		GenericItem item = items.get(itemName);
+		if (item != null) {
+			item.setState(newState);
+		}
+	}
+}
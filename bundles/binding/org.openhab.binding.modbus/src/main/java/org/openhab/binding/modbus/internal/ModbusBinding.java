@@ -8,18 +8,26 @@
  */
 package org.openhab.binding.modbus.internal;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Dictionary;
 import java.util.Enumeration;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.nio.Buffer;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
+import net.wimpi.modbus.Modbus;
+import net.wimpi.modbus.ModbusSlaveException;
 import net.wimpi.modbus.procimg.InputRegister;
 import net.wimpi.modbus.util.BitVector;
 
@@ -29,12 +37,7 @@ import org.openhab.binding.modbus.ModbusBindingProvider;
 import org.openhab.binding.modbus.internal.ModbusGenericBindingProvider.ModbusBindingConfig;
 import org.openhab.core.binding.AbstractActiveBinding;
 import org.openhab.core.binding.BindingProvider;
-import org.openhab.core.library.items.NumberItem;
-import org.openhab.core.library.items.SwitchItem;
-import org.openhab.core.library.types.DecimalType;
-import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.types.Command;
-import org.openhab.core.types.State;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
 import org.slf4j.Logger;
@@ -66,11 +69,40 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 	/** slaves update interval in milliseconds, defaults to 200ms */
 	public static int pollInterval = 200;
 
+	/** the interval in which the poll statistics are logged */
+	private static final long STATISTICS_INTERVAL = 60000L;
+
+	/** the number of connections which are polled concurrently, defaults to 5 */
+	private int threads = 5;
+
+	/**
+	 * the maximum number of unused registers or coils between two slaves of a device
+	 * which are read with a single request, defaults to 10, -1 disables merging
+	 */
+	private int maxGap = 10;
+
+	private ExecutorService executor;
+
+	/** the polls which are currently running by the endpoint of their connection */
+	private final ConcurrentMap<String, SlavePoll> runningPolls = new ConcurrentHashMap<String, SlavePoll>();
+
+	/** the poll statistics by slave name */
+	private final ConcurrentMap<String, SlaveStatistics> slaveStatistics = new ConcurrentHashMap<String, SlaveStatistics>();
+
+	private long lastStatistics = System.currentTimeMillis();
+
+	/** the decode plans by slave name, the map is replaced when the configuration changes */
+	private volatile ConcurrentMap<String, ModbusDecodePlan> decodePlans = new ConcurrentHashMap<String, ModbusDecodePlan>();
+
+	/** the merged read ranges by endpoint, the map is replaced when the configuration changes */
+	private volatile ConcurrentMap<String, List<ModbusReadRange>> readRanges = new ConcurrentHashMap<String, List<ModbusReadRange>>();
+
 	
 	public void activate() {
 	}
 
 	public void deactivate() {
+		shutdownExecutor();
 	}
 	
 	
@@ -100,107 +132,110 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 	}
 
 	/**
-	 * Posts update event to OpenHAB bus for "holding" type slaves
-	 * @param binding ModbusBinding to get item configuration from BindingProviding
+	 * Posts update events to OpenHAB bus for the items of "holding" and "input" type slaves
+	 * @param slave the slave which has been polled
 	 * @param registers data received from slave device in the last pollInterval
-	 * @param itemName item to update
 	 */
-	protected void internalUpdateItem(String slaveName, InputRegister[] registers,
-			String itemName) {
-		for (ModbusBindingProvider provider : providers) {
-			if ( !provider.providesBindingFor(itemName) ) {
-				continue;
-			}
-			ModbusBindingConfig config = provider.getConfig(itemName);
-			if ( !config.slaveName.equals(slaveName)) {
-				continue;
-			}
+	void updateItems(ModbusSlave slave, InputRegister[] registers) {
+		getDecodePlan(slave).update(registers, eventPublisher);
+	}
 
-			String slaveValueType = modbusSlaves.get(slaveName).getValueType();
-			double rawDataMultiplier = modbusSlaves.get(slaveName).getRawDataMultiplier();
+	/**
+	 * Posts update events to OpenHAB bus for the items of "coil" and "discrete" type slaves
+	 * @param slave the slave which has been polled
+	 * @param coils data received from slave device in the last pollInterval
+	 */
+	void updateItems(ModbusSlave slave, BitVector coils) {
+		getDecodePlan(slave).update(coils, eventPublisher);
+	}
 
-			State newState = extractStateFromRegisters(registers, config.readRegister, slaveValueType);
-			/* receive data manipulation */
-			if (config.getItem() instanceof SwitchItem) {
-				newState = newState.equals(DecimalType.ZERO) ? OnOffType.OFF : OnOffType.ON;
+	/**
+	 * Returns the decode plan of the given slave and builds it, if the slave has
+	 * not been polled since the last configuration change.
+	 * 
+	 * @param slave the slave to return the plan of
+	 * @return the decode plan of the slave
+	 */
+	ModbusDecodePlan getDecodePlan(ModbusSlave slave) {
+		ConcurrentMap<String, ModbusDecodePlan> plans = decodePlans;
+		ModbusDecodePlan plan = plans.get(slave.getName());
+		if (plan == null) {
+			List<ModbusBindingConfig> configs = new ArrayList<ModbusBindingConfig>();
+			for (ModbusBindingProvider provider : providers) {
+				for (String itemName : provider.getItemNames()) {
+					ModbusBindingConfig config = provider.getConfig(itemName);
+					if (config != null && config.slaveName.equals(slave.getName())) {
+						configs.add(config);
+					}
+				}
 			}
-			if (( rawDataMultiplier != 1 ) && (config.getItem() instanceof NumberItem)) {
-				double tmpValue = (double)((DecimalType)newState).doubleValue() * rawDataMultiplier;
-				newState =  new DecimalType( String.valueOf(tmpValue) );
+			plan = new ModbusDecodePlan(slave, configs);
+			logger.debug("built decode plan of modbus slave '{}' with {} items", slave.getName(), plan.size());
+			// a plan built from an outdated configuration ends up in the replaced map
+			ModbusDecodePlan existingPlan = plans.putIfAbsent(slave.getName(), plan);
+			if (existingPlan != null) {
+				plan = existingPlan;
 			}
+		}
+		return plan;
+	}
 
-			State currentState = config.getItemState();
-			if (! newState.equals(currentState)) {
-				eventPublisher.postUpdate(itemName, newState);
+	/**
+	 * Returns the read ranges of the slaves of a connection and merges the slaves,
+	 * if the connection has not been polled since the last configuration change.
+	 * 
+	 * @param endpoint the endpoint of the connection
+	 * @param slaves the slaves of the connection
+	 * @return the read ranges of the connection
+	 */
+	List<ModbusReadRange> getReadRanges(String endpoint, List<ModbusSlave> slaves) {
+		ConcurrentMap<String, List<ModbusReadRange>> ranges = readRanges;
+		List<ModbusReadRange> endpointRanges = ranges.get(endpoint);
+		if (endpointRanges == null) {
+			endpointRanges = ModbusReadRange.merge(slaves, maxGap);
+			logger.debug("reading {} modbus slaves of '{}' with {} requests", 
+					new Object[] { slaves.size(), endpoint, endpointRanges.size() });
+			List<ModbusReadRange> existingRanges = ranges.putIfAbsent(endpoint, endpointRanges);
+			if (existingRanges != null) {
+				endpointRanges = existingRanges;
 			}
 		}
+		return endpointRanges;
 	}
 
-	private DecimalType extractStateFromRegisters(InputRegister[] registers, int index, String type) {
-		if (type.equals(ModbusBindingProvider.VALUE_TYPE_BIT)) {
-			return new DecimalType((registers[index / 16].toUnsignedShort() >> (index % 16)) & 1);
-		}
-		else if (type.equals(ModbusBindingProvider.VALUE_TYPE_INT8)) {
-			return new DecimalType(registers[index / 2].toBytes()[1 - (index % 2)]);
-		}
-		else if (type.equals(ModbusBindingProvider.VALUE_TYPE_UINT8)) {
-			return new DecimalType((registers[index / 2].toUnsignedShort() >> (8 * (index % 2))) & 0xff);
-		}
-		else if (type.equals(ModbusBindingProvider.VALUE_TYPE_INT16)) {
-			ByteBuffer buff = ByteBuffer.allocate(2);
-			buff.put(registers[index].toBytes());
-			return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getShort(0));
-		}
-		else if (type.equals(ModbusBindingProvider.VALUE_TYPE_UINT16)) {
-			return new DecimalType(registers[index].toUnsignedShort());
-		}
-		else if (type.equals(ModbusBindingProvider.VALUE_TYPE_INT32)) {
-			ByteBuffer buff = ByteBuffer.allocate(4);
-			buff.put(registers[index * 2 + 0].toBytes());
-			buff.put(registers[index * 2 + 1].toBytes());
-			return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getInt(0));
-		}
-		else if (type.equals(ModbusBindingProvider.VALUE_TYPE_UINT32)) {
-			ByteBuffer buff = ByteBuffer.allocate(8);
-			buff.position(4);
-			buff.put(registers[index * 2 + 0].toBytes());
-			buff.put(registers[index * 2 + 1].toBytes());
-			return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0));
-		}
-		else if (type.equals(ModbusBindingProvider.VALUE_TYPE_FLOAT32)) {
-			ByteBuffer buff = ByteBuffer.allocate(4);
-			buff.put(registers[index * 2 + 0].toBytes());
-			buff.put(registers[index * 2 + 1].toBytes());
-			return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getFloat(0));
-		}
-		else {
-			throw new IllegalArgumentException();
-		}
+	/**
+	 * Discards the decode plans of all slaves, they are built again on the next poll.
+	 */
+	private void invalidateDecodePlans() {
+		decodePlans = new ConcurrentHashMap<String, ModbusDecodePlan>();
 	}
 
 	/**
-	 * Posts update event to OpenHAB bus for "coil" type slaves
-	 * @param binding ModbusBinding to get item configuration from BindingProviding
-	 * @param registers data received from slave device in the last pollInterval
-	 * @param item item to update
+	 * {@inheritDoc}
 	 */
-	protected void internalUpdateItem(String slaveName, BitVector coils,
-			String itemName) {
-		for (ModbusBindingProvider provider : providers) {
-			if (provider.providesBindingFor(itemName)) {
-				ModbusBindingConfig config = provider.getConfig(itemName);
-				if (config.slaveName.equals(slaveName)) {
-					boolean state = coils.getBit(config.readRegister);
-					State currentState = provider.getConfig(itemName).getItemState();
-					State newState = provider.getConfig(itemName).translateBoolean2State(state);
-					if (!newState.equals(currentState)) {
-						eventPublisher.postUpdate(itemName, newState);
-					}
-				}
-			}
-		}
+	@Override
+	public void bindingChanged(BindingProvider provider, String itemName) {
+		super.bindingChanged(provider, itemName);
+		invalidateDecodePlans();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void allBindingsChanged(BindingProvider provider) {
+		super.allBindingsChanged(provider);
+		invalidateDecodePlans();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeBindingProvider(ModbusBindingProvider provider) {
+		super.removeBindingProvider(provider);
+		invalidateDecodePlans();
 	}
-	
 
 	/**
 	 * Returns names of all the items, registered with this binding
@@ -219,17 +254,93 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 	
 	
 	/**
-	 * updates all slaves from the modbusSlaves
+	 * updates all slaves from the modbusSlaves. The slaves are grouped by their
+	 * connection: the slaves of a connection are polled one after the other, while
+	 * different connections are polled concurrently by a pool of worker threads, so
+	 * that an unreachable device does not delay the others. A connection which is
+	 * still polled from the last refresh is skipped.
 	 */
 	@Override
 	protected void execute() {
-		Collection<ModbusSlave> slaves = new HashSet<ModbusSlave>();
-		synchronized (slaves) {
-			slaves.addAll(modbusSlaves.values());
+		Map<String, SlavePoll> polls = new LinkedHashMap<String, SlavePoll>();
+		for (ModbusSlave slave : modbusSlaves.values()) {
+			String endpoint = slave.getEndpoint();
+			SlavePoll poll = polls.get(endpoint);
+			if (poll == null) {
+				poll = new SlavePoll(endpoint);
+				polls.put(endpoint, poll);
+			}
+			poll.slaves.add(slave);
+		}
+
+		ExecutorService executor = getExecutor();
+		for (SlavePoll poll : polls.values()) {
+			if (runningPolls.putIfAbsent(poll.endpoint, poll) == null) {
+				try {
+					executor.execute(poll);
+				} catch (RejectedExecutionException e) {
+					runningPolls.remove(poll.endpoint);
+					logger.debug("poll of '{}' has been rejected, as the binding is shutting down", poll.endpoint);
+				}
+			} else {
+				logger.trace("poll of '{}' is still running, skipping it", poll.endpoint);
+			}
+		}
+
+		logStatistics();
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private final AtomicInteger threadNumber = new AtomicInteger();
+
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Modbus Polling " + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	private synchronized void shutdownExecutor() {
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	private void logStatistics() {
+		long now = System.currentTimeMillis();
+		if (now - lastStatistics >= STATISTICS_INTERVAL) {
+			lastStatistics = now;
+			for (SlaveStatistics statistics : slaveStatistics.values()) {
+				logger.debug("Modbus slave '{}': polls={}, failed={}, avgDuration={}ms, maxDuration={}ms",
+						new Object[] { statistics.slaveName, statistics.getPollCount(), statistics.getFailedCount(),
+							statistics.getAverageDuration(), statistics.getMaxDuration() });
+			}
 		}
-		for (ModbusSlave slave : slaves) {
-			slave.update(this);
+	}
+
+	/**
+	 * Returns the statistics of the given slave and creates them, if the slave
+	 * has not been polled before.
+	 * 
+	 * @param slaveName the name of the slave
+	 * @return the statistics of the slave
+	 */
+	SlaveStatistics getSlaveStatistics(String slaveName) {
+		SlaveStatistics statistics = slaveStatistics.get(slaveName);
+		if (statistics == null) {
+			statistics = new SlaveStatistics(slaveName);
+			SlaveStatistics existingStatistics = slaveStatistics.putIfAbsent(slaveName, statistics);
+			if (existingStatistics != null) {
+				statistics = existingStatistics;
+			}
 		}
+		return statistics;
 	}
 	
 
@@ -237,6 +348,8 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 	public void updated(Dictionary<String, ?> config) throws ConfigurationException {
 		// remove all known items if configuration changed
 		modbusSlaves.clear();
+		readRanges = new ConcurrentHashMap<String, List<ModbusReadRange>>();
+		invalidateDecodePlans();
 		if (config != null) {
 			Enumeration<String> keys = config.keys();
 			while (keys.hasMoreElements()) {
@@ -254,6 +367,23 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 						if (StringUtils.isNotBlank((String) config.get(key))) {
 							pollInterval = Integer.valueOf((String) config.get(key));
 						}
+					} else if ("threads".equals(key)) {
+						if (StringUtils.isNotBlank((String) config.get(key))) {
+							int newThreads = Integer.valueOf((String) config.get(key));
+							if (newThreads <= 0) {
+								throw new ConfigurationException(key, "the number of threads must be positive, but is '"
+										+ config.get(key) + "'");
+							}
+							if (newThreads != threads) {
+								threads = newThreads;
+								// the pool is created again with the new size on the next refresh
+								shutdownExecutor();
+							}
+						}
+					} else if ("maxgap".equals(key)) {
+						if (StringUtils.isNotBlank((String) config.get(key))) {
+							maxGap = Integer.valueOf((String) config.get(key));
+						}
 					} else if ("writemultipleregisters".equals(key)) {
 						ModbusSlave.setWriteMultipleRegisters(Boolean.valueOf(config.get(key).toString()));
 					} else {
@@ -346,9 +476,130 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 			for (ModbusSlave slave : modbusSlaves.values()) {
 				slave.connect();
 			}
+			readRanges = new ConcurrentHashMap<String, List<ModbusReadRange>>();
+			invalidateDecodePlans();
 
 			setProperlyConfigured(true);
 		}
 	}
 	
+	/**
+	 * Polls the slaves of a connection one after the other. Slaves of the same device
+	 * are read with a single request where possible. If the device rejects a merged
+	 * request with an illegal data address, but answers the requests of all single
+	 * slaves, the slaves are read one by one from then on. Any other failure of a
+	 * merged request is retried with the next poll.
+	 */
+	class SlavePoll implements Runnable {
+
+		final String endpoint;
+
+		final List<ModbusSlave> slaves = new ArrayList<ModbusSlave>();
+
+		SlavePoll(String endpoint) {
+			this.endpoint = endpoint;
+		}
+
+		public void run() {
+			try {
+				for (ModbusReadRange range : getReadRanges(endpoint, slaves)) {
+					if (range.isMerged()) {
+						long start = System.currentTimeMillis();
+						boolean successful = false;
+						boolean illegalAddress = false;
+						try {
+							successful = range.update(ModbusBinding.this);
+						} catch (ModbusSlaveException e) {
+							illegalAddress = e.isType(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
+						} catch (RuntimeException e) {
+							logger.error("polling modbus slaves of '" + endpoint + "' throws exception", e);
+						}
+						if (successful) {
+							long duration = System.currentTimeMillis() - start;
+							for (ModbusSlave slave : range.getSlaves()) {
+								getSlaveStatistics(slave.getName()).record(duration, true);
+							}
+							continue;
+						}
+						if (update(range.getSlaves()) && illegalAddress) {
+							logger.info("modbus slaves of '{}' cannot be read with a single request, reading them one by one",
+									endpoint);
+							range.split();
+						}
+					} else {
+						update(range.getSlaves());
+					}
+				}
+			} finally {
+				runningPolls.remove(endpoint);
+			}
+		}
+
+		/**
+		 * Polls the given slaves one by one.
+		 * 
+		 * @return true, if all of the slaves have been read successfully
+		 */
+		private boolean update(List<ModbusSlave> slaves) {
+			boolean allSuccessful = true;
+			for (ModbusSlave slave : slaves) {
+				long start = System.currentTimeMillis();
+				boolean successful = false;
+				try {
+					successful = slave.update(ModbusBinding.this);
+				} catch (RuntimeException e) {
+					logger.error("polling modbus slave '" + slave.getName() + "' throws exception", e);
+				}
+				getSlaveStatistics(slave.getName()).record(System.currentTimeMillis() - start, successful);
+				allSuccessful &= successful;
+			}
+			return allSuccessful;
+		}
+	}
+
+	/**
+	 * The poll duration and error statistics of a slave.
+	 */
+	static class SlaveStatistics {
+
+		final String slaveName;
+
+		private final AtomicLong pollCount = new AtomicLong();
+		private final AtomicLong failedCount = new AtomicLong();
+		private final AtomicLong totalDuration = new AtomicLong();
+		private final AtomicLong maxDuration = new AtomicLong();
+
+		SlaveStatistics(String slaveName) {
+			this.slaveName = slaveName;
+		}
+
+		void record(long duration, boolean successful) {
+			pollCount.incrementAndGet();
+			totalDuration.addAndGet(duration);
+			if (duration > maxDuration.get()) {
+				maxDuration.set(duration);
+			}
+			if (!successful) {
+				failedCount.incrementAndGet();
+			}
+		}
+
+		long getPollCount() {
+			return pollCount.get();
+		}
+
+		long getFailedCount() {
+			return failedCount.get();
+		}
+
+		long getAverageDuration() {
+			long count = pollCount.get();
+			return count > 0 ? totalDuration.get() / count : 0;
+		}
+
+		long getMaxDuration() {
+			return maxDuration.get();
+		}
+	}
+
 }
@@ -0,0 +1,254 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.modbus.internal;
+
+import java.util.List;
+
+import net.wimpi.modbus.procimg.InputRegister;
+import net.wimpi.modbus.util.BitVector;
+
+import org.openhab.binding.modbus.ModbusBindingProvider;
+import org.openhab.binding.modbus.internal.ModbusGenericBindingProvider.ModbusBindingConfig;
+import org.openhab.core.events.EventPublisher;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.types.State;
+
+/**
+ * The items of a single slave together with the decoder of their value type. A plan
+ * is built when the item bindings or the slave configuration change, so that a poll
+ * only visits the items of the polled slave. The last raw value of every item is kept,
+ * and no state is created for a value which has not changed since the last poll.
+ * <p>A plan is not thread-safe, as the polls of a slave never run concurrently.</p>
+ *
+ * @since 1.8.0
+ */
+class ModbusDecodePlan {
+
+	private final String slaveName;
+
+	private final ItemDecoder[] decoders;
+
+	/**
+	 * @param slave the slave to decode the data of
+	 * @param configs the bindings of all items of the slave
+	 */
+	ModbusDecodePlan(ModbusSlave slave, List<ModbusBindingConfig> configs) {
+		this.slaveName = slave.getName();
+		ValueDecoder valueDecoder = ValueDecoder.forValueType(slave.getValueType());
+		decoders = new ItemDecoder[configs.size()];
+		for (int i = 0; i < decoders.length; i++) {
+			decoders[i] = new ItemDecoder(configs.get(i), valueDecoder, slave.getRawDataMultiplier());
+		}
+	}
+
+	/**
+	 * Posts updates for all items of the slave whose register value has changed,
+	 * used for "holding" and "input" type slaves.
+	 *
+	 * @param registers the registers which have been read from the slave
+	 * @param eventPublisher the publisher to post the updates to
+	 */
+	void update(InputRegister[] registers, EventPublisher eventPublisher) {
+		for (ItemDecoder decoder : decoders) {
+			decoder.update(registers, eventPublisher);
+		}
+	}
+
+	/**
+	 * Posts updates for all items of the slave whose coil has changed, used for
+	 * "coil" and "discrete" type slaves.
+	 *
+	 * @param coils the coils which have been read from the slave
+	 * @param eventPublisher the publisher to post the updates to
+	 */
+	void update(BitVector coils, EventPublisher eventPublisher) {
+		for (ItemDecoder decoder : decoders) {
+			decoder.update(coils, eventPublisher);
+		}
+	}
+
+	/**
+	 * @return the name of the slave
+	 */
+	String getSlaveName() {
+		return slaveName;
+	}
+
+	/**
+	 * @return the number of items of the slave
+	 */
+	int size() {
+		return decoders.length;
+	}
+
+	/**
+	 * Decodes the value of a single item and remembers the last decoded value.
+	 */
+	private static class ItemDecoder {
+
+		private final ModbusBindingConfig config;
+		private final ValueDecoder valueDecoder;
+		private final double rawDataMultiplier;
+		private final boolean switchItem;
+		private final boolean numberItem;
+
+		private boolean decoded = false;
+		private long lastValue;
+		private State lastState;
+
+		ItemDecoder(ModbusBindingConfig config, ValueDecoder valueDecoder, double rawDataMultiplier) {
+			this.config = config;
+			this.valueDecoder = valueDecoder;
+			this.rawDataMultiplier = rawDataMultiplier;
+			this.switchItem = config.getItem() instanceof SwitchItem;
+			this.numberItem = config.getItem() instanceof NumberItem;
+		}
+
+		void update(InputRegister[] registers, EventPublisher eventPublisher) {
+			long value = valueDecoder.decode(registers, config.readRegister);
+			if (isUnchanged(value)) {
+				return;
+			}
+			State newState;
+			if (switchItem) {
+				newState = value == 0 ? OnOffType.OFF : OnOffType.ON;
+			} else {
+				newState = valueDecoder.createState(value);
+				if (rawDataMultiplier != 1 && numberItem) {
+					double tmpValue = ((DecimalType) newState).doubleValue() * rawDataMultiplier;
+					newState = new DecimalType(String.valueOf(tmpValue));
+				}
+			}
+			postUpdate(value, newState, eventPublisher);
+		}
+
+		void update(BitVector coils, EventPublisher eventPublisher) {
+			long value = coils.getBit(config.readRegister) ? 1 : 0;
+			if (isUnchanged(value)) {
+				return;
+			}
+			postUpdate(value, config.translateBoolean2State(value == 1), eventPublisher);
+		}
+
+		/**
+		 * The value is unchanged if it has been decoded before and the item still has
+		 * the state which has been decoded from it.
+		 */
+		private boolean isUnchanged(long value) {
+			return decoded && value == lastValue && lastState.equals(config.getItemState());
+		}
+
+		private void postUpdate(long value, State newState, EventPublisher eventPublisher) {
+			decoded = true;
+			lastValue = value;
+			lastState = newState;
+			if (!newState.equals(config.getItemState())) {
+				eventPublisher.postUpdate(config.getItem().getName(), newState);
+			}
+		}
+	}
+
+	/**
+	 * Decodes the raw value of a value type from the registers without creating
+	 * any objects. The raw value of <code>float32</code> are the bits of the float.
+	 */
+	enum ValueDecoder {
+
+		BIT {
+			@Override
+			long decode(InputRegister[] registers, int index) {
+				return (registers[index / 16].toUnsignedShort() >> (index % 16)) & 1;
+			}
+		},
+		INT8 {
+			@Override
+			long decode(InputRegister[] registers, int index) {
+				return (byte) (registers[index / 2].toUnsignedShort() >> (8 * (index % 2)));
+			}
+		},
+		UINT8 {
+			@Override
+			long decode(InputRegister[] registers, int index) {
+				return (registers[index / 2].toUnsignedShort() >> (8 * (index % 2))) & 0xff;
+			}
+		},
+		INT16 {
+			@Override
+			long decode(InputRegister[] registers, int index) {
+				return (short) registers[index].toUnsignedShort();
+			}
+		},
+		UINT16 {
+			@Override
+			long decode(InputRegister[] registers, int index) {
+				return registers[index].toUnsignedShort();
+			}
+		},
+		INT32 {
+			@Override
+			long decode(InputRegister[] registers, int index) {
+				return (registers[index * 2].toUnsignedShort() << 16) | registers[index * 2 + 1].toUnsignedShort();
+			}
+		},
+		UINT32 {
+			@Override
+			long decode(InputRegister[] registers, int index) {
+				return INT32.decode(registers, index) & 0xffffffffL;
+			}
+		},
+		FLOAT32 {
+			@Override
+			long decode(InputRegister[] registers, int index) {
+				return INT32.decode(registers, index);
+			}
+
+			@Override
+			DecimalType createState(long value) {
+				return new DecimalType(Float.intBitsToFloat((int) value));
+			}
+		};
+
+		/**
+		 * Decodes the raw value of an item.
+		 *
+		 * @param registers the registers which have been read from the slave
+		 * @param index the index of the value, in units of the value type
+		 * @return the raw value
+		 */
+		abstract long decode(InputRegister[] registers, int index);
+
+		/**
+		 * Creates the state of a raw value.
+		 *
+		 * @param value the raw value
+		 * @return the state
+		 */
+		DecimalType createState(long value) {
+			return new DecimalType(value);
+		}
+
+		/**
+		 * @param valueType one of {@link ModbusBindingProvider#VALUE_TYPES}
+		 * @return the decoder of the value type
+		 * @throws IllegalArgumentException if the value type is unknown
+		 */
+		static ValueDecoder forValueType(String valueType) {
+			for (ValueDecoder decoder : values()) {
+				if (decoder.name().equalsIgnoreCase(valueType)) {
+					return decoder;
+				}
+			}
+			throw new IllegalArgumentException("the value type '" + valueType + "' is unknown");
+		}
+	}
+
+}
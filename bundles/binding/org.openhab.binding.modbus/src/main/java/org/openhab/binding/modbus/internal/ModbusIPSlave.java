@@ -40,5 +40,10 @@ public abstract class ModbusIPSlave extends ModbusSlave {
     void setPort(int port) {
         this.port = port;
     }
+
+    @Override
+    String getEndpoint() {
+        return host + ":" + port;
+    }
     
 }
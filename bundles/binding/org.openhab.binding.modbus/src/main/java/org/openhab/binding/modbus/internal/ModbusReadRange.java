@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.wimpi.modbus.ModbusSlaveException;
+import net.wimpi.modbus.procimg.InputRegister;
+import net.wimpi.modbus.util.BitVector;
+
+import org.openhab.binding.modbus.ModbusBindingProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A range of registers or coils which is read from a device with a single request
+ * for several slaves. Slaves are merged into a range if they share the connection,
+ * the unit id and the type, if the gap between them is small and if the merged range
+ * does not exceed the number of values which fit into a Modbus PDU. The response is
+ * split into the ranges of the slaves afterwards.
+ *
+ * @since 1.8.0
+ */
+class ModbusReadRange {
+
+	private static final Logger logger = LoggerFactory.getLogger(ModbusReadRange.class);
+
+	/** the maximum number of registers which can be read with one request */
+	static final int MAX_REGISTERS = 125;
+
+	/** the maximum number of coils or discrete inputs which can be read with one request */
+	static final int MAX_COILS = 2000;
+
+	private static final Comparator<ModbusSlave> SLAVE_ORDER = new Comparator<ModbusSlave>() {
+		public int compare(ModbusSlave slave1, ModbusSlave slave2) {
+			String type1 = slave1.getType() != null ? slave1.getType() : "";
+			String type2 = slave2.getType() != null ? slave2.getType() : "";
+			if (!type1.equals(type2)) {
+				return type1.compareTo(type2);
+			}
+			if (slave1.getId() != slave2.getId()) {
+				return slave1.getId() < slave2.getId() ? -1 : 1;
+			}
+			return slave1.getStart() < slave2.getStart() ? -1 : (slave1.getStart() == slave2.getStart() ? 0 : 1);
+		}
+	};
+
+	private final List<ModbusSlave> slaves = new ArrayList<ModbusSlave>();
+
+	private final int start;
+
+	private int end;
+
+	/** true, if the device has rejected the merged request */
+	private volatile boolean split = false;
+
+	ModbusReadRange(ModbusSlave slave) {
+		slaves.add(slave);
+		start = slave.getStart();
+		end = slave.getStart() + slave.getLength();
+	}
+
+	/**
+	 * Merges the slaves of a connection into as few ranges as possible.
+	 *
+	 * @param slaves the slaves which share a connection
+	 * @param maxGap the maximum number of unused registers or coils between two
+	 *        slaves of a range, a negative value disables merging
+	 * @return the ranges, each slave is contained in exactly one range
+	 */
+	static List<ModbusReadRange> merge(Collection<ModbusSlave> slaves, int maxGap) {
+		List<ModbusSlave> sortedSlaves = new ArrayList<ModbusSlave>(slaves);
+		if (maxGap >= 0) {
+			Collections.sort(sortedSlaves, SLAVE_ORDER);
+		}
+		List<ModbusReadRange> ranges = new ArrayList<ModbusReadRange>();
+		ModbusReadRange range = null;
+		for (ModbusSlave slave : sortedSlaves) {
+			if (range != null && range.canMerge(slave, maxGap)) {
+				range.slaves.add(slave);
+				range.end = Math.max(range.end, slave.getStart() + slave.getLength());
+			} else {
+				range = new ModbusReadRange(slave);
+				ranges.add(range);
+			}
+		}
+		return ranges;
+	}
+
+	private boolean canMerge(ModbusSlave slave, int maxGap) {
+		ModbusSlave first = slaves.get(0);
+		if (maxGap < 0 || first.getType() == null || !first.getType().equals(slave.getType())
+				|| first.getId() != slave.getId()) {
+			return false;
+		}
+		int maxLength = isCoilType(first.getType()) ? MAX_COILS : MAX_REGISTERS;
+		return slave.getStart() - end <= maxGap
+				&& Math.max(end, slave.getStart() + slave.getLength()) - start <= maxLength;
+	}
+
+	private static boolean isCoilType(String type) {
+		return ModbusBindingProvider.TYPE_COIL.equals(type) || ModbusBindingProvider.TYPE_DISCRETE.equals(type);
+	}
+
+	/**
+	 * @return the slaves of this range, ordered by their start
+	 */
+	List<ModbusSlave> getSlaves() {
+		return slaves;
+	}
+
+	/**
+	 * @return true, if the slaves of this range are read with a single request
+	 */
+	boolean isMerged() {
+		return slaves.size() > 1 && !split;
+	}
+
+	/**
+	 * Makes the slaves of this range to be read one by one, because the device
+	 * does not allow to read the registers between them.
+	 */
+	void split() {
+		split = true;
+	}
+
+	int getStart() {
+		return start;
+	}
+
+	int getLength() {
+		return end - start;
+	}
+
+	/**
+	 * Reads the whole range with the connection of the first slave and updates all
+	 * slaves with their part of the response.
+	 *
+	 * @param binding ModbusBinding that stores providers information
+	 * @return true, if the data has been read successfully
+	 * @throws ModbusSlaveException if the device has answered the request with an
+	 *         exception response, e.g. because it rejects reading the whole range
+	 */
+	boolean update(ModbusBinding binding) throws ModbusSlaveException {
+		ModbusSlave first = slaves.get(0);
+		if (!first.connect()) {
+			first.resetConnection();
+			logger.info("ModbusSlave not connected");
+			return false;
+		}
+		Object data;
+		try {
+			data = first.read(start, end - start);
+		} catch (ModbusSlaveException e) {
+			logger.info("ModbusSlave rejected reading range {}-{}: {}", start, end - 1, e.getMessage());
+			throw e;
+		} catch (Exception e) {
+			first.resetConnection();
+			logger.info("ModbusSlave error getting responce of range {}-{} from slave", start, end - 1);
+			return false;
+		}
+		for (ModbusSlave slave : slaves) {
+			slave.update(binding, slice(data, slave.getStart() - start, slave.getLength()));
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a part of the coils or registers which have been read.
+	 */
+	static Object slice(Object data, int offset, int length) {
+		if (data instanceof BitVector) {
+			BitVector coils = (BitVector) data;
+			BitVector slice = new BitVector(length);
+			for (int i = 0; i < length; i++) {
+				slice.setBit(i, coils.getBit(offset + i));
+			}
+			return slice;
+		} else {
+			InputRegister[] registers = (InputRegister[]) data;
+			InputRegister[] slice = new InputRegister[length];
+			System.arraycopy(registers, offset, slice, 0, length);
+			return slice;
+		}
+	}
+
+}
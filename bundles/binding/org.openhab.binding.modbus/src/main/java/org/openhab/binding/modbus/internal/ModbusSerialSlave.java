@@ -143,4 +143,12 @@ public class ModbusSerialSlave extends ModbusSlave {
 		connection = null;
 	}
 
+	/**
+	 * All serial slaves share the same port.
+	 */
+	@Override
+	String getEndpoint() {
+		return "serial:" + port;
+	}
+
 }
@@ -8,8 +8,8 @@
  */
 package org.openhab.binding.modbus.internal;
 
-import java.util.Collection;
-
+import net.wimpi.modbus.ModbusException;
+import net.wimpi.modbus.ModbusIOException;
 import net.wimpi.modbus.io.ModbusTransaction;
 import net.wimpi.modbus.msg.ModbusRequest;
 import net.wimpi.modbus.msg.ModbusResponse;
@@ -93,7 +93,7 @@ public abstract class ModbusSlave implements ModbusSlaveConnection {
 	 * - data/100 ... rawDataMultiplier=0.01
 	 */
 	private double rawDataMultiplier = 1.0;
-
+
 	private Object storage;
 	protected ModbusTransaction transaction = null; 
 
@@ -251,74 +251,103 @@ public abstract class ModbusSlave implements ModbusSlaveConnection {
 		}
 	}
 
+	/**
+	 * Returns the physical connection of this slave. Slaves which return the same
+	 * endpoint share a connection and must not be polled concurrently.
+	 * 
+	 * @return the endpoint of the connection, e.g. the host and port
+	 */
+	abstract String getEndpoint();
+
 	/**
 	 * Reads data from the connected device and updates items with the new data
 	 * 
 	 * @param binding ModbusBindig that stores providers information
+	 * @return true, if the data has been read successfully
 	 */
-	public void update(ModbusBinding binding) {
+	public boolean update(ModbusBinding binding) {
 		if (!connect()) {
 			resetConnection();
 			logger.info("ModbusSlave not connected");
-			return;
+			return false;
 		}
 		
+		Object local;
 		try {
+			local = read(getStart(), getLength());
+		} catch (Exception e) {
+			resetConnection();
+			logger.info("ModbusSlave error getting responce from slave");
+			return false;
+		}
+		update(binding, local);
+		return true;
+	}
 
+	/**
+	 * Reads data of the type of this slave from the connected device. The range
+	 * may be larger than the range of this slave, if several slaves of a device
+	 * are read with one request.
+	 * 
+	 * @param start the first register or coil to read
+	 * @param length the number of registers or coils to read
+	 * @return the coils as <code>BitVector</code> or the registers as <code>InputRegister[]</code>
+	 * @throws ModbusException if the request fails or the device answers with an exception response
+	 */
+	Object read(int start, int length) throws ModbusException {
 		Object local = null;
 
-
-			if (ModbusBindingProvider.TYPE_COIL.equals(getType())) {
-				ModbusRequest request = new ReadCoilsRequest(getStart(), getLength());
-				if (this instanceof ModbusSerialSlave) {
-					request.setHeadless();
-				}
-				request.setUnitID(id);
-				ReadCoilsResponse responce = (ReadCoilsResponse) getModbusData(request);
-				local = responce.getCoils();
-			} else if (ModbusBindingProvider.TYPE_DISCRETE.equals(getType())) {
-				ModbusRequest request = new ReadInputDiscretesRequest(getStart(), getLength());
-				ReadInputDiscretesResponse responce = (ReadInputDiscretesResponse) getModbusData(request);
-				local = responce.getDiscretes();
-			} else if (ModbusBindingProvider.TYPE_HOLDING.equals(getType())) {
-				ModbusRequest request = new ReadMultipleRegistersRequest(getStart(), getLength());
-				ReadMultipleRegistersResponse responce = (ReadMultipleRegistersResponse) getModbusData(request);
-				local = responce.getRegisters();
-			} else if (ModbusBindingProvider.TYPE_INPUT.equals(getType())) {
-				ModbusRequest request = new ReadInputRegistersRequest(getStart(), getLength());
-				ReadInputRegistersResponse responce = (ReadInputRegistersResponse) getModbusData(request);
-				local = responce.getRegisters();
+		if (ModbusBindingProvider.TYPE_COIL.equals(getType())) {
+			ModbusRequest request = new ReadCoilsRequest(start, length);
+			if (this instanceof ModbusSerialSlave) {
+				request.setHeadless();
 			}
-			if (storage == null) 
+			request.setUnitID(id);
+			ReadCoilsResponse responce = (ReadCoilsResponse) getModbusData(request);
+			local = responce.getCoils();
+		} else if (ModbusBindingProvider.TYPE_DISCRETE.equals(getType())) {
+			ModbusRequest request = new ReadInputDiscretesRequest(start, length);
+			ReadInputDiscretesResponse responce = (ReadInputDiscretesResponse) getModbusData(request);
+			local = responce.getDiscretes();
+		} else if (ModbusBindingProvider.TYPE_HOLDING.equals(getType())) {
+			ModbusRequest request = new ReadMultipleRegistersRequest(start, length);
+			ReadMultipleRegistersResponse responce = (ReadMultipleRegistersResponse) getModbusData(request);
+			local = responce.getRegisters();
+		} else if (ModbusBindingProvider.TYPE_INPUT.equals(getType())) {
+			ModbusRequest request = new ReadInputRegistersRequest(start, length);
+			ReadInputRegistersResponse responce = (ReadInputRegistersResponse) getModbusData(request);
+			local = responce.getRegisters();
+		}
+		return local;
+	}
+
+	/**
+	 * Stores data which has been read for this slave and updates the items with it
+	 * 
+	 * @param binding ModbusBinding that stores providers information
+	 * @param local the coils or registers of this slave
+	 */
+	void update(ModbusBinding binding, Object local) {
+		if (storage == null) 
+			storage = local;
+		else {
+			synchronized(storage) {
 				storage = local;
-			else {
-				synchronized(storage) {
-					storage = local;
-				}
 			}
-			Collection<String> items = binding.getItemNames();
-			for (String item : items) {
-				updateItem(binding, item);
-			}
-		} catch (Exception e) {
-			resetConnection();
-			logger.info("ModbusSlave error getting responce from slave");
 		}
-
+		updateItems(binding);
 	}
 
 	/**
-	 * Updates OpenHAB item with data read from slave device
-	 * works only for type "coil" and "holding"
+	 * Updates OpenHAB items of this slave with data read from slave device
 	 * @param binding ModbusBinding
-	 * @param item item to update
 	 */
-	private void updateItem(ModbusBinding binding, String item) {
+	private void updateItems(ModbusBinding binding) {
 		if (ModbusBindingProvider.TYPE_COIL.equals(getType()) || ModbusBindingProvider.TYPE_DISCRETE.equals(getType())) {
-			binding.internalUpdateItem(name, (BitVector)storage,	item);
+			binding.updateItems(this, (BitVector)storage);
 		}
 		if (ModbusBindingProvider.TYPE_HOLDING.equals(getType()) || ModbusBindingProvider.TYPE_INPUT.equals(getType())) {
-			binding.internalUpdateItem(name, (InputRegister[])storage, item);
+			binding.updateItems(this, (InputRegister[])storage);
 		}
 	}
 
@@ -326,21 +355,22 @@ public abstract class ModbusSlave implements ModbusSlaveConnection {
 	 * Executes Modbus transaction that reads data from the device and returns response data
 	 * @param request describes what data are requested from the device
 	 * @return response data
+	 * @throws ModbusException if the request fails or the device answers with an exception response
 	 */
-	private ModbusResponse getModbusData(ModbusRequest request) {
+	private ModbusResponse getModbusData(ModbusRequest request) throws ModbusException {
 		request.setUnitID(getId());
 		transaction.setRequest(request);
 
 		try {
 			transaction.execute();
-		} catch (Exception e) {
+		} catch (ModbusException e) {
 			logger.debug("ModbusSlave:{}", e.getMessage());
-			return null;
+			throw e;
 		}
 
 		ModbusResponse r = transaction.getResponse();
 		if ((r.getTransactionID() != transaction.getTransactionID()) && !r.isHeadless()) {
-			return null;
+			throw new ModbusIOException("response does not match transaction " + transaction.getTransactionID());
 		}
 
 		return r;
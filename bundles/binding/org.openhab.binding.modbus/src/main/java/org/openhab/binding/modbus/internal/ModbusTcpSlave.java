@@ -75,5 +75,10 @@ public class ModbusTcpSlave extends ModbusIPSlave {
 		connection = null;
 	}
 
+	@Override
+	String getEndpoint() {
+		return "tcp:" + super.getEndpoint();
+	}
+
 
 }
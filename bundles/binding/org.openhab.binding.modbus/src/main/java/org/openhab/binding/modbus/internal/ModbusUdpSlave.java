@@ -65,4 +65,9 @@ public class ModbusUdpSlave extends ModbusIPSlave {
 	public void resetConnection() {
 		connection = null;
 	}
+
+	@Override
+	String getEndpoint() {
+		return "udp:" + super.getEndpoint();
+	}
 }
@@ -12,7 +12,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.osgi.framework.FrameworkUtil;
 import org.slf4j.Logger;
@@ -27,6 +30,11 @@ import com.thoughtworks.xstream.io.xml.StaxDriver;
  * Implements the top level functions for the XML product database This class
  * includes helper functions to manipulate the database and facilitate access to
  * the database.
+ * <p>
+ * The product database is parsed once and shared by all instances, which only
+ * keep the current selection. Products are indexed by manufacturer, type and id.
+ * Product files are parsed when they are first requested and the most recently
+ * used ones are kept. The shared database objects must not be modified.
  * 
  * @author Chris Jackson
  * @since 1.4.0
@@ -35,7 +43,24 @@ import com.thoughtworks.xstream.io.xml.StaxDriver;
 public class ZWaveProductDatabase {
 	private static final Logger logger = LoggerFactory.getLogger(ZWaveProductDatabase.class);
 
-	ZWaveDbRoot database = null;
+	/** the maximum number of parsed product files which are kept */
+	private static final int MAX_PRODUCT_FILES = 100;
+
+	private static ProductIndex sharedIndex = null;
+
+	private static XStream productFileXStream = null;
+
+	private static final Map<String, ZWaveDbProductFile> productFiles = new LinkedHashMap<String, ZWaveDbProductFile>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ZWaveDbProductFile> eldest) {
+			return size() > MAX_PRODUCT_FILES;
+		}
+	};
+
+	ProductIndex database = null;
 	Languages language = Languages.ENGLISH;
 
 	ZWaveDbManufacturer selManufacturer = null;
@@ -71,11 +96,24 @@ public class ZWaveProductDatabase {
 	}
 
 	private void loadDatabase() {
+		database = getIndex();
+	}
+
+	/**
+	 * Returns the shared product index and parses the product database, if it has
+	 * not been parsed before.
+	 * 
+	 * @return the product index or null if the database cannot be loaded
+	 */
+	private static synchronized ProductIndex getIndex() {
+		if (sharedIndex != null) {
+			return sharedIndex;
+		}
+
 		URL entry = FrameworkUtil.getBundle(ZWaveProductDatabase.class).getEntry("database/products.xml");
 		if (entry == null) {
-			database = null;
 			logger.error("Unable to load ZWave product database!");
-			return;
+			return null;
 		}
 
 		XStream xstream = new XStream(new StaxDriver());
@@ -87,15 +125,22 @@ public class ZWaveProductDatabase {
 		xstream.processAnnotations(ZWaveDbRoot.class);
 
 		try {
-			// this.Manufacturer = (ZWaveDbManufacturer)
+			long start = System.currentTimeMillis();
 			InputStream x = entry.openStream();
-			database = (ZWaveDbRoot) xstream.fromXML(x);
-			if (database == null) {
-				return;
+			try {
+				ZWaveDbRoot root = (ZWaveDbRoot) xstream.fromXML(x);
+				if (root != null) {
+					sharedIndex = new ProductIndex(root);
+					logger.debug("Loaded ZWave product database with {} manufacturers in {}ms",
+							sharedIndex.manufacturers.size(), System.currentTimeMillis() - start);
+				}
+			} finally {
+				x.close();
 			}
 		} catch (IOException e) {
-			e.printStackTrace();
+			logger.error("Unable to load ZWave product database: {}", e.toString());
 		}
+		return sharedIndex;
 	}
 
 	/**
@@ -119,38 +164,68 @@ public class ZWaveProductDatabase {
 			return null;
 		}
 
+		productFile = getProductFile(cfgFile);
+		return productFile;
+	}
+
+	/**
+	 * Returns the given product file and parses it, if it is not kept from an
+	 * earlier request.
+	 * 
+	 * @param cfgFile the name of the product file
+	 * @return the product file or null if it cannot be loaded
+	 */
+	private static synchronized ZWaveDbProductFile getProductFile(String cfgFile) {
+		ZWaveDbProductFile file = productFiles.get(cfgFile);
+		if (file != null) {
+			return file;
+		}
+
 		URL entry = FrameworkUtil.getBundle(ZWaveProductDatabase.class).getEntry("database/" + cfgFile);
 		if (entry == null) {
-			database = null;
 			logger.error("Unable to load ZWave product file: '{}'", cfgFile);
 			return null;
 		}
 
-		XStream xstream = new XStream(new StaxDriver());
-		xstream.alias("Product", ZWaveDbProductFile.class);
-		xstream.alias("Configuration", ZWaveDbProductFile.ZWaveDbConfiguration.class);
-		xstream.alias("Parameter", ZWaveDbConfigurationParameter.class);
-		xstream.alias("Item", ZWaveDbConfigurationListItem.class);
-		xstream.alias("Associations", ZWaveDbProductFile.ZWaveDbAssociation.class);
-		xstream.alias("Group", ZWaveDbAssociationGroup.class);
-		xstream.alias("CommandClass", ZWaveDbProductFile.ZWaveDbCommandClassList.class);
-		xstream.alias("Class", ZWaveDbCommandClass.class);
-
-		xstream.processAnnotations(ZWaveDbProductFile.class);
+		if (productFileXStream == null) {
+			XStream xstream = new XStream(new StaxDriver());
+			xstream.alias("Product", ZWaveDbProductFile.class);
+			xstream.alias("Configuration", ZWaveDbProductFile.ZWaveDbConfiguration.class);
+			xstream.alias("Parameter", ZWaveDbConfigurationParameter.class);
+			xstream.alias("Item", ZWaveDbConfigurationListItem.class);
+			xstream.alias("Associations", ZWaveDbProductFile.ZWaveDbAssociation.class);
+			xstream.alias("Group", ZWaveDbAssociationGroup.class);
+			xstream.alias("CommandClass", ZWaveDbProductFile.ZWaveDbCommandClassList.class);
+			xstream.alias("Class", ZWaveDbCommandClass.class);
+
+			xstream.processAnnotations(ZWaveDbProductFile.class);
+			productFileXStream = xstream;
+		}
 
 		try {
-			// this.Manufacturer = (ZWaveDbManufacturer)
 			InputStream x = entry.openStream();
-			productFile = (ZWaveDbProductFile) xstream.fromXML(x);
+			try {
+				file = (ZWaveDbProductFile) productFileXStream.fromXML(x);
+			} finally {
+				x.close();
+			}
 		} catch (IOException e) {
 			logger.error("Unable to load ZWave product file '{}' : {}", cfgFile, e.toString());
+			return null;
 		}
 
-		return productFile;
+		if (file != null) {
+			productFiles.put(cfgFile, file);
+		}
+		return file;
 	}
 
 	public List<ZWaveDbManufacturer> GetManufacturers() {
-		return database.Manufacturer;
+		if (database == null) {
+			return Collections.emptyList();
+		}
+
+		return database.manufacturers;
 	}
 
 	public List<ZWaveDbProduct> GetProducts() {
@@ -172,17 +247,11 @@ public class ZWaveProductDatabase {
 			return false;
 		}
 
-		selManufacturer = null;
+		selManufacturer = database.manufacturersById.get(manufacturerId);
 		selProduct = null;
 		productFile = null;
 
-		for (ZWaveDbManufacturer manufacturer : database.Manufacturer) {
-			if (manufacturer.Id == manufacturerId) {
-				selManufacturer = manufacturer;
-				return true;
-			}
-		}
-		return false;
+		return selManufacturer != null;
 	}
 
 	/**
@@ -220,15 +289,15 @@ public class ZWaveProductDatabase {
 		}
 		productVersion = version;
 
-		for (ZWaveDbProduct product : selManufacturer.Product) {
-			for (ZWaveDbProductReference reference : product.Reference) {
-				if (reference.Type == productType && reference.Id == productId) {
-					selProduct = product;
-					return true;
-				}
-			}
+		ZWaveDbProduct product = database.productsByReference.get(
+				ProductIndex.getProductKey(selManufacturer.Id, productType, productId));
+		if (product == null) {
+			return false;
 		}
-		return false;
+
+		selProduct = product;
+		productFile = null;
+		return true;
 	}
 
 	/**
@@ -370,6 +439,54 @@ public class ZWaveProductDatabase {
 		List<ZWaveDbManufacturer> Manufacturer;
 	}
 
+	/**
+	 * The parsed product database together with its indexes. The index is not
+	 * modified after it has been built.
+	 */
+	private static class ProductIndex {
+		final List<ZWaveDbManufacturer> manufacturers;
+		final Map<Integer, ZWaveDbManufacturer> manufacturersById = new HashMap<Integer, ZWaveDbManufacturer>();
+		final Map<Long, ZWaveDbProduct> productsByReference = new HashMap<Long, ZWaveDbProduct>();
+
+		ProductIndex(ZWaveDbRoot root) {
+			if (root.Manufacturer == null) {
+				manufacturers = Collections.emptyList();
+				return;
+			}
+			manufacturers = Collections.unmodifiableList(root.Manufacturer);
+
+			// the first entry wins, as the lists used to be searched in order
+			for (ZWaveDbManufacturer manufacturer : manufacturers) {
+				if (manufacturer.Id == null || manufacturersById.containsKey(manufacturer.Id)) {
+					continue;
+				}
+				manufacturersById.put(manufacturer.Id, manufacturer);
+
+				if (manufacturer.Product == null) {
+					continue;
+				}
+				for (ZWaveDbProduct product : manufacturer.Product) {
+					if (product.Reference == null) {
+						continue;
+					}
+					for (ZWaveDbProductReference reference : product.Reference) {
+						if (reference.Type == null || reference.Id == null) {
+							continue;
+						}
+						Long key = getProductKey(manufacturer.Id, reference.Type, reference.Id);
+						if (!productsByReference.containsKey(key)) {
+							productsByReference.put(key, product);
+						}
+					}
+				}
+			}
+		}
+
+		static Long getProductKey(int manufacturerId, int productType, int productId) {
+			return ((long) manufacturerId << 32) | ((long) (productType & 0xffff) << 16) | (productId & 0xffff);
+		}
+	}
+
 	/**
 	 * Helper function to find the label associated with the specified database
 	 * language If no language is defined, or if the label cant be found in the
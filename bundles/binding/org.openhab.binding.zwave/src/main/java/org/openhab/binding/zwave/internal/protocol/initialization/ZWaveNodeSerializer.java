@@ -16,6 +16,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.openhab.binding.zwave.internal.protocol.ZWaveDeviceClass;
 import org.openhab.binding.zwave.internal.protocol.ZWaveEndpoint;
@@ -27,11 +29,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+import com.thoughtworks.xstream.XStreamException;
+import com.thoughtworks.xstream.io.xml.CompactWriter;
 import com.thoughtworks.xstream.io.xml.StaxDriver;
 
 /**
  * ZWaveNodeSerializer class. Serializes nodes to XML and back again.
+ * <p>
+ * All instances share one configured {@link XStream}, and only the accesses to
+ * the file of the same node are serialized, so that the nodes can be restored
+ * concurrently at startup. A node is written to a temporary file first, which
+ * then replaces the node file, so that an interrupted write never corrupts a
+ * previously stored node. Nodes are written without indentation; files written
+ * by earlier versions are still read and replaced on the next write.
  * 
  * @author Jan-Willem Spuij
  * @since 1.4.0
@@ -39,7 +49,14 @@ import com.thoughtworks.xstream.io.xml.StaxDriver;
 public class ZWaveNodeSerializer {
 
 	private static final Logger logger = LoggerFactory.getLogger(ZWaveNodeSerializer.class);
-	private final XStream stream = new XStream(new StaxDriver());
+
+	/** the stream which is shared by all instances, it is thread-safe once it is configured */
+	private static XStream sharedStream = null;
+
+	/** the locks of the node files by node id */
+	private static final ConcurrentMap<Integer, Object> nodeLocks = new ConcurrentHashMap<Integer, Object>();
+
+	private final XStream stream;
 	private String folderName = "etc/zwave";
 
 	/**
@@ -64,6 +81,21 @@ public class ZWaveNodeSerializer {
 			logger.debug("Creating directory {}", folderName);
 			folder.mkdirs();
 		}
+		stream = getStream();
+		logger.trace("Initialized ZWaveNodeSerializer.");
+	}
+
+	/**
+	 * Returns the shared stream and configures it, if it has not been used before.
+	 * 
+	 * @return the configured stream
+	 */
+	private static synchronized XStream getStream() {
+		if (sharedStream != null) {
+			return sharedStream;
+		}
+
+		XStream stream = new XStream(new StaxDriver());
 		stream.processAnnotations(ZWaveNode.class);
 		stream.processAnnotations(ZWaveEndpoint.class);
 		stream.processAnnotations(ZWaveDeviceClass.class);
@@ -82,7 +114,34 @@ public class ZWaveNodeSerializer {
 			}
 		}
 		stream.processAnnotations(MeterScale.class);
-		logger.trace("Initialized ZWaveNodeSerializer.");
+		sharedStream = stream;
+		return sharedStream;
+	}
+
+	/**
+	 * Returns the lock which guards the files of a node.
+	 * 
+	 * @param nodeId the id of the node
+	 * @return the lock of the node
+	 */
+	private static Object getNodeLock(int nodeId) {
+		Object lock = nodeLocks.get(nodeId);
+		if (lock == null) {
+			lock = new Object();
+			Object existingLock = nodeLocks.putIfAbsent(nodeId, lock);
+			if (existingLock != null) {
+				lock = existingLock;
+			}
+		}
+		return lock;
+	}
+
+	private File getNodeFile(int nodeId) {
+		return new File(this.folderName, String.format("node%d.xml", nodeId));
+	}
+
+	private File getTemporaryFile(int nodeId) {
+		return new File(this.folderName, String.format("node%d.xml.tmp", nodeId));
 	}
 
 	/**
@@ -92,37 +151,65 @@ public class ZWaveNodeSerializer {
 	 *            the node to serialize
 	 */
 	public void SerializeNode(ZWaveNode node) {
-		synchronized (stream) {
-			// Don't serialise if the stage is not at least finished static
-			// If we do serialise when we haven't completed the static stages
-			// then when the binding starts it will have incomplete information!
-			if(node.getNodeInitializationStage().isStaticComplete() == false) {
-				logger.debug("NODE {}: Serialise aborted as static stages not complete", node.getNodeId());
-				return;
-			}
+		// Don't serialise if the stage is not at least finished static
+		// If we do serialise when we haven't completed the static stages
+		// then when the binding starts it will have incomplete information!
+		if(node.getNodeInitializationStage().isStaticComplete() == false) {
+			logger.debug("NODE {}: Serialise aborted as static stages not complete", node.getNodeId());
+			return;
+		}
 
-			File file = new File(this.folderName, String.format("node%d.xml", node.getNodeId()));
-			BufferedWriter writer = null;
+		synchronized (getNodeLock(node.getNodeId())) {
+			File file = getNodeFile(node.getNodeId());
+			File temporaryFile = getTemporaryFile(node.getNodeId());
+			FileOutputStream output = null;
 
 			logger.debug("NODE {}: Serializing to file {}", node.getNodeId(), file.getPath());
 
 			try {
-				writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
-				stream.marshal(node, new PrettyPrintWriter(writer));
+				output = new FileOutputStream(temporaryFile);
+				BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"));
+				stream.marshal(node, new CompactWriter(writer));
 				writer.flush();
+				// the data has to be on the disk before the file is replaced
+				output.getFD().sync();
+				output.close();
+				output = null;
+
+				if (!replace(temporaryFile, file)) {
+					logger.error("NODE {}: Error serializing to file: {} cannot be replaced", node.getNodeId(), file.getPath());
+				}
 			} catch (IOException e) {
 				logger.error("NODE {}: Error serializing to file: {}", node.getNodeId(), e.getMessage());
+			} catch (XStreamException e) {
+				logger.error("NODE {}: Error serializing to file: {}", node.getNodeId(), e.getMessage());
 			} finally {
-				if (writer != null) {
+				if (output != null) {
 					try {
-						writer.close();
+						output.close();
 					} catch (IOException e) {
 					}
+					temporaryFile.delete();
 				}
 			}
 		}
 	}
 
+	/**
+	 * Replaces a file by another one.
+	 * 
+	 * @return true if the file has been replaced
+	 */
+	private static boolean replace(File source, File target) {
+		if (source.renameTo(target)) {
+			return true;
+		}
+		// renaming to an existing file fails on some platforms, the source is
+		// restored on the next read if the target is missing
+		target.delete();
+		return source.renameTo(target);
+	}
+
 	/**
 	 * Deserializes an XML tree of a {@link ZWaveNode}
 	 * 
@@ -131,9 +218,20 @@ public class ZWaveNodeSerializer {
 	 * @return returns the Node or null in case Serialization failed.
 	 */
 	public ZWaveNode DeserializeNode(int nodeId) {
-		synchronized (stream) {
-			File file = new File(this.folderName, String.format("node%d.xml", nodeId));
-			BufferedReader reader = null;
+		synchronized (getNodeLock(nodeId)) {
+			File file = getNodeFile(nodeId);
+			File temporaryFile = getTemporaryFile(nodeId);
+
+			// A temporary file is left if the last write has been interrupted. It is
+			// newer than the node file, if it has been written completely.
+			if (temporaryFile.exists()) {
+				ZWaveNode node = readNode(nodeId, temporaryFile);
+				if (node != null && replace(temporaryFile, file)) {
+					logger.debug("NODE {}: Restored interrupted write of file {}", nodeId, file.getPath());
+					return node;
+				}
+				temporaryFile.delete();
+			}
 
 			logger.debug("NODE {}: Serializing from file {}", nodeId, file.getPath());
 
@@ -142,20 +240,27 @@ public class ZWaveNodeSerializer {
 				return null;
 			}
 
-			try {
-				reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
-				return (ZWaveNode)stream.fromXML(reader);
-			} catch (IOException e) {
-				logger.error("NODE {}: Error serializing from file: {}", nodeId, e.getMessage());
-			} finally {
-				if (reader != null)
-					try {
-						reader.close();
-					} catch (IOException e) {
-					}
-			}
-			return null;
+			return readNode(nodeId, file);
+		}
+	}
+
+	private ZWaveNode readNode(int nodeId, File file) {
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			return (ZWaveNode)stream.fromXML(reader);
+		} catch (IOException e) {
+			logger.error("NODE {}: Error serializing from file: {}", nodeId, e.getMessage());
+		} catch (XStreamException e) {
+			logger.error("NODE {}: Error serializing from file {}: {}", new Object[] { nodeId, file.getPath(), e.getMessage() });
+		} finally {
+			if (reader != null)
+				try {
+					reader.close();
+				} catch (IOException e) {
+				}
 		}
+		return null;
 	}
 	
 	/**
@@ -165,10 +270,9 @@ public class ZWaveNodeSerializer {
 	 * @return true if the file was deleted
 	 */
 	public boolean DeleteNode(int nodeId) {
-		synchronized (stream) {
-			File file = new File(this.folderName, String.format("node%d.xml", nodeId));
-
-			return file.delete();
+		synchronized (getNodeLock(nodeId)) {
+			getTemporaryFile(nodeId).delete();
+			return getNodeFile(nodeId).delete();
 		}
 	}
 }
@@ -10,6 +10,7 @@ package org.openhab.core.persistence.extensions;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
@@ -21,6 +22,7 @@ import org.openhab.core.items.GenericItem;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
+import org.openhab.core.persistence.test.TestAggregatingPersistenceService;
 import org.openhab.core.persistence.test.TestPersistenceService;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
@@ -33,6 +35,7 @@ import org.openhab.core.types.State;
 public class PersistenceExtensionsTest {
 
 	private PersistenceService testPersistenceService = new TestPersistenceService();
+	private PersistenceService aggregatingPersistenceService = new TestAggregatingPersistenceService();
 	private PersistenceExtensions ext;
 	private GenericItem item;
 	
@@ -40,6 +43,7 @@ public class PersistenceExtensionsTest {
 	public void setUp() {
 		ext = new PersistenceExtensions();
 		ext.addPersistenceService(testPersistenceService);
+		ext.addPersistenceService(aggregatingPersistenceService);
 		item = new GenericItem("Test") {
 			@Override
 			public List<Class<? extends State>> getAcceptedDataTypes() {
@@ -56,6 +60,7 @@ public class PersistenceExtensionsTest {
 	@After
 	public void tearDown() {
 		ext.removePersistenceService(testPersistenceService);	
+		ext.removePersistenceService(aggregatingPersistenceService);
 	}
 	
 	@Test
@@ -103,4 +108,37 @@ public class PersistenceExtensionsTest {
 		DecimalType average = PersistenceExtensions.averageSince(item, new DateMidnight(2003, 1, 1), "test");
 		assertEquals("2100", average.toString());
 	}
+
+	@Test
+	public void testAggregatesMatchQueryResults() {
+		item.setState(new DecimalType(3025));
+		DateMidnight since = new DateMidnight(2003, 1, 1);
+		assertEquals(PersistenceExtensions.averageSince(item, since, "test").doubleValue(), 
+				PersistenceExtensions.averageSince(item, since, "aggregating").doubleValue(), 0.0001);
+		assertEquals(PersistenceExtensions.varianceSince(item, since, "test").doubleValue(), 
+				PersistenceExtensions.varianceSince(item, since, "aggregating").doubleValue(), 0.0001);
+		assertEquals(PersistenceExtensions.sumSince(item, since, "test").doubleValue(), 
+				PersistenceExtensions.sumSince(item, since, "aggregating").doubleValue(), 0.0001);
+		assertEquals("3025", PersistenceExtensions.maximumSince(item, since, "aggregating").getState().toString());
+		assertEquals("2003", PersistenceExtensions.minimumSince(item, since, "aggregating").getState().toString());
+		assertEquals(since.toDate(), PersistenceExtensions.minimumSince(item, since, "aggregating").getTimestamp());
+
+		// no persisted data at all
+		since = new DateMidnight(2015, 1, 1);
+		assertEquals("3025", PersistenceExtensions.averageSince(item, since, "aggregating").toString());
+		assertEquals("0", PersistenceExtensions.sumSince(item, since, "aggregating").toString());
+	}
+
+	@Test
+	public void testTimeWeightedAverageSince() {
+		item.setState(new DecimalType(2012));
+		// the value of 2012 is valid from 2012 until now and therefore outweighs the values of 2010 and 2011
+		DecimalType average = PersistenceExtensions.timeWeightedAverageSince(item, new DateMidnight(2010, 1, 1), "test");
+		assertTrue(average.doubleValue() > 2011.5);
+		assertTrue(average.doubleValue() < 2012);
+
+		// the aggregating test service does not support this aggregate and falls back to a query
+		assertEquals(average.doubleValue(), 
+				PersistenceExtensions.timeWeightedAverageSince(item, new DateMidnight(2010, 1, 1), "aggregating").doubleValue(), 0.01);
+	}
 }
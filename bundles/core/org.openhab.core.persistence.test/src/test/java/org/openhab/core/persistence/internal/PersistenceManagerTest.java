@@ -0,0 +1,305 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.items.ItemRegistryChangeListener;
+import org.openhab.core.persistence.PersistenceService;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+import org.openhab.model.core.ModelRepository;
+import org.openhab.model.core.ModelRepositoryChangeListener;
+import org.openhab.model.persistence.persistence.GroupConfig;
+import org.openhab.model.persistence.persistence.ItemConfig;
+import org.openhab.model.persistence.persistence.PersistenceConfiguration;
+import org.openhab.model.persistence.persistence.PersistenceFactory;
+import org.openhab.model.persistence.persistence.PersistenceModel;
+import org.openhab.model.persistence.persistence.Strategy;
+import org.openhab.model.persistence.scoping.GlobalStrategies;
+
+/**
+ * @since 1.8.0
+ */
+public class PersistenceManagerTest {
+
+	private PersistenceManager manager;
+
+	private TestItemRegistry itemRegistry;
+
+	private TestPersistenceService rrd;
+
+	private TestPersistenceService log;
+
+	private TestItem temperature;
+
+	private TestItem humidity;
+
+	private GroupItem sensors;
+
+	@Before
+	public void setUp() {
+		temperature = new TestItem("Temperature");
+		humidity = new TestItem("Humidity");
+		sensors = new GroupItem("gSensors");
+		sensors.addMember(humidity);
+		itemRegistry = new TestItemRegistry(temperature, humidity, sensors);
+
+		// Items { Temperature : strategy = everyChange  gSensors* -> "sensor" : strategy = everyUpdate }
+		PersistenceModel rrdModel = PersistenceFactory.eINSTANCE.createPersistenceModel();
+		rrdModel.getConfigs().add(createItemConfiguration("Temperature", null, GlobalStrategies.CHANGE));
+		rrdModel.getConfigs().add(createGroupConfiguration("gSensors", "sensor", GlobalStrategies.UPDATE));
+
+		// Strategies { default = everyUpdate } Items { Temperature, Humidity ; }
+		PersistenceModel logModel = PersistenceFactory.eINSTANCE.createPersistenceModel();
+		logModel.getDefaults().add(GlobalStrategies.UPDATE);
+		PersistenceConfiguration logConfig = createItemConfiguration("Temperature", null);
+		logConfig.getItems().add(createItemConfig("Humidity"));
+		logModel.getConfigs().add(logConfig);
+
+		TestModelRepository modelRepository = new TestModelRepository();
+		modelRepository.models.put("rrd.persist", rrdModel);
+		modelRepository.models.put("log.persist", logModel);
+
+		rrd = new TestPersistenceService("rrd");
+		log = new TestPersistenceService("log");
+
+		manager = new PersistenceManager();
+		manager.setItemRegistry(itemRegistry);
+		manager.setModelRepository(modelRepository);
+		manager.addPersistenceService(rrd);
+		manager.addPersistenceService(log);
+	}
+
+	@After
+	public void tearDown() {
+		manager.deactivate();
+	}
+
+	@Test
+	public void testItemsAreRoutedToConfiguredServices() {
+		temperature.setState(UnDefType.UNDEF);
+		temperature.setState(UnDefType.UNDEF);
+		humidity.setState(UnDefType.UNDEF);
+
+		// the repeated update of the temperature is not a change
+		assertEquals(Arrays.asList("Temperature", "Humidity->sensor"), rrd.stored);
+		assertEquals(Arrays.asList("Temperature", "Temperature", "Humidity"), log.stored);
+	}
+
+	@Test
+	public void testAddedGroupMemberIsRouted() {
+		TestItem pressure = new TestItem("Pressure");
+		sensors.addMember(pressure);
+		itemRegistry.items.put(pressure.getName(), pressure);
+		manager.itemAdded(pressure);
+		pressure.setState(UnDefType.UNDEF);
+
+		assertEquals(Arrays.asList("Pressure->sensor"), rrd.stored);
+		assertTrue(log.stored.isEmpty());
+	}
+
+	@Test
+	public void testRemovedServiceIsNotCalled() {
+		manager.removePersistenceService(rrd);
+		temperature.setState(UnDefType.UNDEF);
+
+		assertTrue(rrd.stored.isEmpty());
+		assertEquals(Arrays.asList("Temperature"), log.stored);
+	}
+
+	@Test
+	public void testRoutesAreClearedWithItemRegistry() {
+		manager.unsetItemRegistry(itemRegistry);
+		temperature.setState(UnDefType.UNDEF);
+		humidity.setState(UnDefType.UNDEF);
+
+		assertTrue(manager.itemRoutes.isEmpty());
+		assertTrue(rrd.stored.isEmpty());
+		assertTrue(log.stored.isEmpty());
+	}
+
+
+	private PersistenceConfiguration createItemConfiguration(String itemName, String alias,
+			Strategy... strategies) {
+		return createConfiguration(createItemConfig(itemName), alias, strategies);
+	}
+
+	private ItemConfig createItemConfig(String itemName) {
+		ItemConfig itemConfig = PersistenceFactory.eINSTANCE.createItemConfig();
+		itemConfig.setItem(itemName);
+		return itemConfig;
+	}
+
+	private PersistenceConfiguration createGroupConfiguration(String groupName, String alias,
+			Strategy... strategies) {
+		GroupConfig groupConfig = PersistenceFactory.eINSTANCE.createGroupConfig();
+		groupConfig.setGroup(groupName);
+		return createConfiguration(groupConfig, alias, strategies);
+	}
+
+	private PersistenceConfiguration createConfiguration(EObject itemsConfig, String alias,
+			Strategy... strategies) {
+		PersistenceConfiguration config = PersistenceFactory.eINSTANCE.createPersistenceConfiguration();
+		config.getItems().add(itemsConfig);
+		config.setAlias(alias);
+		config.getStrategies().addAll(Arrays.asList(strategies));
+		return config;
+	}
+
+
+	class TestPersistenceService implements PersistenceService {
+
+		final String name;
+
+		final List<String> stored = new ArrayList<String>();
+
+		TestPersistenceService(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public void store(Item item) {
+			store(item, null);
+		}
+
+		@Override
+		public void store(Item item, String alias) {
+			stored.add(alias==null ? item.getName() : item.getName() + "->" + alias);
+		}
+
+	}
+
+	class TestItemRegistry implements ItemRegistry {
+
+		final Map<String, Item> items = new LinkedHashMap<String, Item>();
+
+		TestItemRegistry(Item... items) {
+			for(Item item : items) {
+				this.items.put(item.getName(), item);
+			}
+		}
+
+		@Override
+		public Item getItem(String name) throws ItemNotFoundException {
+			Item item = items.get(name);
+			if(item==null) {
+				throw new ItemNotFoundException(name);
+			}
+			return item;
+		}
+
+		@Override
+		public Item getItemByPattern(String name) throws ItemNotFoundException {
+			return getItem(name);
+		}
+
+		@Override
+		public Collection<Item> getItems() {
+			return new ArrayList<Item>(items.values());
+		}
+
+		@Override
+		public Collection<Item> getItems(String pattern) {
+			return getItems();
+		}
+
+		@Override
+		public boolean isValidItemName(String itemName) {
+			return true;
+		}
+
+		@Override
+		public void addItemRegistryChangeListener(ItemRegistryChangeListener listener) {
+		}
+
+		@Override
+		public void removeItemRegistryChangeListener(ItemRegistryChangeListener listener) {
+		}
+
+	}
+
+	class TestModelRepository implements ModelRepository {
+
+		final Map<String, EObject> models = new HashMap<String, EObject>();
+
+		@Override
+		public EObject getModel(String name) {
+			return models.get(name);
+		}
+
+		@Override
+		public boolean addOrRefreshModel(String name, InputStream inputStream) {
+			return false;
+		}
+
+		@Override
+		public boolean removeModel(String name) {
+			return false;
+		}
+
+		@Override
+		public Iterable<String> getAllModelNamesOfType(String modelType) {
+			return models.keySet();
+		}
+
+		@Override
+		public void addModelRepositoryChangeListener(ModelRepositoryChangeListener listener) {
+		}
+
+		@Override
+		public void removeModelRepositoryChangeListener(ModelRepositoryChangeListener listener) {
+		}
+
+	}
+
+	class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return null;
+		}
+
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return null;
+		}
+
+	}
+
+}
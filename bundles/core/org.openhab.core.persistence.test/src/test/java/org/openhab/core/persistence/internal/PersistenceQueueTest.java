@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.PersistenceEntry;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+
+/**
+ * @since 1.8.0
+ */
+public class PersistenceQueueTest {
+
+	@Test
+	public void testAllEntriesAreStored() {
+		TestBatchPersistenceService service = new TestBatchPersistenceService();
+		PersistenceQueue queue = new PersistenceQueue(service, 100, 10, 0, false);
+		TestItem item = new TestItem("Temperature");
+		for(int i = 0; i < 25; i++) {
+			queue.add(item, null);
+		}
+		queue.shutdown();
+		
+		assertEquals(25, service.entries.size());
+		assertEquals(25, queue.getStoredCount());
+		assertEquals(0, queue.getQueueDepth());
+	}
+	
+	@Test
+	public void testEntriesKeepTheirState() {
+		TestBatchPersistenceService service = new TestBatchPersistenceService();
+		// the worker waits for the batch to be filled, so both entries are stored at once
+		PersistenceQueue queue = new PersistenceQueue(service, 100, 10, 10000, false);
+		TestItem item = new TestItem("Temperature");
+		item.setState(UnDefType.UNDEF);
+		queue.add(item, "alias");
+		item.setState(UnDefType.NULL);
+		queue.add(item, "alias");
+		queue.shutdown();
+		
+		assertEquals(2, service.entries.size());
+		assertSame(UnDefType.UNDEF, service.entries.get(0).getState());
+		assertSame(UnDefType.NULL, service.entries.get(1).getState());
+		assertEquals("alias", service.entries.get(1).getAlias());
+	}
+	
+	@Test
+	public void testQueuedStatesArePersisted() {
+		TestBatchPersistenceService service = new TestBatchPersistenceService();
+		service.blocked = new CountDownLatch(1);
+		// the worker stores every entry on its own and is blocked by the first one
+		PersistenceQueue queue = new PersistenceQueue(service, 100, 1, 0, false);
+		TestItem item = new TestItem("Temperature");
+		queue.add(item, null);
+		item.setState(UnDefType.UNDEF);
+		queue.add(item, null);
+		item.setState(UnDefType.NULL);
+		queue.add(item, null);
+		item.setState(new TestState());
+		service.blocked.countDown();
+		queue.shutdown();
+		
+		assertEquals(3, service.entries.size());
+		assertSame(UnDefType.UNDEF, service.entries.get(1).getState());
+		assertSame(UnDefType.NULL, service.entries.get(2).getState());
+		assertTrue(service.entries.get(1).getTimestamp().getTime() <= service.entries.get(2).getTimestamp().getTime());
+		assertTrue(service.storedItems.isEmpty());
+	}
+	
+	@Test
+	public void testEntriesAreCoalesced() {
+		TestBatchPersistenceService service = new TestBatchPersistenceService();
+		PersistenceQueue queue = new PersistenceQueue(service, 100, 100, 10000, true);
+		TestItem item = new TestItem("Temperature");
+		TestItem otherItem = new TestItem("Humidity");
+		queue.add(otherItem, null);
+		for(int i = 0; i < 10; i++) {
+			queue.add(item, null);
+		}
+		item.setState(UnDefType.UNDEF);
+		queue.add(item, null);
+		queue.shutdown();
+		
+		PersistenceEntry lastEntry = service.entries.get(service.entries.size() - 1);
+		assertSame(item, lastEntry.getItem());
+		assertSame(UnDefType.UNDEF, lastEntry.getState());
+		assertEquals(10, queue.getCoalescedCount());
+		assertEquals(2, service.entries.size());
+	}
+	
+	@Test
+	public void testFullQueueIsStoredSynchronously() {
+		TestBatchPersistenceService service = new TestBatchPersistenceService();
+		service.blocked = new CountDownLatch(1);
+		PersistenceQueue queue = new PersistenceQueue(service, 1, 10, 0, false);
+		TestItem item = new TestItem("Temperature");
+		for(int i = 0; i < 5; i++) {
+			queue.add(item, null);
+		}
+		service.blocked.countDown();
+		queue.shutdown();
+		
+		assertEquals(5, service.entries.size());
+		assertEquals(true, queue.getOverflowCount() >= 3);
+	}
+	
+	@Test
+	public void testEntriesOfHangingServiceAreCountedOnShutdown() {
+		TestBatchPersistenceService service = new TestBatchPersistenceService();
+		service.blocked = new CountDownLatch(1);
+		PersistenceQueue queue = new PersistenceQueue(service, 100, 1, 0, false);
+		TestItem item = new TestItem("Temperature");
+		for(int i = 0; i < 5; i++) {
+			queue.add(item, null);
+		}
+		// the worker is interrupted on shutdown, but keeps hanging in the service
+		service.ignoreInterrupts = true;
+		queue.shutdownTimeout = 100;
+		queue.shutdown();
+		
+		assertTrue(queue.getFailedCount() >= 3);
+		assertEquals(0, queue.getQueueDepth());
+		service.blocked.countDown();
+	}
+	
+	
+	class TestBatchPersistenceService implements BatchPersistenceService {
+		
+		List<PersistenceEntry> entries = new ArrayList<PersistenceEntry>();
+		
+		List<Item> storedItems = new ArrayList<Item>();
+		
+		CountDownLatch blocked;
+		
+		volatile boolean ignoreInterrupts = false;
+
+		@Override
+		public String getName() {
+			return "test";
+		}
+
+		@Override
+		public void store(Item item) {
+			store(item, null);
+		}
+
+		@Override
+		public synchronized void store(Item item, String alias) {
+			storedItems.add(item);
+		}
+
+		@Override
+		public void storeBatch(Collection<PersistenceEntry> batch) {
+			if(Thread.currentThread().getName().startsWith("Persistence queue")) {
+				awaitUnblocked();
+			}
+			synchronized(this) {
+				entries.addAll(batch);
+			}
+		}
+		
+		private void awaitUnblocked() {
+			while(blocked!=null) {
+				try {
+					blocked.await();
+					return;
+				} catch (InterruptedException e) {
+					if(!ignoreInterrupts) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+			}
+		}
+		
+	}
+	
+	class TestState implements State {
+		
+		public String format(String pattern) {
+			return toString();
+		}
+		
+	}
+	
+	class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return null;
+		}
+
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return null;
+		}
+		
+	}
+
+}
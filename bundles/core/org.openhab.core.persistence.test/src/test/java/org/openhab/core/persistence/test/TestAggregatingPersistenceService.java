@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.test;
+
+import java.util.Date;
+
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.types.State;
+
+/**
+ * A simple aggregating persistence service used for unit tests, which 
+ * calculates the aggregates from the data of the {@link TestPersistenceService}.
+ * 
+ * @since 1.8.0
+ */
+public class TestAggregatingPersistenceService extends TestPersistenceService implements AggregatingPersistenceService {
+
+	@Override
+	public String getName() {
+		return "aggregating";
+	}
+
+	@Override
+	public boolean supportsAggregate(Aggregate aggregate) {
+		return aggregate != Aggregate.TIME_WEIGHTED_AVERAGE;
+	}
+
+	@Override
+	public HistoricItem aggregate(FilterCriteria filter, Aggregate aggregate) {
+		HistoricItem extremum = null;
+		double sum = 0;
+		double sumOfSquares = 0;
+		int count = 0;
+		for (HistoricItem historicItem : query(filter)) {
+			double value = ((DecimalType) historicItem.getState()).doubleValue();
+			if (extremum == null 
+					|| (aggregate == Aggregate.MINIMUM && value < ((DecimalType) extremum.getState()).doubleValue())
+					|| (aggregate == Aggregate.MAXIMUM && value > ((DecimalType) extremum.getState()).doubleValue())) {
+				extremum = historicItem;
+			}
+			sum += value;
+			sumOfSquares += value * value;
+			count++;
+		}
+		if (count == 0) {
+			return aggregate == Aggregate.COUNT ? createItem(0) : null;
+		}
+		switch (aggregate) {
+			case MINIMUM:
+			case MAXIMUM:
+				return extremum;
+			case SUM:
+				return createItem(sum);
+			case SUM_OF_SQUARES:
+				return createItem(sumOfSquares);
+			case COUNT:
+				return createItem(count);
+			case AVERAGE:
+				return createItem(sum / count);
+			default:
+				throw new UnsupportedOperationException();
+		}
+	}
+
+	private HistoricItem createItem(final double value) {
+		return new HistoricItem() {
+			@Override
+			public Date getTimestamp() {
+				return new Date();
+			}
+			
+			@Override
+			public State getState() {
+				return new DecimalType(value);
+			}
+			
+			@Override
+			public String getName() {
+				return "Test";
+			}
+		};
+	}
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+/**
+ * A {@link QueryablePersistenceService} which is able to calculate aggregates
+ * of the persisted values itself, e.g. by the means of SQL aggregate functions.
+ * This avoids transferring all matching rows of a query just to compute a single
+ * number out of them.
+ * <p>Callers should check {@link #supportsAggregate(Aggregate)} and fall back to
+ * iterating over the result of {@link #query(FilterCriteria)} if the aggregate
+ * is not supported.</p>
+ *
+ * @since 1.8.0
+ */
+public interface AggregatingPersistenceService extends QueryablePersistenceService {
+
+	/** the aggregates that can be requested from a service */
+	static public enum Aggregate {
+		/** the arithmetic mean of all values */
+		AVERAGE,
+		/** the minimum value; the result carries the timestamp of this value */
+		MINIMUM,
+		/** the maximum value; the result carries the timestamp of this value */
+		MAXIMUM,
+		/** the sum of all values */
+		SUM,
+		/** the number of values */
+		COUNT,
+		/** the sum of the squares of all values, which is needed for calculating the variance */
+		SUM_OF_SQUARES,
+		/** the average of all values, where every value is weighted by the time it has been valid */
+		TIME_WEIGHTED_AVERAGE
+	}
+
+	/**
+	 * Checks whether this service is able to calculate the given aggregate.
+	 *
+	 * @param aggregate the aggregate to check
+	 * @return true, if {@link #aggregate(FilterCriteria, Aggregate)} can be called for this aggregate
+	 */
+	boolean supportsAggregate(Aggregate aggregate);
+
+	/**
+	 * Calculates an aggregate over all numeric values matching the item name,
+	 * begin date and end date of the given filter. Ordering and paging of the
+	 * filter are ignored.
+	 *
+	 * @param filter the filter which defines the values to aggregate
+	 * @param aggregate the aggregate to calculate
+	 * @return a historic item with the aggregated value as a <code>DecimalType</code> state
+	 *         or <code>null</code>, if there are no values to aggregate
+	 * @throws UnsupportedOperationException if the aggregate cannot be calculated for this
+	 *         item, e.g. because its values are not stored as numbers. Callers should then
+	 *         fall back to a regular query.
+	 */
+	HistoricItem aggregate(FilterCriteria filter, Aggregate aggregate);
+
+}
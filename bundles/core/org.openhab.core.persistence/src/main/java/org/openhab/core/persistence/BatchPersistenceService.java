@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Collection;
+
+/**
+ * A {@link PersistenceService} which is able to store several item states
+ * at once, e.g. within a single database transaction. If a persistence 
+ * service implements this interface, the persistence manager hands over
+ * the queued entries in batches instead of calling <code>store</code>
+ * for each single item.
+ * 
+ * @since 1.8.0
+ */
+public interface BatchPersistenceService extends PersistenceService {
+
+	/**
+	 * Stores all given entries. 
+	 * <p>In contrast to <code>store(Item)</code>, implementations should 
+	 * persist the state and timestamp of the entries instead of the current
+	 * state of the item, as the entries might have been queued for some time.</p>
+	 * 
+	 * @param entries the entries to persist in the order they have been created
+	 */
+	void storeBatch(Collection<PersistenceEntry> entries);
+
+}
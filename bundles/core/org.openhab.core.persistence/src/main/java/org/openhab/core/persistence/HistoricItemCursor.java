@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * A lazy iterator over the result of a persistence query, which fetches the
+ * historic items from the underlying database while it is iterated.
+ * <p>A cursor might hold database resources like connections or result sets, so
+ * it must always be closed, preferably in a <code>finally</code> block. Cursors
+ * close themselves as soon as they are exhausted.</p>
+ * <p>If the database fails while the cursor is iterated, {@link #hasNext()} and 
+ * {@link #next()} throw an unchecked exception instead of ending the iteration.</p>
+ * 
+ * @since 1.8.0
+ */
+public interface HistoricItemCursor extends Iterator<HistoricItem>, Closeable {
+
+	/**
+	 * Releases all resources held by this cursor. Closing a cursor more than once has no effect.
+	 */
+	void close();
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Static helper methods for working with {@link HistoricItemCursor}s.
+ * 
+ * @since 1.8.0
+ */
+public final class HistoricItemCursors {
+
+	private HistoricItemCursors() {
+		// static helper methods only
+	}
+
+	/**
+	 * Queries the given service and returns a cursor over the result. If the service is a
+	 * {@link StreamingPersistenceService}, the result is streamed from the database, otherwise
+	 * the cursor iterates over the result of {@link QueryablePersistenceService#query(FilterCriteria)}.
+	 * 
+	 * @param service the service to query
+	 * @param filter the filter to apply to the query
+	 * @return a cursor over the time series of items, which must be closed by the caller
+	 */
+	public static HistoricItemCursor query(QueryablePersistenceService service, FilterCriteria filter) {
+		if (service instanceof StreamingPersistenceService) {
+			return ((StreamingPersistenceService) service).queryCursor(filter);
+		}
+		return of(service.query(filter));
+	}
+
+	/**
+	 * Creates a cursor over the given items, which does not hold any resources.
+	 * 
+	 * @param items the items to iterate over, may be <code>null</code>
+	 * @return a cursor over the given items
+	 */
+	public static HistoricItemCursor of(Iterable<HistoricItem> items) {
+		final Iterator<HistoricItem> it = items != null ? items.iterator() 
+				: Collections.<HistoricItem>emptyList().iterator();
+		return new HistoricItemCursor() {
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			public HistoricItem next() {
+				return it.next();
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			public void close() {
+			}
+		};
+	}
+
+	/**
+	 * Creates an empty cursor.
+	 * 
+	 * @return a cursor without any items
+	 */
+	public static HistoricItemCursor empty() {
+		return of(null);
+	}
+
+	/**
+	 * Base class for cursors which read their items one by one from a database. 
+	 * Subclasses fetch the next item in {@link #fetchNext()} and release their resources
+	 * in {@link #release()}, which is called exactly once, either when the cursor is exhausted
+	 * or when it is closed.
+	 */
+	public static abstract class AbstractCursor implements HistoricItemCursor {
+
+		private HistoricItem next;
+		private boolean closed;
+
+		/**
+		 * @return the next item or <code>null</code>, if there are no more items
+		 */
+		protected abstract HistoricItem fetchNext();
+
+		/**
+		 * Releases the database resources of this cursor.
+		 */
+		protected abstract void release();
+
+		public boolean hasNext() {
+			if (next == null && !closed) {
+				next = fetchNext();
+				if (next == null) {
+					close();
+				}
+			}
+			return next != null;
+		}
+
+		public HistoricItem next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			HistoricItem item = next;
+			next = null;
+			return item;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		public void close() {
+			if (!closed) {
+				closed = true;
+				next = null;
+				release();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Date;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.types.State;
+
+/**
+ * A PersistenceEntry represents a single request to persist the state of an
+ * item. It keeps the state and the point in time of the request, so that it
+ * can be stored correctly even if it is processed asynchronously.
+ * 
+ * @since 1.8.0
+ */
+public class PersistenceEntry {
+
+	private final Item item;
+	
+	private final String alias;
+	
+	private final State state;
+	
+	private final Date timestamp;
+
+	public PersistenceEntry(Item item, String alias) {
+		this.item = item;
+		this.alias = alias;
+		this.state = item.getState();
+		this.timestamp = new Date();
+	}
+
+	/**
+	 * @return the item to persist
+	 */
+	public Item getItem() {
+		return item;
+	}
+
+	/**
+	 * @return the alias under which the item should be persisted, might be <code>null</code>
+	 */
+	public String getAlias() {
+		return alias;
+	}
+
+	/**
+	 * @return the state of the item at the time this entry has been created
+	 */
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * @return the point in time this entry has been created
+	 */
+	public Date getTimestamp() {
+		return timestamp;
+	}
+	
+	@Override
+	public String toString() {
+		return item.getName() + (alias != null ? " (" + alias + ")" : "") + " -> " + state;
+	}
+
+}
@@ -0,0 +1,30 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+/**
+ * A {@link QueryablePersistenceService} which is able to stream the result of 
+ * a query instead of loading all historic items into memory at once. Consumers
+ * should use {@link HistoricItemCursors#query(QueryablePersistenceService, FilterCriteria)},
+ * which falls back to {@link #query(FilterCriteria)} for other services.
+ * 
+ * @since 1.8.0
+ */
+public interface StreamingPersistenceService extends QueryablePersistenceService {
+
+	/**
+	 * Queries the {@link PersistenceService} for data with a given filter criteria
+	 * and returns a cursor over the result, which must be closed by the caller.
+	 * 
+	 * @param filter the filter to apply to the query
+	 * @return a cursor over the time series of items, never <code>null</code>
+	 */
+	HistoricItemCursor queryCursor(FilterCriteria filter);
+
+}
@@ -9,9 +9,9 @@
 package org.openhab.core.persistence.extensions;
 
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Dictionary;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -19,9 +19,13 @@ import java.util.Map;
 import org.joda.time.base.AbstractInstant;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.AggregatingPersistenceService.Aggregate;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.HistoricItemCursor;
+import org.openhab.core.persistence.HistoricItemCursors;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.State;
@@ -160,24 +164,27 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return true, if item state had changed
 	 */
 	static public Boolean changedSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-		HistoricItem itemThen = historicState(item, timestamp);
-		if(itemThen == null) {
-			// Can't get the state at the start time
-			// If we've got results more recent that this, it must have changed
-			return(it.hasNext());
-		}
-
-		State state = itemThen.getState();
-		while(it.hasNext()) {
-			HistoricItem hItem = it.next();
-			if(state!=null && !hItem.getState().equals(state)) {
-				return true;
+		HistoricItemCursor it = getAllStatesSince(item, timestamp, serviceName);
+		try {
+			HistoricItem itemThen = historicState(item, timestamp);
+			if(itemThen == null) {
+				// Can't get the state at the start time
+				// If we've got results more recent that this, it must have changed
+				return(it.hasNext());
 			}
-			state = hItem.getState();
+
+			State state = itemThen.getState();
+			while(it.hasNext()) {
+				HistoricItem hItem = it.next();
+				if(state!=null && !hItem.getState().equals(state)) {
+					return true;
+				}
+				state = hItem.getState();
+			}
+			return false;
+		} finally {
+			it.close();
 		}
-		return false;
 	} 
 
 	/**
@@ -206,11 +213,11 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return true, if item state was updated
 	 */
 	static public Boolean updatedSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		if(result.iterator().hasNext()) {
-			return true;
-		} else {
-			return false;
+		HistoricItemCursor it = getAllStatesSince(item, timestamp, serviceName);
+		try {
+			return it.hasNext();
+		} finally {
+			it.close();
 		}
 	} 
 
@@ -242,19 +249,32 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return a historic item with the maximum state value since the given point in time
 	 */
 	static public HistoricItem maximumSince(final Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
 		HistoricItem maximumHistoricItem = null;
 		DecimalType maximum = (DecimalType) item.getStateAs(DecimalType.class);
-		while(it.hasNext()) {
-			HistoricItem historicItem = it.next();
-			State state = historicItem.getState();
-			if (state instanceof DecimalType) {
-				DecimalType value = (DecimalType) state;
-				if(maximum==null || value.compareTo(maximum)>0) {
-					maximum = value;
-					maximumHistoricItem = historicItem;
+		Map<Aggregate, HistoricItem> aggregates = getAggregatesSince(item, timestamp, serviceName, Aggregate.MAXIMUM);
+		if(aggregates!=null) {
+			HistoricItem historicItem = aggregates.get(Aggregate.MAXIMUM);
+			DecimalType value = getAggregateValue(aggregates, Aggregate.MAXIMUM);
+			if(value!=null && (maximum==null || value.compareTo(maximum)>0)) {
+				maximum = value;
+				maximumHistoricItem = historicItem;
+			}
+		} else {
+			HistoricItemCursor it = getAllStatesSince(item, timestamp, serviceName);
+			try {
+				while(it.hasNext()) {
+					HistoricItem historicItem = it.next();
+					State state = historicItem.getState();
+					if (state instanceof DecimalType) {
+						DecimalType value = (DecimalType) state;
+						if(maximum==null || value.compareTo(maximum)>0) {
+							maximum = value;
+							maximumHistoricItem = historicItem;
+						}
+					}
 				}
+			} finally {
+				it.close();
 			}
 		}
 		if(maximumHistoricItem==null && maximum!=null) {
@@ -307,19 +327,32 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the historic item with the minimum state value since the given point in time
 	 */
 	static public HistoricItem minimumSince(final Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
 		HistoricItem minimumHistoricItem = null;
 		DecimalType minimum = (DecimalType) item.getStateAs(DecimalType.class);
-		while(it.hasNext()) {
-			HistoricItem historicItem = it.next();
-			State state = historicItem.getState();
-			if (state instanceof DecimalType) {
-				DecimalType value = (DecimalType) state;
-				if(minimum==null || value.compareTo(minimum)<0) {
-					minimum = value;
-					minimumHistoricItem = historicItem;
+		Map<Aggregate, HistoricItem> aggregates = getAggregatesSince(item, timestamp, serviceName, Aggregate.MINIMUM);
+		if(aggregates!=null) {
+			HistoricItem historicItem = aggregates.get(Aggregate.MINIMUM);
+			DecimalType value = getAggregateValue(aggregates, Aggregate.MINIMUM);
+			if(value!=null && (minimum==null || value.compareTo(minimum)<0)) {
+				minimum = value;
+				minimumHistoricItem = historicItem;
+			}
+		} else {
+			HistoricItemCursor it = getAllStatesSince(item, timestamp, serviceName);
+			try {
+				while(it.hasNext()) {
+					HistoricItem historicItem = it.next();
+					State state = historicItem.getState();
+					if (state instanceof DecimalType) {
+						DecimalType value = (DecimalType) state;
+						if(minimum==null || value.compareTo(minimum)<0) {
+							minimum = value;
+							minimumHistoricItem = historicItem;
+						}
+					}
 				}
+			} finally {
+				it.close();
 			}
 		}
 		if(minimumHistoricItem==null && minimum!=null) {
@@ -370,18 +403,30 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the average state value since the given point in time
 	 */
 	static public DecimalType averageSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-
 		double total = 0;
-		int quantity = 0;
+		long quantity = 0;
 		DecimalType histValue = null;
-		while(it.hasNext()) {
-			State state = it.next().getState();
-			if (state instanceof DecimalType) {
-				histValue = (DecimalType) state;
-				total += histValue.doubleValue();
-				quantity++;
+		Map<Aggregate, HistoricItem> aggregates = getAggregatesSince(item, timestamp, serviceName, Aggregate.SUM, Aggregate.COUNT);
+		if(aggregates!=null) {
+			DecimalType count = getAggregateValue(aggregates, Aggregate.COUNT);
+			DecimalType sum = getAggregateValue(aggregates, Aggregate.SUM);
+			if(count!=null && sum!=null) {
+				total = sum.doubleValue();
+				quantity = count.longValue();
+			}
+		} else {
+			HistoricItemCursor it = getAllStatesSince(item, timestamp, serviceName);
+			try {
+				while(it.hasNext()) {
+					State state = it.next().getState();
+					if (state instanceof DecimalType) {
+						histValue = (DecimalType) state;
+						total += histValue.doubleValue();
+						quantity++;
+					}
+				}
+			} finally {
+				it.close();
 			}
 		}
 		
@@ -431,8 +476,11 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the variance of the value since the given point in time
 	 */
 	static public DecimalType varianceSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
+		Map<Aggregate, HistoricItem> aggregates = getAggregatesSince(item, timestamp, serviceName, 
+				Aggregate.SUM, Aggregate.SUM_OF_SQUARES, Aggregate.COUNT);
+		if(aggregates!=null) {
+			return varianceOf(item, aggregates);
+		}
 
 		DecimalType average = averageSince(item, timestamp, serviceName);
 		if (average == null) {
@@ -442,13 +490,18 @@ public class PersistenceExtensions implements ManagedService {
 		double total = 0;
 		int quantity = 0;
 		DecimalType histValue = null;
-		while(it.hasNext()) {
-			State state = it.next().getState();
-			if (state instanceof DecimalType) {
-				histValue = (DecimalType) state;
-				total += Math.pow(histValue.doubleValue()- average.doubleValue(), 2);
-				quantity++;
+		HistoricItemCursor it = getAllStatesSince(item, timestamp, serviceName);
+		try {
+			while(it.hasNext()) {
+				State state = it.next().getState();
+				if (state instanceof DecimalType) {
+					histValue = (DecimalType) state;
+					total += Math.pow(histValue.doubleValue()- average.doubleValue(), 2);
+					quantity++;
+				}
 			}
+		} finally {
+			it.close();
 		}
 
 		// If the current value has not been persisted it should be included in the average as well.
@@ -529,19 +582,101 @@ public class PersistenceExtensions implements ManagedService {
 	 */
 
 	static public DecimalType sumSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-		
+		Map<Aggregate, HistoricItem> aggregates = getAggregatesSince(item, timestamp, serviceName, Aggregate.SUM);
+		if(aggregates!=null) {
+			DecimalType sum = getAggregateValue(aggregates, Aggregate.SUM);
+			return sum!=null ? sum : new DecimalType(0);
+		}
+
 		double sum = 0;
-		while(it.hasNext()) {
-			State state = it.next().getState();
-			if (state instanceof DecimalType) {
-				sum += ((DecimalType) state).doubleValue();
+		HistoricItemCursor it = getAllStatesSince(item, timestamp, serviceName);
+		try {
+			while(it.hasNext()) {
+				State state = it.next().getState();
+				if (state instanceof DecimalType) {
+					sum += ((DecimalType) state).doubleValue();
+				}
 			}
+		} finally {
+			it.close();
 		}
 
 		return new DecimalType(sum);
 	}
+
+	/**
+	 * Gets the time-weighted average value of the state of a given <code>item</code> since a certain point in time,
+	 * i.e. every value is weighted by the time until the next value has been persisted. The last value is considered
+	 * to be valid until now.
+	 * The default persistence service is used. 
+	 * 
+	 * @param item the item to get the average state value for
+	 * @param the point in time to start the check 
+	 * @return the time-weighted average state value since the given point in time
+	 */
+	static public DecimalType timeWeightedAverageSince(Item item, AbstractInstant timestamp) {
+		if(isDefaultServiceAvailable()) {
+			return timeWeightedAverageSince(item, timestamp, defaultService);
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the time-weighted average value of the state of a given <code>item</code> since a certain point in time,
+	 * i.e. every value is weighted by the time until the next value has been persisted. The last value is considered
+	 * to be valid until now.
+	 * The {@link PersistenceService} identified by the <code>serviceName</code> is used. 
+	 * 
+	 * @param item the item to get the average state value for
+	 * @param the point in time to start the check 
+	 * @param serviceName the name of the {@link PersistenceService} to use
+	 * @return the time-weighted average state value since the given point in time
+	 */
+	static public DecimalType timeWeightedAverageSince(Item item, AbstractInstant timestamp, String serviceName) {
+		Map<Aggregate, HistoricItem> aggregates = getAggregatesSince(item, timestamp, serviceName, Aggregate.TIME_WEIGHTED_AVERAGE);
+		if(aggregates!=null) {
+			DecimalType average = getAggregateValue(aggregates, Aggregate.TIME_WEIGHTED_AVERAGE);
+			return average!=null ? average : (DecimalType) item.getStateAs(DecimalType.class);
+		}
+
+		double total = 0;
+		long duration = 0;
+		DecimalType lastValue = null;
+		long lastTimestamp = 0;
+		HistoricItemCursor it = getAllStatesSince(item, timestamp, serviceName);
+		try {
+			while(it.hasNext()) {
+				HistoricItem historicItem = it.next();
+				State state = historicItem.getState();
+				if (state instanceof DecimalType) {
+					long time = historicItem.getTimestamp().getTime();
+					if(lastValue!=null) {
+						total += lastValue.doubleValue() * (time - lastTimestamp);
+						duration += time - lastTimestamp;
+					}
+					lastValue = (DecimalType) state;
+					lastTimestamp = time;
+				}
+			}
+		} finally {
+			it.close();
+		}
+
+		if(lastValue==null) {
+			// nothing has been persisted, so the current state has been valid all the time
+			return (DecimalType) item.getStateAs(DecimalType.class);
+		}
+		long now = System.currentTimeMillis();
+		if(now > lastTimestamp) {
+			total += lastValue.doubleValue() * (now - lastTimestamp);
+			duration += now - lastTimestamp;
+		}
+		if(duration==0) {
+			return lastValue;
+		}
+		return new DecimalType(total / duration);
+	}
 	
 	/**
 	 * Query for the last update timestamp of a given <code>item</code>.
@@ -739,7 +874,83 @@ public class PersistenceExtensions implements ManagedService {
 		}
 	}
 
-	static private Iterable<HistoricItem> getAllStatesSince(Item item, AbstractInstant timestamp, String serviceName) {
+	/**
+	 * Lets the persistence service calculate the given aggregates for all states since the given point in time.
+	 * 
+	 * @return a map of the aggregates with a <code>null</code> value for aggregates without any data or 
+	 *         <code>null</code> if the service cannot calculate all of the aggregates, so that the caller 
+	 *         has to fall back to {@link #getAllStatesSince(Item, AbstractInstant, String)}
+	 */
+	static private Map<Aggregate, HistoricItem> getAggregatesSince(Item item, AbstractInstant timestamp, String serviceName, Aggregate... aggregates) {
+		PersistenceService service = services.get(serviceName);
+		if (!(service instanceof AggregatingPersistenceService)) {
+			return null;
+		}
+		AggregatingPersistenceService aService = (AggregatingPersistenceService) service;
+		for (Aggregate aggregate : aggregates) {
+			if (!aService.supportsAggregate(aggregate)) {
+				return null;
+			}
+		}
+		FilterCriteria filter = new FilterCriteria();
+		filter.setBeginDate(timestamp.toDate());
+		filter.setItemName(item.getName());
+		Map<Aggregate, HistoricItem> result = new EnumMap<Aggregate, HistoricItem>(Aggregate.class);
+		try {
+			for (Aggregate aggregate : aggregates) {
+				result.put(aggregate, aService.aggregate(filter, aggregate));
+			}
+		} catch (UnsupportedOperationException e) {
+			logger.debug("Persistence service '{}' cannot aggregate item '{}', falling back to a query: {}", 
+					new Object[] { serviceName, item.getName(), e.getMessage() });
+			return null;
+		}
+		return result;
+	}
+
+	static private DecimalType getAggregateValue(Map<Aggregate, HistoricItem> aggregates, Aggregate aggregate) {
+		HistoricItem historicItem = aggregates.get(aggregate);
+		if (historicItem!=null && historicItem.getState() instanceof DecimalType) {
+			return (DecimalType) historicItem.getState();
+		}
+		return null;
+	}
+
+	/**
+	 * Calculates the variance from the sums delivered by an {@link AggregatingPersistenceService}, 
+	 * including the current state of the item just like the iterating implementation does.
+	 */
+	static private DecimalType varianceOf(Item item, Map<Aggregate, HistoricItem> aggregates) {
+		DecimalType count = getAggregateValue(aggregates, Aggregate.COUNT);
+		DecimalType sum = getAggregateValue(aggregates, Aggregate.SUM);
+		DecimalType sumOfSquares = getAggregateValue(aggregates, Aggregate.SUM_OF_SQUARES);
+
+		double quantity = 0;
+		double total = 0;
+		double totalOfSquares = 0;
+		if(count!=null && sum!=null && sumOfSquares!=null) {
+			quantity = count.doubleValue();
+			total = sum.doubleValue();
+			totalOfSquares = sumOfSquares.doubleValue();
+		}
+		DecimalType currentValue = (DecimalType) item.getStateAs(DecimalType.class);
+		if (currentValue != null) {
+			total += currentValue.doubleValue();
+			totalOfSquares += currentValue.doubleValue() * currentValue.doubleValue();
+			quantity++;
+		}
+		if (quantity == 0) {
+			return null;
+		}
+		double average = total / quantity;
+		// rounding errors must not lead to a negative variance
+		return new DecimalType(Math.max(0, totalOfSquares / quantity - average * average));
+	}
+
+	/**
+	 * Queries all states since the given point in time. The returned cursor must be closed by the caller.
+	 */
+	static private HistoricItemCursor getAllStatesSince(Item item, AbstractInstant timestamp, String serviceName) {
 		PersistenceService service = services.get(serviceName);
 		if (service instanceof QueryablePersistenceService) {
 			QueryablePersistenceService qService = (QueryablePersistenceService) service;
@@ -747,10 +958,10 @@ public class PersistenceExtensions implements ManagedService {
 			filter.setBeginDate(timestamp.toDate());
 			filter.setItemName(item.getName());
 			filter.setOrdering(Ordering.ASCENDING);
-			return qService.query(filter);
+			return HistoricItemCursors.query(qService, filter);
 		} else {
 			logger.warn("There is no queryable persistence service registered with the name '{}'", serviceName);
-			return Collections.emptySet();
+			return HistoricItemCursors.empty();
 		}
 	}
 	
@@ -13,7 +13,9 @@ import static org.quartz.TriggerBuilder.newTrigger;
 
 import java.text.DateFormat;
 import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -23,6 +25,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.ecore.EObject;
 import org.openhab.core.events.AbstractEventSubscriber;
 import org.openhab.core.items.GenericItem;
@@ -32,6 +35,7 @@ import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.items.ItemRegistryChangeListener;
 import org.openhab.core.items.StateChangeListener;
+import org.openhab.core.persistence.BatchPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
@@ -49,6 +53,8 @@ import org.openhab.model.persistence.persistence.PersistenceConfiguration;
 import org.openhab.model.persistence.persistence.PersistenceModel;
 import org.openhab.model.persistence.persistence.Strategy;
 import org.openhab.model.persistence.scoping.GlobalStrategies;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.Job;
 import org.quartz.JobDetail;
@@ -64,14 +70,23 @@ import org.slf4j.LoggerFactory;
 /**
  * This class is the central part of the persistence management and delegation. It reads the persistence
  * models, schedules timers and manages the invocation of {@link PersistenceService}s upon events.
+ * <p>If asynchronous storage is enabled, the invocations are queued per persistence service and
+ * processed by a {@link PersistenceQueue} instead of the thread that changed the item state. This
+ * only applies to services which implement {@link BatchPersistenceService}.</p>
  * 
  * @author Kai Kreuzer
  * @since 1.0.0
  *
  */
-public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener {
+public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener, ManagedService {
 	
 	private static final Logger logger = LoggerFactory.getLogger(PersistenceManager.class);
+	
+	private static final String CONFIG_ASYNC = "async";
+	private static final String CONFIG_QUEUE_SIZE = "queuesize";
+	private static final String CONFIG_BATCH_SIZE = "batchsize";
+	private static final String CONFIG_FLUSH_INTERVAL = "flushinterval";
+	private static final String CONFIG_COALESCE = "coalesce";
 
 	private static PersistenceManager instance;
 	
@@ -91,6 +106,31 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	protected Map<String, List<Strategy>> defaultStrategies = 
 			Collections.synchronizedMap(new HashMap<String, List<Strategy>>());
 	
+	/** 
+	 * the routing table, which keeps all change and update targets by item name. It is 
+	 * rebuilt whenever the persistence models or the items change, so that handling a
+	 * state event does not need to evaluate the persistence configurations.
+	 */
+	protected Map<String, List<ItemRoute>> itemRoutes = new ConcurrentHashMap<String, List<ItemRoute>>();
+	
+	/** keeps the write queue for each persistence service, if asynchronous storage is enabled */
+	protected Map<String, PersistenceQueue> persistenceQueues = new ConcurrentHashMap<String, PersistenceQueue>();
+	
+	/** true, if the persistence services should be called asynchronously */
+	private boolean async = false;
+	
+	/** the maximum number of entries that are queued per persistence service */
+	private int queueSize = 10000;
+
+	/** the maximum number of entries that are stored at once */
+	private int batchSize = 100;
+
+	/** the maximum time in milliseconds to wait for a batch to be filled */
+	private long flushInterval = 0;
+	
+	/** true, if queued entries for the same item should be merged into the latest one */
+	private boolean coalesce = false;
+	
 	
 	public PersistenceManager() {
 		PersistenceManager.instance = this;
@@ -110,6 +150,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 	
 	public void deactivate() {
+		stopQueues();
 	}
 	
 	
@@ -140,20 +181,81 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	public void unsetItemRegistry(ItemRegistry itemRegistry) {
 		itemRegistry.removeItemRegistryChangeListener(this);
 		this.itemRegistry = null;
+		rebuildRoutes();
 	}
 
 	public void addPersistenceService(PersistenceService persistenceService) {
 		logger.debug("Initializing {} persistence service.", persistenceService.getName());
 		persistenceServices.put(persistenceService.getName(), persistenceService);
+		startQueue(persistenceService);
 		stopEventHandling(persistenceService.getName());
 		startEventHandling(persistenceService.getName());
 	}
 
 	public void removePersistenceService(PersistenceService persistenceService) {
 		stopEventHandling(persistenceService.getName());
+		stopQueue(persistenceService.getName());
 		persistenceServices.remove(persistenceService.getName());
 	}
 	
+	/**
+	 * Creates the write queue for the given persistence service, if asynchronous storage is enabled.
+	 * Only a {@link BatchPersistenceService} can be queued, as other services always store the
+	 * current state of an item instead of the state it had when it was queued.
+	 * 
+	 * @param persistenceService the service to create the queue for
+	 */
+	private void startQueue(PersistenceService persistenceService) {
+		if(async) {
+			stopQueue(persistenceService.getName());
+			if(persistenceService instanceof BatchPersistenceService) {
+				persistenceQueues.put(persistenceService.getName(), new PersistenceQueue(
+						(BatchPersistenceService) persistenceService, queueSize, batchSize, flushInterval, coalesce));
+			} else {
+				logger.info("Persistence service '{}' does not support batches, its items are stored synchronously.", 
+						persistenceService.getName());
+			}
+		}
+	}
+	
+	/**
+	 * Stops the write queue of the given persistence service after all queued entries have been stored.
+	 * 
+	 * @param serviceName the name of the persistence service
+	 */
+	private void stopQueue(String serviceName) {
+		PersistenceQueue queue = persistenceQueues.remove(serviceName);
+		if(queue!=null) {
+			queue.shutdown();
+		}
+	}
+	
+	private void stopQueues() {
+		for(String serviceName : persistenceQueues.keySet()) {
+			stopQueue(serviceName);
+		}
+	}
+	
+	/**
+	 * Stores the current state of the given item with the given persistence service. 
+	 * If asynchronous storage is enabled, the item is queued and stored by a worker thread.
+	 * 
+	 * @param serviceName the name of the persistence service
+	 * @param item the item to store
+	 * @param alias the alias to store the item with, might be <code>null</code>
+	 */
+	/* default */ void store(String serviceName, Item item, String alias) {
+		PersistenceQueue queue = persistenceQueues.get(serviceName);
+		if(queue!=null) {
+			queue.add(item, alias);
+		} else {
+			PersistenceService service = persistenceServices.get(serviceName);
+			if(service!=null) {
+				service.store(item, alias);
+			}
+		}
+	}
+	
 	
 	public void modelChanged(String modelName, EventType type) {
 		if(modelName.endsWith(".persist")) {
@@ -189,6 +291,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 			}
 			createTimers(modelName);
 		}
+		rebuildRoutes();
 	}
 
 	/**
@@ -200,6 +303,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 		persistenceConfigurations.remove(modelName);
 		defaultStrategies.remove(modelName);
 		removeTimers(modelName);
+		rebuildRoutes();
 	}
 
 	public void stateChanged(Item item, State oldState, State newState) {
@@ -217,20 +321,78 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	 * @param onlyChanges true, if it has the change strategy, false otherwise
 	 */
 	private void handleStateEvent(Item item, boolean onlyChanges) {
-		synchronized (persistenceConfigurations) {
+		List<ItemRoute> routes = itemRoutes.get(item.getName());
+		if(routes!=null) {
+			for(ItemRoute route : routes) {
+				if((onlyChanges ? route.onChange : route.onUpdate) && persistenceServices.containsKey(route.serviceName)) {
+					store(route.serviceName, item, route.alias);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Recalculates the whole routing table from the current persistence configurations and items.
+	 */
+	private synchronized void rebuildRoutes() {
+		Map<String, List<ItemRoute>> routes = new HashMap<String, List<ItemRoute>>();
+		if(itemRegistry!=null) {
 			for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
 				String serviceName = entry.getKey();
-				if(persistenceServices.containsKey(serviceName)) {				
-					for(PersistenceConfiguration config : entry.getValue()) {
-						if(hasStrategy(serviceName, config, onlyChanges ? GlobalStrategies.CHANGE : GlobalStrategies.UPDATE)) {
-							if(appliesToItem(config, item)) {
-								persistenceServices.get(serviceName).store(item, config.getAlias());
+				for(PersistenceConfiguration config : entry.getValue()) {
+					ItemRoute route = createRoute(serviceName, config);
+					if(route!=null) {
+						for(Item item : getAllItems(config)) {
+							List<ItemRoute> itemRouteList = routes.get(item.getName());
+							if(itemRouteList==null) {
+								itemRouteList = new ArrayList<ItemRoute>(1);
+								routes.put(item.getName(), itemRouteList);
 							}
+							itemRouteList.add(route);
 						}
 					}
 				}
 			}
 		}
+		itemRoutes.keySet().retainAll(routes.keySet());
+		itemRoutes.putAll(routes);
+		logger.debug("Persistence routing table has been rebuilt for {} items.", routes.size());
+	}
+	
+	/**
+	 * Recalculates the routes of a single item.
+	 * 
+	 * @param item the item to calculate the routes for
+	 */
+	private synchronized void updateRoutes(Item item) {
+		List<ItemRoute> routes = new ArrayList<ItemRoute>(1);
+		for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
+			String serviceName = entry.getKey();
+			for(PersistenceConfiguration config : entry.getValue()) {
+				ItemRoute route = createRoute(serviceName, config);
+				if(route!=null && appliesToItem(config, item)) {
+					routes.add(route);
+				}
+			}
+		}
+		if(routes.isEmpty()) {
+			itemRoutes.remove(item.getName());
+		} else {
+			itemRoutes.put(item.getName(), routes);
+		}
+	}
+	
+	/**
+	 * Creates the route for a persistence configuration entry.
+	 * 
+	 * @param serviceName the persistence service of the configuration
+	 * @param config the persistence configuration entry
+	 * @return the route or <code>null</code>, if the configuration has neither a change nor an update strategy
+	 */
+	private ItemRoute createRoute(String serviceName, PersistenceConfiguration config) {
+		boolean onChange = hasStrategy(serviceName, config, GlobalStrategies.CHANGE);
+		boolean onUpdate = hasStrategy(serviceName, config, GlobalStrategies.UPDATE);
+		return onChange || onUpdate ? new ItemRoute(serviceName, config.getAlias(), onChange, onUpdate) : null;
 	}
 	
 	/**
@@ -334,11 +496,22 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 
 	public void allItemsChanged(Collection<String> oldItemNames) {
 		for(Item item : itemRegistry.getItems()) {
-			itemAdded(item);
+			addItem(item);
 		}
+		rebuildRoutes();
 	}
 
 	public void itemAdded(Item item) {
+		addItem(item);
+		if(item instanceof GroupItem) {
+			// the routes of all members of the group might have changed
+			rebuildRoutes();
+		} else {
+			updateRoutes(item);
+		}
+	}
+
+	private void addItem(Item item) {
 		initialize(item);
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
@@ -394,6 +567,11 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.removeStateChangeListener(this);
 		}
+		if(item instanceof GroupItem) {
+			rebuildRoutes();
+		} else {
+			itemRoutes.remove(item.getName());
+		}
 	}
 	
 	/**
@@ -458,6 +636,76 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 			logger.warn("Failed to delete cron jobs of group '{}'", persistModelName);
 		}
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("rawtypes")
+	public void updated(Dictionary config) throws ConfigurationException {
+		boolean async = false;
+		int queueSize = 10000;
+		int batchSize = 100;
+		long flushInterval = 0;
+		boolean coalesce = false;
+		
+		if(config!=null) {
+			try {
+				async = "true".equalsIgnoreCase((String) config.get(CONFIG_ASYNC));
+				coalesce = "true".equalsIgnoreCase((String) config.get(CONFIG_COALESCE));
+				
+				String queueSizeString = (String) config.get(CONFIG_QUEUE_SIZE);
+				if(StringUtils.isNotBlank(queueSizeString)) {
+					queueSize = Integer.parseInt(queueSizeString.trim());
+				}
+				String batchSizeString = (String) config.get(CONFIG_BATCH_SIZE);
+				if(StringUtils.isNotBlank(batchSizeString)) {
+					batchSize = Integer.parseInt(batchSizeString.trim());
+				}
+				String flushIntervalString = (String) config.get(CONFIG_FLUSH_INTERVAL);
+				if(StringUtils.isNotBlank(flushIntervalString)) {
+					flushInterval = Long.parseLong(flushIntervalString.trim());
+				}
+			} catch (NumberFormatException e) {
+				throw new ConfigurationException(null, "Invalid number in persistence manager configuration: " + e.getMessage());
+			}
+			if(queueSize < 1 || batchSize < 1 || flushInterval < 0) {
+				throw new ConfigurationException(null, "Queue size and batch size must be positive, the flush interval must not be negative.");
+			}
+		}
+		
+		stopQueues();
+		this.async = async;
+		this.queueSize = queueSize;
+		this.batchSize = batchSize;
+		this.flushInterval = flushInterval;
+		this.coalesce = coalesce;
+		for(PersistenceService persistenceService : persistenceServices.values()) {
+			startQueue(persistenceService);
+		}
+		logger.debug("Persistence services are called {}.", async ? "asynchronously" : "synchronously");
+	}
+	
+	/**
+	 * An entry of the routing table, which describes that an item has to be 
+	 * stored with a certain persistence service upon changes and/or updates.
+	 */
+	protected static class ItemRoute {
+		
+		final String serviceName;
+		
+		final String alias;
+		
+		final boolean onChange;
+		
+		final boolean onUpdate;
+		
+		ItemRoute(String serviceName, String alias, boolean onChange, boolean onUpdate) {
+			this.serviceName = serviceName;
+			this.alias = alias;
+			this.onChange = onChange;
+			this.onUpdate = onUpdate;
+		}
+	}
 		
 
 }
@@ -0,0 +1,299 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.PersistenceEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded write queue for a single {@link BatchPersistenceService}. Entries
+ * are stored by a dedicated worker thread, so that slow persistence services
+ * do not block the threads which change the item states.
+ * <p>The worker collects up to <code>batchSize</code> entries, waiting at most
+ * <code>flushInterval</code> milliseconds for further entries, and hands them 
+ * over to the service at once. As the item state might have changed in the
+ * meantime, the service stores the state and time captured by the entries.
+ * Services which only support <code>store(Item)</code> can therefore not be 
+ * queued. If coalescing is enabled, several queued entries for the same item
+ * and alias are merged into the latest one.</p>
+ * <p>If the queue is full, entries are stored synchronously by the calling 
+ * thread, so that no data is lost.</p>
+ * 
+ * @since 1.8.0
+ */
+public class PersistenceQueue implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(PersistenceQueue.class);
+	
+	/** the interval in which the queue statistics are logged */
+	private static final long STATISTICS_INTERVAL = 60000L;
+	
+	/** the maximum time to wait for the worker to store the remaining entries on shutdown */
+	private static final long SHUTDOWN_TIMEOUT = 10000L;
+	
+	private final BatchPersistenceService service;
+
+	private final BlockingQueue<PersistenceEntry> queue;
+	
+	private final int batchSize;
+	
+	private final long flushInterval;
+	
+	/** the latest entry by item and alias, only used if entries are coalesced */
+	private final ConcurrentMap<String, PersistenceEntry> latestEntries;
+	
+	private final Thread worker;
+	
+	private volatile boolean running = true;
+	
+	/* default */ long shutdownTimeout = SHUTDOWN_TIMEOUT;
+	
+	private final AtomicLong storedCount = new AtomicLong();
+	private final AtomicLong coalescedCount = new AtomicLong();
+	private final AtomicLong overflowCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final AtomicLong totalLatency = new AtomicLong();
+	private final AtomicLong maxLatency = new AtomicLong();
+	
+	private long lastStatistics = System.currentTimeMillis();
+	
+	/**
+	 * Creates a new queue and starts its worker thread.
+	 * 
+	 * @param service the service to store the entries with
+	 * @param queueSize the maximum number of entries that can be queued
+	 * @param batchSize the maximum number of entries that are stored at once
+	 * @param flushInterval the maximum time in milliseconds to wait for a batch to be filled
+	 * @param coalesce true, if queued entries for the same item should be merged
+	 */
+	public PersistenceQueue(BatchPersistenceService service, int queueSize, int batchSize, long flushInterval, boolean coalesce) {
+		this.service = service;
+		this.queue = new ArrayBlockingQueue<PersistenceEntry>(queueSize);
+		this.batchSize = batchSize;
+		this.flushInterval = flushInterval;
+		this.latestEntries = coalesce ? new ConcurrentHashMap<String, PersistenceEntry>() : null;
+		this.worker = new Thread(this, "Persistence queue " + service.getName());
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+	
+	/**
+	 * Queues the current state of the given item for being persisted.
+	 * 
+	 * @param item the item to persist
+	 * @param alias the alias to persist the item with, might be <code>null</code>
+	 */
+	public void add(Item item, String alias) {
+		PersistenceEntry entry = new PersistenceEntry(item, alias);
+		if(!running) {
+			service.storeBatch(Collections.singletonList(entry));
+			return;
+		}
+		
+		if(latestEntries!=null) {
+			String key = getKey(entry);
+			if(latestEntries.put(key, entry)!=null) {
+				// there is already a queued entry for this item, which will be replaced by this one
+				coalescedCount.incrementAndGet();
+				return;
+			}
+			if(!queue.offer(entry)) {
+				latestEntries.remove(key, entry);
+				storeSynchronously(entry);
+			}
+		} else if(!queue.offer(entry)) {
+			storeSynchronously(entry);
+		}
+	}
+	
+	/**
+	 * Stops the worker thread after all queued entries have been stored. Entries
+	 * which have been queued while the worker was stopping are stored by the 
+	 * calling thread. If the worker does not finish in time, e.g. because the
+	 * service hangs, the remaining entries are discarded.
+	 */
+	public void shutdown() {
+		running = false;
+		worker.interrupt();
+		try {
+			worker.join(shutdownTimeout);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		List<PersistenceEntry> remainingEntries = new ArrayList<PersistenceEntry>();
+		queue.drainTo(remainingEntries);
+		if(remainingEntries.isEmpty()) {
+			return;
+		}
+		if(worker.isAlive()) {
+			failedCount.addAndGet(remainingEntries.size());
+			logger.warn("Persistence service '{}' did not finish in time, discarding {} queued entries.", 
+					service.getName(), remainingEntries.size());
+		} else {
+			store(remainingEntries);
+		}
+	}
+	
+	/**
+	 * @return the number of currently queued entries
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * @return the number of entries that have been stored
+	 */
+	public long getStoredCount() {
+		return storedCount.get();
+	}
+
+	/**
+	 * @return the number of entries that have been merged into a later entry
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return the number of entries that had to be stored synchronously as the queue was full
+	 */
+	public long getOverflowCount() {
+		return overflowCount.get();
+	}
+	
+	/**
+	 * @return the number of entries that could not be stored
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+	
+	/**
+	 * @return the average time in milliseconds between queuing and storing an entry
+	 */
+	public long getAverageLatency() {
+		long count = storedCount.get();
+		return count > 0 ? totalLatency.get() / count : 0;
+	}
+
+	/**
+	 * @return the maximum time in milliseconds between queuing and storing an entry
+	 */
+	public long getMaxLatency() {
+		return maxLatency.get();
+	}
+
+	public void run() {
+		List<PersistenceEntry> batch = new ArrayList<PersistenceEntry>(batchSize);
+		while(running || !queue.isEmpty()) {
+			try {
+				PersistenceEntry entry = running ? queue.poll(STATISTICS_INTERVAL, TimeUnit.MILLISECONDS) : queue.poll();
+				if(entry!=null) {
+					batch.add(entry);
+					fillBatch(batch);
+				}
+			} catch (InterruptedException e) {
+				// we have been asked to shut down, the remaining entries are stored in the next iterations
+			}
+			if(!batch.isEmpty()) {
+				store(batch);
+				batch.clear();
+			}
+			logStatistics();
+		}
+	}
+	
+	private void fillBatch(List<PersistenceEntry> batch) throws InterruptedException {
+		queue.drainTo(batch, batchSize - batch.size());
+		if(running && flushInterval > 0) {
+			long deadline = System.currentTimeMillis() + flushInterval;
+			long remaining = flushInterval;
+			while(batch.size() < batchSize && remaining > 0) {
+				PersistenceEntry entry = queue.poll(remaining, TimeUnit.MILLISECONDS);
+				if(entry==null) {
+					break;
+				}
+				batch.add(entry);
+				queue.drainTo(batch, batchSize - batch.size());
+				remaining = deadline - System.currentTimeMillis();
+			}
+		}
+	}
+	
+	private void store(List<PersistenceEntry> batch) {
+		if(latestEntries!=null) {
+			// replace all entries by the latest entry for their item
+			List<PersistenceEntry> coalescedBatch = new ArrayList<PersistenceEntry>(batch.size());
+			for(PersistenceEntry entry : batch) {
+				PersistenceEntry latestEntry = latestEntries.remove(getKey(entry));
+				if(latestEntry!=null) {
+					coalescedBatch.add(latestEntry);
+				}
+			}
+			batch = coalescedBatch;
+		}
+		
+		try {
+			service.storeBatch(batch);
+		} catch (RuntimeException e) {
+			failedCount.addAndGet(batch.size());
+			logger.error("Persistence service '{}' failed to store {} entries: {}", 
+					new Object[] { service.getName(), batch.size(), e.getMessage() });
+			return;
+		}
+		
+		long now = System.currentTimeMillis();
+		for(PersistenceEntry entry : batch) {
+			long latency = now - entry.getTimestamp().getTime();
+			totalLatency.addAndGet(latency);
+			if(latency > maxLatency.get()) {
+				maxLatency.set(latency);
+			}
+		}
+		storedCount.addAndGet(batch.size());
+	}
+	
+	private void storeSynchronously(PersistenceEntry entry) {
+		overflowCount.incrementAndGet();
+		logger.debug("Queue of persistence service '{}' is full, storing item '{}' synchronously.", 
+				service.getName(), entry.getItem().getName());
+		service.storeBatch(Collections.singletonList(entry));
+	}
+	
+	private void logStatistics() {
+		long now = System.currentTimeMillis();
+		if(now - lastStatistics >= STATISTICS_INTERVAL) {
+			lastStatistics = now;
+			logger.debug("Persistence queue '{}': depth={}, stored={}, coalesced={}, overflows={}, failed={}, avgLatency={}ms, maxLatency={}ms",
+					new Object[] { service.getName(), queue.size(), storedCount.get(), coalescedCount.get(), 
+						overflowCount.get(), failedCount.get(), getAverageLatency(), maxLatency.get() });
+		}
+	}
+	
+	private static String getKey(PersistenceEntry entry) {
+		String itemName = entry.getItem().getName();
+		return entry.getAlias() != null ? itemName + "|" + entry.getAlias() : itemName;
+	}
+
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import org.junit.Test;
+import org.openhab.core.types.EventType;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+import org.osgi.service.event.Event;
+
+/**
+ * @since 1.8.0
+ */
+public class ItemEventTest {
+	
+	@Test
+	public void testCreateUpdateEvent() {
+		String topic = ItemEvent.createTopic(EventType.UPDATE, "Temperature");
+		assertEquals("openhab/update/Temperature", topic);
+		
+		ItemEvent event = ItemEvent.createUpdateEvent(topic, "Temperature", UnDefType.UNDEF);
+		assertEquals(topic, event.getTopic());
+		assertEquals(EventType.UPDATE, ItemEvent.getEventType(event));
+		assertEquals("Temperature", event.getItemName());
+		assertSame(UnDefType.UNDEF, event.getState());
+		assertNull(event.getCommand());
+		
+		// the content must still be available for plain event handlers
+		assertEquals("Temperature", event.getProperty("item"));
+		assertSame(UnDefType.UNDEF, event.getProperty("state"));
+	}
+	
+	@Test
+	public void testGetEventTypeOfPlainEvent() {
+		assertEquals(EventType.UPDATE, ItemEvent.getEventType(createEvent("openhab/update/Temperature")));
+		assertEquals(EventType.COMMAND, ItemEvent.getEventType(createEvent("openhab/command/Light")));
+		assertNull(ItemEvent.getEventType(createEvent("openhab/command/")));
+		assertNull(ItemEvent.getEventType(createEvent("openhab/commands/Light")));
+		assertNull(ItemEvent.getEventType(createEvent("openhab/update")));
+		assertNull(ItemEvent.getEventType(createEvent("other/update/Temperature")));
+	}
+	
+	@Test
+	public void testSubscriberReceivesPlainEvent() {
+		final State[] received = new State[1];
+		AbstractEventSubscriber subscriber = new AbstractEventSubscriber() {
+			@Override
+			public void receiveUpdate(String itemName, State newState) {
+				received[0] = newState;
+			}
+		};
+		
+		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+		properties.put("item", "Temperature");
+		properties.put("state", UnDefType.NULL);
+		subscriber.handleEvent(new Event("openhab/update/Temperature", properties));
+		assertSame(UnDefType.NULL, received[0]);
+		
+		subscriber.handleEvent(ItemEvent.createUpdateEvent("openhab/update/Temperature", "Temperature", UnDefType.UNDEF));
+		assertSame(UnDefType.UNDEF, received[0]);
+	}
+	
+	private Event createEvent(String topic) {
+		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+		return new Event(topic, properties);
+	}
+
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.items;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemProvider;
+import org.openhab.core.items.ItemsChangeListener;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+
+/**
+ * Tests the name index and the pattern queries of the {@link ItemRegistryImpl}.
+ * 
+ * @since 1.8.0
+ */
+public class ItemRegistryImplTest {
+	
+	private ItemRegistryImpl registry;
+	
+	private TestItemProvider provider;
+	
+	@Before
+	public void setup() {
+		provider = new TestItemProvider();
+		provider.items.add(new TestItem("Light_Kitchen"));
+		provider.items.add(new TestItem("Light_Bath"));
+		provider.items.add(new TestItem("Temperature_Bath"));
+		
+		registry = new ItemRegistryImpl();
+		registry.addItemProvider(provider);
+	}
+
+	@Test
+	public void testGetItem() throws ItemNotFoundException {
+		assertEquals("Light_Bath", registry.getItem("Light_Bath").getName());
+		assertEquals("Temperature_Bath", registry.getItem("Temperature_Bath").getName());
+	}
+	
+	@Test(expected=ItemNotFoundException.class)
+	public void testGetUnknownItem() throws ItemNotFoundException {
+		registry.getItem("Unknown");
+	}
+	
+	@Test
+	public void testGetItemAfterAddAndRemove() throws ItemNotFoundException {
+		Item item = new TestItem("Switch_Garage");
+		registry.itemAdded(provider, item);
+		assertSame(item, registry.getItem("Switch_Garage"));
+		
+		registry.itemRemoved(provider, item);
+		try {
+			registry.getItem("Switch_Garage");
+			fail("Removed item must not be found anymore");
+		} catch (ItemNotFoundException e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void testGetItemAfterAllItemsChanged() throws ItemNotFoundException {
+		provider.items.remove(0);
+		provider.items.add(new TestItem("Light_Garage"));
+		registry.allItemsChanged(provider, null);
+		
+		assertEquals("Light_Garage", registry.getItem("Light_Garage").getName());
+		try {
+			registry.getItem("Light_Kitchen");
+			fail("Item that is not provided anymore must not be found");
+		} catch (ItemNotFoundException e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void testItemOfOtherProviderIsFoundAfterRemoval() throws ItemNotFoundException {
+		TestItemProvider otherProvider = new TestItemProvider();
+		TestItem otherItem = new TestItem("Light_Bath");
+		otherProvider.items.add(otherItem);
+		registry.addItemProvider(otherProvider);
+		Item item = provider.items.get(1);
+		assertSame(otherItem, registry.getItem("Light_Bath"));
+		
+		registry.itemRemoved(otherProvider, otherItem);
+		assertSame(item, registry.getItem("Light_Bath"));
+		
+		registry.itemAdded(otherProvider, otherItem);
+		registry.itemRemoved(provider, item);
+		assertSame(otherItem, registry.getItem("Light_Bath"));
+		
+		registry.itemRemoved(otherProvider, otherItem);
+		try {
+			registry.getItem("Light_Bath");
+			fail("Item that is not provided anymore must not be found");
+		} catch (ItemNotFoundException e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void testGroupMembersAreAddedIndependentOfOrder() throws ItemNotFoundException {
+		TestItem member = new TestItem("Light_Garage");
+		member.getGroupNames().add("Lights");
+		registry.itemAdded(provider, member);
+		
+		GroupItem group = new GroupItem("Lights");
+		registry.itemAdded(provider, group);
+		
+		TestItem laterMember = new TestItem("Light_Garden");
+		laterMember.getGroupNames().add("Lights");
+		registry.itemAdded(provider, laterMember);
+		
+		assertEquals(2, group.getMembers().size());
+		assertSame(member, group.getMembers().get(0));
+		assertSame(laterMember, group.getMembers().get(1));
+		
+		registry.itemRemoved(provider, member);
+		assertEquals(1, group.getMembers().size());
+		assertEquals(1, group.getAllMembers().size());
+	}
+	
+	@Test
+	public void testGetItemsByPattern() {
+		assertEquals(2, registry.getItems("Light_*").size());
+		assertEquals(2, registry.getItems("*_Bath").size());
+		// the compiled pattern is reused for the same query
+		assertEquals(2, registry.getItems("Light_*").size());
+		assertEquals(0, registry.getItems("Switch*").size());
+	}
+	
+	
+	class TestItemProvider implements ItemProvider {
+		
+		List<Item> items = new ArrayList<Item>();
+
+		@Override
+		public Collection<Item> getItems() {
+			return new ArrayList<Item>(items);
+		}
+
+		@Override
+		public void addItemChangeListener(ItemsChangeListener listener) {
+		}
+
+		@Override
+		public void removeItemChangeListener(ItemsChangeListener listener) {
+		}
+		
+	}
+	
+	class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return null;
+		}
+
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return null;
+		}
+		
+	}
+
+}
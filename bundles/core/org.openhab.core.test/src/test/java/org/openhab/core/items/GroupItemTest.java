@@ -27,13 +27,15 @@ public class GroupItemTest {
 	
 	private GroupItem rootGroupItem;
 	
+	private GroupItem subGroup;
+	
 	@Before
 	public void setup() {
 		rootGroupItem = new GroupItem("root");
 		rootGroupItem.addMember(new TestItem("member1"));
 		rootGroupItem.addMember(new TestItem("member2"));
 		rootGroupItem.addMember(new TestItem("member2"));
-		GroupItem subGroup = new GroupItem("subGroup1");
+		subGroup = new GroupItem("subGroup1");
 		subGroup.addMember(new TestItem("subGroup member 1"));
 		subGroup.addMember(new TestItem("subGroup member 2"));
 		subGroup.addMember(new TestItem("subGroup member 3"));
@@ -53,6 +55,34 @@ public class GroupItemTest {
 		}
 	}
 	
+	@Test
+	public void testGetAllMembersAfterMembershipChange() {
+		Assert.assertEquals(5, rootGroupItem.getAllMembers().size());
+		
+		Item newMember = new TestItem("subGroup member 4");
+		subGroup.addMember(newMember);
+		Assert.assertEquals(6, rootGroupItem.getAllMembers().size());
+		Assert.assertTrue(rootGroupItem.getAllMembers().contains(newMember));
+		
+		subGroup.removeMember(newMember);
+		Assert.assertEquals(5, rootGroupItem.getAllMembers().size());
+		Assert.assertFalse(rootGroupItem.getAllMembers().contains(newMember));
+	}
+	
+	@Test
+	public void testGetAllMembersIsNotAffectedByOtherGroups() {
+		List<Item> allMembers = rootGroupItem.getAllMembers();
+		
+		GroupItem otherGroup = new GroupItem("other");
+		otherGroup.addMember(new TestItem("other member"));
+		Assert.assertEquals(allMembers, rootGroupItem.getAllMembers());
+		Assert.assertEquals(1, otherGroup.getAllMembers().size());
+		
+		// the returned list is a copy which may be modified by the caller
+		allMembers.clear();
+		Assert.assertEquals(5, rootGroupItem.getAllMembers().size());
+	}
+	
 	
 	class TestItem extends GenericItem {
 
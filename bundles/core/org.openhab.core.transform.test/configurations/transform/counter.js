@@ -0,0 +1,3 @@
+// counts its evaluations, which always start with fresh global variables
+var count = (typeof count == 'undefined') ? 1 : count + 1;
+count + ':' + input
@@ -0,0 +1,2 @@
+// doubles the given number
+parseFloat(input) * 2
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform.internal;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.openhab.core.transform.DocumentTransformationService;
+import org.openhab.core.transform.TransformationException;
+import org.openhab.core.transform.internal.service.JSonPathTransformationService;
+import org.openhab.core.transform.internal.service.RegExTransformationService;
+import org.openhab.core.transform.internal.service.XPathTransformationService;
+
+
+/**
+ * @since 1.8.0
+ */
+public class DocumentTransformationServiceTest extends AbstractTransformationServiceTest {
+
+	private static final String[] XPATH_EXPRESSIONS = { 
+		"//current_conditions/temp_c/@data", "//current_conditions/temp_f/@data",
+		"//forecast_information/city/@data", "//forecast_conditions[1]/low/@data" };
+
+	private static final String[] XPATH_RESULTS = { "8", "46", "Krefeld, North Rhine-Westphalia", "-1" };
+
+	private static final String JSON_SOURCE = "{\"weather\":{\"temp_c\":8,\"temp_f\":46,"
+		+ "\"city\":\"Krefeld\",\"forecast\":[{\"low\":-1,\"high\":6},{\"low\":0,\"high\":8}]}}";
+
+	private static final String[] JSON_EXPRESSIONS = { 
+		"$.weather.temp_c", "$.weather.temp_f", "$.weather.city", "$.weather.forecast[1].high" };
+
+	private static final String[] JSON_RESULTS = { "8", "46", "Krefeld", "8" };
+
+	@Test
+	public void testTransformXPathDocument() throws TransformationException {
+		XPathTransformationService service = new XPathTransformationService();
+		Object document = service.parse(source);
+		for (int i = 0; i < XPATH_EXPRESSIONS.length; i++) {
+			Assert.assertEquals(XPATH_RESULTS[i], service.transformDocument(XPATH_EXPRESSIONS[i], document));
+			Assert.assertEquals(XPATH_RESULTS[i], service.transform(XPATH_EXPRESSIONS[i], source));
+		}
+	}
+
+	@Test
+	public void testTransformJSonPathDocument() throws TransformationException {
+		JSonPathTransformationService service = new JSonPathTransformationService();
+		Object document = service.parse(JSON_SOURCE);
+		for (int i = 0; i < JSON_EXPRESSIONS.length; i++) {
+			Assert.assertEquals(JSON_RESULTS[i], service.transformDocument(JSON_EXPRESSIONS[i], document));
+			Assert.assertEquals(JSON_RESULTS[i], service.transform(JSON_EXPRESSIONS[i], JSON_SOURCE));
+		}
+	}
+
+	@Test
+	public void testTransformRegExDocument() throws TransformationException {
+		RegExTransformationService service = new RegExTransformationService();
+		Object document = service.parse(source);
+		Assert.assertEquals("8", service.transformDocument(".*?<current_conditions>.*?<temp_c data=\"(.*?)\".*", document));
+		Assert.assertEquals("46", service.transformDocument(".*?<current_conditions>.*?<temp_f data=\"(.*?)\".*", document));
+	}
+
+	@Test(expected = TransformationException.class)
+	public void testInvalidXPathExpression() throws TransformationException {
+		XPathTransformationService service = new XPathTransformationService();
+		service.transformDocument("//current_conditions[", service.parse(source));
+	}
+
+	@Test
+	public void testExtractionPerItemAndPerDocument() throws TransformationException {
+		assertExtraction(new XPathTransformationService(), source, XPATH_EXPRESSIONS, XPATH_RESULTS, 40);
+		assertExtraction(new JSonPathTransformationService(), JSON_SOURCE, JSON_EXPRESSIONS, JSON_RESULTS, 40);
+	}
+
+	/**
+	 * Asserts that extracting the values of all items from a document parsed once
+	 * yields the same values as transforming the source once per item.
+	 */
+	private void assertExtraction(DocumentTransformationService service, String source,
+			String[] expressions, String[] results, int itemCount) throws TransformationException {
+		CountingTransformationService counting = new CountingTransformationService(service);
+
+		Object document = counting.parse(source);
+		for (int item = 0; item < itemCount; item++) {
+			String expression = expressions[item % expressions.length];
+			Assert.assertEquals(results[item % results.length], counting.transformDocument(expression, document));
+			Assert.assertEquals(service.transform(expression, source), counting.transformDocument(expression, document));
+		}
+		Assert.assertEquals(1, counting.parseCount);
+		Assert.assertEquals(2 * itemCount, counting.transformCount);
+	}
+
+	/**
+	 * Counts the documents parsed and transformed by the wrapped service.
+	 */
+	private static class CountingTransformationService implements DocumentTransformationService {
+
+		private final DocumentTransformationService service;
+
+		int parseCount;
+
+		int transformCount;
+
+		CountingTransformationService(DocumentTransformationService service) {
+			this.service = service;
+		}
+
+		public String transform(String function, String source) throws TransformationException {
+			return transformDocument(function, parse(source));
+		}
+
+		public Object parse(String source) throws TransformationException {
+			parseCount++;
+			return service.parse(source);
+		}
+
+		public String transformDocument(String function, Object document) throws TransformationException {
+			transformCount++;
+			return service.transformDocument(function, document);
+		}
+
+	}
+
+}
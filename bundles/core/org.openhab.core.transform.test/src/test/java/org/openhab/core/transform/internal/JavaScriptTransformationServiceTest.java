@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.transform.TransformationException;
+import org.openhab.core.transform.internal.service.JavaScriptTransformationService;
+
+
+/**
+ * @since 1.8.0
+ */
+public class JavaScriptTransformationServiceTest {
+
+	private JavaScriptTransformationService processor;
+
+	@Before
+	public void init() {
+		processor = new JavaScriptTransformationService();
+	}
+
+	@Test
+	public void testTransform() throws TransformationException {
+		Assert.assertEquals("42", processor.transform("test.js", "21").replace(".0", ""));
+	}
+
+	@Test
+	public void testGlobalVariablesDoNotLeak() throws TransformationException {
+		Assert.assertEquals("1:first", processor.transform("counter.js", "first"));
+		Assert.assertEquals("1:second", processor.transform("counter.js", "second"));
+	}
+
+	@Test
+	public void testConcurrentTransformations() throws InterruptedException {
+		final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			final int offset = t * 1000;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = offset; i < offset + 100; i++) {
+						try {
+							String result = processor.transform("test.js", String.valueOf(i)).replace(".0", "");
+							if (!String.valueOf(2 * i).equals(result)) {
+								errors.add(i + " was transformed to " + result);
+							}
+						} catch (TransformationException e) {
+							errors.add(e.getMessage());
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Assert.assertEquals(Collections.emptyList(), errors);
+	}
+
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform.internal;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.config.core.ConfigDispatcher;
+import org.openhab.core.transform.TransformationException;
+import org.openhab.core.transform.TransformationService;
+import org.openhab.core.transform.internal.service.JavaScriptTransformationService;
+import org.openhab.core.transform.internal.service.MapTransformationService;
+import org.openhab.core.transform.internal.service.ScaleTransformationService;
+import org.openhab.core.transform.internal.service.TransformationFileCache;
+import org.openhab.core.transform.internal.service.XsltTransformationService;
+
+
+/**
+ * @since 1.8.0
+ */
+public class TransformationFileCacheTest extends AbstractTransformationServiceTest {
+
+	private File file;
+
+	private CountingCache cache;
+
+	@Before
+	public void init() throws IOException {
+		file = File.createTempFile("transform", ".txt");
+		FileUtils.writeStringToFile(file, "first");
+		cache = new CountingCache();
+	}
+
+	@After
+	public void cleanup() {
+		file.delete();
+	}
+
+	@Test
+	public void testFileIsCompiledOnce() throws TransformationException {
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals("first", cache.get(file.getPath()));
+		}
+		Assert.assertEquals(1, cache.compilations);
+		Assert.assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testModifiedFileIsCompiledAgain() throws Exception {
+		Assert.assertEquals("first", cache.get(file.getPath()));
+
+		FileUtils.writeStringToFile(file, "second version");
+
+		Assert.assertEquals("second version", cache.get(file.getPath()));
+		Assert.assertEquals(2, cache.compilations);
+	}
+
+	@Test(expected = TransformationException.class)
+	public void testMissingFile() throws TransformationException {
+		file.delete();
+		cache.get(file.getPath());
+	}
+
+	@Test
+	public void testTransformationServices() throws TransformationException {
+		Assert.assertEquals("open", new MapTransformationService().transform("test.map", "ON"));
+		Assert.assertEquals("medium", new ScaleTransformationService().transform("test.scale", "15"));
+		Assert.assertEquals("42", new JavaScriptTransformationService().transform("test.js", "21").replace(".0", ""));
+		Assert.assertEquals("8", new XsltTransformationService().transform("http/google_weather.xsl", source));
+	}
+
+	@Test
+	public void testCachedTransformations() throws TransformationException {
+		assertCachedTransformation("MAP", "test.map", "ON", "open");
+		assertCachedTransformation("SCALE", "test.scale", "15", "medium");
+		assertCachedTransformation("JS", "test.js", "21", "42");
+		assertCachedTransformation("XSLT", "http/google_weather.xsl", source, "8");
+	}
+
+	@Test
+	public void testModifiedTransformationFileIsReloaded() throws Exception {
+		File folder = new File(ConfigDispatcher.getConfigFolder(), TransformationActivator.TRANSFORM_FOLDER_NAME);
+		File mapFile = File.createTempFile("cache", ".map", folder);
+		try {
+			FileUtils.writeStringToFile(mapFile, "ON=open");
+			TransformationService service = createService("MAP");
+			Assert.assertEquals("open", service.transform(mapFile.getName(), "ON"));
+
+			FileUtils.writeStringToFile(mapFile, "ON=switched on");
+			Assert.assertEquals("switched on", service.transform(mapFile.getName(), "ON"));
+		} finally {
+			mapFile.delete();
+		}
+	}
+
+	private void assertCachedTransformation(String type, String filename, String input, String expected) throws TransformationException {
+		TransformationService service = createService(type);
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals(expected, service.transform(filename, input).replace(".0", ""));
+		}
+	}
+
+	private static TransformationService createService(String type) {
+		if ("MAP".equals(type)) {
+			return new MapTransformationService();
+		} else if ("SCALE".equals(type)) {
+			return new ScaleTransformationService();
+		} else if ("JS".equals(type)) {
+			return new JavaScriptTransformationService();
+		} else {
+			return new XsltTransformationService();
+		}
+	}
+
+	/**
+	 * Returns the content of a file and counts how often it has been read.
+	 */
+	private static class CountingCache extends TransformationFileCache<String> {
+
+		int compilations;
+
+		@Override
+		protected String compile(File file) throws TransformationException {
+			compilations++;
+			try {
+				return FileUtils.readFileToString(file);
+			} catch (IOException e) {
+				throw new TransformationException("cannot read file", e);
+			}
+		}
+	}
+
+}
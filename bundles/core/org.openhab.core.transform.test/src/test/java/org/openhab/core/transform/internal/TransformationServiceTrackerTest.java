@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.transform.TransformationService;
+import org.openhab.core.transform.internal.service.MapTransformationService;
+import org.openhab.core.transform.internal.service.RegExTransformationService;
+import org.openhab.core.transform.internal.service.XPathTransformationService;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+
+/**
+ * @since 1.8.0
+ */
+public class TransformationServiceTrackerTest {
+
+	private Map<ServiceReference<?>, TransformationService> registry;
+
+	private TransformationServiceTracker tracker;
+
+	@Before
+	public void init() {
+		registry = new HashMap<ServiceReference<?>, TransformationService>();
+		tracker = new TransformationServiceTracker(createContext());
+	}
+
+	@Test
+	public void testServicesAreTrackedByType() {
+		TransformationService regex = new RegExTransformationService();
+		TransformationService xpath = new XPathTransformationService();
+		ServiceReference<TransformationService> regexReference = register("REGEX", 0, 1, regex);
+		register("XPATH", 0, 2, xpath);
+
+		Assert.assertSame(regex, tracker.getTransformationService("REGEX"));
+		Assert.assertSame(xpath, tracker.getTransformationService("XPATH"));
+		Assert.assertNull(tracker.getTransformationService("MAP"));
+
+		tracker.removedService(regexReference, regex);
+
+		Assert.assertNull(tracker.getTransformationService("REGEX"));
+		Assert.assertSame(xpath, tracker.getTransformationService("XPATH"));
+	}
+
+	@Test
+	public void testServiceWithHighestRankingIsUsed() {
+		TransformationService map = new MapTransformationService();
+		TransformationService betterMap = new MapTransformationService();
+		register("MAP", 0, 1, map);
+		ServiceReference<TransformationService> betterReference = register("MAP", 10, 2, betterMap);
+
+		Assert.assertSame(betterMap, tracker.getTransformationService("MAP"));
+
+		tracker.removedService(betterReference, betterMap);
+
+		Assert.assertSame(map, tracker.getTransformationService("MAP"));
+	}
+
+	@Test
+	public void testServicesAreAddedAndRemoved() {
+		List<ServiceReference<TransformationService>> references = new ArrayList<ServiceReference<TransformationService>>();
+		List<TransformationService> services = new ArrayList<TransformationService>();
+		for (int i = 0; i < 20; i++) {
+			TransformationService service = new RegExTransformationService();
+			references.add(register("TYPE" + i, 0, i, service));
+			services.add(service);
+		}
+		for (int i = 0; i < 20; i++) {
+			Assert.assertSame(services.get(i), tracker.getTransformationService("TYPE" + i));
+		}
+
+		for (int i = 0; i < 20; i += 2) {
+			tracker.removedService(references.get(i), services.get(i));
+		}
+
+		for (int i = 0; i < 20; i++) {
+			if (i % 2 == 0) {
+				Assert.assertNull(tracker.getTransformationService("TYPE" + i));
+			} else {
+				Assert.assertSame(services.get(i), tracker.getTransformationService("TYPE" + i));
+			}
+		}
+		// the removed services have been released
+		Assert.assertEquals(10, registry.size());
+	}
+
+	private ServiceReference<TransformationService> register(String type, int ranking, long id, TransformationService service) {
+		ServiceReference<TransformationService> reference = createReference(type, ranking, id);
+		registry.put(reference, service);
+		tracker.addingService(reference);
+		return reference;
+	}
+
+	private BundleContext createContext() {
+		return (BundleContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { BundleContext.class },
+			new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if ("getService".equals(method.getName())) {
+						return registry.get(args[0]);
+					} else if ("ungetService".equals(method.getName())) {
+						return registry.remove(args[0]) != null;
+					}
+					return null;
+				}
+			});
+	}
+
+	/**
+	 * Creates a service reference which is ordered like the references of the framework,
+	 * i.e. by ranking first and then by the service id, where lower ids are greater.
+	 */
+	@SuppressWarnings("unchecked")
+	private ServiceReference<TransformationService> createReference(final String type, final int ranking, final long id) {
+		final Map<String, Object> properties = new HashMap<String, Object>();
+		properties.put(TransformationServiceTracker.TRANSFORMATION_TYPE_PROPERTY, type);
+		properties.put("service.ranking", ranking);
+		properties.put("service.id", id);
+		return (ServiceReference<TransformationService>) Proxy.newProxyInstance(getClass().getClassLoader(), 
+			new Class<?>[] { ServiceReference.class }, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if ("getProperty".equals(method.getName())) {
+						return properties.get(args[0]);
+					} else if ("compareTo".equals(method.getName())) {
+						ServiceReference<?> other = (ServiceReference<?>) args[0];
+						int otherRanking = (Integer) other.getProperty("service.ranking");
+						long otherId = (Long) other.getProperty("service.id");
+						if (ranking != otherRanking) {
+							return ranking > otherRanking ? 1 : -1;
+						}
+						return id == otherId ? 0 : (id < otherId ? 1 : -1);
+					} else if ("equals".equals(method.getName())) {
+						return proxy == args[0];
+					} else if ("hashCode".equals(method.getName())) {
+						return System.identityHashCode(proxy);
+					}
+					return null;
+				}
+			});
+	}
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform;
+
+
+/**
+ * A {@link TransformationService} which is able to parse a source once and to
+ * apply many functions to the parsed document afterwards, e.g. when several
+ * items extract their values from the same XML or JSON response.
+ * 
+ * @since 1.8.0
+ */
+public interface DocumentTransformationService extends TransformationService {
+
+	/**
+	 * Parses the given <code>source</code>, so that it can be passed to 
+	 * {@link #transformDocument(String, Object)} any number of times.
+	 * 
+	 * @param source the input to be parsed
+	 * 
+	 * @return the parsed document
+	 * 
+	 * @throws TransformationException if the source cannot be parsed
+	 */
+	Object parse(String source) throws TransformationException;
+
+	/**
+	 * Transforms a document which has been returned by {@link #parse(String)}
+	 * by means of the given <code>function</code>. The result is the same as
+	 * the one of {@link #transform(String, String)} for the unparsed source.
+	 * 
+	 * @param function the function to be used to transform the document
+	 * @param document the parsed input
+	 * 
+	 * @return the transformed result
+	 * 
+	 * @throws TransformationException if any error occurs
+	 */
+	String transformDocument(String function, Object document) throws TransformationException;
+
+}
@@ -10,6 +10,8 @@ package org.openhab.core.transform;
 
 import java.util.Collection;
 
+import org.openhab.core.transform.internal.TransformationActivator;
+import org.openhab.core.transform.internal.TransformationServiceTracker;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
@@ -21,15 +23,25 @@ public class TransformationHelper {
 	private static Logger logger = LoggerFactory.getLogger(TransformationHelper.class);
 
 	/**
-	 * Queries the OSGi service registry for a service that provides a transformation service of
-	 * a given transformation type (e.g. REGEX, XSLT, etc.)
+	 * Returns the transformation service of a given transformation type (e.g. REGEX, XSLT, etc.).
+	 * The services are tracked by the transformation bundle, so that the lookup does not have to
+	 * query the OSGi service registry. Only if the transformation bundle is not active, the service 
+	 * registry is queried by the given context.
 	 * 
 	 * @param transformationType the desired transformation type
 	 * @return a service instance or null, if none could be found
 	 */
 	static public TransformationService getTransformationService(BundleContext context, String transformationType) {
+		TransformationServiceTracker tracker = TransformationActivator.getTransformationServiceTracker();
+		if(tracker!=null) {
+			TransformationService service = tracker.getTransformationService(transformationType);
+			if(service==null) {
+				logger.warn("Cannot get service reference for transformation service of type " + transformationType);
+			}
+			return service;
+		}
 		if(context!=null) {
-			String filter = "(openhab.transform=" + transformationType + ")";
+			String filter = "(" + TransformationServiceTracker.TRANSFORMATION_TYPE_PROPERTY + "=" + transformationType + ")";
 			try {
 				Collection<ServiceReference<TransformationService>> refs = context.getServiceReferences(TransformationService.class, filter);
 				if(refs!=null && refs.size() > 0) {
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openhab.core.transform.TransformationService;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.util.tracker.ServiceTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks all registered {@link TransformationService}s and keeps them by their
+ * transformation type (the service property <code>openhab.transform</code>), so
+ * that looking up a service is a simple map access. If several services are
+ * registered for the same type, the one with the highest ranking is used.
+ * 
+ * @since 1.8.0
+ */
+public class TransformationServiceTracker extends ServiceTracker<TransformationService, TransformationService> {
+
+	private static final Logger logger = LoggerFactory.getLogger(TransformationServiceTracker.class);
+
+	/** the name of the service property which contains the transformation type */
+	public static final String TRANSFORMATION_TYPE_PROPERTY = "openhab.transform";
+
+	/** the best service of every transformation type */
+	private final ConcurrentMap<String, TransformationService> services = new ConcurrentHashMap<String, TransformationService>();
+
+	/** all services of every transformation type, guarded by itself */
+	private final Map<String, Map<ServiceReference<TransformationService>, TransformationService>> servicesByType = 
+		new HashMap<String, Map<ServiceReference<TransformationService>, TransformationService>>();
+
+	public TransformationServiceTracker(BundleContext context) {
+		super(context, TransformationService.class, null);
+	}
+
+	/**
+	 * Returns the transformation service of the given type.
+	 * 
+	 * @param transformationType the desired transformation type, e.g. REGEX
+	 * @return the service or <code>null</code>, if there is no service of this type
+	 */
+	public TransformationService getTransformationService(String transformationType) {
+		return services.get(transformationType);
+	}
+
+	@Override
+	public TransformationService addingService(ServiceReference<TransformationService> reference) {
+		TransformationService service = context.getService(reference);
+		if (service != null) {
+			add(reference, service);
+		}
+		return service;
+	}
+
+	@Override
+	public void modifiedService(ServiceReference<TransformationService> reference, TransformationService service) {
+		// the type or the ranking might have changed
+		remove(reference);
+		add(reference, service);
+	}
+
+	@Override
+	public void removedService(ServiceReference<TransformationService> reference, TransformationService service) {
+		remove(reference);
+		context.ungetService(reference);
+	}
+
+	private void add(ServiceReference<TransformationService> reference, TransformationService service) {
+		String type = getType(reference);
+		if (type == null) {
+			return;
+		}
+		synchronized (servicesByType) {
+			Map<ServiceReference<TransformationService>, TransformationService> typeServices = servicesByType.get(type);
+			if (typeServices == null) {
+				typeServices = new HashMap<ServiceReference<TransformationService>, TransformationService>();
+				servicesByType.put(type, typeServices);
+			}
+			typeServices.put(reference, service);
+			update(type, typeServices);
+		}
+		logger.debug("Transformation service of type '{}' has been added.", type);
+	}
+
+	private void remove(ServiceReference<TransformationService> reference) {
+		synchronized (servicesByType) {
+			for (Map.Entry<String, Map<ServiceReference<TransformationService>, TransformationService>> entry : servicesByType.entrySet()) {
+				if (entry.getValue().remove(reference) != null) {
+					update(entry.getKey(), entry.getValue());
+					logger.debug("Transformation service of type '{}' has been removed.", entry.getKey());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Publishes the service with the highest ranking of the given type.
+	 */
+	private void update(String type, Map<ServiceReference<TransformationService>, TransformationService> typeServices) {
+		ServiceReference<TransformationService> bestReference = null;
+		for (ServiceReference<TransformationService> reference : typeServices.keySet()) {
+			if (bestReference == null || reference.compareTo(bestReference) > 0) {
+				bestReference = reference;
+			}
+		}
+		if (bestReference != null) {
+			services.put(type, typeServices.get(bestReference));
+		} else {
+			services.remove(type);
+		}
+	}
+
+	private static String getType(ServiceReference<TransformationService> reference) {
+		Object type = reference.getProperty(TRANSFORMATION_TYPE_PROPERTY);
+		return type != null ? type.toString() : null;
+	}
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform.internal.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openhab.core.transform.TransformationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the compiled form of transformation expressions, so that an expression
+ * which is used again and again (e.g. by an item binding) is only compiled once.
+ * As expressions might also be built at runtime, the cache is cleared when it
+ * reaches its maximum size.
+ *
+ * @param <T> the type of the compiled expression
+ *
+ * @since 1.8.0
+ */
+public abstract class ExpressionCache<T> {
+
+	private static final Logger logger = LoggerFactory.getLogger(ExpressionCache.class);
+
+	/** the maximum number of compiled expressions */
+	private static final int MAX_SIZE = 1000;
+
+	private final ConcurrentMap<String, T> expressions = new ConcurrentHashMap<String, T>();
+
+	/**
+	 * Compiles the given expression.
+	 *
+	 * @param expression the expression to compile
+	 * @return the compiled expression
+	 * @throws TransformationException if the expression is invalid
+	 */
+	protected abstract T compile(String expression) throws TransformationException;
+
+	/**
+	 * Returns the compiled form of the given expression and compiles it, if this has
+	 * not been done before.
+	 *
+	 * @param expression the expression
+	 * @return the compiled expression
+	 * @throws TransformationException if the expression is invalid
+	 */
+	public T get(String expression) throws TransformationException {
+		T compiled = expressions.get(expression);
+		if (compiled == null) {
+			compiled = compile(expression);
+			if (expressions.size() >= MAX_SIZE) {
+				logger.debug("More than {} expressions have been compiled, clearing the cache.", MAX_SIZE);
+				expressions.clear();
+			}
+			expressions.put(expression, compiled);
+		}
+		return compiled;
+	}
+
+	/**
+	 * @return the number of compiled expressions
+	 */
+	public int size() {
+		return expressions.size();
+	}
+
+}
@@ -8,11 +8,14 @@
  */
 package org.openhab.core.transform.internal.service;
 
+import org.openhab.core.transform.DocumentTransformationService;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.InvalidPathException;
 
@@ -20,15 +23,27 @@ import com.jayway.jsonpath.InvalidPathException;
 /**
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by JSonPath Expressions.
+ * The compiled expressions are cached and a parsed JSON document can be transformed by many expressions.
  * </p>
  * 
  * @author Gaël L'hopital
  * @since 1.6.0
  */
-public class JSonPathTransformationService implements TransformationService {
+public class JSonPathTransformationService implements DocumentTransformationService {
 
 	static final Logger logger = LoggerFactory.getLogger(JSonPathTransformationService.class);
 
+	private final ExpressionCache<JsonPath> jsonPaths = new ExpressionCache<JsonPath>() {
+		@Override
+		protected JsonPath compile(String expression) throws TransformationException {
+			try {
+				return JsonPath.compile(expression);
+			} catch(InvalidPathException e) {
+				throw new TransformationException("An error occured while transforming JSON expression.", e);
+			}
+		}
+	};
+
 	/**
 	 * @{inheritDoc
 	 */
@@ -40,8 +55,35 @@ public class JSonPathTransformationService implements TransformationService {
 
 		logger.debug("about to transform '{}' by the function '{}'", source, JSonPathExpression);
 
+		return transformDocument(JSonPathExpression, parse(source));
+	}
+
+	/**
+	 * @{inheritDoc
+	 */
+	public Object parse(String source) throws TransformationException {
+		if (source == null) {
+			throw new TransformationException("the given parameter 'source' must not be null");
+		}
+
+		try {
+			return Configuration.defaultConfiguration().getProvider().parse(source);
+		} catch(InvalidJsonException e) {
+			throw new TransformationException("An error occured while parsing JSON source.", e);
+		}
+	}
+
+	/**
+	 * @{inheritDoc
+	 */
+	public String transformDocument(String JSonPathExpression, Object document) throws TransformationException {
+
+		if (JSonPathExpression == null || document == null) {
+			throw new TransformationException("the given parameters 'JSonPath' and 'document' must not be null");
+		}
+
 		try {
-			Object transformationResult = JsonPath.read(source, JSonPathExpression);
+			Object transformationResult = jsonPaths.get(JSonPathExpression).read(document);
 			logger.debug("transformation resulted in '{}'", transformationResult);
 			return (transformationResult != null) ? transformationResult.toString() : null;
 		} catch(InvalidPathException e) {
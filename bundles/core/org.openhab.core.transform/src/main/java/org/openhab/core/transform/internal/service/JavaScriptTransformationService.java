@@ -10,10 +10,15 @@ package org.openhab.core.transform.internal.service;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
@@ -28,7 +33,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * The implementation of {@link TransformationService} which transforms the
- * input by Java Script.
+ * input by Java Script. The scripts are compiled once and kept in memory
+ * until their files are modified. Every transformation is evaluated with its
+ * own bindings.
  * 
  * @author Pauli Anttila
  * @since 1.3.0
@@ -37,6 +44,15 @@ public class JavaScriptTransformationService implements TransformationService {
 
 	static final Logger logger = 
 		LoggerFactory.getLogger(JavaScriptTransformationService.class);
+
+	private final ScriptEngineManager manager = new ScriptEngineManager();
+
+	private final TransformationFileCache<JavaScript> scripts = new TransformationFileCache<JavaScript>() {
+		@Override
+		protected JavaScript compile(File file) throws TransformationException {
+			return JavaScriptTransformationService.this.compile(file);
+		}
+	};
 	
 	/**
 	 * Transforms the input <code>source</code> by Java Script. It expects the
@@ -60,32 +76,19 @@ public class JavaScriptTransformationService implements TransformationService {
 
 		logger.debug("about to transform '{}' by the Java Script '{}'", source, filename);
 
-		Reader reader;
-
-		try {
-			String path = ConfigDispatcher.getConfigFolder() 
-				+ File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME
-				+ File.separator + filename;
-			reader = new InputStreamReader(new FileInputStream(path));
-		} catch (FileNotFoundException e) {
-			throw new TransformationException("An error occured while loading script.", e);
-		}
-
-		ScriptEngineManager manager = new ScriptEngineManager();
-		
-		ScriptEngine engine = manager.getEngineByName("javascript");
-		engine.put("input", source);
+		String path = ConfigDispatcher.getConfigFolder() 
+			+ File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME
+			+ File.separator + filename;
+		JavaScript script = scripts.get(path);
 
 		Object result = null;
 
 		long startTime = System.currentTimeMillis();
 
 		try {
-			result = engine.eval(reader);
+			result = script.eval(source);
 		} catch (ScriptException e) {
 			throw new TransformationException("An error occured while executing script.", e);
-		} finally {
-			IOUtils.closeQuietly(reader);
 		}
 
 		logger.trace("JavaScript execution elapsed {} ms", System.currentTimeMillis() - startTime);
@@ -93,4 +96,88 @@ public class JavaScriptTransformationService implements TransformationService {
 		return String.valueOf(result);
 	}
 
+	private JavaScript compile(File file) throws TransformationException {
+		String source;
+		Reader reader = null;
+		try {
+			reader = new InputStreamReader(new FileInputStream(file));
+			source = IOUtils.toString(reader);
+		} catch (IOException e) {
+			throw new TransformationException("An error occured while loading script.", e);
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+		return new JavaScript(source);
+	}
+
+	private CompiledJavaScript compile(String source) throws TransformationException {
+		ScriptEngine engine = manager.getEngineByName("javascript");
+		if (engine == null) {
+			throw new TransformationException("There is no Java Script engine available.");
+		}
+		try {
+			CompiledScript compiledScript = engine instanceof Compilable ? ((Compilable) engine).compile(source) : null;
+			return new CompiledJavaScript(engine, compiledScript, source);
+		} catch (ScriptException e) {
+			throw new TransformationException("An error occured while executing script.", e);
+		}
+	}
+
+	/**
+	 * A transformation script with its compiled instances. Engines which are thread-safe
+	 * share a single instance, otherwise every thread takes an instance from a pool, which
+	 * grows with the number of concurrent transformations.
+	 */
+	private class JavaScript {
+
+		private final String source;
+		private final boolean threadSafe;
+		private final Queue<CompiledJavaScript> instances = new ConcurrentLinkedQueue<CompiledJavaScript>();
+
+		JavaScript(String source) throws TransformationException {
+			this.source = source;
+			CompiledJavaScript instance = compile(source);
+			this.threadSafe = instance.engine.getFactory().getParameter("THREADING") != null;
+			instances.add(instance);
+		}
+
+		Object eval(String input) throws ScriptException, TransformationException {
+			if (threadSafe) {
+				return instances.peek().eval(input);
+			}
+			CompiledJavaScript instance = instances.poll();
+			if (instance == null) {
+				instance = compile(source);
+			}
+			try {
+				return instance.eval(input);
+			} finally {
+				instances.add(instance);
+			}
+		}
+	}
+
+	/**
+	 * A compiled script together with its engine. Every evaluation gets its own bindings,
+	 * so that global variables of the script do not leak from one transformation into the next.
+	 */
+	private static class CompiledJavaScript {
+
+		private final ScriptEngine engine;
+		private final CompiledScript compiledScript;
+		private final String source;
+
+		CompiledJavaScript(ScriptEngine engine, CompiledScript compiledScript, String source) {
+			this.engine = engine;
+			this.compiledScript = compiledScript;
+			this.source = source;
+		}
+
+		Object eval(String input) throws ScriptException {
+			Bindings bindings = engine.createBindings();
+			bindings.put("input", input);
+			return compiledScript != null ? compiledScript.eval(bindings) : engine.eval(source, bindings);
+		}
+	}
+
 }
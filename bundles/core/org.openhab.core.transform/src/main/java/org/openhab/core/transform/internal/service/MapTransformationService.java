@@ -8,10 +8,14 @@
  */
 package org.openhab.core.transform.internal.service;
 
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+
 import org.apache.commons.io.IOUtils;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
@@ -22,6 +26,9 @@ import org.slf4j.LoggerFactory;
  * <p>
  * The implementation of {@link TransformationService} which simply maps strings to other strings
  * </p>
+ * <p>
+ * The mappings of a file are kept in memory until the file is modified.
+ * </p>
  * 
  * @author Kai Kreuzer
  * @author Gaël L'hopital
@@ -31,6 +38,29 @@ public class MapTransformationService extends LocalizableTransformationService i
 
 	static final Logger logger = LoggerFactory.getLogger(MapTransformationService.class);
 
+	private final TransformationFileCache<Map<String, String>> mappings = new TransformationFileCache<Map<String, String>>() {
+		@Override
+		protected Map<String, String> compile(File file) throws TransformationException {
+			Reader reader = null;
+			try {
+				Properties properties = new Properties();
+				reader = new FileReader(file);
+				properties.load(reader);
+				Map<String, String> mapping = new HashMap<String, String>();
+				for (String key : properties.stringPropertyNames()) {
+					mapping.put(key, properties.getProperty(key));
+				}
+				return mapping;
+			} catch (IOException e) {
+				String message = "opening file '" + file.getPath() + "' throws exception";
+				logger.error(message, e);
+				throw new TransformationException(message, e);
+			} finally {
+				IOUtils.closeQuietly(reader);
+			}
+		}
+	};
+
 	/**
 	 * <p>
 	 * Transforms the input <code>source</code> by mapping it to another string. It expects the mappings to be read from a file which
@@ -54,25 +84,13 @@ public class MapTransformationService extends LocalizableTransformationService i
 		}
 		
 		String path = getLocalizedProposedFilename(filename);					
-		Reader reader = null;
-		try {						
-			Properties properties = new Properties();
-			reader = new FileReader(path);
-			properties.load(reader);
-			String target = properties.getProperty(source);
-			if (target!=null) {
-				logger.debug("transformation resulted in '{}'", target);
-				return target;
-			} else {
-				logger.warn("Could not find a mapping for '{}' in the file '{}'.", source, filename);
-				return "";
-			}
-		} catch (IOException e) {
-			String message = "opening file '" + filename + "' throws exception";
-			logger.error(message, e);
-			throw new TransformationException(message, e);
-		} finally {
-			IOUtils.closeQuietly(reader);
+		String target = mappings.get(path).get(source);
+		if (target!=null) {
+			logger.debug("transformation resulted in '{}'", target);
+			return target;
+		} else {
+			logger.warn("Could not find a mapping for '{}' in the file '{}'.", source, filename);
+			return "";
 		}
 	}
 
@@ -10,7 +10,9 @@ package org.openhab.core.transform.internal.service;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
+import org.openhab.core.transform.DocumentTransformationService;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.slf4j.Logger;
@@ -22,14 +24,26 @@ import org.slf4j.LoggerFactory;
  * </p>
  * <p>
  * <b>Note:</b> the given Regular Expression must contain exactly one group!
+ * The compiled patterns are cached.
  * 
  * @author Thomas.Eichstaedt-Engelen
  * @since 0.7.0
  */
-public class RegExTransformationService implements TransformationService {
+public class RegExTransformationService implements DocumentTransformationService {
 
 	static final Logger logger = LoggerFactory.getLogger(RegExTransformationService.class);
 
+	private final ExpressionCache<Pattern> patterns = new ExpressionCache<Pattern>() {
+		@Override
+		protected Pattern compile(String expression) throws TransformationException {
+			try {
+				return Pattern.compile("^" + expression + "$", Pattern.DOTALL);
+			} catch (PatternSyntaxException e) {
+				throw new TransformationException("the given regex '" + expression + "' is invalid", e);
+			}
+		}
+	};
+
 	/**
 	 * @{inheritDoc
 	 */
@@ -43,7 +57,7 @@ public class RegExTransformationService implements TransformationService {
 
 		String result = source;
 
-		Matcher matcher = Pattern.compile("^" + regExpression + "$", Pattern.DOTALL).matcher(source.trim());
+		Matcher matcher = patterns.get(regExpression).matcher(source.trim());
 		if (!matcher.matches()) {
 			logger.debug("the given regex '^{}$' doesn't match the given content '{}' -> couldn't compute transformation", regExpression, source);
 			return result;
@@ -67,4 +81,23 @@ public class RegExTransformationService implements TransformationService {
 		return result;
 	}
 
+	/**
+	 * There is nothing to parse for regular expressions, the source is used as it is.
+	 * 
+	 * @{inheritDoc
+	 */
+	public Object parse(String source) throws TransformationException {
+		if (source == null) {
+			throw new TransformationException("the given parameter 'source' must not be null");
+		}
+		return source;
+	}
+
+	/**
+	 * @{inheritDoc
+	 */
+	public String transformDocument(String regExpression, Object document) throws TransformationException {
+		return transform(regExpression, (String) document);
+	}
+
 }
@@ -9,13 +9,16 @@
 package org.openhab.core.transform.internal.service;
 
 import java.io.BufferedReader;
-import java.io.DataInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.commons.io.IOUtils;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.slf4j.Logger;
@@ -23,7 +26,8 @@ import org.slf4j.LoggerFactory;
 
 /**
  * The implementation of {@link TransformationService} which transforms the
- * input by matching it between limits in a scale file
+ * input by matching it between limits in a scale file. The ranges of a
+ * file are kept in memory until the file is modified.
  *
  * @author Gaël L'hopital
  * @since 1.6.0
@@ -35,6 +39,16 @@ public class ScaleTransformationService extends LocalizableTransformationService
 	/** RegEx to extract a scale definition */
 	private static final Pattern limits_pattern = Pattern.compile("(\\[|\\])(.*)\\,(.*)(\\[|\\])\\=(.*)");
 
+	private final TransformationFileCache<List<ScaleRange>> scales = new TransformationFileCache<List<ScaleRange>>() {
+		@Override
+		protected List<ScaleRange> compile(File file) throws TransformationException {
+			return readScales(file);
+		}
+	};
+
+	/** used for values which are no numbers */
+	private final MapTransformationService map = new MapTransformationService();
+
 	/**
 	 * <p>
 	 * Transforms the input <code>source</code> by matching it to another string. It expects the scaling to be read from a file which
@@ -62,46 +76,79 @@ public class ScaleTransformationService extends LocalizableTransformationService
 
 	try{
 		double value = Double.parseDouble(source);
-		FileInputStream fstream = new FileInputStream(path);
-		DataInputStream in = new DataInputStream(fstream);
-		BufferedReader br = new BufferedReader(new InputStreamReader(in));
-
-		String strLine;
-		while ((strLine = br.readLine()) != null) {
-			Matcher matcher = limits_pattern.matcher(strLine);
-			if (matcher.matches() && (matcher.groupCount()==5)) {
-				double minLimit = Double.parseDouble(matcher.group(2));
-				double maxLimit = Double.parseDouble(matcher.group(3));
-
-				// a bit of a trick to include/exclude limits of the segment
-				if (matcher.group(1).equals("]"))
-					minLimit = minLimit + 0.0000000001;
-				if (matcher.group(1).equals("["))
-					minLimit = minLimit - 0.0000000001;
-				if (matcher.group(4).equals("]"))
-					maxLimit = maxLimit + 0.0000000001;
-				if (matcher.group(4).equals("["))
-					maxLimit = maxLimit - 0.0000000001;
-
-				if ((minLimit < value) && (value < maxLimit)) {
-					result = matcher.group(5);
-					break;
-				}
-			} 
+		for (ScaleRange range : scales.get(path)) {
+			if (range.value == null) {
+				// the limits of this line are no numbers
+				throw new NumberFormatException();
+			}
+			if ((range.minLimit < value) && (value < range.maxLimit)) {
+				result = range.value;
+				break;
+			}
 		}
-
-		in.close();
 	} catch (NumberFormatException e){
 		// If it's not a number let's try it like a classical map
 		// mainly for UnDefType value reason
-		MapTransformationService map = new MapTransformationService();
 		result = map.transform(filename, source);
-		
-	} catch (IOException e) {	
-		throw new TransformationException("An error occured while scaling value ", e);
 	}
 
 	return result;
 }
 
+	/**
+	 * Reads the ranges of a scale file in the order in which they are defined.
+	 */
+	private static List<ScaleRange> readScales(File file) throws TransformationException {
+		List<ScaleRange> ranges = new ArrayList<ScaleRange>();
+		BufferedReader br = null;
+		try {
+			br = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+			String strLine;
+			while ((strLine = br.readLine()) != null) {
+				Matcher matcher = limits_pattern.matcher(strLine);
+				if (matcher.matches() && (matcher.groupCount()==5)) {
+					try {
+						double minLimit = Double.parseDouble(matcher.group(2));
+						double maxLimit = Double.parseDouble(matcher.group(3));
+
+						// a bit of a trick to include/exclude limits of the segment
+						if (matcher.group(1).equals("]"))
+							minLimit = minLimit + 0.0000000001;
+						if (matcher.group(1).equals("["))
+							minLimit = minLimit - 0.0000000001;
+						if (matcher.group(4).equals("]"))
+							maxLimit = maxLimit + 0.0000000001;
+						if (matcher.group(4).equals("["))
+							maxLimit = maxLimit - 0.0000000001;
+
+						ranges.add(new ScaleRange(minLimit, maxLimit, matcher.group(5)));
+					} catch (NumberFormatException e) {
+						ranges.add(new ScaleRange(0, 0, null));
+					}
+				}
+			}
+		} catch (IOException e) {	
+			throw new TransformationException("An error occured while scaling value ", e);
+		} finally {
+			IOUtils.closeQuietly(br);
+		}
+		return ranges;
+	}
+
+	/**
+	 * A single line of a scale file. The value is <code>null</code> if the limits
+	 * of the line are no numbers.
+	 */
+	private static class ScaleRange {
+		final double minLimit;
+		final double maxLimit;
+		final String value;
+
+		ScaleRange(double minLimit, double maxLimit, String value) {
+			this.minLimit = minLimit;
+			this.maxLimit = maxLimit;
+			this.value = value;
+		}
+	}
+
 }
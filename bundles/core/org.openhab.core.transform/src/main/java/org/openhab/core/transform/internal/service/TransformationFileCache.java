@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform.internal.service;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openhab.core.transform.TransformationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the compiled form of transformation files, so that a file is only read
+ * and parsed again after it has been modified. Before a cached entry is used,
+ * the modification time and the length of its file are compared to the values
+ * at compilation time.
+ *
+ * @param <T> the type of the compiled transformation
+ *
+ * @since 1.8.0
+ */
+public abstract class TransformationFileCache<T> {
+
+	private static final Logger logger = LoggerFactory.getLogger(TransformationFileCache.class);
+
+	private final ConcurrentMap<String, Entry<T>> entries = new ConcurrentHashMap<String, Entry<T>>();
+
+	/**
+	 * Reads and compiles the given transformation file.
+	 *
+	 * @param file the file to compile
+	 * @return the compiled transformation
+	 * @throws TransformationException if the file cannot be read or compiled
+	 */
+	protected abstract T compile(File file) throws TransformationException;
+
+	/**
+	 * Returns the compiled transformation of the given file. The file is compiled if it
+	 * has not been compiled before or if it has been modified since.
+	 *
+	 * @param path the path of the transformation file
+	 * @return the compiled transformation
+	 * @throws TransformationException if the file cannot be read or compiled
+	 */
+	public T get(String path) throws TransformationException {
+		File file = new File(path);
+		long lastModified = file.lastModified();
+		long length = file.length();
+
+		Entry<T> entry = entries.get(path);
+		if (entry != null && entry.lastModified == lastModified && entry.length == length && lastModified != 0) {
+			return entry.compiled;
+		}
+
+		if (entry != null) {
+			logger.debug("Transformation file '{}' has been modified, compiling it again.", path);
+		}
+		entries.remove(path);
+		T compiled = compile(file);
+		entries.put(path, new Entry<T>(lastModified, length, compiled));
+		return compiled;
+	}
+
+	/**
+	 * Removes all compiled transformations.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * @return the number of compiled transformations
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	private static class Entry<T> {
+		final long lastModified;
+		final long length;
+		final T compiled;
+
+		Entry(long lastModified, long length, T compiled) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.compiled = compiled;
+		}
+	}
+
+}
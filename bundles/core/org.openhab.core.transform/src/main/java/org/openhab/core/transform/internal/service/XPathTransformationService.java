@@ -12,11 +12,12 @@ import java.io.StringReader;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
+import org.openhab.core.transform.DocumentTransformationService;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.slf4j.Logger;
@@ -27,15 +28,39 @@ import org.xml.sax.InputSource;
 /**
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by XPath Expressions.
+ * The compiled expressions are cached and a parsed XML document can be transformed by many expressions.
  * </p>
  * 
  * @author Thomas.Eichstaedt-Engelen
  * @since 0.7.0
  */
-public class XPathTransformationService implements TransformationService {
+public class XPathTransformationService implements DocumentTransformationService {
 
 	static final Logger logger = LoggerFactory.getLogger(XPathTransformationService.class);
 
+	private final DocumentBuilderFactory domFactory;
+
+	private final XPathFactory xpathFactory = XPathFactory.newInstance();
+
+	private final ExpressionCache<XPathExpression> xpathExpressions = new ExpressionCache<XPathExpression>() {
+		@Override
+		protected XPathExpression compile(String expression) throws TransformationException {
+			try {
+				synchronized (xpathFactory) {
+					return xpathFactory.newXPath().compile(expression);
+				}
+			} catch (XPathExpressionException e) {
+				throw new TransformationException("transformation throws exceptions", e);
+			}
+		}
+	};
+
+	public XPathTransformationService() {
+		domFactory = DocumentBuilderFactory.newInstance();
+		domFactory.setNamespaceAware(true);
+		domFactory.setValidating(false);
+	}
+
 	/**
 	 * @{inheritDoc
 	 */
@@ -47,34 +72,67 @@ public class XPathTransformationService implements TransformationService {
 
 		logger.debug("about to transform '{}' by the function '{}'", source, xpathExpression);
 
+		return transformDocument(xpathExpression, parse(source));
+	}
+
+	/**
+	 * @{inheritDoc
+	 */
+	public Object parse(String source) throws TransformationException {
+
+		if (source == null) {
+			throw new TransformationException("the given parameter 'source' must not be null");
+		}
+
 		StringReader stringReader = null;
 
 		try {
-			DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-			domFactory.setNamespaceAware(true);
-			domFactory.setValidating(false);
-			DocumentBuilder builder = domFactory.newDocumentBuilder();
+			DocumentBuilder builder;
+			synchronized (domFactory) {
+				builder = domFactory.newDocumentBuilder();
+			}
 
 			stringReader = new StringReader(source);
 			InputSource inputSource = new InputSource(stringReader);
 			inputSource.setEncoding("UTF-8");
 
-			Document doc = builder.parse(inputSource);
+			return builder.parse(inputSource);
+		} catch (Exception e) {
+			throw new TransformationException("transformation throws exceptions", e);
+		} finally {
+			if (stringReader != null) {
+				stringReader.close();
+			}
+		}
+	}
+
+	/**
+	 * Neither the compiled expressions nor the DOM documents are thread-safe, so
+	 * both are locked during the evaluation.
+	 * 
+	 * @{inheritDoc
+	 */
+	public String transformDocument(String xpathExpression, Object document) throws TransformationException {
+
+		if (xpathExpression == null || !(document instanceof Document)) {
+			throw new TransformationException("the given parameters 'xpath' and 'document' must not be null");
+		}
 
-			XPath xpath = XPathFactory.newInstance().newXPath();
-			XPathExpression expr = xpath.compile(xpathExpression);
+		XPathExpression expr = xpathExpressions.get(xpathExpression);
 
-			String transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
+		try {
+			String transformationResult;
+			synchronized (document) {
+				synchronized (expr) {
+					transformationResult = (String) expr.evaluate(document, XPathConstants.STRING);
+				}
+			}
 
 			logger.debug("transformation resulted in '{}'", transformationResult);
 
 			return transformationResult;
 		} catch (Exception e) {
 			throw new TransformationException("transformation throws exceptions", e);
-		} finally {
-			if (stringReader != null) {
-				stringReader.close();
-			}
 		}
 
 	}
@@ -12,7 +12,7 @@ import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
 
-import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 /**
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by XSLT.
+ * The compiled stylesheets are kept in memory until their files are modified.
  * </p>
  * 
  * @author Thomas.Eichstaedt-Engelen
@@ -37,6 +38,20 @@ public class XsltTransformationService implements TransformationService {
 
 	static final Logger logger = LoggerFactory.getLogger(XsltTransformationService.class);
 
+	private final TransformationFileCache<Templates> stylesheets = new TransformationFileCache<Templates>() {
+		@Override
+		protected Templates compile(File file) throws TransformationException {
+			try {
+				return TransformerFactory.newInstance().newTemplates(new StreamSource(file));
+			} catch (Exception e) {
+				String message = "opening file '" + file.getPath() + "' throws exception";
+
+				logger.error(message, e);
+				throw new TransformationException(message, e);
+			}
+		}
+	};
+
 	/**
 	 * <p>
 	 * Transforms the input <code>source</code> by XSLT. It expects the transformation rule to be read from a file which
@@ -59,19 +74,10 @@ public class XsltTransformationService implements TransformationService {
 			throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
 		}
 
-		Source xsl = null;
-
-		try {
-			String path = ConfigDispatcher.getConfigFolder() + File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME + File.separator + filename;
-			xsl = new StreamSource(new File(path));
-		} catch (Exception e) {
-			String message = "opening file '" + filename + "' throws exception";
-
-			logger.error(message, e);
-			throw new TransformationException(message, e);
-		}
+		String path = ConfigDispatcher.getConfigFolder() + File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME + File.separator + filename;
+		Templates xsl = stylesheets.get(path);
 
-		logger.debug("about to transform '{}' by the function '{}'", source, xsl);
+		logger.debug("about to transform '{}' by the function '{}'", source, filename);
 
 		StringReader xml = new StringReader(source);
 		StringWriter out = new StringWriter();
@@ -79,7 +85,7 @@ public class XsltTransformationService implements TransformationService {
 		Transformer transformer;
 
 		try {
-			transformer = TransformerFactory.newInstance().newTransformer(xsl);
+			transformer = xsl.newTransformer();
 			transformer.transform(new StreamSource(xml), new StreamResult(out));
 		} catch (Exception e) {
 			logger.error("transformation throws exception", e);
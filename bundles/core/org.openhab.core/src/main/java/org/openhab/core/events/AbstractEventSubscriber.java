@@ -8,9 +8,6 @@
  */
 package org.openhab.core.events;
 
-import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
-import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
-
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
 import org.openhab.core.types.EventType;
@@ -23,21 +20,28 @@ abstract public class AbstractEventSubscriber implements EventSubscriber, EventH
 	 * {@inheritDoc}
 	 */
 	public void handleEvent(Event event) {  
-		String itemName = (String) event.getProperty("item");
-		
-		String topic = event.getTopic();
-		String[] topicParts = topic.split(TOPIC_SEPERATOR);
-		
-		if(!(topicParts.length > 2) || !topicParts[0].equals(TOPIC_PREFIX)) {
+		if(event instanceof ItemEvent) {
+			// fast path: the event already provides its content as typed fields
+			ItemEvent itemEvent = (ItemEvent) event;
+			if(itemEvent.getEventType()==EventType.UPDATE) {
+				receiveUpdate(itemEvent.getItemName(), itemEvent.getState());
+			} else if(itemEvent.getEventType()==EventType.COMMAND) {
+				receiveCommand(itemEvent.getItemName(), itemEvent.getCommand());
+			}
+			return;
+		}
+
+		EventType operation = ItemEvent.getEventType(event);
+		if(operation==null) {
 			return; // we have received an event with an invalid topic
 		}
-		String operation = topicParts[1];
 		
-		if(operation.equals(EventType.UPDATE.toString())) {
+		String itemName = (String) event.getProperty("item");
+		if(operation==EventType.UPDATE) {
 			State newState = (State) event.getProperty("state");
 			if(newState!=null) receiveUpdate(itemName, newState);
 		}
-		if(operation.equals(EventType.COMMAND.toString())) {
+		if(operation==EventType.COMMAND) {
 			Command command = (Command) event.getProperty("command");
 			if(command!=null) receiveCommand(itemName, command);
 		}
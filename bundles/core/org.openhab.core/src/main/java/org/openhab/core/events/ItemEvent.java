@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
+import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import org.openhab.core.types.Command;
+import org.openhab.core.types.EventType;
+import org.openhab.core.types.State;
+import org.osgi.service.event.Event;
+
+/**
+ * An ItemEvent is the representation of a status update or a command on the
+ * openHAB event bus. It is a regular OSGi {@link Event} with the usual topic
+ * and properties, so that it can be handled by any {@link org.osgi.service.event.EventHandler}, but
+ * additionally provides its content as typed fields. Subscribers can
+ * therefore read the event type, item name and value without parsing the
+ * topic string or looking up the event properties. Creating an event still
+ * allocates its property dictionary, which is copied once more by the
+ * {@link Event} constructor.
+ * 
+ * @since 1.8.0
+ */
+public class ItemEvent extends Event {
+
+	private static final String TOPIC_START = TOPIC_PREFIX + TOPIC_SEPERATOR;
+
+	private final String itemName;
+	
+	private final EventType eventType;
+	
+	private final State state;
+	
+	private final Command command;
+	
+	private ItemEvent(String topic, Dictionary<String, Object> properties, String itemName, EventType eventType, State state, Command command) {
+		super(topic, properties);
+		this.itemName = itemName;
+		this.eventType = eventType;
+		this.state = state;
+		this.command = command;
+	}
+	
+	/**
+	 * Creates a new status update event.
+	 * 
+	 * @param topic the topic of the event, see {@link #createTopic(EventType, String)}
+	 * @param itemName the name of the item which has been updated
+	 * @param newState the new state of the item
+	 * @return the new event
+	 */
+	public static ItemEvent createUpdateEvent(String topic, String itemName, State newState) {
+		Dictionary<String, Object> properties = new Hashtable<String, Object>(2);
+		properties.put("item", itemName);
+		properties.put("state", newState);
+		return new ItemEvent(topic, properties, itemName, EventType.UPDATE, newState, null);
+	}
+
+	/**
+	 * Creates a new command event.
+	 * 
+	 * @param topic the topic of the event, see {@link #createTopic(EventType, String)}
+	 * @param itemName the name of the item which the command is sent to
+	 * @param command the command
+	 * @return the new event
+	 */
+	public static ItemEvent createCommandEvent(String topic, String itemName, Command command) {
+		Dictionary<String, Object> properties = new Hashtable<String, Object>(2);
+		properties.put("item", itemName);
+		properties.put("command", command);
+		return new ItemEvent(topic, properties, itemName, EventType.COMMAND, null, command);
+	}
+	
+	/**
+	 * Creates the topic for an event of the given type and item.
+	 * 
+	 * @param type the event type
+	 * @param itemName the name of the item
+	 * @return the event topic
+	 */
+	public static String createTopic(EventType type, String itemName) {
+		return TOPIC_START + type + TOPIC_SEPERATOR + itemName;
+	}
+	
+	/**
+	 * Determines the openHAB event type of any event on the bus. For an 
+	 * {@link ItemEvent} this is directly taken from its field, for other
+	 * events the type is parsed from the event topic.
+	 * 
+	 * @param event the event to determine the type for
+	 * @return the event type or <code>null</code>, if the event topic is not a valid openHAB topic 
+	 */
+	public static EventType getEventType(Event event) {
+		if(event instanceof ItemEvent) {
+			return ((ItemEvent) event).getEventType();
+		}
+		
+		// the topic looks like "openhab/<type>/<item>"
+		String topic = event.getTopic();
+		if(topic==null || !topic.startsWith(TOPIC_START)) {
+			return null;
+		}
+		int start = TOPIC_START.length();
+		int end = topic.indexOf(TOPIC_SEPERATOR, start);
+		if(end<0 || end+1>=topic.length()) {
+			return null;
+		}
+		for(EventType type : EventType.values()) {
+			String operation = type.toString();
+			if(end-start==operation.length() && topic.startsWith(operation, start)) {
+				return type;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @return the name of the item this event refers to
+	 */
+	public String getItemName() {
+		return itemName;
+	}
+
+	/**
+	 * @return the type of this event
+	 */
+	public EventType getEventType() {
+		return eventType;
+	}
+
+	/**
+	 * @return the new state, if this is an update event, <code>null</code> otherwise
+	 */
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * @return the command, if this is a command event, <code>null</code> otherwise
+	 */
+	public Command getCommand() {
+		return command;
+	}
+
+}
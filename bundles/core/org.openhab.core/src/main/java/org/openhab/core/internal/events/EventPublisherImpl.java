@@ -8,13 +8,11 @@
  */
 package org.openhab.core.internal.events;
 
-import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
-import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
-
-import java.util.Dictionary;
-import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openhab.core.events.EventPublisher;
+import org.openhab.core.events.ItemEvent;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.EventType;
 import org.openhab.core.types.State;
@@ -35,9 +33,18 @@ public class EventPublisherImpl implements EventPublisher {
 
 	private static final Logger logger = 
 		LoggerFactory.getLogger(EventPublisherImpl.class);
+	
+	/** the maximum number of topics we keep per event type */
+	private static final int MAX_TOPIC_CACHE_SIZE = 10000;
 		
 	private EventAdmin eventAdmin;
 	
+	/** caches the topics of update events by item name, so that we do not need to build them for every event */
+	private final Map<String, String> updateTopics = new ConcurrentHashMap<String, String>();
+
+	/** caches the topics of command events by item name, so that we do not need to build them for every event */
+	private final Map<String, String> commandTopics = new ConcurrentHashMap<String, String>();
+	
 	
 	public void setEventAdmin(EventAdmin eventAdmin) {
 		this.eventAdmin = eventAdmin;
@@ -82,21 +89,23 @@ public class EventPublisherImpl implements EventPublisher {
 	}
 	
 	private Event createUpdateEvent(String itemName, State newState) {
-		Dictionary<String, Object> properties = new Hashtable<String, Object>();
-		properties.put("item", itemName);
-		properties.put("state", newState);
-		return new Event(createTopic(EventType.UPDATE, itemName), properties);
+		return ItemEvent.createUpdateEvent(getTopic(updateTopics, EventType.UPDATE, itemName), itemName, newState);
 	}
 
 	private Event createCommandEvent(String itemName, Command command) {
-		Dictionary<String, Object> properties = new Hashtable<String, Object>();
-		properties.put("item", itemName);
-		properties.put("command", command);
-		return new Event(createTopic(EventType.COMMAND, itemName) , properties);
+		return ItemEvent.createCommandEvent(getTopic(commandTopics, EventType.COMMAND, itemName), itemName, command);
 	}
 
-	private String createTopic(EventType type, String itemName) {
-		return TOPIC_PREFIX + TOPIC_SEPERATOR + type + TOPIC_SEPERATOR + itemName;
+	private String getTopic(Map<String, String> topics, EventType type, String itemName) {
+		String topic = topics.get(itemName);
+		if(topic==null) {
+			topic = ItemEvent.createTopic(type, itemName);
+			if(topics.size() >= MAX_TOPIC_CACHE_SIZE) {
+				topics.clear();
+			}
+			topics.put(itemName, topic);
+		}
+		return topic;
 	}
 	
 	
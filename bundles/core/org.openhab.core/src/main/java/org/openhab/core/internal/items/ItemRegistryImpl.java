@@ -10,11 +10,15 @@ package org.openhab.core.internal.items;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.regex.Pattern;
 
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.items.GenericItem;
@@ -44,12 +48,27 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	
 	private static final Logger logger = LoggerFactory.getLogger(ItemRegistryImpl.class);
 
+	/** the maximum number of compiled item name patterns we keep in memory */
+	private static final int MAX_PATTERN_CACHE_SIZE = 256;
+
 	/** if an EventPublisher service is available, we provide it to all items, so that they can communicate over the bus */
 	protected EventPublisher eventPublisher;
 	
 	/** this is our local map in which we store all our items */
 	protected Map<ItemProvider, Collection<Item>> itemMap = new ConcurrentHashMap<ItemProvider, Collection<Item>>();
 	
+	/** index of all registered items by their name, which is kept in sync with the itemMap */
+	protected ConcurrentHashMap<String, Item> itemIndex = new ConcurrentHashMap<String, Item>();
+	
+	/** all registered item instances by name, as several providers may provide items with the same name */
+	protected ConcurrentHashMap<String, List<Item>> namesakeIndex = new ConcurrentHashMap<String, List<Item>>();
+	
+	/** reverse index of all registered items by the names of the groups they belong to */
+	protected ConcurrentHashMap<String, Collection<Item>> groupMemberIndex = new ConcurrentHashMap<String, Collection<Item>>();
+	
+	/** cache for the compiled regular expressions of item name patterns */
+	protected Map<String, Pattern> patternCache = new ConcurrentHashMap<String, Pattern>();
+	
 	/** to keep track of all item change listeners */
 	protected Collection<ItemRegistryChangeListener> listeners = new CopyOnWriteArraySet<ItemRegistryChangeListener>();
 
@@ -63,6 +82,10 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		}
 		// then release all items
 		itemMap.clear();
+		itemIndex.clear();
+		namesakeIndex.clear();
+		groupMemberIndex.clear();
+		patternCache.clear();
     }
 
 	/* (non-Javadoc)
@@ -70,14 +93,11 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	 */
     @Override
 	public Item getItem(String name) throws ItemNotFoundException {
-		for(Collection<Item> items : itemMap.values()) {
-			for(Item item : items) {
-				if(item.getName().equals(name)) {
-					return item;
-				}
-			}
+		Item item = name != null ? itemIndex.get(name) : null;
+		if(item==null) {
+			throw new ItemNotFoundException(name);
 		}
-		throw new ItemNotFoundException(name);
+		return item;
 	}
 
 	/* (non-Javadoc)
@@ -116,17 +136,38 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	 */
     @Override
 	public Collection<Item> getItems(String pattern) {
-		String regex = pattern.replace("?", ".?").replace("*", ".*?");
+		Pattern regex = getCompiledPattern(pattern);
 		Collection<Item> matchedItems = new ArrayList<Item>();
 		for(Collection<Item> items : itemMap.values()) {
 			for(Item item : items) {
-				if(item.getName().matches(regex)) {
+				if(regex.matcher(item.getName()).matches()) {
 					matchedItems.add(item);
 				}
 			}
 		}
         return matchedItems;
 	}
+	
+	/**
+	 * Returns the compiled regular expression for the given item name pattern.
+	 * Compiled patterns are cached, so that repeated queries with the same
+	 * pattern do not need to compile it again.
+	 * 
+	 * @param pattern the item name pattern, which may contain '?' and '*' as wildcards
+	 * @return the compiled regular expression for this pattern
+	 */
+	private Pattern getCompiledPattern(String pattern) {
+		Pattern regex = patternCache.get(pattern);
+		if(regex==null) {
+			regex = Pattern.compile(pattern.replace("?", ".?").replace("*", ".*?"));
+			if(patternCache.size() >= MAX_PATTERN_CACHE_SIZE) {
+				// patterns are usually static, so simply starting over is good enough here
+				patternCache.clear();
+			}
+			patternCache.put(pattern, regex);
+		}
+		return regex;
+	}
 
 	public void addItemProvider(ItemProvider itemProvider) {
 		// only add this provider if it does not already exist
@@ -152,6 +193,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 				if(item instanceof GenericItem) {
 					((GenericItem) item).dispose();
 				}
+				unindexItem(item);
 			}
 			itemMap.remove(itemProvider);
 
@@ -189,13 +231,24 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 			}
 		}
 
+		Collection<Item> previousItems = itemMap.get(provider);
+		if(previousItems!=null) {
+			for(Item previousItem : previousItems) {
+				unindexItem(previousItem);
+			}
+		}
+
+		long startTime = System.currentTimeMillis();
 		Collection<Item> items = new CopyOnWriteArrayList<Item>();
     	itemMap.put(provider, items);
 		for(Item item : provider.getItems()) {
 			if(initializeItem(item)) {
 				items.add(item);
+				indexItem(item);
 			}
 		}
+		logger.debug("Initialized {} items of provider '{}' in {}ms.", new Object[] { 
+				items.size(), provider.getClass().getSimpleName(), System.currentTimeMillis() - startTime });
 
 		for(ItemRegistryChangeListener listener : listeners) {
 			listener.allItemsChanged(oldItemNames);
@@ -209,6 +262,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		if(items!=null) {
 			if(initializeItem(item)) {
 				items.add(item);
+				indexItem(item);
 			} else {
 				return;
 			}
@@ -224,6 +278,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
         items = itemMap.get(provider);
 		if(items!=null) {
 			items.remove(item);
+			unindexItem(item);
 		}
 		for(ItemRegistryChangeListener listener : listeners) {
 			listener.itemRemoved(item);
@@ -240,6 +295,117 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		listeners.remove(listener);
 	}
 
+	/**
+	 * Adds the given (already initialized) item to the name index and to the
+	 * member index of all groups it belongs to.
+	 * 
+	 * @param item the item to add to the indexes
+	 */
+	private void indexItem(Item item) {
+		String name = item.getName();
+		itemIndex.put(name, item);
+		List<Item> namesakes = namesakeIndex.get(name);
+		if(namesakes==null) {
+			List<Item> newNamesakes = new ArrayList<Item>(1);
+			namesakes = namesakeIndex.putIfAbsent(name, newNamesakes);
+			if(namesakes==null) {
+				namesakes = newNamesakes;
+			}
+		}
+		synchronized(namesakes) {
+			// items are equal if their names are equal, so we need to compare the instances here
+			if(indexOf(namesakes, item)<0) {
+				namesakes.add(item);
+			}
+		}
+		for(String groupName : item.getGroupNames()) {
+			Collection<Item> members = groupMemberIndex.get(groupName);
+			if(members==null) {
+				// we keep the insertion order, so that group members appear in their declaration order
+				Collection<Item> newMembers = Collections.synchronizedSet(new LinkedHashSet<Item>());
+				members = groupMemberIndex.putIfAbsent(groupName, newMembers);
+				if(members==null) {
+					members = newMembers;
+				}
+			}
+			members.add(item);
+		}
+	}
+	
+	private static int indexOf(List<Item> items, Item item) {
+		for(int i = 0; i < items.size(); i++) {
+			if(items.get(i)==item) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Removes the given item from the name index, from the member index and
+	 * from all group items it has been added to. If the name index meanwhile 
+	 * points to a different instance with the same name, this entry is left 
+	 * untouched. If another provider still provides an item with this name, 
+	 * the index is updated to point to this one instead.
+	 * 
+	 * @param item the item to remove from the indexes
+	 */
+	private void unindexItem(Item item) {
+		for(String groupName : item.getGroupNames()) {
+			Collection<Item> members = groupMemberIndex.get(groupName);
+			if(members!=null) {
+				members.remove(item);
+			}
+			Item groupItem = itemIndex.get(groupName);
+			if(groupItem instanceof GroupItem) {
+				((GroupItem) groupItem).removeMember(item);
+			}
+		}
+		
+		String name = item.getName();
+		if(name==null) {
+			return;
+		}
+		List<Item> namesakes = namesakeIndex.get(name);
+		if(namesakes==null) {
+			itemIndex.remove(name, item);
+			return;
+		}
+		synchronized(namesakes) {
+			int index = indexOf(namesakes, item);
+			if(index>=0) {
+				namesakes.remove(index);
+			}
+			if(itemIndex.get(name)==item) {
+				if(namesakes.isEmpty()) {
+					itemIndex.remove(name, item);
+				} else {
+					itemIndex.put(name, namesakes.get(namesakes.size() - 1));
+				}
+			}
+			if(namesakes.isEmpty()) {
+				namesakeIndex.remove(name, namesakes);
+			}
+		}
+	}
+
+	/**
+	 * Returns a snapshot of all registered items that declare to be a member
+	 * of the group with the given name.
+	 * 
+	 * @param groupName the name of the group
+	 * @return all registered members of this group, never <code>null</code>
+	 */
+	private Collection<Item> getIndexedMembers(String groupName) {
+		Collection<Item> members = groupMemberIndex.get(groupName);
+		if(members==null) {
+			return Collections.emptyList();
+		}
+		synchronized(members) {
+			return new ArrayList<Item>(members);
+		}
+	}
+
 	/**
 	 * an item should be initialized, which means that the event publisher is
 	 * injected and its implementation is notified that it has just been created,
@@ -257,11 +423,9 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 			}
 			
 			if(item instanceof GroupItem) {
-				// fill group with its members 
-				for(Item i : getItems()) {
-					if(i.getGroupNames().contains(item.getName())) {
-						((GroupItem)item).addMember(i);
-					}
+				// fill group with its already registered members 
+				for(Item member : getIndexedMembers(item.getName())) {
+					((GroupItem)item).addMember(member);
 				}
 			}
 			// add the item to all relevant groups
@@ -9,10 +9,12 @@
 package org.openhab.core.items;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.collections.ListUtils;
 import org.openhab.core.types.Command;
@@ -29,6 +31,12 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	protected final List<Item> members;
 	
 	protected GroupFunction function;
+	
+	/** is incremented whenever the direct members of this group change */
+	private final AtomicLong membershipVersion = new AtomicLong();
+	
+	/** the cached result of {@link #getAllMembers()}, only valid as long as none of the collected groups has changed */
+	private volatile AllMembers allMembers;
 
 	public GroupItem(String name) {
 		this(name, null);
@@ -70,19 +78,31 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	 * Returns the direct members of this {@link GroupItem} and recursively all
 	 * members of the potentially contained {@link GroupItem}s as well. The 
 	 * {@link GroupItem}s itself aren't contained. The returned items are unique.
+	 * The members are collected again only if the members of this group or of
+	 * one of the contained groups have changed.
 	 * 
 	 * @return all members of this and all contained {@link GroupItem}s
 	 */
 	public List<Item> getAllMembers() {
-		Set<Item> allMembers = new HashSet<Item>();
-		collectMembers(allMembers, members);
-		return new ArrayList<Item>(allMembers);
+		AllMembers cached = allMembers;
+		if(cached==null || !cached.isValid()) {
+			Set<Item> collectedMembers = new LinkedHashSet<Item>();
+			List<GroupItem> groups = new ArrayList<GroupItem>();
+			List<Long> versions = new ArrayList<Long>();
+			collectMembers(collectedMembers, groups, versions, this);
+			cached = new AllMembers(groups, versions, collectedMembers);
+			allMembers = cached;
+		}
+		return new ArrayList<Item>(Arrays.asList(cached.members));
 	}
 	
-	private void collectMembers(Set<Item> allMembers, List<Item> members) {
-		for (Item member : members) {
+	private static void collectMembers(Set<Item> allMembers, List<GroupItem> groups, List<Long> versions, GroupItem group) {
+		// the version is taken before the members are read, so that a concurrent change invalidates the result
+		groups.add(group);
+		versions.add(group.membershipVersion.get());
+		for (Item member : group.members) {
 			if (member instanceof GroupItem) {
-				collectMembers(allMembers, ((GroupItem) member).members);
+				collectMembers(allMembers, groups, versions, (GroupItem) member);
 			}
 			else {
 				allMembers.add(member);
@@ -92,6 +112,7 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 
 	public void addMember(Item item) {
 		members.add(item);
+		membershipVersion.incrementAndGet();
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.addStateChangeListener(this);
@@ -99,7 +120,9 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	}
 	
 	public void removeMember(Item item) {
-		members.remove(item);
+		if(members.remove(item)) {
+			membershipVersion.incrementAndGet();
+		}
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.removeStateChangeListener(this);
@@ -219,4 +242,35 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	public void stateUpdated(Item item, State state) {
 		setState(function.calculate(members));
 	}
+	
+	/**
+	 * Holds a transitive closure of group members together with the groups
+	 * it has been collected from and their membership versions.
+	 */
+	private static class AllMembers {
+		
+		final GroupItem[] groups;
+		
+		final long[] versions;
+		
+		final Item[] members;
+		
+		AllMembers(List<GroupItem> groups, List<Long> versions, Set<Item> members) {
+			this.groups = groups.toArray(new GroupItem[groups.size()]);
+			this.versions = new long[versions.size()];
+			for(int i = 0; i < this.versions.length; i++) {
+				this.versions[i] = versions.get(i);
+			}
+			this.members = members.toArray(new Item[members.size()]);
+		}
+		
+		boolean isValid() {
+			for(int i = 0; i < groups.length; i++) {
+				if(groups[i].membershipVersion.get()!=versions[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
 }
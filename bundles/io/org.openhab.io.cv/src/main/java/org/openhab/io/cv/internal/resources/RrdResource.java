@@ -42,6 +42,8 @@ import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.HistoricItemCursor;
+import org.openhab.core.persistence.HistoricItemCursors;
 import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.State;
 import org.openhab.io.cv.CVApplication;
@@ -227,21 +229,24 @@ public class RrdResource {
 		filter.setOrdering(Ordering.ASCENDING);
 
 		// Get the data from the persistence store
-		Iterable<HistoricItem> result = persistenceService.query(filter);
-		Iterator<HistoricItem> it = result.iterator();
+		HistoricItemCursor it = HistoricItemCursors.query(persistenceService, filter);
 
 		// Iterate through the data
 		int dataCounter = 0;
-		while (it.hasNext()) {
-			dataCounter++;
-			HistoricItem historicItem = it.next();
-			State state = historicItem.getState();
-			if (state instanceof DecimalType) {
-				ArrayList<String> vals = new ArrayList<String>();
-				vals.add(formatDouble(((DecimalType) state).doubleValue(),
-						"null", true));
-				data.put(historicItem.getTimestamp().getTime(), vals);
+		try {
+			while (it.hasNext()) {
+				dataCounter++;
+				HistoricItem historicItem = it.next();
+				State state = historicItem.getState();
+				if (state instanceof DecimalType) {
+					ArrayList<String> vals = new ArrayList<String>();
+					vals.add(formatDouble(((DecimalType) state).doubleValue(),
+							"null", true));
+					data.put(historicItem.getTimestamp().getTime(), vals);
+				}
 			}
+		} finally {
+			it.close();
 		}
 		logger.debug(
 				"'{}' querying item '{}' from '{}' to '{}' => '{}' results",
@@ -8,6 +8,16 @@
  */
 package org.openhab.io.net.http;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import junit.framework.Assert;
 
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
@@ -48,4 +58,107 @@ public class HttpUtilTest {
 		Assert.assertEquals(DeleteMethod.class, HttpUtil.createHttpMethod("DELETE", "").getClass());
 	}
 
+	@Test
+	public void testConnectionPoolIsShared() {
+		HttpConnectionPool pool = HttpUtil.getConnectionPool();
+		
+		// assert
+		Assert.assertSame(pool, HttpUtil.getConnectionPool());
+		Assert.assertEquals(HttpConnectionPool.MAX_CONNECTIONS_PER_HOST, pool.getParams().getDefaultMaxConnectionsPerHost());
+		Assert.assertEquals(HttpConnectionPool.MAX_TOTAL_CONNECTIONS, pool.getParams().getMaxTotalConnections());
+	}
+
+	@Test
+	public void testExecuteUrlAsync_failedRequest() throws Exception {
+		// nothing listens on port 1, so the connection is refused
+		Future<String> response = HttpUtil.executeUrlAsync("GET", "http://127.0.0.1:1/", 1000);
+		
+		// assert
+		Assert.assertNull(response.get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testConnectionIsReused() throws Exception {
+		TestServer server = new TestServer();
+		server.start();
+		try {
+			String url = "http://127.0.0.1:" + server.serverSocket.getLocalPort() + "/";
+			long acquiredCount = HttpUtil.getConnectionPool().getAcquiredCount();
+			
+			Assert.assertEquals("OK", HttpUtil.executeUrl("GET", url, 5000));
+			Assert.assertEquals("OK", HttpUtil.executeUrl("GET", url, 5000));
+			Assert.assertEquals("OK", HttpUtil.executeUrl("GET", url, 5000));
+			
+			// assert
+			Assert.assertEquals(1, server.connections.get());
+			Assert.assertEquals(3, HttpUtil.getConnectionPool().getAcquiredCount() - acquiredCount);
+		} finally {
+			server.serverSocket.close();
+		}
+	}
+
+	@Test
+	public void testConnectionPoolIsCreatedAgainAfterShutdown() {
+		HttpConnectionPool pool = HttpUtil.getConnectionPool();
+		HttpUtil.shutdown();
+		
+		// assert
+		Assert.assertNotSame(pool, HttpUtil.getConnectionPool());
+	}
+
+	/**
+	 * A server which answers every request with 'OK' and keeps the connections
+	 * open. It counts the connections which have been opened by clients.
+	 */
+	private static class TestServer extends Thread {
+
+		final ServerSocket serverSocket;
+
+		final AtomicInteger connections = new AtomicInteger();
+
+		TestServer() throws IOException {
+			super("HTTP test server");
+			serverSocket = new ServerSocket(0);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					final Socket socket = serverSocket.accept();
+					connections.incrementAndGet();
+					Thread connection = new Thread("HTTP test connection") {
+						@Override
+						public void run() {
+							serve(socket);
+						}
+					};
+					connection.setDaemon(true);
+					connection.start();
+				}
+			} catch (IOException e) {
+				// the server has been closed
+			}
+		}
+
+		private void serve(Socket socket) {
+			try {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "ISO-8859-1"));
+				OutputStream out = socket.getOutputStream();
+				String line;
+				while ((line = reader.readLine()) != null) {
+					// the requests have no body, so an empty line ends the request
+					if (line.length() == 0) {
+						out.write("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: 2\r\n\r\nOK".getBytes("ISO-8859-1"));
+						out.flush();
+					}
+				}
+				socket.close();
+			} catch (IOException e) {
+				// the client has closed the connection
+			}
+		}
+	}
+
 }
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.net.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The connection manager which is shared by all requests of {@link HttpUtil}.
+ * Connections are kept alive and reused for further requests to the same host,
+ * the number of connections per host and in total is limited. Connections which
+ * have been idle for a while are closed by a background thread.
+ * <p>The time which requests have to wait for a free connection is recorded and
+ * logged in debug level every minute.</p>
+ * 
+ * @since 1.8.0
+ */
+public class HttpConnectionPool extends MultiThreadedHttpConnectionManager {
+
+	private static final Logger logger = LoggerFactory.getLogger(HttpConnectionPool.class);
+
+	/** the maximum number of connections to a single host */
+	static final int MAX_CONNECTIONS_PER_HOST = 5;
+
+	/** the maximum number of connections to all hosts */
+	static final int MAX_TOTAL_CONNECTIONS = 50;
+
+	/** the time in milliseconds after which an idle connection is closed */
+	private static final long IDLE_CONNECTION_TIMEOUT = 30000L;
+
+	/** the interval in which the pool statistics are logged */
+	private static final long STATISTICS_INTERVAL = 60000L;
+
+	private final IdleConnectionTimeoutThread idleConnectionThread;
+
+	private final AtomicLong acquiredCount = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	private final AtomicLong totalWaitTime = new AtomicLong();
+	private final AtomicLong maxWaitTime = new AtomicLong();
+
+	private volatile long lastStatistics = System.currentTimeMillis();
+
+	public HttpConnectionPool() {
+		HttpConnectionManagerParams params = getParams();
+		params.setDefaultMaxConnectionsPerHost(MAX_CONNECTIONS_PER_HOST);
+		params.setMaxTotalConnections(MAX_TOTAL_CONNECTIONS);
+		params.setStaleCheckingEnabled(true);
+
+		idleConnectionThread = new IdleConnectionTimeoutThread();
+		idleConnectionThread.setName("HTTP idle connection timeout");
+		idleConnectionThread.setConnectionTimeout(IDLE_CONNECTION_TIMEOUT);
+		idleConnectionThread.setTimeoutInterval(IDLE_CONNECTION_TIMEOUT / 2);
+		idleConnectionThread.addConnectionManager(this);
+		idleConnectionThread.start();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public HttpConnection getConnectionWithTimeout(HostConfiguration hostConfiguration, long timeout) 
+			throws ConnectionPoolTimeoutException {
+		long start = System.currentTimeMillis();
+		try {
+			HttpConnection connection = super.getConnectionWithTimeout(hostConfiguration, timeout);
+			acquiredCount.incrementAndGet();
+			return connection;
+		} catch (ConnectionPoolTimeoutException e) {
+			timeoutCount.incrementAndGet();
+			throw e;
+		} finally {
+			long waitTime = System.currentTimeMillis() - start;
+			totalWaitTime.addAndGet(waitTime);
+			if (waitTime > maxWaitTime.get()) {
+				maxWaitTime.set(waitTime);
+			}
+			logStatistics();
+		}
+	}
+
+	/**
+	 * Closes all connections and stops the idle connection thread.
+	 */
+	@Override
+	public void shutdown() {
+		idleConnectionThread.shutdown();
+		super.shutdown();
+	}
+
+	/**
+	 * @return the number of open connections, including the ones which are in use
+	 */
+	public int getOpenConnections() {
+		return getConnectionsInPool();
+	}
+
+	/**
+	 * @return the number of connections which have been handed out to requests
+	 */
+	public long getAcquiredCount() {
+		return acquiredCount.get();
+	}
+
+	/**
+	 * @return the number of requests which did not get a connection in time
+	 */
+	public long getTimeoutCount() {
+		return timeoutCount.get();
+	}
+
+	/**
+	 * @return the average time in milliseconds a request waited for a connection
+	 */
+	public long getAverageWaitTime() {
+		long count = acquiredCount.get() + timeoutCount.get();
+		return count > 0 ? totalWaitTime.get() / count : 0;
+	}
+
+	/**
+	 * @return the maximum time in milliseconds a request waited for a connection
+	 */
+	public long getMaxWaitTime() {
+		return maxWaitTime.get();
+	}
+
+	private void logStatistics() {
+		long now = System.currentTimeMillis();
+		if (now - lastStatistics >= STATISTICS_INTERVAL) {
+			lastStatistics = now;
+			logger.debug("HTTP connection pool: open={}, acquired={}, timeouts={}, avgWaitTime={}ms, maxWaitTime={}ms",
+					new Object[] { getOpenConnections(), acquiredCount.get(), timeoutCount.get(), 
+						getAverageWaitTime(), maxWaitTime.get() });
+		}
+	}
+
+}
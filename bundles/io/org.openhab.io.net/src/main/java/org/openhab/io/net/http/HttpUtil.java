@@ -13,6 +13,14 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
@@ -43,7 +51,8 @@ import org.slf4j.LoggerFactory;
 
 
 /**
- * Some common methods to be used in both HTTP-In-Binding and HTTP-Out-Binding
+ * Some common methods to be used in both HTTP-In-Binding and HTTP-Out-Binding.
+ * All requests share one pool of keep-alive connections.
  * 
  * @author Thomas.Eichstaedt-Engelen
  * @author Kai Kreuzer
@@ -56,6 +65,15 @@ public class HttpUtil {
 	/** {@link Pattern} which matches the credentials out of an URL */ 
 	private static final Pattern URL_CREDENTIALS_PATTERN = Pattern.compile("http://(.*?):(.*?)@.*");
 	
+	/** the maximum number of asynchronous requests which wait for a free thread */
+	private static final int ASYNC_QUEUE_CAPACITY = 500;
+	
+	/** the connection manager of all requests, which keeps the connections alive for reuse */
+	private static HttpConnectionPool connectionPool;
+	
+	/** the threads which execute the asynchronous requests */
+	private static ThreadPoolExecutor asyncExecutor;
+	
 
 	/**
 	 * Executes the given <code>url</code> with the given <code>httpMethod</code>.
@@ -153,7 +171,10 @@ public class HttpUtil {
 	 */
 	public static String executeUrl(String httpMethod, String url, Properties httpHeaders, InputStream content, String contentType, int timeout, String proxyHost, Integer proxyPort, String proxyUser, String proxyPassword, String nonProxyHosts) {
 		
-		HttpClient client = new HttpClient();
+		// the client holds the credentials and the proxy settings of this request,
+		// while the connections are shared with all other requests
+		HttpClient client = new HttpClient(getConnectionPool());
+		client.getParams().setConnectionManagerTimeout(timeout);
 		
 		// only configure a proxy if a host is provided
 		if (StringUtils.isNotBlank(proxyHost) && proxyPort != null && shouldUseProxy(url, nonProxyHosts)) {
@@ -239,6 +260,92 @@ public class HttpUtil {
 		return null;
 	}
 
+	/**
+	 * Executes the given <code>url</code> with the given <code>httpMethod</code> 
+	 * asynchronously, so that the caller can execute other requests in the meantime.
+	 * The request is executed like {@link #executeUrl(String, String, Properties, InputStream, String, int)}.
+	 * 
+	 * @param httpMethod the HTTP method to use
+	 * @param url the url to execute
+	 * @param httpHeaders optional http request headers which has to be sent within request 
+	 * @param content the content to be send to the given <code>url</code> or 
+	 * <code>null</code> if no content should be send.
+	 * @param contentType the content type of the given <code>content</code>
+	 * @param timeout the socket timeout to wait for data
+	 * 
+	 * @return the future response body, which is <code>NULL</code> when the request went wrong
+	 * @throws RejectedExecutionException if too many asynchronous requests are waiting to be executed
+	 */
+	public static Future<String> executeUrlAsync(final String httpMethod, final String url, final Properties httpHeaders, 
+			final InputStream content, final String contentType, final int timeout) {
+		return getAsyncExecutor().submit(new Callable<String>() {
+			public String call() {
+				return executeUrl(httpMethod, url, httpHeaders, content, contentType, timeout);
+			}
+		});
+	}
+	
+	/**
+	 * Executes the given <code>url</code> with the given <code>httpMethod</code> 
+	 * asynchronously.
+	 * 
+	 * @param httpMethod the HTTP method to use
+	 * @param url the url to execute
+	 * @param timeout the socket timeout to wait for data
+	 * 
+	 * @return the future response body, which is <code>NULL</code> when the request went wrong
+	 * @throws RejectedExecutionException if too many asynchronous requests are waiting to be executed
+	 */
+	public static Future<String> executeUrlAsync(String httpMethod, String url, int timeout) {
+		return executeUrlAsync(httpMethod, url, null, null, null, timeout);
+	}
+	
+	/**
+	 * Returns the connection manager which is shared by all requests, e.g. for
+	 * reading its statistics.
+	 * 
+	 * @return the connection pool
+	 */
+	public static synchronized HttpConnectionPool getConnectionPool() {
+		if (connectionPool == null) {
+			connectionPool = new HttpConnectionPool();
+		}
+		return connectionPool;
+	}
+	
+	/**
+	 * Closes all pooled connections and stops the threads of the connection pool
+	 * and of the asynchronous requests. Both are created again by the next request.
+	 */
+	public static synchronized void shutdown() {
+		if (connectionPool != null) {
+			connectionPool.shutdown();
+			connectionPool = null;
+		}
+		if (asyncExecutor != null) {
+			asyncExecutor.shutdown();
+			asyncExecutor = null;
+		}
+	}
+	
+	private static synchronized ThreadPoolExecutor getAsyncExecutor() {
+		if (asyncExecutor == null) {
+			asyncExecutor = new ThreadPoolExecutor(HttpConnectionPool.MAX_TOTAL_CONNECTIONS, 
+				HttpConnectionPool.MAX_TOTAL_CONNECTIONS, 60L, TimeUnit.SECONDS, 
+				new LinkedBlockingQueue<Runnable>(ASYNC_QUEUE_CAPACITY), new ThreadFactory() {
+					private final AtomicInteger threadNumber = new AtomicInteger();
+	
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "HTTP request " + threadNumber.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			asyncExecutor.allowCoreThreadTimeOut(true);
+		}
+		return asyncExecutor;
+	}
+
 	/**
 	 * Determines whether the list of <code>nonProxyHosts</code> contains the
 	 * host (which is part of the given <code>urlString</code> or not.
@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.net.internal;
+
+import org.openhab.io.net.http.HttpUtil;
+import org.osgi.framework.BundleActivator;
+import org.osgi.framework.BundleContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Extension of the default OSGi bundle activator
+ * 
+ * @since 1.8.0
+ */
+public class NetActivator implements BundleActivator {
+
+	private static Logger logger = LoggerFactory.getLogger(NetActivator.class); 
+	
+	/**
+	 * Called whenever the OSGi framework starts our bundle
+	 */
+	public void start(BundleContext bc) throws Exception {
+		logger.debug("Net I/O bundle has been started.");
+	}
+
+	/**
+	 * Called whenever the OSGi framework stops our bundle
+	 */
+	public void stop(BundleContext bc) throws Exception {
+		// close the shared connections and stop their threads
+		HttpUtil.shutdown();
+		logger.debug("Net I/O bundle has been stopped.");
+	}
+}
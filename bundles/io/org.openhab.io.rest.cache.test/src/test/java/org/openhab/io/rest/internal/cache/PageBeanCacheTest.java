@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openhab.io.rest.internal.resources.beans.ItemBean;
+import org.openhab.io.rest.internal.resources.beans.PageBean;
+import org.openhab.io.rest.internal.resources.beans.WidgetBean;
+import org.openhab.io.rest.internal.resources.beans.WidgetListBean;
+
+/**
+ * @since 1.8.0
+ */
+public class PageBeanCacheTest {
+
+	private static final URI BASE_PATH = URI.create("http://localhost:8080/rest/");
+
+	@Test
+	public void testPageIsRenderedOncePerChange() {
+		CountingCache cache = new CountingCache(0);
+
+		PageBean pageBean = cache.getPageBean("demo", "demo", BASE_PATH);
+		assertSame(pageBean, cache.getPageBean("demo", "demo", BASE_PATH));
+		assertEquals(1, cache.renders.get());
+
+		cache.invalidate("Temperature");
+		assertNotSame(pageBean, cache.getPageBean("demo", "demo", BASE_PATH));
+		assertEquals(2, cache.renders.get());
+	}
+
+	@Test
+	public void testOnlyPagesOfChangedItemAreInvalidated() {
+		CountingCache cache = new CountingCache(0);
+		PageBean pageBean = cache.getPageBean("demo", "demo", BASE_PATH);
+		PageBean otherPageBean = cache.getPageBean("demo", "0100", BASE_PATH);
+
+		cache.invalidate("Power");
+
+		assertSame(pageBean, cache.getPageBean("demo", "demo", BASE_PATH));
+		assertNotSame(otherPageBean, cache.getPageBean("demo", "0100", BASE_PATH));
+		assertEquals(3, cache.renders.get());
+	}
+
+	@Test
+	public void testPagesAreRenderedConcurrently() throws InterruptedException {
+		final CountDownLatch rendering = new CountDownLatch(1);
+		final CountDownLatch rendered = new CountDownLatch(1);
+		final CountingCache cache = new CountingCache(0) {
+			@Override
+			protected PageBean renderPage(String sitemapName, String pageId, URI basePath) {
+				if ("demo".equals(pageId)) {
+					rendering.countDown();
+					try {
+						rendered.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return super.renderPage(sitemapName, pageId, basePath);
+			}
+		};
+		Thread client = new Thread() {
+			@Override
+			public void run() {
+				cache.getPageBean("demo", "demo", BASE_PATH);
+			}
+		};
+		client.start();
+		assertTrue(rendering.await(10, TimeUnit.SECONDS));
+
+		// another page does not wait for the page which is being rendered
+		assertEquals("0100", cache.getPageBean("demo", "0100", BASE_PATH).id);
+
+		rendered.countDown();
+		client.join(10000);
+		assertEquals(2, cache.renders.get());
+	}
+
+	@Test
+	public void testPageRenderedDuringChangeIsNotKept() {
+		final CountingCache cache = new CountingCache(0) {
+			@Override
+			protected PageBean renderPage(String sitemapName, String pageId, URI basePath) {
+				PageBean pageBean = super.renderPage(sitemapName, pageId, basePath);
+				if (renders.get() == 1) {
+					invalidate("Temperature");
+				}
+				return pageBean;
+			}
+		};
+
+		PageBean pageBean = cache.getPageBean("demo", "demo", BASE_PATH);
+
+		assertNotSame(pageBean, cache.getPageBean("demo", "demo", BASE_PATH));
+		assertEquals(2, cache.renders.get());
+	}
+
+	@Test
+	public void testPagesAreKeptSeparately() {
+		CountingCache cache = new CountingCache(0);
+
+		PageBean pageBean = cache.getPageBean("demo", "demo", BASE_PATH);
+		PageBean otherPageBean = cache.getPageBean("demo", "0100", BASE_PATH);
+		PageBean otherHostPageBean = cache.getPageBean("demo", "demo", URI.create("http://remote:8080/rest/"));
+
+		assertNotSame(pageBean, otherPageBean);
+		assertNotSame(pageBean, otherHostPageBean);
+		assertEquals("0100", otherPageBean.id);
+		assertEquals(3, cache.renders.get());
+	}
+
+	@Test
+	public void testUnknownPageIsNotCached() {
+		CountingCache cache = new CountingCache(0);
+
+		assertNull(cache.getPageBean("demo", "unknown", BASE_PATH));
+		assertNull(cache.getWidgetListBean("demo", "unknown", BASE_PATH, "Temperature"));
+		assertEquals(2, cache.renders.get());
+	}
+
+	@Test
+	public void testWidgetsAreFoundOncePerVersion() {
+		CountingCache cache = new CountingCache(0);
+
+		WidgetListBean widgets = cache.getWidgetListBean("demo", "demo", BASE_PATH, "Temperature");
+		assertEquals(1, widgets.entries.size());
+		assertEquals("Temperature", widgets.entries.get(0).item.name);
+		assertSame(widgets, cache.getWidgetListBean("demo", "demo", BASE_PATH, "Temperature"));
+		assertEquals(1, cache.searches.get());
+
+		cache.invalidate("Humidity");
+		assertNotSame(widgets, cache.getWidgetListBean("demo", "demo", BASE_PATH, "Temperature"));
+		assertEquals(2, cache.searches.get());
+	}
+
+	@Test
+	public void testLongPollingClients() throws InterruptedException {
+		int clientCount = 30;
+		int changeCount = 100;
+		final CountingCache cache = new CountingCache(1);
+
+		for(int change = 0; change < changeCount; change++) {
+			cache.invalidate("Temperature");
+			// all waiting clients ask for the page as soon as the change has been broadcasted
+			final CountDownLatch broadcast = new CountDownLatch(1);
+			final CountDownLatch done = new CountDownLatch(clientCount);
+			for(int client = 0; client < clientCount; client++) {
+				new Thread() {
+					@Override
+					public void run() {
+						try {
+							broadcast.await();
+							cache.getPageBean("demo", "demo", BASE_PATH);
+							cache.getWidgetListBean("demo", "demo", BASE_PATH, "Temperature");
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						} finally {
+							done.countDown();
+						}
+					}
+				}.start();
+			}
+			broadcast.countDown();
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+		}
+
+		assertEquals(changeCount, cache.renders.get());
+		assertEquals(changeCount, cache.searches.get());
+		assertEquals(changeCount, cache.getRenderCount());
+		assertEquals(changeCount * clientCount * 2 - changeCount, cache.getHitCount());
+	}
+
+	/**
+	 * Renders a page with a frame which contains the widgets of two items and
+	 * counts the renderings. The page 'demo' shows the temperature and humidity,
+	 * all other pages show the power.
+	 */
+	private static class CountingCache extends PageBeanCache {
+
+		final AtomicInteger renders = new AtomicInteger();
+		final AtomicInteger searches = new AtomicInteger();
+		final long renderTime;
+
+		CountingCache(long renderTime) {
+			this.renderTime = renderTime;
+		}
+
+		@Override
+		protected PageBean renderPage(String sitemapName, String pageId, URI basePath) {
+			renders.incrementAndGet();
+			if("unknown".equals(pageId)) {
+				return null;
+			}
+			try {
+				Thread.sleep(renderTime);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			PageBean pageBean = new PageBean();
+			pageBean.id = pageId;
+			WidgetBean frame = new WidgetBean();
+			frame.type = "Frame";
+			for(String itemName : getItemNames(sitemapName, pageId)) {
+				frame.widgets.add(createWidget(itemName));
+			}
+			pageBean.widgets.add(frame);
+			return pageBean;
+		}
+
+		@Override
+		protected Set<String> getItemNames(String sitemapName, String pageId) {
+			if("demo".equals(pageId)) {
+				return new HashSet<String>(Arrays.asList("Temperature", "Humidity"));
+			}
+			return Collections.singleton("Power");
+		}
+
+		@Override
+		protected WidgetListBean findWidgets(PageBean pageBean, String itemName) {
+			searches.incrementAndGet();
+			WidgetListBean widgetListBean = new WidgetListBean();
+			for(WidgetBean frame : pageBean.widgets) {
+				for(WidgetBean widget : frame.widgets) {
+					if(widget.item != null && itemName.equals(widget.item.name)) {
+						widgetListBean.entries.add(widget);
+					}
+				}
+			}
+			return widgetListBean;
+		}
+
+		private static WidgetBean createWidget(String itemName) {
+			WidgetBean widget = new WidgetBean();
+			widget.type = "Text";
+			widget.item = new ItemBean();
+			widget.item.name = itemName;
+			return widget;
+		}
+	}
+
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.cache;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.io.rest.internal.resources.beans.PageBean;
+import org.openhab.io.rest.internal.resources.beans.WidgetListBean;
+
+/**
+ * Keeps the rendered {@link PageBean}s of a sitemap page, so that a page is rendered
+ * only once for all clients which wait for its updates, instead of once per client.
+ * The widgets of an item which are sent to streaming clients are kept as well. 
+ * A rendered page is discarded by {@link #invalidate(String)} as soon as one of
+ * the items which are shown on the page changes.
+ * 
+ * @since 1.8.0
+ */
+public abstract class PageBeanCache {
+
+	/** increased by every invalidation, so that a page rendered meanwhile is not kept */
+	private final AtomicLong version = new AtomicLong();
+
+	/** the rendered pages by their sitemap, page id and base uri */
+	private final ConcurrentMap<String, RenderedPage> renderedPages = new ConcurrentHashMap<String, RenderedPage>();
+
+	/** the locks of the pages which are rendered, so that only one client renders a page */
+	private final ConcurrentMap<String, Object> renderLocks = new ConcurrentHashMap<String, Object>();
+
+	private final AtomicLong renderCount = new AtomicLong();
+	private final AtomicLong hitCount = new AtomicLong();
+
+	/**
+	 * Renders a page of a sitemap.
+	 * 
+	 * @param sitemapName the name of the sitemap
+	 * @param pageId the id of the page
+	 * @param basePath the base uri of the links in the page
+	 * @return the rendered page or <code>null</code>, if it does not exist
+	 */
+	protected abstract PageBean renderPage(String sitemapName, String pageId, URI basePath);
+
+	/**
+	 * Determines the items which are shown on a page of a sitemap.
+	 * 
+	 * @param sitemapName the name of the sitemap
+	 * @param pageId the id of the page
+	 * @return the names of the items, whose changes invalidate the page
+	 */
+	protected abstract Set<String> getItemNames(String sitemapName, String pageId);
+
+	/**
+	 * Finds the widgets of an item on a rendered page.
+	 * 
+	 * @param pageBean the rendered page
+	 * @param itemName the name of the item
+	 * @return the widgets of the item
+	 */
+	protected abstract WidgetListBean findWidgets(PageBean pageBean, String itemName);
+
+	/**
+	 * Returns the rendered page and renders it, if this has not been done since
+	 * the last change of its items.
+	 * 
+	 * @param sitemapName the name of the sitemap
+	 * @param pageId the id of the page
+	 * @param basePath the base uri of the links in the page
+	 * @return the rendered page or <code>null</code>, if it does not exist
+	 */
+	public PageBean getPageBean(String sitemapName, String pageId, URI basePath) {
+		RenderedPage renderedPage = getRenderedPage(sitemapName, pageId, basePath);
+		return renderedPage != null ? renderedPage.pageBean : null;
+	}
+
+	/**
+	 * Returns the widgets of an item on the rendered page.
+	 * 
+	 * @param sitemapName the name of the sitemap
+	 * @param pageId the id of the page
+	 * @param basePath the base uri of the links in the page
+	 * @param itemName the name of the item
+	 * @return the widgets of the item or <code>null</code>, if the page does not exist
+	 */
+	public WidgetListBean getWidgetListBean(String sitemapName, String pageId, URI basePath, String itemName) {
+		RenderedPage renderedPage = getRenderedPage(sitemapName, pageId, basePath);
+		if (renderedPage == null) {
+			return null;
+		}
+		synchronized (renderedPage) {
+			WidgetListBean widgetListBean = renderedPage.widgets.get(itemName);
+			if (widgetListBean == null) {
+				widgetListBean = findWidgets(renderedPage.pageBean, itemName);
+				renderedPage.widgets.put(itemName, widgetListBean);
+			}
+			return widgetListBean;
+		}
+	}
+
+	/**
+	 * Discards the rendered pages which show the given item, as its state has changed.
+	 * 
+	 * @param itemName the name of the changed item
+	 */
+	public void invalidate(String itemName) {
+		version.incrementAndGet();
+		for (Iterator<RenderedPage> iterator = renderedPages.values().iterator(); iterator.hasNext();) {
+			if (iterator.next().itemNames.contains(itemName)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of pages which have been rendered
+	 */
+	public long getRenderCount() {
+		return renderCount.get();
+	}
+
+	/**
+	 * @return the number of requests which have been served by an already rendered page
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	private RenderedPage getRenderedPage(String sitemapName, String pageId, URI basePath) {
+		String key = sitemapName + "/" + pageId + "@" + basePath;
+		RenderedPage renderedPage = renderedPages.get(key);
+		if (renderedPage != null) {
+			hitCount.incrementAndGet();
+			return renderedPage;
+		}
+		// the clients usually ask for a page at the same time, so only one of them renders it,
+		// while other pages can be rendered at the same time
+		Object renderLock = renderLocks.get(key);
+		if (renderLock == null) {
+			renderLock = new Object();
+			Object existingLock = renderLocks.putIfAbsent(key, renderLock);
+			if (existingLock != null) {
+				renderLock = existingLock;
+			}
+		}
+		synchronized (renderLock) {
+			renderedPage = renderedPages.get(key);
+			if (renderedPage != null) {
+				hitCount.incrementAndGet();
+				return renderedPage;
+			}
+			long renderVersion = version.get();
+			PageBean pageBean = renderPage(sitemapName, pageId, basePath);
+			renderCount.incrementAndGet();
+			if (pageBean == null) {
+				return null;
+			}
+			renderedPage = new RenderedPage(pageBean, getItemNames(sitemapName, pageId));
+			// a page which has been rendered while an item has changed might be outdated already
+			if (version.get() == renderVersion) {
+				renderedPages.put(key, renderedPage);
+			}
+			return renderedPage;
+		}
+	}
+
+	private static class RenderedPage {
+		final PageBean pageBean;
+		final Set<String> itemNames;
+		final Map<String, WidgetListBean> widgets = new HashMap<String, WidgetListBean>();
+
+		RenderedPage(PageBean pageBean, Set<String> itemNames) {
+			this.pageBean = pageBean;
+			this.itemNames = itemNames;
+		}
+	}
+
+}
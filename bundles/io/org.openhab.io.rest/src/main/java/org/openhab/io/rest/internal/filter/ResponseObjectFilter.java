@@ -10,7 +10,10 @@ package org.openhab.io.rest.internal.filter;
 
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -37,6 +40,9 @@ public class ResponseObjectFilter implements PerRequestBroadcastFilter {
 
 	private static final Logger logger = LoggerFactory.getLogger(ResponseObjectFilter.class);
 	
+	/** the widgets of the changed items by the rendered page, which is shared by all clients of a page */
+	private final Map<PageBean, Map<String, WidgetListBean>> widgetListBeans = new WeakHashMap<PageBean, Map<String, WidgetListBean>>();
+	
 	@Override
 	public BroadcastAction filter(String broadcasterId, Object originalMessage, Object message) {
 		return new BroadcastAction(message);
@@ -57,7 +63,19 @@ public class ResponseObjectFilter implements PerRequestBroadcastFilter {
 	
 	private Object getSingleResponseObject(PageBean pageBean, Item item, HttpServletRequest request) {
 		if(pageBean!=null) {
-	    	return new WidgetListBean( getItemsOnPage(pageBean.widgets, item));
+			synchronized(widgetListBeans) {
+				Map<String, WidgetListBean> pageWidgets = widgetListBeans.get(pageBean);
+				if(pageWidgets==null) {
+					pageWidgets = new HashMap<String, WidgetListBean>();
+					widgetListBeans.put(pageBean, pageWidgets);
+				}
+				WidgetListBean widgetListBean = pageWidgets.get(item.getName());
+				if(widgetListBean==null) {
+					widgetListBean = new WidgetListBean( getItemsOnPage(pageBean.widgets, item));
+					pageWidgets.put(item.getName(), widgetListBean);
+				}
+				return widgetListBean;
+			}
     	}
 		return null;
 	}
@@ -151,6 +151,7 @@ abstract public class ResourceStateChangeListener {
 			
 			public void stateChanged(final Item item, State oldState, State newState) {
 				lastChange = item;
+				relevantItemChanged(item);
 				broadcaster.broadcast(item);
 //				Collection<AtmosphereResource> resources = broadcaster.getAtmosphereResources();
 //				if(!resources.isEmpty()) {
@@ -248,6 +249,15 @@ abstract public class ResourceStateChangeListener {
 	 */
 	abstract protected Object getSingleResponseObject(Item item, final HttpServletRequest request);
 	
+	/**
+	 * Called whenever the state of a relevant item has changed, right before the
+	 * change is broadcasted to the clients.
+	 * 
+	 * @param item the changed item
+	 */
+	protected void relevantItemChanged(Item item) {
+	}
+	
 	static void StartCacheExecutor(){
 		if(executorFuture == null || executorFuture.isCancelled()){
 			executorFuture = Executors.newSingleThreadScheduledExecutor().scheduleWithFixedDelay(new Runnable() {
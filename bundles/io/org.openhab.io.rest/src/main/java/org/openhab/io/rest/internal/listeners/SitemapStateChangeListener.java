@@ -20,6 +20,7 @@ import javax.ws.rs.core.UriBuilder;
 import org.atmosphere.cpr.BroadcasterConfig;
 import org.openhab.core.items.Item;
 import org.openhab.io.rest.RESTApplication;
+import org.openhab.io.rest.internal.cache.PageBeanCache;
 import org.openhab.io.rest.internal.cache.SingleMessageBroadcastCache;
 import org.openhab.io.rest.internal.resources.ResponseTypeHelper;
 import org.openhab.io.rest.internal.resources.SitemapResource;
@@ -47,6 +48,24 @@ public class SitemapStateChangeListener extends ResourceStateChangeListener {
 
 	private static final Logger logger = LoggerFactory.getLogger(SitemapStateChangeListener.class);
 	
+	/** the page is rendered once for all clients and only again, if a relevant item has changed */
+	private final PageBeanCache pageBeanCache = new PageBeanCache() {
+		@Override
+		protected PageBean renderPage(String sitemapName, String pageId, URI basePath) {
+			return SitemapResource.getPageBean(sitemapName, pageId, basePath);
+		}
+
+		@Override
+		protected Set<String> getItemNames(String sitemapName, String pageId) {
+			return getRelevantItemNames("/" + SitemapResource.PATH_SITEMAPS + "/" + sitemapName + "/" + pageId);
+		}
+
+		@Override
+		protected WidgetListBean findWidgets(PageBean pageBean, String itemName) {
+			return new WidgetListBean(getItemsOnPage(pageBean.widgets, itemName));
+		}
+	};
+	
 	@Override
 	public void configureCache(BroadcasterConfig config){
 		config.setBroadcasterCache(new SingleMessageBroadcastCache());
@@ -65,15 +84,17 @@ public class SitemapStateChangeListener extends ResourceStateChangeListener {
 		
 	@Override
 	protected Object getSingleResponseObject(Item item, HttpServletRequest request) {
-		PageBean pageBean = getPageBean(request);
-		WidgetListBean responseBeam ;
-		if(pageBean!=null) {
-			responseBeam = new WidgetListBean( getItemsOnPage(pageBean.widgets, item));
-			return responseBeam;
-	    	
-    	}
+		String[] page = getPage(request);
+		if(page!=null) {
+			return pageBeanCache.getWidgetListBean(page[0], page[1], getBasePath(request), item.getName());
+		}
 		return null;
 	}
+	
+	@Override
+	protected void relevantItemChanged(Item item) {
+		pageBeanCache.invalidate(item.getName());
+	}
 
 
 	@Override
@@ -129,12 +150,26 @@ public class SitemapStateChangeListener extends ResourceStateChangeListener {
 	}
 	
 	private PageBean getPageBean(HttpServletRequest request){
+		String[] page = getPage(request);
+		if(page!=null) {
+			return pageBeanCache.getPageBean(page[0], page[1], getBasePath(request));
+		}
+		return null;
+	}
+	
+	/**
+	 * Determines the requested page.
+	 * 
+	 * @param request the HttpServletRequest
+	 * @return the name of the sitemap and the id of the page or <code>null</code>, 
+	 * if the request is not a valid page request
+	 */
+	private String[] getPage(HttpServletRequest request){
 		try {
 			String pathInfo = request.getPathInfo();
 			
 			String responseType = (new ResponseTypeHelper()).getResponseType(request);
 			if(responseType!=null) {
-				URI basePath = UriBuilder.fromUri(request.getScheme()+"://"+request.getServerName()+":"+request.getServerPort()+(request.getContextPath().equals("null")?"":request.getContextPath()) + RESTApplication.REST_SERVLET_ALIAS +"/").build();
 				if (pathInfo.startsWith("/" + SitemapResource.PATH_SITEMAPS)) {
 		        	String[] pathSegments = pathInfo.substring(1).split("/");
 		            if(pathSegments.length>=3) {
@@ -142,7 +177,7 @@ public class SitemapStateChangeListener extends ResourceStateChangeListener {
 		            	String pageId = pathSegments[2];
 		            	Sitemap sitemap = (Sitemap) RESTApplication.getModelRepository().getModel(sitemapName + ".sitemap");
 		            	if(sitemap!=null) {
-							return SitemapResource.getPageBean(sitemapName, pageId, basePath);
+							return new String[] { sitemapName, pageId };
 		            	}
 		            }
 		        }
@@ -154,16 +189,20 @@ public class SitemapStateChangeListener extends ResourceStateChangeListener {
 		
 	}
 	
-	private List <WidgetBean> getItemsOnPage(List<WidgetBean> widgets, Item searchItem){
+	private URI getBasePath(HttpServletRequest request) {
+		return UriBuilder.fromUri(request.getScheme()+"://"+request.getServerName()+":"+request.getServerPort()+(request.getContextPath().equals("null")?"":request.getContextPath()) + RESTApplication.REST_SERVLET_ALIAS +"/").build();
+	}
+	
+	private List <WidgetBean> getItemsOnPage(List<WidgetBean> widgets, String itemName){
 		List <WidgetBean> foundWidgets = new ArrayList <WidgetBean>();
 		try{
 		for(WidgetBean widget : widgets) {	
-			if(widget.item !=null && widget.item.name.equals(searchItem.getName())){
+			if(widget.item !=null && widget.item.name.equals(itemName)){
 				foundWidgets.add(widget);
 			}
 			else{
 				if (!widget.widgets.isEmpty()){
-					List <WidgetBean> tmpWidgets =  getItemsOnPage(widget.widgets, searchItem);
+					List <WidgetBean> tmpWidgets =  getItemsOnPage(widget.widgets, itemName);
 					if(!tmpWidgets.isEmpty()) {
 						foundWidgets.addAll(tmpWidgets); }
 					
@@ -171,7 +210,7 @@ public class SitemapStateChangeListener extends ResourceStateChangeListener {
 			}
 			
 			if (widget.linkedPage != null && widget.linkedPage.widgets != null) {
-				List <WidgetBean> tmpWidgets =  getItemsOnPage(widget.linkedPage.widgets, searchItem);
+				List <WidgetBean> tmpWidgets =  getItemsOnPage(widget.linkedPage.widgets, itemName);
 				if(!tmpWidgets.isEmpty()) {
 					foundWidgets.addAll(tmpWidgets); }
 			}			
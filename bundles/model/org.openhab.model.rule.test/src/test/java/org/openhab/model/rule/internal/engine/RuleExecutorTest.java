@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openhab.model.rule.internal.engine.RuleExecutor.BackpressurePolicy;
+
+/**
+ * @since 1.8.0
+ */
+public class RuleExecutorTest {
+
+	@Test
+	public void testAllRunsAreExecuted() {
+		RuleExecutor executor = new RuleExecutor("test", 4, 1000, BackpressurePolicy.QUEUE, false);
+		final AtomicInteger counter = new AtomicInteger();
+		for(int i = 0; i < 500; i++) {
+			executor.execute("rule" + (i % 10), new Runnable() {
+				public void run() {
+					counter.incrementAndGet();
+				}
+			});
+		}
+		executor.shutdown(10000);
+
+		assertEquals(500, counter.get());
+		assertEquals(500, executor.getExecutedCount());
+		assertEquals(0, executor.getQueueDepth());
+	}
+
+	@Test
+	public void testSerializedRunsDoNotOverlap() {
+		RuleExecutor executor = new RuleExecutor("test", 4, 1000, BackpressurePolicy.QUEUE, true);
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger maxActive = new AtomicInteger();
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		for(int i = 0; i < 20; i++) {
+			final int run = i;
+			executor.execute("rule", new Runnable() {
+				public void run() {
+					int current = active.incrementAndGet();
+					if(current > maxActive.get()) {
+						maxActive.set(current);
+					}
+					order.add(run);
+					sleep(2);
+					active.decrementAndGet();
+				}
+			});
+		}
+		executor.shutdown(10000);
+
+		assertEquals(1, maxActive.get());
+		for(int i = 0; i < 20; i++) {
+			assertEquals(i, order.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void testDropOldest() throws InterruptedException {
+		RuleExecutor executor = new RuleExecutor("test", 1, 2, BackpressurePolicy.DROP_OLDEST, false);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+		executor.execute("blocker", new Runnable() {
+			public void run() {
+				started.countDown();
+				await(release);
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		for(String name : new String[] { "a", "b", "c", "d" }) {
+			executor.execute(name, new NamedRun(name, executed));
+		}
+		release.countDown();
+		executor.shutdown(10000);
+
+		assertEquals(2, executor.getRejectedCount());
+		assertEquals(2, executed.size());
+		assertEquals("c", executed.get(0));
+		assertEquals("d", executed.get(1));
+	}
+
+	@Test
+	public void testCoalesce() throws InterruptedException {
+		RuleExecutor executor = new RuleExecutor("test", 1, 3, BackpressurePolicy.COALESCE, false);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+		executor.execute("blocker", new Runnable() {
+			public void run() {
+				started.countDown();
+				await(release);
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		// runs are only coalesced if the queue is full
+		executor.execute("a", new NamedRun("a1", executed));
+		executor.execute("b", new NamedRun("b1", executed));
+		executor.execute("a", new NamedRun("a2", executed));
+		assertEquals(0, executor.getCoalescedCount());
+		// replaces the latest pending run of the rule
+		executor.execute("a", new NamedRun("a3", executed));
+		// there is no pending run of the rule, so the oldest run is dropped
+		executor.execute("c", new NamedRun("c1", executed));
+		release.countDown();
+		executor.shutdown(10000);
+
+		assertEquals(1, executor.getCoalescedCount());
+		assertEquals(1, executor.getRejectedCount());
+		assertEquals(3, executed.size());
+		assertEquals("b1", executed.get(0));
+		assertEquals("a3", executed.get(1));
+		assertEquals("c1", executed.get(2));
+	}
+
+	@Test
+	public void testWorkerSurvivesErrors() {
+		RuleExecutor executor = new RuleExecutor("test", 1, 10, BackpressurePolicy.QUEUE, false);
+		final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+		executor.execute("error", new Runnable() {
+			public void run() {
+				throw new LinkageError("test");
+			}
+		});
+		executor.execute("a", new NamedRun("a", executed));
+		executor.shutdown(10000);
+
+		assertEquals(1, executor.getFailedCount());
+		assertEquals(2, executor.getExecutedCount());
+		assertEquals(1, executed.size());
+	}
+
+	private static class NamedRun implements Runnable {
+		private final String name;
+		private final List<String> executed;
+
+		NamedRun(String name, List<String> executed) {
+			this.name = name;
+			this.executed = executed;
+		}
+
+		public void run() {
+			executed.add(name);
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
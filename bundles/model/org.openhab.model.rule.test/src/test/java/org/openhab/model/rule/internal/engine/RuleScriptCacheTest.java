@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.eclipse.xtext.xbase.interpreter.IEvaluationContext;
+import org.eclipse.xtext.xbase.interpreter.impl.DefaultEvaluationContext;
+import org.junit.Test;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.scriptengine.Script;
+import org.openhab.core.scriptengine.ScriptExecutionException;
+import org.openhab.model.rule.internal.engine.RuleExecutor.BackpressurePolicy;
+import org.openhab.model.rule.internal.engine.RuleScriptCache.PreparedRule;
+import org.openhab.model.rule.rules.Rule;
+import org.openhab.model.rule.rules.RuleModel;
+import org.openhab.model.rule.rules.RulesFactory;
+
+/**
+ * @since 1.8.0
+ */
+@SuppressWarnings("restriction")
+public class RuleScriptCacheTest {
+
+	@Test
+	public void testRulesArePreparedOnce() {
+		CountingCache cache = new CountingCache(null);
+		Rule rule = createRule("test.rules", "rule");
+
+		PreparedRule preparedRule = cache.get(rule);
+		for(int i = 0; i < 10; i++) {
+			assertSame(preparedRule, cache.get(rule));
+		}
+		assertEquals(1, cache.scripts.get());
+		assertEquals(1, cache.contexts.get());
+	}
+
+	@Test
+	public void testInvalidateRemovesRulesOfModel() {
+		CountingCache cache = new CountingCache(null);
+		Rule rule = createRule("test.rules", "rule");
+		Rule otherRule = createRule("other.rules", "rule");
+
+		PreparedRule preparedRule = cache.get(rule);
+		PreparedRule otherPreparedRule = cache.get(otherRule);
+		cache.invalidate("test.rules");
+
+		assertEquals(1, cache.size());
+		assertNotSame(preparedRule, cache.get(rule));
+		assertSame(otherPreparedRule, cache.get(otherRule));
+		assertEquals(3, cache.scripts.get());
+	}
+
+	@Test
+	public void testRulesOfUnloadedModelAreNotKept() {
+		CountingCache cache = new CountingCache(null);
+		Rule rule = createRule(null, "rule");
+
+		assertNotSame(cache.get(rule), cache.get(rule));
+		assertEquals(0, cache.size());
+		assertEquals(2, cache.scripts.get());
+	}
+
+	@Test
+	public void testTriggersUsePreparedRuleUntilInvalidated() {
+		int triggerCount = 100;
+		NumberItem item = new NumberItem("Counter");
+		CountingCache cache = new CountingCache(item);
+		Rule rule = createRule("test.rules", "postUpdate");
+
+		RuleExecutor executor = new RuleExecutor("test", 1, triggerCount, BackpressurePolicy.QUEUE, false);
+		trigger(executor, cache, rule, triggerCount);
+		executor.shutdown(10000);
+
+		assertEquals(triggerCount, executor.getExecutedCount());
+		assertEquals(new DecimalType(triggerCount), item.getState());
+		assertEquals(1, cache.scripts.get());
+		assertEquals(1, cache.contexts.get());
+
+		cache.invalidate("test.rules");
+		executor = new RuleExecutor("test", 1, triggerCount, BackpressurePolicy.QUEUE, false);
+		trigger(executor, cache, rule, triggerCount);
+		executor.shutdown(10000);
+
+		assertEquals(new DecimalType(2 * triggerCount), item.getState());
+		assertEquals(2, cache.scripts.get());
+		assertEquals(2, cache.contexts.get());
+	}
+
+	private static void trigger(RuleExecutor executor, final RuleScriptCache cache, final Rule rule, int count) {
+		for(int i = 0; i < count; i++) {
+			executor.execute(rule, new Runnable() {
+				public void run() {
+					PreparedRule preparedRule = cache.get(rule);
+					RuleEvaluationContext context = new RuleEvaluationContext();
+					context.setGlobalContext(preparedRule.getContext());
+					try {
+						preparedRule.getScript().execute(context);
+					} catch (ScriptExecutionException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Creates a rule of the given rule file or, if the model name is <code>null</code>, 
+	 * of a rule file which has already been unloaded.
+	 */
+	private static Rule createRule(String modelName, String ruleName) {
+		RuleModel model = RulesFactory.eINSTANCE.createRuleModel();
+		Rule rule = RulesFactory.eINSTANCE.createRule();
+		rule.setName(ruleName);
+		model.getRules().add(rule);
+		if(modelName!=null) {
+			Resource resource = new ResourceImpl(URI.createURI(modelName));
+			resource.getContents().add(model);
+		}
+		return rule;
+	}
+
+	/**
+	 * Creates scripts which increment the state of an item, like a rule which
+	 * just calls <code>postUpdate</code>.
+	 */
+	private static class CountingCache extends RuleScriptCache {
+
+		final AtomicInteger scripts = new AtomicInteger();
+		final AtomicInteger contexts = new AtomicInteger();
+		final NumberItem item;
+
+		CountingCache(NumberItem item) {
+			this.item = item;
+		}
+
+		@Override
+		protected Script createScript(Rule rule) {
+			scripts.incrementAndGet();
+			return new Script() {
+				public Object execute() throws ScriptExecutionException {
+					return execute(new DefaultEvaluationContext());
+				}
+
+				public Object execute(IEvaluationContext evaluationContext) throws ScriptExecutionException {
+					if(item!=null) {
+						int value = item.getState() instanceof DecimalType ? ((DecimalType) item.getState()).intValue() : 0;
+						item.setState(new DecimalType(value + 1));
+					}
+					return null;
+				}
+			};
+		}
+
+		@Override
+		protected IEvaluationContext createContext(Rule rule) {
+			contexts.incrementAndGet();
+			return new DefaultEvaluationContext();
+		}
+	}
+
+}
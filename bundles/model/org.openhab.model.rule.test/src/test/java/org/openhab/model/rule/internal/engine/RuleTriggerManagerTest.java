@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes.CHANGE;
+import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes.COMMAND;
+import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes.UPDATE;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.model.rule.rules.ChangedEventTrigger;
+import org.openhab.model.rule.rules.CommandEventTrigger;
+import org.openhab.model.rule.rules.EventTrigger;
+import org.openhab.model.rule.rules.Rule;
+import org.openhab.model.rule.rules.RulesFactory;
+import org.openhab.model.rule.rules.UpdateEventTrigger;
+
+/**
+ * @since 1.8.0
+ */
+public class RuleTriggerManagerTest {
+
+	private RuleTriggerManager manager;
+
+	@Before
+	public void setUp() {
+		manager = new RuleTriggerManager();
+	}
+
+	@Test
+	public void testUpdateTriggers() {
+		SwitchItem item = new SwitchItem("Light");
+		Rule any = createRule("any", updateTrigger("Light", null));
+		Rule on = createRule("on", updateTrigger("Light", "ON"));
+		Rule invalid = createRule("invalid", updateTrigger("Light", "42"));
+		createRule("other", updateTrigger("Door", null));
+
+		assertEquals(list(any, on), sorted(manager.getRules(UPDATE, item, (State) OnOffType.ON), any, on, invalid));
+		assertEquals(list(any), sorted(manager.getRules(UPDATE, item, (State) OnOffType.OFF), any, on, invalid));
+	}
+
+	@Test
+	public void testChangedTriggers() {
+		SwitchItem item = new SwitchItem("Light");
+		Rule any = createRule("any", changedTrigger("Light", null, null));
+		Rule toOn = createRule("toOn", changedTrigger("Light", null, "ON"));
+		Rule fromOn = createRule("fromOn", changedTrigger("Light", "ON", null));
+		Rule offToOn = createRule("offToOn", changedTrigger("Light", "OFF", "ON"));
+
+		assertEquals(list(any, toOn, offToOn), sorted(manager.getRules(CHANGE, item, OnOffType.OFF, OnOffType.ON), any, toOn, fromOn, offToOn));
+		assertEquals(list(any, fromOn), sorted(manager.getRules(CHANGE, item, OnOffType.ON, OnOffType.OFF), any, toOn, fromOn, offToOn));
+	}
+
+	@Test
+	public void testNumericTriggers() {
+		NumberItem item = new NumberItem("Temperature");
+		Rule any = createRule("any", changedTrigger("Temperature", null, null));
+		Rule to20 = createRule("to20", changedTrigger("Temperature", null, "20"));
+		Rule from10 = createRule("from10", changedTrigger("Temperature", "10", null));
+
+		// numbers with different scales are equal
+		assertEquals(list(any, to20, from10), sorted(manager.getRules(CHANGE, item, new DecimalType("10.0"), new DecimalType("20.00")), any, to20, from10));
+		assertEquals(list(any), sorted(manager.getRules(CHANGE, item, new DecimalType("11"), new DecimalType("21")), any, to20, from10));
+	}
+
+	@Test
+	public void testCommandTriggers() {
+		SwitchItem item = new SwitchItem("Light");
+		Rule any = createRule("any", commandTrigger("Light", null));
+		Rule off = createRule("off", commandTrigger("Light", "OFF"));
+
+		assertEquals(list(any, off), sorted(manager.getRules(COMMAND, item, (Command) OnOffType.OFF), any, off));
+		assertEquals(list(any), sorted(manager.getRules(COMMAND, item, (Command) OnOffType.ON), any, off));
+	}
+
+	@Test
+	public void testRulesAddedAfterDispatch() {
+		SwitchItem item = new SwitchItem("Light");
+		Rule first = createRule("first", updateTrigger("Light", "ON"));
+		assertEquals(list(first), sorted(manager.getRules(UPDATE, item, (State) OnOffType.ON), first));
+
+		Rule second = createRule("second", updateTrigger("Light", null));
+		assertEquals(list(first, second), sorted(manager.getRules(UPDATE, item, (State) OnOffType.ON), first, second));
+	}
+
+	@Test
+	public void testDispatchAgainstManyRules() {
+		int itemCount = 50;
+		int ruleCount = 500;
+		int eventCount = 10000;
+
+		SwitchItem[] items = new SwitchItem[itemCount];
+		for(int i = 0; i < itemCount; i++) {
+			items[i] = new SwitchItem("Switch" + i);
+		}
+		for(int i = 0; i < ruleCount; i++) {
+			String itemName = items[i % itemCount].getName();
+			switch(i % 4) {
+				case 0: createRule("rule" + i, updateTrigger(itemName, null)); break;
+				case 1: createRule("rule" + i, updateTrigger(itemName, "ON")); break;
+				case 2: createRule("rule" + i, changedTrigger(itemName, "OFF", "ON")); break;
+				default: createRule("rule" + i, commandTrigger(itemName, "OFF"));
+			}
+		}
+
+		int matches = 0;
+		for(int e = 0; e < eventCount; e++) {
+			SwitchItem item = items[e % itemCount];
+			OnOffType oldState = (e / itemCount) % 2 == 0 ? OnOffType.OFF : OnOffType.ON;
+			OnOffType newState = oldState == OnOffType.ON ? OnOffType.OFF : OnOffType.ON;
+			matches += count(manager.getRules(COMMAND, item, (Command) newState));
+			matches += count(manager.getRules(UPDATE, item, (State) newState));
+			matches += count(manager.getRules(CHANGE, item, oldState, newState));
+		}
+
+		// every item has 10 rules, half of the events are switching on
+		int rulesPerItem = ruleCount / itemCount;
+		int expected = 0;
+		for(int e = 0; e < eventCount; e++) {
+			int item = e % itemCount;
+			boolean on = (e / itemCount) % 2 == 0;
+			for(int k = 0; k < rulesPerItem; k++) {
+				int kind = (item + k * itemCount) % 4;
+				if(kind == 0 || (on && (kind == 1 || kind == 2)) || (!on && kind == 3)) {
+					expected++;
+				}
+			}
+		}
+		assertEquals(expected, matches);
+	}
+
+	private Rule createRule(String name, EventTrigger trigger) {
+		Rule rule = RulesFactory.eINSTANCE.createRule();
+		rule.setName(name);
+		rule.getEventtrigger().add(trigger);
+		manager.addRule(rule);
+		return rule;
+	}
+
+	private static UpdateEventTrigger updateTrigger(String item, String state) {
+		UpdateEventTrigger trigger = RulesFactory.eINSTANCE.createUpdateEventTrigger();
+		trigger.setItem(item);
+		trigger.setState(state);
+		return trigger;
+	}
+
+	private static ChangedEventTrigger changedTrigger(String item, String oldState, String newState) {
+		ChangedEventTrigger trigger = RulesFactory.eINSTANCE.createChangedEventTrigger();
+		trigger.setItem(item);
+		trigger.setOldState(oldState);
+		trigger.setNewState(newState);
+		return trigger;
+	}
+
+	private static CommandEventTrigger commandTrigger(String item, String command) {
+		CommandEventTrigger trigger = RulesFactory.eINSTANCE.createCommandEventTrigger();
+		trigger.setItem(item);
+		trigger.setCommand(command);
+		return trigger;
+	}
+
+	private static List<Rule> list(Rule... rules) {
+		List<Rule> result = new ArrayList<Rule>();
+		for(Rule rule : rules) {
+			result.add(rule);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the given rules in the order of the <code>order</code> arguments, as the
+	 * order of the rules of an item is not defined.
+	 */
+	private static List<Rule> sorted(Iterable<Rule> rules, Rule... order) {
+		List<Rule> actual = new ArrayList<Rule>();
+		for(Rule rule : rules) {
+			actual.add(rule);
+		}
+		List<Rule> result = new ArrayList<Rule>();
+		for(Rule rule : order) {
+			if(actual.remove(rule)) {
+				result.add(rule);
+			}
+		}
+		// rules which are returned but not expected
+		result.addAll(actual);
+		return result;
+	}
+
+	private static int count(Iterable<Rule> rules) {
+		int count = 0;
+		for(@SuppressWarnings("unused") Rule rule : rules) {
+			count++;
+		}
+		return count;
+	}
+
+}
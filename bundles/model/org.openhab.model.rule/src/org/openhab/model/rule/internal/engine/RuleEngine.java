@@ -8,8 +8,6 @@
  */
 package org.openhab.model.rule.internal.engine;
 
-import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
-import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
 import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes.CHANGE;
 import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes.COMMAND;
 import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes.SHUTDOWN;
@@ -18,10 +16,14 @@ import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerT
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Dictionary;
 import java.util.List;
 
+import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.xtext.naming.QualifiedName;
+import org.eclipse.xtext.xbase.interpreter.IEvaluationContext;
+import org.openhab.core.events.ItemEvent;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -31,14 +33,17 @@ import org.openhab.core.items.StateChangeListener;
 import org.openhab.core.scriptengine.Script;
 import org.openhab.core.scriptengine.ScriptEngine;
 import org.openhab.core.scriptengine.ScriptExecutionException;
-import org.openhab.core.scriptengine.ScriptExecutionThread;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.EventType;
 import org.openhab.core.types.State;
 import org.openhab.model.core.ModelRepository;
 import org.openhab.model.core.ModelRepositoryChangeListener;
 import org.openhab.model.rule.rules.Rule;
+import org.openhab.model.rule.internal.engine.RuleExecutor.BackpressurePolicy;
+import org.openhab.model.rule.internal.engine.RuleScriptCache.PreparedRule;
 import org.openhab.model.rule.rules.RuleModel;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -49,6 +54,7 @@ import com.google.common.collect.Lists;
 /**
  * This class is the core of the openHAB rule engine. It listens to changes to the rules folder, evaluates the trigger
  * conditions of the rules and schedules them for execution dependent on their triggering conditions.
+ * <p>Triggered rules are executed by a bounded pool of worker threads, see {@link RuleExecutor}.</p>
  * 
  * @author Kai Kreuzer
  * @since 0.9.0
@@ -56,18 +62,48 @@ import com.google.common.collect.Lists;
  */
 @SuppressWarnings("restriction")
 public class RuleEngine implements EventHandler, ItemRegistryChangeListener, StateChangeListener,
-		ModelRepositoryChangeListener {
+		ModelRepositoryChangeListener, ManagedService {
 
 	static private final Logger logger = LoggerFactory.getLogger(RuleEngine.class);
 
+	private static final String CONFIG_THREADS = "threads";
+	private static final String CONFIG_QUEUE_SIZE = "queuesize";
+	private static final String CONFIG_POLICY = "policy";
+	private static final String CONFIG_SERIALIZE = "serialize";
+
+	/** the maximum time to wait for pending rules when the executor is stopped */
+	private static final long SHUTDOWN_TIMEOUT = 10000L;
+
 	private ItemRegistry itemRegistry;
 	private ModelRepository modelRepository;
 	private ScriptEngine scriptEngine;
 
 	private RuleTriggerManager triggerManager;
 
+	/** the executor for the triggered rules */
+	private volatile RuleExecutor executor;
+
+	/** the scripts and contexts of the rules, which are kept until their rule file changes */
+	private final RuleScriptCache scriptCache = new RuleScriptCache() {
+		@Override
+		protected Script createScript(Rule rule) {
+			return scriptEngine.newScriptFromXExpression(rule.getScript());
+		}
+
+		@Override
+		protected IEvaluationContext createContext(Rule rule) {
+			return RuleContextHelper.getContext(rule);
+		}
+	};
+
+	private int threads = 20;
+	private int queueSize = 1000;
+	private BackpressurePolicy policy = BackpressurePolicy.QUEUE;
+	private boolean serialize = false;
+
 	public void activate() {
 		triggerManager = new RuleTriggerManager();
+		startExecutor();
 
 		if (!isEnabled()) {
 			logger.info("Rule engine is disabled.");
@@ -99,6 +135,72 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		executeRules(triggerManager.getRules(SHUTDOWN));
 		triggerManager.clearAll();
 		triggerManager = null;
+		stopExecutor();
+		scriptCache.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("rawtypes")
+	public void updated(Dictionary config) throws ConfigurationException {
+		int threads = 20;
+		int queueSize = 1000;
+		BackpressurePolicy policy = BackpressurePolicy.QUEUE;
+		boolean serialize = false;
+
+		if (config != null) {
+			try {
+				String threadsString = (String) config.get(CONFIG_THREADS);
+				if (StringUtils.isNotBlank(threadsString)) {
+					threads = Integer.parseInt(threadsString.trim());
+				}
+				String queueSizeString = (String) config.get(CONFIG_QUEUE_SIZE);
+				if (StringUtils.isNotBlank(queueSizeString)) {
+					queueSize = Integer.parseInt(queueSizeString.trim());
+				}
+			} catch (NumberFormatException e) {
+				throw new ConfigurationException(null, "Invalid number in rule engine configuration: " + e.getMessage());
+			}
+			if (threads < 1 || queueSize < 1) {
+				throw new ConfigurationException(null, "The number of threads and the queue size must be positive.");
+			}
+			String policyString = (String) config.get(CONFIG_POLICY);
+			if (StringUtils.isNotBlank(policyString)) {
+				try {
+					policy = BackpressurePolicy.valueOf(policyString.trim().toUpperCase().replace('-', '_'));
+				} catch (IllegalArgumentException e) {
+					throw new ConfigurationException(CONFIG_POLICY, "Unknown policy '" + policyString
+							+ "', valid values are 'queue', 'drop_oldest' and 'coalesce'.");
+				}
+			}
+			serialize = "true".equalsIgnoreCase((String) config.get(CONFIG_SERIALIZE));
+		}
+
+		this.threads = threads;
+		this.queueSize = queueSize;
+		this.policy = policy;
+		this.serialize = serialize;
+		RuleExecutor oldExecutor = executor;
+		if (oldExecutor != null) {
+			// start the new executor first, so that no triggered rule gets lost
+			startExecutor();
+			oldExecutor.shutdown(SHUTDOWN_TIMEOUT);
+		}
+	}
+
+	private void startExecutor() {
+		executor = new RuleExecutor("Rule engine", threads, queueSize, policy, serialize);
+		logger.debug("Executing rules with {} threads, queue size {}, policy {} and {}serialized runs.", new Object[] {
+				threads, queueSize, policy, serialize ? "" : "non-" });
+	}
+
+	private void stopExecutor() {
+		RuleExecutor oldExecutor = executor;
+		executor = null;
+		if (oldExecutor != null) {
+			oldExecutor.shutdown(SHUTDOWN_TIMEOUT);
+		}
 	}
 
 	public void setItemRegistry(ItemRegistry itemRegistry) {
@@ -123,10 +225,12 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 
 	public void setScriptEngine(ScriptEngine scriptEngine) {
 		this.scriptEngine = scriptEngine;
+		scriptCache.clear();
 	}
 
 	public void unsetScriptEngine(ScriptEngine scriptEngine) {
 		this.scriptEngine = null;
+		scriptCache.clear();
 	}
 
 	/**
@@ -214,17 +318,16 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 	 * {@inheritDoc}
 	 */
 	public void handleEvent(Event event) {
-		String itemName = (String) event.getProperty("item");
-
-		String topic = event.getTopic();
-		String[] topicParts = topic.split(TOPIC_SEPERATOR);
-
-		if (!(topicParts.length > 2) || !topicParts[0].equals(TOPIC_PREFIX)) {
-			return; // we have received an event with an invalid topic
+		if (event instanceof ItemEvent) {
+			ItemEvent itemEvent = (ItemEvent) event;
+			if (itemEvent.getEventType() == EventType.COMMAND) {
+				receiveCommand(itemEvent.getItemName(), itemEvent.getCommand());
+			}
+			return;
 		}
-		String operation = topicParts[1];
 
-		if (operation.equals(EventType.COMMAND.toString())) {
+		if (ItemEvent.getEventType(event) == EventType.COMMAND) {
+			String itemName = (String) event.getProperty("item");
 			Command command = (Command) event.getProperty("command");
 			if (command != null)
 				receiveCommand(itemName, command);
@@ -236,6 +339,9 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 			if (isEnabled() && modelName.endsWith("rules")) {
 				RuleModel model = (RuleModel) modelRepository.getModel(modelName);
 
+				// the prepared scripts of this file are outdated now
+				scriptCache.invalidate(modelName);
+
 				// remove the rules from the trigger sets
 				if (type == org.openhab.model.core.EventType.REMOVED
 						|| type == org.openhab.model.core.EventType.MODIFIED) {
@@ -260,11 +366,11 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 
 			for (Rule rule : startupRules) {
 				try {
-					Script script = scriptEngine.newScriptFromXExpression(rule.getScript());
+					PreparedRule preparedRule = scriptCache.get(rule);
 					logger.debug("Executing startup rule '{}'", rule.getName());
 					RuleEvaluationContext context = new RuleEvaluationContext();
-					context.setGlobalContext(RuleContextHelper.getContext(rule));
-					script.execute(context);
+					context.setGlobalContext(preparedRule.getContext());
+					preparedRule.getScript().execute(context);
 					executedRules.add(rule);
 				} catch (ScriptExecutionException e) {
 					String causeMessage = getCauseMessage(e);
@@ -295,22 +401,18 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		return message;
 	}
 
-	protected synchronized void executeRule(Rule rule) {
+	protected void executeRule(Rule rule) {
 		executeRule(rule, new RuleEvaluationContext());
 	}
 
-	protected synchronized void executeRule(Rule rule, RuleEvaluationContext context) {
-		Script script = scriptEngine.newScriptFromXExpression(rule.getScript());
-
-		logger.debug("Executing rule '{}'", rule.getName());
-
-		context.setGlobalContext(RuleContextHelper.getContext(rule));
-
-		ScriptExecutionThread thread = new ScriptExecutionThread(rule.getName(), script, context);
-		thread.start();
+	protected void executeRule(Rule rule, RuleEvaluationContext context) {
+		RuleExecutor executor = this.executor;
+		if (executor != null) {
+			executor.execute(rule, new RuleRun(rule, context));
+		}
 	}
 
-	protected synchronized void executeRules(Iterable<Rule> rules) {
+	protected void executeRules(Iterable<Rule> rules) {
 		for (Rule rule : rules) {
 			executeRule(rule);
 		}
@@ -325,4 +427,44 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		return !"true".equalsIgnoreCase(System.getProperty("noRules"));
 	}
 
+	/**
+	 * A single execution of a rule, which is run by the {@link RuleExecutor}.
+	 */
+	private class RuleRun implements Runnable {
+
+		private final Rule rule;
+		private final RuleEvaluationContext context;
+
+		RuleRun(Rule rule, RuleEvaluationContext context) {
+			this.rule = rule;
+			this.context = context;
+		}
+
+		public void run() {
+			if (scriptEngine == null) {
+				return;
+			}
+			PreparedRule preparedRule = scriptCache.get(rule);
+
+			logger.debug("Executing rule '{}'", rule.getName());
+
+			context.setGlobalContext(preparedRule.getContext());
+			try {
+				preparedRule.getScript().execute(context);
+			} catch (ScriptExecutionException e) {
+				String msg = e.getCause().getMessage();
+				if (msg == null) {
+					logger.error("Error during the execution of rule '{}'", rule.getName(), e.getCause());
+				} else {
+					logger.error("Error during the execution of rule '{}': {}", new String[] { rule.getName(), msg });
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return rule.getName();
+		}
+	}
+
 }
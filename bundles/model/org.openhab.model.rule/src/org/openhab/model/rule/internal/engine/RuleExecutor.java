@@ -0,0 +1,398 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of worker threads which executes the triggered rules. Every run
+ * belongs to a key (the rule), which is used for coalescing runs and, if enabled,
+ * for making sure that the runs of the same rule are never executed concurrently.
+ * Serialized runs of a rule are executed in the order in which they have been
+ * triggered, while other rules can still be executed by the remaining workers.
+ * <p>If the queue of pending runs is full, the {@link BackpressurePolicy} decides
+ * what happens with a new run.</p>
+ *
+ * @since 1.8.0
+ */
+public class RuleExecutor {
+
+	private static final Logger logger = LoggerFactory.getLogger(RuleExecutor.class);
+
+	/** the interval in which the executor statistics are logged */
+	private static final long STATISTICS_INTERVAL = 60000L;
+
+	/**
+	 * Defines how new runs are handled if the queue of pending runs is full.
+	 */
+	public enum BackpressurePolicy {
+		/** the triggering thread waits until there is room in the queue */
+		QUEUE,
+		/** the oldest pending run is dropped */
+		DROP_OLDEST,
+		/** a pending run of the same rule is replaced by the new run, otherwise the oldest pending run is dropped */
+		COALESCE
+	}
+
+	private final String name;
+
+	private final int queueSize;
+
+	private final BackpressurePolicy policy;
+
+	private final boolean serialize;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** signalled whenever a pending run might have become executable */
+	private final Condition runnable = lock.newCondition();
+
+	/** signalled whenever a pending run has been taken from the queue */
+	private final Condition notFull = lock.newCondition();
+
+	private final LinkedList<PendingRun> pendingRuns = new LinkedList<PendingRun>();
+
+	/** the latest pending run of every key, only used if runs are coalesced */
+	private final Map<Object, PendingRun> pendingRunsByKey = new HashMap<Object, PendingRun>();
+
+	/** the keys which are currently executed, only used if runs are serialized */
+	private final Set<Object> activeKeys = new HashSet<Object>();
+
+	private final List<Worker> workers;
+
+	private volatile boolean running = true;
+
+	private long lastStatistics = System.currentTimeMillis();
+
+	private final AtomicLong executedCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong coalescedCount = new AtomicLong();
+	private final AtomicLong blockedCount = new AtomicLong();
+	private final AtomicLong totalRunTime = new AtomicLong();
+	private final AtomicLong maxRunTime = new AtomicLong();
+
+	/**
+	 * Creates a new executor and starts its worker threads.
+	 *
+	 * @param name the name of the executor, which is used for naming the worker threads
+	 * @param threads the number of worker threads
+	 * @param queueSize the maximum number of pending runs
+	 * @param policy the policy to apply if the queue is full
+	 * @param serialize true, if the runs of the same key must not be executed concurrently
+	 */
+	public RuleExecutor(String name, int threads, int queueSize, BackpressurePolicy policy, boolean serialize) {
+		this.name = name;
+		this.queueSize = queueSize;
+		this.policy = policy;
+		this.serialize = serialize;
+		this.workers = new ArrayList<Worker>(threads);
+		for(int i = 1; i <= threads; i++) {
+			Worker worker = new Worker(name + " " + i);
+			workers.add(worker);
+			worker.start();
+		}
+	}
+
+	/**
+	 * Queues a run for being executed by one of the workers.
+	 *
+	 * @param key the key of the run, i.e. the rule
+	 * @param task the task to execute
+	 * @return true, if the run has been accepted; it might still be dropped or coalesced
+	 * 		   later, if the queue is full
+	 */
+	public boolean execute(Object key, Runnable task) {
+		lock.lock();
+		try {
+			if(!running) {
+				rejectedCount.incrementAndGet();
+				logger.debug("Rule executor '{}' has been shut down, discarding run of '{}'.", name, task);
+				return false;
+			}
+			boolean blocked = false;
+			while(pendingRuns.size() >= queueSize) {
+				if(policy==BackpressurePolicy.COALESCE) {
+					PendingRun pendingRun = pendingRunsByKey.get(key);
+					if(pendingRun!=null) {
+						pendingRun.task = task;
+						coalescedCount.incrementAndGet();
+						return true;
+					}
+				}
+				if(policy==BackpressurePolicy.QUEUE) {
+					if(isWorkerThread()) {
+						// a rule which triggers other rules must not wait for itself
+						break;
+					}
+					if(!blocked) {
+						blocked = true;
+						blockedCount.incrementAndGet();
+					}
+					try {
+						notFull.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						rejectedCount.incrementAndGet();
+						return false;
+					}
+					if(!running) {
+						rejectedCount.incrementAndGet();
+						return false;
+					}
+				} else {
+					PendingRun droppedRun = pendingRuns.removeFirst();
+					if(pendingRunsByKey.get(droppedRun.key)==droppedRun) {
+						pendingRunsByKey.remove(droppedRun.key);
+					}
+					rejectedCount.incrementAndGet();
+					logger.debug("Queue of rule executor '{}' is full, dropping run of '{}'.", name, droppedRun.task);
+				}
+			}
+			PendingRun run = new PendingRun(key, task);
+			pendingRuns.add(run);
+			if(policy==BackpressurePolicy.COALESCE) {
+				pendingRunsByKey.put(key, run);
+			}
+			runnable.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the workers after all pending runs have been executed.
+	 *
+	 * @param timeout the maximum time in milliseconds to wait for the pending runs
+	 */
+	public void shutdown(long timeout) {
+		lock.lock();
+		try {
+			running = false;
+			runnable.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		long deadline = System.currentTimeMillis() + timeout;
+		try {
+			for(Worker worker : workers) {
+				long remaining = deadline - System.currentTimeMillis();
+				if(remaining > 0 && worker!=Thread.currentThread()) {
+					worker.join(remaining);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		lock.lock();
+		try {
+			if(!pendingRuns.isEmpty()) {
+				logger.warn("Discarding {} pending runs of rule executor '{}'.", pendingRuns.size(), name);
+				rejectedCount.addAndGet(pendingRuns.size());
+				pendingRuns.clear();
+				pendingRunsByKey.clear();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of runs which wait for being executed
+	 */
+	public int getQueueDepth() {
+		lock.lock();
+		try {
+			return pendingRuns.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of runs which have been executed
+	 */
+	public long getExecutedCount() {
+		return executedCount.get();
+	}
+
+	/**
+	 * @return the number of runs which have thrown an exception
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	/**
+	 * @return the number of runs which have been dropped
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * @return the number of runs which have been merged into a later run of the same rule
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return the number of times a triggering thread had to wait, as the queue was full
+	 */
+	public long getBlockedCount() {
+		return blockedCount.get();
+	}
+
+	/**
+	 * @return the average run time in milliseconds
+	 */
+	public long getAverageRunTime() {
+		long count = executedCount.get();
+		return count > 0 ? totalRunTime.get() / count : 0;
+	}
+
+	/**
+	 * @return the maximum run time in milliseconds
+	 */
+	public long getMaxRunTime() {
+		return maxRunTime.get();
+	}
+
+	private boolean isWorkerThread() {
+		Thread thread = Thread.currentThread();
+		return thread instanceof Worker && workers.contains(thread);
+	}
+
+	/**
+	 * Waits for a pending run which can be executed and removes it from the queue.
+	 *
+	 * @return the run to execute or <code>null</code>, if the executor has been shut down
+	 * 		   and there are no more pending runs
+	 */
+	private PendingRun take() {
+		lock.lock();
+		try {
+			while(true) {
+				PendingRun run = nextRun();
+				if(run!=null) {
+					if(pendingRunsByKey.get(run.key)==run) {
+						pendingRunsByKey.remove(run.key);
+					}
+					if(serialize) {
+						activeKeys.add(run.key);
+					}
+					notFull.signal();
+					return run;
+				}
+				if(!running && pendingRuns.isEmpty()) {
+					return null;
+				}
+				try {
+					runnable.await(STATISTICS_INTERVAL, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					// check the state again
+				}
+				logStatistics();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private PendingRun nextRun() {
+		Iterator<PendingRun> it = pendingRuns.iterator();
+		while(it.hasNext()) {
+			PendingRun run = it.next();
+			if(!serialize || !activeKeys.contains(run.key)) {
+				it.remove();
+				return run;
+			}
+		}
+		return null;
+	}
+
+	private void complete(PendingRun run, long runTime) {
+		executedCount.incrementAndGet();
+		totalRunTime.addAndGet(runTime);
+		if(runTime > maxRunTime.get()) {
+			maxRunTime.set(runTime);
+		}
+		if(serialize) {
+			lock.lock();
+			try {
+				activeKeys.remove(run.key);
+				runnable.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private void logStatistics() {
+		long now = System.currentTimeMillis();
+		if(now - lastStatistics >= STATISTICS_INTERVAL) {
+			lastStatistics = now;
+			logger.debug("Rule executor '{}': depth={}, executed={}, failed={}, rejected={}, coalesced={}, blocked={}, avgRunTime={}ms, maxRunTime={}ms",
+					new Object[] { name, pendingRuns.size(), executedCount.get(), failedCount.get(), rejectedCount.get(),
+						coalescedCount.get(), blockedCount.get(), getAverageRunTime(), maxRunTime.get() });
+		}
+	}
+
+	private static class PendingRun {
+		final Object key;
+		Runnable task;
+
+		PendingRun(Object key, Runnable task) {
+			this.key = key;
+			this.task = task;
+		}
+	}
+
+	private class Worker extends Thread {
+
+		Worker(String name) {
+			super(name);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			PendingRun run;
+			while((run = take())!=null) {
+				long start = System.currentTimeMillis();
+				try {
+					run.task.run();
+				} catch (Throwable t) {
+					failedCount.incrementAndGet();
+					logger.error("Error during the execution of '{}'", run.task, t);
+				} finally {
+					complete(run, System.currentTimeMillis() - start);
+				}
+			}
+		}
+	}
+
+}
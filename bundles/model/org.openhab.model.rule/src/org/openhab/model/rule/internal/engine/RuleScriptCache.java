@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.xtext.xbase.interpreter.IEvaluationContext;
+import org.openhab.core.scriptengine.Script;
+import org.openhab.model.rule.rules.Rule;
+
+/**
+ * Keeps the prepared {@link Script} and the global evaluation context of every
+ * rule which has been executed, so that they do not have to be created again
+ * for every trigger. The entries of a rule file have to be invalidated whenever
+ * the file is modified or removed. Rules of a file which has already been unloaded
+ * are not kept, as their entries could never be invalidated.
+ *
+ * @since 1.8.0
+ */
+@SuppressWarnings("restriction")
+public abstract class RuleScriptCache {
+
+	private final ConcurrentMap<Rule, PreparedRule> preparedRules = new ConcurrentHashMap<Rule, PreparedRule>();
+
+	/**
+	 * Creates the script for the given rule.
+	 *
+	 * @param rule the rule to create the script for
+	 * @return the script
+	 */
+	protected abstract Script createScript(Rule rule);
+
+	/**
+	 * Creates the global evaluation context, which is shared by all rules of a rule file.
+	 *
+	 * @param rule the rule to get the context for
+	 * @return the evaluation context
+	 */
+	protected abstract IEvaluationContext createContext(Rule rule);
+
+	/**
+	 * Returns the prepared script and context of a rule and prepares them, if this
+	 * has not been done before.
+	 *
+	 * @param rule the rule to execute
+	 * @return the prepared rule
+	 */
+	public PreparedRule get(Rule rule) {
+		PreparedRule preparedRule = preparedRules.get(rule);
+		if (preparedRule == null) {
+			Resource resource = rule.eResource();
+			if (resource == null) {
+				return new PreparedRule(null, createScript(rule), createContext(rule));
+			}
+			preparedRule = new PreparedRule(resource.getURI().path(), createScript(rule), createContext(rule));
+			PreparedRule existingRule = preparedRules.putIfAbsent(rule, preparedRule);
+			if (existingRule != null) {
+				preparedRule = existingRule;
+			}
+		}
+		return preparedRule;
+	}
+
+	/**
+	 * Removes the prepared rules of the given rule file.
+	 *
+	 * @param modelName the name of the rule file
+	 */
+	public void invalidate(String modelName) {
+		Iterator<PreparedRule> it = preparedRules.values().iterator();
+		while (it.hasNext()) {
+			if (modelName.equals(it.next().modelName)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes all prepared rules.
+	 */
+	public void clear() {
+		preparedRules.clear();
+	}
+
+	/**
+	 * @return the number of prepared rules
+	 */
+	public int size() {
+		return preparedRules.size();
+	}
+
+	/**
+	 * The script and the global context of a rule.
+	 */
+	public static class PreparedRule {
+
+		private final String modelName;
+		private final Script script;
+		private final IEvaluationContext context;
+
+		PreparedRule(String modelName, Script script, IEvaluationContext context) {
+			this.modelName = modelName;
+			this.script = script;
+			this.context = context;
+		}
+
+		public Script getScript() {
+			return script;
+		}
+
+		public IEvaluationContext getContext() {
+			return context;
+		}
+	}
+
+}
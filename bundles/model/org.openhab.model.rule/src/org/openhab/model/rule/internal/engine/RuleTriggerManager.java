@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.openhab.core.items.Item;
@@ -86,6 +87,11 @@ public class RuleTriggerManager {
 	private List<Rule> systemShutdownTriggeredRules = Lists.newArrayList();
 	private List<Rule> timerEventTriggeredRules = Lists.newArrayList();
 
+	// compiled triggers per item name, which are looked up for every event
+	private Map<String, TriggerIndex> updateTriggerIndexes = new ConcurrentHashMap<String, TriggerIndex>();
+	private Map<String, TriggerIndex> changedTriggerIndexes = new ConcurrentHashMap<String, TriggerIndex>();
+	private Map<String, TriggerIndex> commandTriggerIndexes = new ConcurrentHashMap<String, TriggerIndex>();
+
 	// the scheduler used for timer events
 	private Scheduler scheduler;
 	
@@ -166,83 +172,149 @@ public class RuleTriggerManager {
 	}
 
 	private Iterable<Rule> internalGetRules(TriggerTypes triggerType, Item item, Type oldType, Type newType) {
-		List<Rule> result = Lists.newArrayList();
-		Iterable<Rule> rules = getAllRules(triggerType, item.getName());
-		if(rules==null) {
-			rules = Lists.newArrayList();
-		}
 		switch(triggerType) {
 		case STARTUP:  return systemStartupTriggeredRules;
 		case SHUTDOWN: return systemShutdownTriggeredRules;
 		case TIMER :   return timerEventTriggeredRules;
 		case UPDATE:   
 			if(newType instanceof State) {
-				State state = (State) newType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof UpdateEventTrigger) {
-							UpdateEventTrigger ut = (UpdateEventTrigger) t;
-							if(ut.getItem().equals(item.getName())) {
-								if(ut.getState()!=null) {
-									State triggerState = TypeParser.parseState(item.getAcceptedDataTypes(), ut.getState());
-									if(!state.equals(triggerState)) {
-										continue;
-									}
-								}
-								result.add(rule);
-							}
-						}
-					}
-				}
+				return getTriggerIndex(triggerType, item).getRules(null, newType);
 			}
 			break;
 		case CHANGE:
 			if(newType instanceof State && oldType instanceof State) {
-				State newState = (State) newType;
-				State oldState = (State) oldType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof ChangedEventTrigger) {
-							ChangedEventTrigger ct = (ChangedEventTrigger) t;						
-							if(ct.getItem().equals(item.getName())) {
-								if(ct.getOldState()!=null) {
-									State triggerOldState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getOldState());
-									if(!oldState.equals(triggerOldState)) {
-										continue;
-									}								
-								}
-								if(ct.getNewState()!=null) {
-									State triggerNewState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getNewState());
-									if(!newState.equals(triggerNewState)) {
-										continue;
-									}								
-								}
-								result.add(rule);
-							}
+				return getTriggerIndex(triggerType, item).getRules(oldType, newType);
+			}
+			break;
+		case COMMAND:  
+			if(newType instanceof Command) {
+				return getTriggerIndex(triggerType, item).getRules(null, newType);
+			}
+			break;
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Returns the compiled triggers of the given type for an item. The index is compiled
+	 * on the first event of the item and kept until the rules or the types accepted by the
+	 * item change.
+	 * 
+	 * @param triggerType one of UPDATE, CHANGE or COMMAND
+	 * @param item the item which has received the event
+	 * @return the trigger index for the item
+	 */
+	private TriggerIndex getTriggerIndex(TriggerTypes triggerType, Item item) {
+		Map<String, TriggerIndex> indexes = getTriggerIndexes(triggerType);
+		TriggerIndex index = indexes.get(item.getName());
+		if(index==null || !index.isCompiledFor(getAcceptedTypes(triggerType, item))) {
+			index = compileTriggerIndex(triggerType, item);
+		}
+		return index;
+	}
+
+	private synchronized TriggerIndex compileTriggerIndex(TriggerTypes triggerType, Item item) {
+		List<?> acceptedTypes = getAcceptedTypes(triggerType, item);
+		List<CompiledTrigger> triggers = Lists.newArrayList();
+		Iterable<Rule> rules = getAllRules(triggerType, item.getName());
+		if(rules!=null) {
+			for(Rule rule : rules) {
+				for(EventTrigger t : rule.getEventtrigger()) {
+					CompiledTrigger trigger = compileTrigger(triggerType, item, rule, t);
+					if(trigger!=null) {
+						triggers.add(trigger);
+					}
+				}
+			}
+		}
+		TriggerIndex index = new TriggerIndex(acceptedTypes, triggers);
+		getTriggerIndexes(triggerType).put(item.getName(), index);
+		return index;
+	}
+
+	/**
+	 * Parses the values of an event trigger with the types accepted by the item.
+	 * 
+	 * @return the compiled trigger or <code>null</code>, if the trigger does not
+	 * 		   belong to the item or can never match
+	 */
+	private CompiledTrigger compileTrigger(TriggerTypes triggerType, Item item, Rule rule, EventTrigger t) {
+		switch(triggerType) {
+		case UPDATE:
+			if (t instanceof UpdateEventTrigger) {
+				UpdateEventTrigger ut = (UpdateEventTrigger) t;
+				if(ut.getItem().equals(item.getName())) {
+					State triggerState = null;
+					if(ut.getState()!=null) {
+						triggerState = TypeParser.parseState(item.getAcceptedDataTypes(), ut.getState());
+						if(triggerState==null) {
+							return null;
 						}
 					}
+					return new CompiledTrigger(rule, null, triggerState);
 				}
 			}
 			break;
-		case COMMAND:  
-			if(newType instanceof Command) {
-				Command command = (Command) newType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof CommandEventTrigger) {
-							CommandEventTrigger ct = (CommandEventTrigger) t;
-							Command triggerCommand = TypeParser.parseCommand(item.getAcceptedCommandTypes(), ct.getCommand());
-							if(ct.getItem().equals(item.getName()) &&
-									(triggerCommand==null || command.equals(triggerCommand))) {
-								result.add(rule);
-							}
+		case CHANGE:
+			if (t instanceof ChangedEventTrigger) {
+				ChangedEventTrigger ct = (ChangedEventTrigger) t;
+				if(ct.getItem().equals(item.getName())) {
+					State triggerOldState = null;
+					if(ct.getOldState()!=null) {
+						triggerOldState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getOldState());
+						if(triggerOldState==null) {
+							return null;
+						}
+					}
+					State triggerNewState = null;
+					if(ct.getNewState()!=null) {
+						triggerNewState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getNewState());
+						if(triggerNewState==null) {
+							return null;
 						}
 					}
+					return new CompiledTrigger(rule, triggerOldState, triggerNewState);
+				}
+			}
+			break;
+		case COMMAND:
+			if (t instanceof CommandEventTrigger) {
+				CommandEventTrigger ct = (CommandEventTrigger) t;
+				if(ct.getItem().equals(item.getName())) {
+					// a command which cannot be parsed matches any command
+					Command triggerCommand = TypeParser.parseCommand(item.getAcceptedCommandTypes(), ct.getCommand());
+					return new CompiledTrigger(rule, null, triggerCommand);
 				}
 			}
 			break;
+		default:
+		}
+		return null;
+	}
+
+	private Map<String, TriggerIndex> getTriggerIndexes(TriggerTypes triggerType) {
+		switch(triggerType) {
+			case UPDATE:   return updateTriggerIndexes;
+			case CHANGE:   return changedTriggerIndexes;
+			default:       return commandTriggerIndexes;
+		}
+	}
+
+	private static List<?> getAcceptedTypes(TriggerTypes triggerType, Item item) {
+		return triggerType==COMMAND ? item.getAcceptedCommandTypes() : item.getAcceptedDataTypes();
+	}
+
+	/**
+	 * Drops the compiled triggers of all items for the given trigger type, so that they
+	 * are compiled again on the next event.
+	 */
+	private void invalidate(TriggerTypes type) {
+		switch(type) {
+			case UPDATE:   	updateTriggerIndexes.clear(); break;
+			case CHANGE:   	changedTriggerIndexes.clear(); break;
+			case COMMAND:  	commandTriggerIndexes.clear(); break;
+			default:
 		}
-		return result;
 	}
 
 	/**
@@ -250,7 +322,8 @@ public class RuleTriggerManager {
 	 * 
 	 * @param type the trigger type 
 	 */
-	public void clear(TriggerTypes type) {
+	public synchronized void clear(TriggerTypes type) {
+		invalidate(type);
 		switch(type) {
 			case STARTUP:  	systemStartupTriggeredRules.clear(); break;
 			case SHUTDOWN: 	systemShutdownTriggeredRules.clear(); break;
@@ -296,6 +369,7 @@ public class RuleTriggerManager {
 					commandEventTriggeredRules.put(ceTrigger.getItem(), rules);
 				}
 				rules.add(rule);
+				commandTriggerIndexes.remove(ceTrigger.getItem());
 			} else if(t instanceof UpdateEventTrigger) {
 				UpdateEventTrigger ueTrigger = (UpdateEventTrigger) t;
 				Set<Rule> rules = updateEventTriggeredRules.get(ueTrigger.getItem());
@@ -304,6 +378,7 @@ public class RuleTriggerManager {
 					updateEventTriggeredRules.put(ueTrigger.getItem(), rules);
 				}
 				rules.add(rule);
+				updateTriggerIndexes.remove(ueTrigger.getItem());
 			} else if(t instanceof ChangedEventTrigger) {
 				ChangedEventTrigger ceTrigger = (ChangedEventTrigger) t;
 				Set<Rule> rules = changedEventTriggeredRules.get(ceTrigger.getItem());
@@ -312,6 +387,7 @@ public class RuleTriggerManager {
 					changedEventTriggeredRules.put(ceTrigger.getItem(), rules);
 				}
 				rules.add(rule);
+				changedTriggerIndexes.remove(ceTrigger.getItem());
 			} else if(t instanceof TimerTrigger) {
 				timerEventTriggeredRules.add(rule);
 				try {
@@ -329,7 +405,8 @@ public class RuleTriggerManager {
 	 * @param type the trigger type for which the rule should be removed
 	 * @param rule the rule to add
 	 */
-	public void removeRule(TriggerTypes type, Rule rule) {
+	public synchronized void removeRule(TriggerTypes type, Rule rule) {
+		invalidate(type);
 		switch(type) {
 			case STARTUP:  	systemStartupTriggeredRules.remove(rule); break;
 			case SHUTDOWN: 	systemShutdownTriggeredRules.remove(rule); break;
@@ -358,7 +435,10 @@ public class RuleTriggerManager {
 	 * 
 	 * @param ruleModel the rule model
 	 */
-	public void removeRuleModel(RuleModel ruleModel) {
+	public synchronized void removeRuleModel(RuleModel ruleModel) {
+		invalidate(UPDATE);
+		invalidate(CHANGE);
+		invalidate(COMMAND);
 		removeRules(UPDATE, updateEventTriggeredRules.values(), ruleModel);
 		removeRules(CHANGE, changedEventTriggeredRules.values(), ruleModel);
 		removeRules(COMMAND, commandEventTriggeredRules.values(), ruleModel);
@@ -474,4 +554,121 @@ public class RuleTriggerManager {
 		}
 		return jobIdentity;
 	}
+
+	/**
+	 * An event trigger of a rule with its already parsed trigger values.
+	 */
+	private static class CompiledTrigger {
+		final Rule rule;
+		/** the old state of a changed trigger or <code>null</code> for any state */
+		final State oldState;
+		/** the new state or the command of the trigger or <code>null</code> for any value */
+		final Type value;
+
+		CompiledTrigger(Rule rule, State oldState, Type value) {
+			this.rule = rule;
+			this.oldState = oldState;
+			this.value = value;
+		}
+
+		boolean matchesOldState(Type oldType) {
+			return oldState==null || (oldType!=null && oldType.equals(oldState));
+		}
+	}
+
+	/**
+	 * The compiled triggers of a single item and trigger type. Triggers with enum values
+	 * like ON or OPEN are indexed by their value and every index entry already contains
+	 * the triggers which accept any value, so that the rules for such an event are found
+	 * by a single lookup. Other values (e.g. numbers, whose <code>equals()</code> is not
+	 * consistent with <code>hashCode()</code>) are compared one by one, but are not parsed
+	 * again. An index is immutable once created.
+	 */
+	private static class TriggerIndex {
+
+		/** the types which have been used for parsing the trigger values */
+		private final List<?> acceptedTypes;
+
+		private final List<CompiledTrigger> triggers;
+		private final Map<Type, TriggerList> triggersByEnumValue = Maps.newHashMap();
+		private final TriggerList anyValueTriggers = new TriggerList();
+		private boolean hasOtherValues = false;
+
+		TriggerIndex(List<?> acceptedTypes, List<CompiledTrigger> triggers) {
+			this.acceptedTypes = acceptedTypes;
+			this.triggers = triggers;
+			for(CompiledTrigger trigger : triggers) {
+				if(trigger.value instanceof Enum) {
+					if(!triggersByEnumValue.containsKey(trigger.value)) {
+						triggersByEnumValue.put(trigger.value, new TriggerList());
+					}
+				} else if(trigger.value!=null) {
+					hasOtherValues = true;
+				}
+			}
+			// keep the order of the triggers within every list
+			for(CompiledTrigger trigger : triggers) {
+				if(trigger.value==null) {
+					anyValueTriggers.add(trigger);
+					for(TriggerList list : triggersByEnumValue.values()) {
+						list.add(trigger);
+					}
+				} else if(trigger.value instanceof Enum) {
+					triggersByEnumValue.get(trigger.value).add(trigger);
+				}
+			}
+		}
+
+		boolean isCompiledFor(List<?> types) {
+			return acceptedTypes==types || (acceptedTypes!=null && acceptedTypes.equals(types));
+		}
+
+		Iterable<Rule> getRules(Type oldType, Type newType) {
+			if(newType instanceof Enum) {
+				TriggerList list = triggersByEnumValue.get(newType);
+				return (list!=null ? list : anyValueTriggers).getRules(oldType);
+			}
+			if(!hasOtherValues) {
+				return anyValueTriggers.getRules(oldType);
+			}
+			List<Rule> result = Lists.newArrayList();
+			for(CompiledTrigger trigger : triggers) {
+				if((trigger.value==null || newType.equals(trigger.value)) && trigger.matchesOldState(oldType)) {
+					result.add(trigger.rule);
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * The rules of the triggers matching a certain value, together with the old states
+	 * which are additionally required by changed triggers.
+	 */
+	private static class TriggerList {
+
+		private final List<CompiledTrigger> triggers = Lists.newArrayList();
+		private final List<Rule> rules = Lists.newArrayList();
+		private final Iterable<Rule> unmodifiableRules = Collections.unmodifiableList(rules);
+		private boolean hasOldStates = false;
+
+		void add(CompiledTrigger trigger) {
+			triggers.add(trigger);
+			rules.add(trigger.rule);
+			hasOldStates |= trigger.oldState!=null;
+		}
+
+		Iterable<Rule> getRules(Type oldType) {
+			if(!hasOldStates) {
+				return unmodifiableRules;
+			}
+			List<Rule> result = Lists.newArrayListWithCapacity(triggers.size());
+			for(CompiledTrigger trigger : triggers) {
+				if(trigger.matchesOldState(oldType)) {
+					result.add(trigger.rule);
+				}
+			}
+			return result;
+		}
+	}
 }
@@ -30,6 +30,7 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.AggregatingPersistenceService.Aggregate;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
@@ -60,6 +61,10 @@ public class JdbcBaseDAO {
     protected String SQL_GET_ITEM_TABLES;
     protected String SQL_CREATE_ITEM_TABLE;
     protected String SQL_INSERT_ITEM_VALUE;
+    /** the SQL expression for the time of a value which is stored right away */
+    protected String SQL_NOW;
+    /** the SQL expression for the time of a value which is passed as parameter */
+    protected String SQL_TIME_PARAM;
 
     /********
      * INIT *
@@ -91,7 +96,9 @@ public class JdbcBaseDAO {
         SQL_GET_ITEMID_TABLE_NAMES = "SELECT itemid, itemname FROM #itemsManageTable#";
         SQL_GET_ITEM_TABLES = "SELECT table_name FROM information_schema.tables WHERE table_type='BASE TABLE' AND table_schema=#jdbcUriDatabaseName# AND NOT table_name=#itemsManageTable#";
         SQL_CREATE_ITEM_TABLE = "CREATE TABLE IF NOT EXISTS #tableName# (time TIMESTAMP NOT NULL, value #dbType#, PRIMARY KEY(time))";
-        SQL_INSERT_ITEM_VALUE = "INSERT INTO #tableName# (TIME, VALUE) VALUES( NOW(), ? ) ON DUPLICATE KEY UPDATE VALUE= ?";
+        SQL_INSERT_ITEM_VALUE = "INSERT INTO #tableName# (TIME, VALUE) VALUES( #timeValue#, ? ) ON DUPLICATE KEY UPDATE VALUE= ?";
+        SQL_NOW = "NOW()";
+        SQL_TIME_PARAM = "?";
     }
 
     /**
@@ -260,11 +267,11 @@ public class JdbcBaseDAO {
         Yank.execute(sql, null);
     }
 
-    public void doStoreItemValue(Item item, ItemVO vo) {
-        vo = storeItemValueProvider(item, vo);
-        String sql = StringUtilsExt.replaceArrayMerge(SQL_INSERT_ITEM_VALUE, new String[] { "#tableName#" },
-                new String[] { vo.getTableName() });
-        Object[] params = new Object[] { vo.getValue(), vo.getValue() };
+    public void doStoreItemValue(Item item, State state, ItemVO vo) {
+        vo = storeItemValueProvider(item, state, vo);
+        String sql = StringUtilsExt.replaceArrayMerge(SQL_INSERT_ITEM_VALUE, new String[] { "#tableName#", "#timeValue#" },
+                new String[] { vo.getTableName(), timeValueProvider(vo) });
+        Object[] params = timeParamsProvider(vo, vo.getValue(), vo.getValue());
         logger.debug("JDBC::doStoreItemValue sql={} value='{}'", sql, vo.getValue());
         Yank.execute(sql, params);
     }
@@ -282,6 +289,30 @@ public class JdbcBaseDAO {
         return items;
     }
 
+    public boolean isAggregatable(Item item) {
+        String itemType = getItemType(item);
+        return "NUMBERITEM".equals(itemType) || "DIMMERITEM".equals(itemType) || "ROLLERSHUTTERITEM".equals(itemType);
+    }
+
+    public HistoricItem doGetAggregateQuery(Item item, FilterCriteria filter, String table, Aggregate aggregate) {
+        String sql = aggregateQueryProvider(filter, table, aggregate);
+        logger.debug("JDBC::doGetAggregateQuery sql={}", sql);
+        List<Object[]> m = Yank.queryObjectArrays(sql, null);
+        if (m == null || m.isEmpty()) {
+            return null;
+        }
+        if (aggregate == Aggregate.MINIMUM || aggregate == Aggregate.MAXIMUM) {
+            // the earliest row with the extreme value, just like a query in ascending order would find it
+            return new JdbcItem(item.getName(), getState(item, m.get(0)[1]), objectAsDate(m.get(0)[0]));
+        }
+        Object v = m.get(0)[0];
+        if (v == null) {
+            return null;
+        }
+        Date timestamp = filter.getEndDate() != null ? filter.getEndDate() : new Date();
+        return new JdbcItem(item.getName(), new DecimalType(new BigDecimal(v.toString())), timestamp);
+    }
+
     /*************
      * Providers *
      *************/
@@ -293,15 +324,7 @@ public class JdbcBaseDAO {
                 "JDBC::getHistItemFilterQueryProvider filter = {}, numberDecimalcount = {}, table = {}, simpleName = {}",
                 filter.toString(), numberDecimalcount, table, simpleName);
 
-        String filterString = "";
-        if (filter.getBeginDate() != null) {
-            filterString += filterString.isEmpty() ? " WHERE" : " AND";
-            filterString += " TIME>'" + jdbcDateFormat.print(new DateTime(filter.getBeginDate().getTime())) + "'";
-        }
-        if (filter.getEndDate() != null) {
-            filterString += filterString.isEmpty() ? " WHERE" : " AND";
-            filterString += " TIME<'" + jdbcDateFormat.print(new DateTime(filter.getEndDate().getTime())) + "'";
-        }
+        String filterString = timeFilterProvider(filter);
         filterString += (filter.getOrdering() == Ordering.ASCENDING) ? " ORDER BY time ASC" : " ORDER BY time DESC ";
         if (filter.getPageSize() != 0x7fffffff) {
             filterString += " LIMIT " + filter.getPageNumber() * filter.getPageSize() + "," + filter.getPageSize();
@@ -318,6 +341,54 @@ public class JdbcBaseDAO {
         return queryString;
     }
 
+    private String timeFilterProvider(FilterCriteria filter) {
+        String filterString = "";
+        if (filter.getBeginDate() != null) {
+            filterString += filterString.isEmpty() ? " WHERE" : " AND";
+            filterString += " TIME>'" + jdbcDateFormat.print(new DateTime(filter.getBeginDate().getTime())) + "'";
+        }
+        if (filter.getEndDate() != null) {
+            filterString += filterString.isEmpty() ? " WHERE" : " AND";
+            filterString += " TIME<'" + jdbcDateFormat.print(new DateTime(filter.getEndDate().getTime())) + "'";
+        }
+        return filterString;
+    }
+
+    protected String aggregateQueryProvider(FilterCriteria filter, String table, Aggregate aggregate) {
+        logger.debug("JDBC::aggregateQueryProvider filter = {}, table = {}, aggregate = {}", filter.toString(), table,
+                aggregate);
+
+        String filterString = timeFilterProvider(filter);
+        String queryString;
+        switch (aggregate) {
+            case MINIMUM:
+            case MAXIMUM:
+                // plain SQL without LIMIT, as its syntax differs between the databases
+                String function = aggregate == Aggregate.MINIMUM ? "MIN" : "MAX";
+                queryString = "SELECT time, value FROM " + table + filterString
+                        + (filterString.isEmpty() ? " WHERE" : " AND") + " value=(SELECT " + function + "(value) FROM "
+                        + table + filterString + ") ORDER BY time ASC";
+                break;
+            case AVERAGE:
+                // multiply by 1.0 to avoid an integer division on TINYINT columns
+                queryString = "SELECT AVG(value * 1.0) FROM " + table + filterString;
+                break;
+            case SUM:
+                queryString = "SELECT SUM(value) FROM " + table + filterString;
+                break;
+            case SUM_OF_SQUARES:
+                queryString = "SELECT SUM(value * value) FROM " + table + filterString;
+                break;
+            case COUNT:
+                queryString = "SELECT COUNT(value) FROM " + table + filterString;
+                break;
+            default:
+                throw new UnsupportedOperationException("Aggregate " + aggregate + " is not supported by SQL");
+        }
+        logger.debug("JDBC::query queryString = {}", queryString);
+        return queryString;
+    }
+
     private String updateItemTableNamesProvider(List<ItemVO> namesList) {
         logger.debug("JDBC::updateItemTableNamesProvider namesList.size = {}", namesList.size());
         String queryString = "";
@@ -329,49 +400,75 @@ public class JdbcBaseDAO {
         return queryString;
     }
 
-    protected ItemVO storeItemValueProvider(Item item, ItemVO vo) {
+    /**
+     * Returns the SQL expression for the time of a value, which is either the current
+     * time of the database or a parameter, if the value has been captured before.
+     */
+    protected String timeValueProvider(ItemVO vo) {
+        return vo.getTime() == null ? SQL_NOW : SQL_TIME_PARAM;
+    }
+
+    /**
+     * Returns the parameters of an insert statement, which start with the time of the
+     * value, if the value has been captured before.
+     */
+    protected Object[] timeParamsProvider(ItemVO vo, Object... params) {
+        if (vo.getTime() == null) {
+            return params;
+        }
+        Object[] timeParams = new Object[params.length + 1];
+        timeParams[0] = getTimeParam(vo.getTime());
+        System.arraycopy(params, 0, timeParams, 1, params.length);
+        return timeParams;
+    }
+
+    protected Object getTimeParam(Date time) {
+        return new Timestamp(time.getTime());
+    }
+
+    protected ItemVO storeItemValueProvider(Item item, State state, ItemVO vo) {
         String itemType = getItemType(item);
 
         logger.debug("JDBC::storeItemValueProvider: item '{}' as Type '{}' in '{}' with state '{}'", item.getName(),
-                itemType, vo.getTableName(), item.getState().toString());
+                itemType, vo.getTableName(), state.toString());
 
         // insertItemValue
-        logger.debug("JDBC::storeItemValueProvider: getState: '{}'", item.getState().toString());
+        logger.debug("JDBC::storeItemValueProvider: getState: '{}'", state.toString());
         if ("COLORITEM".equals(itemType)) {
             vo.setValueTypes(getSqlTypes().get(itemType), java.lang.String.class);
-            vo.setValue(item.getState().toString());
+            vo.setValue(state.toString());
         } else if ("NUMBERITEM".equals(itemType)) {
             String it = getSqlTypes().get(itemType);
             if (it.toUpperCase().contains("DOUBLE")) {
                 vo.setValueTypes(it, java.lang.Double.class);
-                Number newVal = ((DecimalType) item.getState());
+                Number newVal = ((DecimalType) state);
                 logger.debug("JDBC::storeItemValueProvider: newVal.doubleValue: '{}'", newVal.doubleValue());
                 vo.setValue(newVal.doubleValue());
             } else if (it.toUpperCase().contains("DECIMAL") || it.toUpperCase().contains("NUMERIC")) {
                 vo.setValueTypes(it, java.math.BigDecimal.class);
-                DecimalType newVal = ((DecimalType) item.getState());
+                DecimalType newVal = ((DecimalType) state);
                 logger.debug("JDBC::storeItemValueProvider: newVal.toBigDecimal: '{}'", newVal.toBigDecimal());
                 vo.setValue(newVal.toBigDecimal());
             } else if (it.toUpperCase().contains("INT")) {
                 vo.setValueTypes(it, java.lang.Integer.class);
-                Number newVal = ((DecimalType) item.getState());
+                Number newVal = ((DecimalType) state);
                 logger.debug("JDBC::storeItemValueProvider: newVal.intValue: '{}'", newVal.intValue());
                 vo.setValue(newVal.intValue());
             } else {// fall back to String
                 vo.setValueTypes(it, java.lang.String.class);
-                logger.warn("JDBC::storeItemValueProvider: item.getState().toString(): '{}'",
-                        item.getState().toString());
-                vo.setValue(item.getState().toString());
+                logger.warn("JDBC::storeItemValueProvider: state.toString(): '{}'",
+                        state.toString());
+                vo.setValue(state.toString());
             }
         } else if ("ROLLERSHUTTERITEM".equals(itemType) || "DIMMERITEM".equals(itemType)) {
             vo.setValueTypes(getSqlTypes().get(itemType), java.lang.Integer.class);
-            Number newVal = ((DecimalType) item.getState());
+            Number newVal = ((DecimalType) state);
             logger.debug("JDBC::storeItemValueProvider: newVal.intValue: '{}'", newVal.intValue());
             vo.setValue(newVal.intValue());
         } else if ("DATETIMEITEM".equals(itemType)) {
             // vo.setValueTypes(getSqlTypes().get(itemType), java.util.Date.class);
             vo.setValueTypes(getSqlTypes().get(itemType), java.sql.Date.class);
-            Calendar x = ((DateTimeType) item.getState()).getCalendar();
+            Calendar x = ((DateTimeType) state).getCalendar();
             java.sql.Date d = new java.sql.Date(x.getTimeInMillis());
             logger.debug("JDBC::storeItemValueProvider: DateTimeItem: '{}'", d);
             vo.setValue(d);
@@ -392,9 +489,9 @@ public class JdbcBaseDAO {
              */
             // All other items should return the best format by default
             vo.setValueTypes(getSqlTypes().get(itemType), java.lang.String.class);
-            logger.debug("JDBC::storeItemValueProvider: other: item.getState().toString(): '{}'",
-                    item.getState().toString());
-            vo.setValue(item.getState().toString());
+            logger.debug("JDBC::storeItemValueProvider: other: state.toString(): '{}'",
+                    state.toString());
+            vo.setValue(state.toString());
         }
         return vo;
     }
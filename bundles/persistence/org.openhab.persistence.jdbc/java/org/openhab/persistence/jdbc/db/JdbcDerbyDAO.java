@@ -18,6 +18,7 @@ import org.openhab.core.items.Item;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.types.State;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.model.ItemsVO;
 import org.openhab.persistence.jdbc.model.JdbcItem;
@@ -56,7 +57,8 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
         SQL_CREATE_ITEM_TABLE = "CREATE TABLE #tableName# (time TIMESTAMP NOT NULL, value #dbType#, PRIMARY KEY(time))";
         // Prevent error against duplicate time value (seldom): No powerful Merge found:
         // http://www.codeproject.com/Questions/162627/how-to-insert-new-record-in-my-table-if-not-exists
-        SQL_INSERT_ITEM_VALUE = "INSERT INTO #tableName# (TIME, VALUE) VALUES( CURRENT_TIMESTAMP, CAST( ? as #dbType#) )";
+        SQL_INSERT_ITEM_VALUE = "INSERT INTO #tableName# (TIME, VALUE) VALUES( #timeValue#, CAST( ? as #dbType#) )";
+        SQL_NOW = "CURRENT_TIMESTAMP";
     }
 
     private void initSqlTypes() {
@@ -117,11 +119,12 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
     }
 
     @Override
-    public void doStoreItemValue(Item item, ItemVO vo) {
-        vo = storeItemValueProvider(item, vo);
-        String sql = StringUtilsExt.replaceArrayMerge(SQL_INSERT_ITEM_VALUE, new String[] { "#tableName#", "#dbType#" },
-                new String[] { vo.getTableName().toUpperCase(), vo.getDbType() });
-        Object[] params = new Object[] { vo.getValue() };
+    public void doStoreItemValue(Item item, State state, ItemVO vo) {
+        vo = storeItemValueProvider(item, state, vo);
+        String sql = StringUtilsExt.replaceArrayMerge(SQL_INSERT_ITEM_VALUE,
+                new String[] { "#tableName#", "#dbType#", "#timeValue#" },
+                new String[] { vo.getTableName().toUpperCase(), vo.getDbType(), timeValueProvider(vo) });
+        Object[] params = timeParamsProvider(vo, vo.getValue());
         logger.debug("JDBC::doStoreItemValue sql={} value='{}'", sql, vo.getValue());
         Yank.execute(sql, params);
     }
@@ -9,6 +9,7 @@
 package org.openhab.persistence.jdbc.db;
 
 import org.openhab.core.items.Item;
+import org.openhab.core.types.State;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.utils.StringUtilsExt;
 import org.slf4j.Logger;
@@ -42,7 +43,7 @@ public class JdbcH2DAO extends JdbcBaseDAO {
         SQL_IF_TABLE_EXISTS = "SELECT * FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME='#searchTable#'";
         // SQL_INSERT_ITEM_VALUE = "INSERT INTO #tableName# (TIME, VALUE) VALUES( NOW(), CAST( ? as #dbType#) )";
         // http://stackoverflow.com/questions/19768051/h2-sql-database-insert-if-the-record-does-not-exist
-        SQL_INSERT_ITEM_VALUE = "MERGE INTO #tableName# (TIME, VALUE) VALUES( NOW(), CAST( ? as #dbType#) )";
+        SQL_INSERT_ITEM_VALUE = "MERGE INTO #tableName# (TIME, VALUE) VALUES( #timeValue#, CAST( ? as #dbType#) )";
     }
 
     /**
@@ -70,11 +71,12 @@ public class JdbcH2DAO extends JdbcBaseDAO {
      * ITEM DAOs *
      *************/
     @Override
-    public void doStoreItemValue(Item item, ItemVO vo) {
-        vo = storeItemValueProvider(item, vo);
-        String sql = StringUtilsExt.replaceArrayMerge(SQL_INSERT_ITEM_VALUE, new String[] { "#tableName#", "#dbType#" },
-                new String[] { vo.getTableName(), vo.getDbType() });
-        Object[] params = new Object[] { vo.getValue() };
+    public void doStoreItemValue(Item item, State state, ItemVO vo) {
+        vo = storeItemValueProvider(item, state, vo);
+        String sql = StringUtilsExt.replaceArrayMerge(SQL_INSERT_ITEM_VALUE,
+                new String[] { "#tableName#", "#dbType#", "#timeValue#" },
+                new String[] { vo.getTableName(), vo.getDbType(), timeValueProvider(vo) });
+        Object[] params = timeParamsProvider(vo, vo.getValue());
         logger.debug("JDBC::doStoreItemValue sql={} value='{}'", sql, vo.getValue());
         Yank.execute(sql, params);
     }
@@ -9,6 +9,7 @@
 package org.openhab.persistence.jdbc.db;
 
 import org.openhab.core.items.Item;
+import org.openhab.core.types.State;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.model.ItemsVO;
 import org.openhab.persistence.jdbc.utils.StringUtilsExt;
@@ -48,8 +49,9 @@ public class JdbcHsqldbDAO extends JdbcBaseDAO {
         // http://hsqldb.org/doc/guide/dataaccess-chapt.html#dac_merge_statement
         // SQL_INSERT_ITEM_VALUE = "INSERT INTO #tableName# (TIME, VALUE) VALUES( NOW(), CAST( ? as #dbType#) )";
         SQL_INSERT_ITEM_VALUE = "MERGE INTO #tableName# "
-                + "USING (VALUES NOW(), CAST( ? as #dbType#)) temp (TIME, VALUE) ON (#tableName#.TIME=temp.TIME) "
+                + "USING (VALUES #timeValue#, CAST( ? as #dbType#)) temp (TIME, VALUE) ON (#tableName#.TIME=temp.TIME) "
                 + "WHEN NOT MATCHED THEN INSERT (TIME, VALUE) VALUES (temp.TIME, temp.VALUE)";
+        SQL_TIME_PARAM = "CAST( ? AS TIMESTAMP)";
     }
 
     /**
@@ -102,12 +104,12 @@ public class JdbcHsqldbDAO extends JdbcBaseDAO {
      * ITEM DAOs *
      *************/
     @Override
-    public void doStoreItemValue(Item item, ItemVO vo) {
-        vo = storeItemValueProvider(item, vo);
+    public void doStoreItemValue(Item item, State state, ItemVO vo) {
+        vo = storeItemValueProvider(item, state, vo);
         String sql = StringUtilsExt.replaceArrayMerge(SQL_INSERT_ITEM_VALUE,
-                new String[] { "#tableName#", "#dbType#", "#tableName#" },
-                new String[] { vo.getTableName(), vo.getDbType(), vo.getTableName() });
-        Object[] params = new Object[] { vo.getValue() };
+                new String[] { "#tableName#", "#timeValue#", "#dbType#", "#tableName#" },
+                new String[] { vo.getTableName(), timeValueProvider(vo), vo.getDbType(), vo.getTableName() });
+        Object[] params = timeParamsProvider(vo, vo.getValue());
         logger.debug("JDBC::doStoreItemValue sql={} value='{}'", sql, vo.getValue());
         Yank.execute(sql, params);
     }
@@ -8,7 +8,10 @@
  */
 package org.openhab.persistence.jdbc.db;
 
+import java.util.Date;
+
 import org.openhab.core.items.Item;
+import org.openhab.core.types.State;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.model.ItemsVO;
 import org.openhab.persistence.jdbc.utils.StringUtilsExt;
@@ -42,7 +45,10 @@ public class JdbcSqliteDAO extends JdbcBaseDAO {
         logger.debug("JDBC::initSqlQueries: '{}'", this.getClass().getSimpleName());
         SQL_IF_TABLE_EXISTS = "SELECT name FROM sqlite_master WHERE type='table' AND name='#searchTable#'";
         SQL_CREATE_ITEMS_TABLE_IF_NOT = "CREATE TABLE IF NOT EXISTS #itemsManageTable# (ItemId INTEGER PRIMARY KEY AUTOINCREMENT, #colname# #coltype# NOT NULL)";
-        SQL_INSERT_ITEM_VALUE = "INSERT OR IGNORE INTO #tableName# (TIME, VALUE) VALUES( DATETIME('now'), CAST( ? as #dbType#) )";
+        SQL_INSERT_ITEM_VALUE = "INSERT OR IGNORE INTO #tableName# (TIME, VALUE) VALUES( #timeValue#, CAST( ? as #dbType#) )";
+        // DATETIME('now') is the current time in UTC, which is what a time in seconds since the epoch is converted to
+        SQL_NOW = "DATETIME('now')";
+        SQL_TIME_PARAM = "DATETIME(?, 'unixepoch')";
     }
 
     /**
@@ -79,15 +85,21 @@ public class JdbcSqliteDAO extends JdbcBaseDAO {
      * ITEM DAOs *
      *************/
     @Override
-    public void doStoreItemValue(Item item, ItemVO vo) {
-        vo = storeItemValueProvider(item, vo);
-        String sql = StringUtilsExt.replaceArrayMerge(SQL_INSERT_ITEM_VALUE, new String[] { "#tableName#", "#dbType#" },
-                new String[] { vo.getTableName(), vo.getDbType() });
-        Object[] params = new Object[] { vo.getValue() };
+    public void doStoreItemValue(Item item, State state, ItemVO vo) {
+        vo = storeItemValueProvider(item, state, vo);
+        String sql = StringUtilsExt.replaceArrayMerge(SQL_INSERT_ITEM_VALUE,
+                new String[] { "#tableName#", "#dbType#", "#timeValue#" },
+                new String[] { vo.getTableName(), vo.getDbType(), timeValueProvider(vo) });
+        Object[] params = timeParamsProvider(vo, vo.getValue());
         logger.debug("JDBC::doStoreItemValue sql={} value='{}'", sql, vo.getValue());
         Yank.execute(sql, params);
     }
 
+    @Override
+    protected Object getTimeParam(Date time) {
+        return time.getTime() / 1000;
+    }
+
     /****************************
      * SQL generation Providers *
      ****************************/
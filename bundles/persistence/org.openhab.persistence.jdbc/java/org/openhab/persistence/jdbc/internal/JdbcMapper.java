@@ -1,14 +1,17 @@
 package org.openhab.persistence.jdbc.internal;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.knowm.yank.Yank;
 import org.openhab.core.items.Item;
+import org.openhab.core.persistence.AggregatingPersistenceService.Aggregate;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.types.State;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.model.ItemsVO;
 import org.slf4j.Logger;
@@ -116,6 +119,18 @@ public class JdbcMapper {
     }
 
     public Item storeItemValue(Item item) {
+        return storeItemValue(item, item.getState(), null);
+    }
+
+    /**
+     * Stores a state of an item.
+     *
+     * @param item the item to store the state for
+     * @param state the state to store
+     * @param time the time the state has been captured at or <code>null</code> for the current time of the database
+     * @return the item
+     */
+    public Item storeItemValue(Item item, State state, Date time) {
         logger.debug("JDBC::storeItemValue: Item={}", item.toString());
         String tableName = getTable(item);
         if (tableName == null) {
@@ -123,7 +138,9 @@ public class JdbcMapper {
             return item;
         }
         long timerStart = System.currentTimeMillis();
-        conf.getDBDAO().doStoreItemValue(item, new ItemVO(tableName, null));
+        ItemVO vo = new ItemVO(tableName, null);
+        vo.setTime(time);
+        conf.getDBDAO().doStoreItemValue(item, state, vo);
         logTime("storeItemValue", timerStart, System.currentTimeMillis());
         errCnt = 0;
         return item;
@@ -146,6 +163,14 @@ public class JdbcMapper {
         return null;
     }
 
+    public HistoricItem getAggregateQuery(FilterCriteria filter, String table, Item item, Aggregate aggregate) {
+        logger.debug("JDBC::getAggregateQuery table='{}' item='{}' aggregate='{}'", table, item, aggregate);
+        long timerStart = System.currentTimeMillis();
+        HistoricItem r = conf.getDBDAO().doGetAggregateQuery(item, filter, table, aggregate);
+        logTime("getAggregateQuery", timerStart, System.currentTimeMillis());
+        return r;
+    }
+
     /***********************
      * DATABASE CONNECTION *
      ***********************/
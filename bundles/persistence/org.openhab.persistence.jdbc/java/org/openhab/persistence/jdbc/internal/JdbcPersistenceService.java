@@ -10,7 +10,9 @@
 package org.openhab.persistence.jdbc.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -18,10 +20,13 @@ import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.BatchPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PersistenceEntry;
 import org.openhab.core.persistence.PersistenceService;
-import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
@@ -33,7 +38,8 @@ import org.slf4j.LoggerFactory;
  *
  *
  */
-public class JdbcPersistenceService extends JdbcMapper implements QueryablePersistenceService {
+public class JdbcPersistenceService extends JdbcMapper implements AggregatingPersistenceService,
+        BatchPersistenceService {
     static final Logger logger = LoggerFactory.getLogger(JdbcPersistenceService.class);
 
     protected ItemRegistry itemRegistry;
@@ -119,8 +125,30 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
      */
     @Override
     public void store(Item item, String alias) {
+        store(item, item.getState(), null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The entries are stored with the state and the time they have been captured with.</p>
+     */
+    @Override
+    public void storeBatch(Collection<PersistenceEntry> entries) {
+        for (PersistenceEntry entry : entries) {
+            store(entry.getItem(), entry.getState(), entry.getTimestamp());
+        }
+    }
+
+    /**
+     * Stores a state of an item.
+     *
+     * @param item the item to store the state for
+     * @param state the state to store
+     * @param time the time the state has been captured at or <code>null</code> for the current time of the database
+     */
+    private void store(Item item, State state, Date time) {
         // Don not store undefined/uninitialised data
-        if (item.getState() instanceof UnDefType) {
+        if (state instanceof UnDefType) {
             logger.warn("JDBC::store: ignore Item because it is UnDefType");
             return;
         }
@@ -131,9 +159,10 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
             return;
         }
         long timerStart = System.currentTimeMillis();
-        storeItemValue(item);
+        storeItemValue(item, state, time);
         logger.debug("JDBC: Stored item '{}' as '{}' in SQL database at {} in {}ms.", item.getName(),
-                item.getState().toString(), (new java.util.Date()).toString(), System.currentTimeMillis() - timerStart);
+                state.toString(), (time != null ? time : new java.util.Date()).toString(),
+                System.currentTimeMillis() - timerStart);
     }
 
     /**
@@ -207,6 +236,58 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
         return items;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean supportsAggregate(Aggregate aggregate) {
+        // time weighted averages would need the following row of every value, so these are left to the caller
+        return aggregate != Aggregate.TIME_WEIGHTED_AVERAGE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HistoricItem aggregate(FilterCriteria filter, Aggregate aggregate) {
+        if (!supportsAggregate(aggregate)) {
+            throw new UnsupportedOperationException("JDBC does not support the aggregate " + aggregate);
+        }
+        if (!checkDBAcessability()) {
+            logger.warn("JDBC::aggregate: db not connected, query aborted for item '{}'", filter.getItemName());
+            return null;
+        }
+        if (itemRegistry == null) {
+            logger.error("JDBC::aggregate: itemRegistry == null Ignore and Give up!");
+            return null;
+        }
+
+        String itemName = filter.getItemName();
+        Item item = null;
+        try {
+            item = itemRegistry.getItem(itemName);
+        } catch (ItemNotFoundException e1) {
+            logger.error("JDBC::aggregate: unable to get item for itemName: '{}'. Ignore and Give up!", itemName);
+            return null;
+        }
+        if (item instanceof GroupItem) {
+            item = GroupItem.class.cast(item).getBaseItem();
+        }
+        if (item == null || !conf.getDBDAO().isAggregatable(item)) {
+            throw new UnsupportedOperationException("values of item '" + itemName + "' are not stored as numbers");
+        }
+
+        String table = sqlTables.get(itemName);
+        if (table == null) {
+            logger.debug("JDBC::aggregate: unable to find table for query, no Data in Database for Item '{}'", itemName);
+            return null;
+        }
+
+        HistoricItem result = getAggregateQuery(filter, table, item, aggregate);
+        errCnt = 0;
+        return result;
+    }
+
     /**
      * @{inheritDoc
      */
@@ -39,8 +39,10 @@ import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Operator;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.HistoricItemCursor;
+import org.openhab.core.persistence.HistoricItemCursors;
 import org.openhab.core.persistence.PersistenceService;
-import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.persistence.StreamingPersistenceService;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.osgi.framework.BundleContext;
@@ -60,7 +62,7 @@ import com.mongodb.MongoClientURI;
  * @author Thorsten Hoeger
  * @since 1.5.0
  */
-public class MongoDBPersistenceService implements QueryablePersistenceService {
+public class MongoDBPersistenceService implements StreamingPersistenceService {
 
 	private static final String FIELD_ID = "_id";
 	private static final String FIELD_ITEM = "item";
@@ -243,6 +245,53 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
 		Item item = getItem(name);
 
 		List<HistoricItem> items = new ArrayList<HistoricItem>();
+		DBCursor cursor = find(filter);
+		try {
+			while (cursor.hasNext()) {
+				items.add(toHistoricItem(item, name, (BasicDBObject) cursor.next()));
+			}
+		} finally {
+			cursor.close();
+		}
+
+		return items;
+	}
+
+	/**
+	 * Iterates over the documents of the query with the batch size of the
+	 * driver, without loading the whole result into memory.
+	 * 
+	 * @{inheritDoc}
+	 */
+	@Override
+	public HistoricItemCursor queryCursor(FilterCriteria filter) {
+		if (!initialized)
+			return HistoricItemCursors.empty();
+
+		if (!isConnected())
+			connectToDatabase();
+
+		if (!isConnected())
+			return HistoricItemCursors.empty();
+
+		final String name = filter.getItemName();
+		final Item item = getItem(name);
+		final DBCursor cursor = find(filter);
+
+		return new HistoricItemCursors.AbstractCursor() {
+			@Override
+			protected HistoricItem fetchNext() {
+				return cursor.hasNext() ? toHistoricItem(item, name, (BasicDBObject) cursor.next()) : null;
+			}
+
+			@Override
+			protected void release() {
+				cursor.close();
+			}
+		};
+	}
+
+	private DBCursor find(FilterCriteria filter) {
 		DBObject query = new BasicDBObject();
 		if (filter.getItemName() != null) {
 			query.put(FIELD_ITEM, filter.getItemName());
@@ -262,39 +311,35 @@ public class MongoDBPersistenceService implements QueryablePersistenceService {
 		}
 
 		Integer sortDir = (filter.getOrdering() == Ordering.ASCENDING) ? 1 : -1;
-		DBCursor cursor = this.mongoCollection.find(query)
+		return this.mongoCollection.find(query)
 				.sort(new BasicDBObject(FIELD_TIMESTAMP, sortDir))
 				.skip(filter.getPageNumber() * filter.getPageSize())
 				.limit(filter.getPageSize());
+	}
 
-		while (cursor.hasNext()) {
-			BasicDBObject obj = (BasicDBObject) cursor.next();
-
-			final State state;
-			if (item instanceof NumberItem) {
-				state = new DecimalType(obj.getDouble(FIELD_VALUE));
-			} else if (item instanceof DimmerItem) {
-				state = new PercentType(obj.getInt(FIELD_VALUE));
-			} else if (item instanceof SwitchItem) {
-				state = OnOffType.valueOf(obj.getString(FIELD_VALUE));
-			} else if (item instanceof ContactItem) {
-				state = OpenClosedType.valueOf(obj.getString(FIELD_VALUE));
-			} else if (item instanceof RollershutterItem) {
-				state = new PercentType(obj.getInt(FIELD_VALUE));
-			} else if (item instanceof ColorItem) {
-				state = new HSBType(obj.getString(FIELD_VALUE));
-			} else if (item instanceof DateTimeItem) {
-				Calendar cal = Calendar.getInstance();
-				cal.setTime(obj.getDate(FIELD_VALUE));
-				state = new DateTimeType(cal);
-			} else {
-				state = new StringType(obj.getString(FIELD_VALUE));
-			}
-
-			items.add(new MongoDBItem(name, state, obj.getDate(FIELD_TIMESTAMP)));
+	private HistoricItem toHistoricItem(Item item, String name, BasicDBObject obj) {
+		final State state;
+		if (item instanceof NumberItem) {
+			state = new DecimalType(obj.getDouble(FIELD_VALUE));
+		} else if (item instanceof DimmerItem) {
+			state = new PercentType(obj.getInt(FIELD_VALUE));
+		} else if (item instanceof SwitchItem) {
+			state = OnOffType.valueOf(obj.getString(FIELD_VALUE));
+		} else if (item instanceof ContactItem) {
+			state = OpenClosedType.valueOf(obj.getString(FIELD_VALUE));
+		} else if (item instanceof RollershutterItem) {
+			state = new PercentType(obj.getInt(FIELD_VALUE));
+		} else if (item instanceof ColorItem) {
+			state = new HSBType(obj.getString(FIELD_VALUE));
+		} else if (item instanceof DateTimeItem) {
+			Calendar cal = Calendar.getInstance();
+			cal.setTime(obj.getDate(FIELD_VALUE));
+			state = new DateTimeType(cal);
+		} else {
+			state = new StringType(obj.getString(FIELD_VALUE));
 		}
 
-		return items;
+		return new MongoDBItem(name, state, obj.getDate(FIELD_TIMESTAMP));
 	}
 
 	private String convertOperator(Operator operator) {
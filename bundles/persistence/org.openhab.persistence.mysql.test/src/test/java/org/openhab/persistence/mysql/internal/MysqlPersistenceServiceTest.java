@@ -0,0 +1,375 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.mysql.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.HistoricItemCursor;
+import org.openhab.core.persistence.PersistenceEntry;
+
+/**
+ * Tests the cursor queries of the {@link MysqlPersistenceService} against a
+ * database, which is simulated by a JDBC driver for the url <code>jdbc:openhab-test:</code>.
+ *
+ * @since 1.8.0
+ */
+public class MysqlPersistenceServiceTest {
+
+	private static final String URL = "jdbc:openhab-test:items";
+
+	private TestDatabase database;
+
+	private MysqlPersistenceService service;
+
+	@Before
+	public void setUp() throws SQLException {
+		database = new TestDatabase(25);
+		DriverManager.registerDriver(database);
+
+		Map<String, Object> config = new HashMap<String, Object>();
+		config.put("url", URL);
+		config.put("user", "openhab");
+		config.put("password", "openhab");
+		service = new MysqlPersistenceService();
+		service.activate(null, config);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		service.deactivate(0);
+		DriverManager.deregisterDriver(database);
+	}
+
+	@Test
+	public void testCursorReadsAllRowsPageByPage() {
+		service.cursorPageSize = 10;
+		HistoricItemCursor cursor = service.queryCursor(new FilterCriteria().setItemName("Temperature")
+				.setOrdering(Ordering.ASCENDING));
+
+		assertEquals(values(0, 24), read(cursor));
+		assertEquals(3, database.queries.size());
+		assertEquals(0, database.openStatements);
+	}
+
+	@Test
+	public void testCursorRespectsPagingOfFilter() {
+		service.cursorPageSize = 5;
+		HistoricItemCursor cursor = service.queryCursor(new FilterCriteria().setItemName("Temperature")
+				.setOrdering(Ordering.DESCENDING).setPageSize(12).setPageNumber(1));
+
+		assertEquals(values(12, 1), read(cursor));
+		assertEquals(3, database.queries.size());
+		assertEquals(0, database.openStatements);
+	}
+
+	@Test
+	public void testClosedCursorDoesNotQueryAgain() {
+		service.cursorPageSize = 10;
+		HistoricItemCursor cursor = service.queryCursor(new FilterCriteria().setItemName("Temperature")
+				.setOrdering(Ordering.ASCENDING));
+		assertEquals("0", cursor.next().getState().toString());
+		cursor.close();
+
+		assertFalse(cursor.hasNext());
+		assertEquals(1, database.queries.size());
+		assertEquals(0, database.openStatements);
+	}
+
+	@Test
+	public void testFailingQueryIsPropagated() {
+		service.cursorPageSize = 10;
+		HistoricItemCursor cursor = service.queryCursor(new FilterCriteria().setItemName("Temperature")
+				.setOrdering(Ordering.ASCENDING));
+		for (int i = 0; i < 10; i++) {
+			cursor.next();
+		}
+		database.failing = true;
+		try {
+			cursor.hasNext();
+			fail("the failing query has been ignored");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		assertFalse(cursor.hasNext());
+		assertEquals(2, database.queries.size());
+		assertEquals(0, database.openStatements);
+	}
+
+	@Test
+	public void testUnknownItemReturnsEmptyCursor() {
+		HistoricItemCursor cursor = service.queryCursor(new FilterCriteria().setItemName("Humidity"));
+
+		assertFalse(cursor.hasNext());
+		assertEquals(0, database.queries.size());
+	}
+
+	@Test
+	public void testBatchIsStoredWithCapturedStatesAndTimes() {
+		NumberItem item = new NumberItem("Temperature");
+		item.setState(new DecimalType(20));
+		PersistenceEntry first = new PersistenceEntry(item, null);
+		item.setState(new DecimalType(21));
+		PersistenceEntry second = new PersistenceEntry(item, null);
+		item.setState(new DecimalType(22));
+
+		service.storeBatch(Arrays.asList(first, second));
+
+		String insert = "INSERT INTO Item1 (TIME, VALUE) VALUES(?,?) ON DUPLICATE KEY UPDATE VALUE=?;";
+		assertEquals(Arrays.asList(
+				insert + " [" + new Timestamp(first.getTimestamp().getTime()) + ", 20, 20]",
+				insert + " [" + new Timestamp(second.getTimestamp().getTime()) + ", 21, 21]"), database.updates);
+		assertEquals(0, database.openStatements);
+	}
+
+	@Test
+	public void testStoreUsesTimeOfDatabase() {
+		NumberItem item = new NumberItem("Temperature");
+		item.setState(new DecimalType(20));
+
+		service.store(item);
+
+		assertEquals(Arrays.asList("INSERT INTO Item1 (TIME, VALUE) VALUES(NOW(),?) ON DUPLICATE KEY UPDATE VALUE=?; [20, 20]"),
+				database.updates);
+	}
+
+
+	private static List<String> read(HistoricItemCursor cursor) {
+		List<String> values = new ArrayList<String>();
+		try {
+			while (cursor.hasNext()) {
+				HistoricItem item = cursor.next();
+				values.add(item.getState().toString());
+			}
+		} finally {
+			cursor.close();
+		}
+		return values;
+	}
+
+	private static List<String> values(int from, int to) {
+		List<String> values = new ArrayList<String>();
+		for (int i = from; from <= to ? i <= to : i >= to; i += from <= to ? 1 : -1) {
+			values.add(String.valueOf(i));
+		}
+		return values;
+	}
+
+
+	/**
+	 * Simulates the table of a single item 'Temperature', which holds a value for
+	 * every minute. It understands the statements issued by the service and
+	 * counts the queries and statements of the item table. Prepared updates are
+	 * recorded together with their parameters.
+	 */
+	static class TestDatabase implements Driver {
+
+		private static final Pattern QUERY_PATTERN = Pattern.compile("SELECT Time, Value FROM Item1"
+				+ "(?: WHERE TIME([<>])'([^']*)')? ORDER BY Time (ASC|DESC) LIMIT (\\d+),(\\d+)");
+
+		final List<Object[]> rows = new ArrayList<Object[]>();
+
+		final List<String> queries = new ArrayList<String>();
+
+		final List<String> updates = new ArrayList<String>();
+
+		int openStatements;
+
+		boolean failing;
+
+		TestDatabase(int count) {
+			long start = 1420070400000L;
+			for (int i = 0; i < count; i++) {
+				rows.add(new Object[] { new Timestamp(start + i * 60000L), String.valueOf(i) });
+			}
+		}
+
+		public Connection connect(String url, Properties info) throws SQLException {
+			if (!acceptsURL(url)) {
+				return null;
+			}
+			return proxy(Connection.class, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if (method.getName().equals("isValid")) {
+						return true;
+					}
+					if (method.getName().equals("createStatement")) {
+						openStatements++;
+						return createStatement();
+					}
+					if (method.getName().equals("prepareStatement")) {
+						openStatements++;
+						return prepareStatement((String) args[0]);
+					}
+					return defaultValue(method);
+				}
+			});
+		}
+
+		private Statement createStatement() {
+			return proxy(Statement.class, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if (method.getName().equals("executeUpdate")) {
+						// the table 'Items' exists
+						return 1;
+					}
+					if (method.getName().equals("executeQuery")) {
+						return executeQuery((String) args[0]);
+					}
+					if (method.getName().equals("close")) {
+						openStatements--;
+					}
+					return defaultValue(method);
+				}
+			});
+		}
+
+		private PreparedStatement prepareStatement(final String sql) {
+			final Map<Integer, Object> parameters = new TreeMap<Integer, Object>();
+			return proxy(PreparedStatement.class, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if (method.getName().startsWith("set") && args.length == 2 && args[0] instanceof Integer) {
+						parameters.put((Integer) args[0], args[1]);
+					}
+					if (method.getName().equals("executeUpdate")) {
+						updates.add(sql + " " + parameters.values());
+						return 1;
+					}
+					if (method.getName().equals("close")) {
+						openStatements--;
+					}
+					return defaultValue(method);
+				}
+			});
+		}
+
+		private ResultSet executeQuery(String query) throws SQLException, ParseException {
+			if (query.startsWith("SELECT ItemId, ItemName FROM Items")) {
+				return createResultSet(Collections.singletonList(new Object[] { 1, "Temperature" }));
+			}
+
+			queries.add(query);
+			Matcher matcher = QUERY_PATTERN.matcher(query);
+			if (failing || !matcher.matches()) {
+				throw new SQLException("Unexpected query " + query);
+			}
+
+			List<Object[]> result = new ArrayList<Object[]>(rows);
+			if (matcher.group(3).equals("DESC")) {
+				Collections.reverse(result);
+			}
+			if (matcher.group(1) != null) {
+				long after = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(matcher.group(2)).getTime();
+				for (int i = result.size() - 1; i >= 0; i--) {
+					long time = ((Timestamp) result.get(i)[0]).getTime();
+					if (matcher.group(1).equals(">") ? time <= after : time >= after) {
+						result.remove(i);
+					}
+				}
+			}
+			int offset = Math.min(Integer.parseInt(matcher.group(4)), result.size());
+			int limit = Math.min(Integer.parseInt(matcher.group(5)), result.size() - offset);
+			return createResultSet(result.subList(offset, offset + limit));
+		}
+
+		private ResultSet createResultSet(final List<Object[]> result) {
+			return proxy(ResultSet.class, new InvocationHandler() {
+				int row = -1;
+
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if (method.getName().equals("next")) {
+						return ++row < result.size();
+					}
+					if (method.getName().startsWith("get") && args != null && args[0] instanceof Integer) {
+						return result.get(row)[(Integer) args[0] - 1];
+					}
+					return defaultValue(method);
+				}
+			});
+		}
+
+		public boolean acceptsURL(String url) {
+			return url.startsWith("jdbc:openhab-test:");
+		}
+
+		public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+			return new DriverPropertyInfo[0];
+		}
+
+		public int getMajorVersion() {
+			return 1;
+		}
+
+		public int getMinorVersion() {
+			return 0;
+		}
+
+		public boolean jdbcCompliant() {
+			return false;
+		}
+
+		public java.util.logging.Logger getParentLogger() {
+			return java.util.logging.Logger.getLogger(TestDatabase.class.getName());
+		}
+
+		private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+			return type.cast(Proxy.newProxyInstance(TestDatabase.class.getClassLoader(), new Class<?>[] { type }, handler));
+		}
+
+		private static Object defaultValue(Method method) {
+			Class<?> type = method.getReturnType();
+			if (type == boolean.class) {
+				return false;
+			}
+			if (type == int.class) {
+				return 0;
+			}
+			if (type == long.class) {
+				return 0L;
+			}
+			return null;
+		}
+	}
+
+}
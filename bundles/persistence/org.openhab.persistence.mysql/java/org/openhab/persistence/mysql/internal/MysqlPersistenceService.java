@@ -14,10 +14,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Formatter;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -45,11 +48,16 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.BatchPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.HistoricItemCursor;
+import org.openhab.core.persistence.HistoricItemCursors;
+import org.openhab.core.persistence.PersistenceEntry;
 import org.openhab.core.persistence.PersistenceService;
-import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.persistence.StreamingPersistenceService;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.osgi.framework.BundleContext;
@@ -83,7 +91,8 @@ import org.slf4j.LoggerFactory;
  * @author Helmut Lehmeyer
  * @since 1.1.0
  */
-public class MysqlPersistenceService implements QueryablePersistenceService {
+public class MysqlPersistenceService implements AggregatingPersistenceService, StreamingPersistenceService,
+		BatchPersistenceService {
 
 	private static final Pattern EXTRACT_CONFIG_PATTERN = Pattern.compile("^(.*?)\\.([0-9.a-zA-Z]+)$");
 
@@ -105,6 +114,9 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
 
 	private Connection connection = null;
 
+	/** the number of rows that are read at once by a cursor */
+	/* default */ int cursorPageSize = 500;
+
 	private Map<String, String> sqlTables = new HashMap<String, String>();
 	private Map<String, String> sqlTypes = new HashMap<String, String>();
 
@@ -341,8 +353,29 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
 	 * @{inheritDoc
 	 */
 	public void store(Item item, String alias) {
+		store(item, item.getState(), null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The entries are stored with the state and the time they have been captured with.</p>
+	 */
+	public void storeBatch(Collection<PersistenceEntry> entries) {
+		for (PersistenceEntry entry : entries) {
+			store(entry.getItem(), entry.getState(), entry.getTimestamp());
+		}
+	}
+
+	/**
+	 * Stores a state of an item.
+	 * 
+	 * @param item the item to store the state for
+	 * @param state the state to store
+	 * @param timestamp the time of the state or <code>null</code> for the current time of the database
+	 */
+	private void store(Item item, State state, Date timestamp) {
 		// Don't log undefined/uninitialised data
-		if(item.getState() instanceof UnDefType)
+		if(state instanceof UnDefType)
 			return;
 
 		// If we've not initialised the bundle, then return
@@ -375,9 +408,14 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
 		// We need to make sure we cover the best type for serialisation.
 		String value;
 		if (item instanceof ColorItem) {
-			value = item.getStateAs(HSBType.class).toString();			
+			// the state of a ColorItem is always a HSBType
+			value = state.toString();
 		} else if (item instanceof RollershutterItem) {
-			value = item.getStateAs(PercentType.class).toString();			
+			if (!(state instanceof PercentType)) {
+				logger.debug("mySQL: Ignoring state '{}' of item '{}' as it is not a percentage.", state, item.getName());
+				return;
+			}
+			value = state.toString();
 		} else {
 			/*
 			!!ATTENTION!!
@@ -394,20 +432,25 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
 			*/
 			
 			// All other items should return the best format by default
-			value = item.getState().toString();
+			value = state.toString();
 		}
 
 		String sqlCmd = null;
 		PreparedStatement statement = null;
 		try {			
-			sqlCmd = new String("INSERT INTO " + tableName + " (TIME, VALUE) VALUES(NOW(),?) ON DUPLICATE KEY UPDATE VALUE=?;");
+			sqlCmd = new String("INSERT INTO " + tableName + " (TIME, VALUE) VALUES(" + (timestamp == null ? "NOW()" : "?")
+					+ ",?) ON DUPLICATE KEY UPDATE VALUE=?;");
 			statement = connection.prepareStatement(sqlCmd);
-			statement.setString(1, value);
-			statement.setString(2, value);
+			int index = 1;
+			if (timestamp != null) {
+				statement.setTimestamp(index++, new Timestamp(timestamp.getTime()));
+			}
+			statement.setString(index++, value);
+			statement.setString(index, value);
 			statement.executeUpdate();
 
-			logger.debug("mySQL: Stored item '{}' as '{}'[{}] in SQL database at {}.", item.getName(), item.getState()
-					.toString(), value, (new java.util.Date()).toString());
+			logger.debug("mySQL: Stored item '{}' as '{}'[{}] in SQL database at {}.", item.getName(), state.toString(),
+					value, (timestamp != null ? timestamp : new java.util.Date()).toString());
 			logger.debug("mySQL: query: {}", sqlCmd);
 
 			// Success
@@ -553,28 +596,10 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
 			return Collections.emptyList();
 		}
 
-		SimpleDateFormat mysqlDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-
 		// Get the item name from the filter
 		// Also get the Item object so we can determine the type
-		Item item = null;
 		String itemName = filter.getItemName();
-		logger.debug("mySQL query: item is {}", itemName);
-		try {
-			if (itemRegistry != null) {
-				item = itemRegistry.getItem(itemName);
-			}
-		} catch (ItemNotFoundException e1) {
-			logger.error("Unable to get item type for {}", itemName);
-
-			// Set type to null - data will be returned as StringType
-			item = null;
-		}
-                   
-        if(item instanceof GroupItem){
-            // For Group Items is BaseItem needed to get correct Type of Value.
-            item = GroupItem.class.cast(item).getBaseItem();
-        }
+		Item item = getQueryItem(itemName);
 
 		String table = sqlTables.get(itemName);
 		if (table == null) {
@@ -582,43 +607,13 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
 			return Collections.emptyList();
 		}
 
-		String filterString = new String();
-
-		if (filter.getBeginDate() != null) {
-			if (filterString.isEmpty())
-				filterString += " WHERE";
-			else
-				filterString += " AND";
-			filterString += " TIME>'" + mysqlDateFormat.format(filter.getBeginDate()) + "'";
-		}
-		if (filter.getEndDate() != null) {
-			if (filterString.isEmpty())
-				filterString += " WHERE";
-			else
-				filterString += " AND";
-			filterString += " TIME<'" + mysqlDateFormat.format(filter.getEndDate().getTime()) + "'";
-		}
-
-		if (filter.getOrdering() == Ordering.ASCENDING) {
-			filterString += " ORDER BY Time ASC";
-		} else {
-			filterString += " ORDER BY Time DESC";
-		}
-
-		if (filter.getPageSize() != 0x7fffffff)
-			filterString += " LIMIT " + filter.getPageNumber() * filter.getPageSize() + "," + filter.getPageSize();
-
 		try {
 			long timerStart = System.currentTimeMillis();
 
 			// Retrieve the table array
 			Statement st = connection.createStatement();
 
-			String queryString = new String();
-			queryString = "SELECT Time, Value FROM " + table;
-			if (!filterString.isEmpty())
-				queryString += filterString;
-
+			String queryString = getQueryString(filter, table);
 			logger.debug("mySQL: query:" + queryString);
 
 			// Turn use of the cursor on.
@@ -628,30 +623,10 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
 
 			long count = 0;
 			List<HistoricItem> items = new ArrayList<HistoricItem>();
-			State state;
 			while (rs.next()) {
 				count++;
 
-				if (item instanceof NumberItem)
-					state = new DecimalType(rs.getDouble(2));
-				else if (item instanceof ColorItem)
-					state = new HSBType(rs.getString(2));
-				else if (item instanceof DimmerItem)
-					state = new PercentType(rs.getInt(2));
-				else if (item instanceof SwitchItem)
-					state = OnOffType.valueOf(rs.getString(2));
-				else if (item instanceof ContactItem)
-					state = OpenClosedType.valueOf(rs.getString(2));
-				else if (item instanceof RollershutterItem)
-					state = new PercentType(rs.getInt(2));
-				else if (item instanceof DateTimeItem) {
-					Calendar calendar = Calendar.getInstance();
-					calendar.setTimeInMillis(rs.getTimestamp(2).getTime());
-					state = new DateTimeType(calendar);
-				} else	//Call, Location, String
-					state = new StringType(rs.getString(2));
-
-				MysqlItem mysqlItem = new MysqlItem(itemName, state, rs.getTimestamp(1));
+				MysqlItem mysqlItem = new MysqlItem(itemName, getState(item, rs), rs.getTimestamp(1));
 				items.add(mysqlItem);
 			}
 
@@ -671,4 +646,365 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
 		}
 		return null;
 	}
+
+	/**
+	 * Reads the result of the query in pages of {@link #cursorPageSize} rows through the
+	 * connection of this service, so that only one page is kept in memory. Every page is
+	 * continued after the timestamp of the last row of the previous page, which is unique
+	 * as it is the primary key of the item table. The cursor does not hold any database
+	 * resources between two pages.
+	 * <p>If a page cannot be read, the cursor is closed and an {@link IllegalStateException}
+	 * is thrown.</p>
+	 * 
+	 * @{inheritDoc}
+	 */
+	@Override
+	public HistoricItemCursor queryCursor(FilterCriteria filter) {
+		if (!initialized) {
+			logger.debug("Query aborted on item {} - mySQL not initialised!", filter.getItemName());
+			return HistoricItemCursors.empty();
+		}
+
+		String itemName = filter.getItemName();
+		Item item = getQueryItem(itemName);
+
+		String table = sqlTables.get(itemName);
+		if (table == null) {
+			logger.error("mySQL: Unable to find table for query '{}'.", itemName);
+			return HistoricItemCursors.empty();
+		}
+
+		return new PagedCursor(filter, table, item);
+	}
+
+	/**
+	 * Reads one page of the result of a cursor query.
+	 * 
+	 * @param filter the filter of the query
+	 * @param table the table of the item
+	 * @param item the item to determine the type of the values, might be <code>null</code>
+	 * @param after the timestamp of the last row of the previous page or <code>null</code> for the first page
+	 * @param limit the maximum number of rows to read
+	 * @return the rows of the page
+	 * @throws IllegalStateException if the database is not connected or the query fails
+	 */
+	private List<HistoricItem> queryPage(FilterCriteria filter, String table, Item item, Date after, int limit) {
+		if (!isConnected())
+			connectToDatabase();
+
+		if (!isConnected()) {
+			throw new IllegalStateException("mySQL not connected, query of item '" + filter.getItemName() + "' aborted");
+		}
+
+		String queryString = getPageQueryString(filter, table, after, limit);
+		logger.debug("mySQL: page query:" + queryString);
+
+		Statement st = null;
+		ResultSet rs = null;
+		try {
+			st = connection.createStatement();
+			rs = st.executeQuery(queryString);
+
+			List<HistoricItem> items = new ArrayList<HistoricItem>(limit);
+			while (rs.next()) {
+				items.add(new MysqlItem(filter.getItemName(), getState(item, rs), rs.getTimestamp(1)));
+			}
+
+			// Success
+			errCnt = 0;
+
+			return items;
+		} catch (SQLException e) {
+			errCnt++;
+			logger.error("mySQL: Error running page query : {}", e.getMessage());
+			throw new IllegalStateException("mySQL query of item '" + filter.getItemName() + "' failed", e);
+		} finally {
+			closeQuietly(rs, st, null);
+		}
+	}
+
+	/**
+	 * Gets the item to determine the type of the values. For groups, this is the base item.
+	 */
+	private Item getQueryItem(String itemName) {
+		Item item = null;
+		logger.debug("mySQL query: item is {}", itemName);
+		try {
+			if (itemRegistry != null) {
+				item = itemRegistry.getItem(itemName);
+			}
+		} catch (ItemNotFoundException e1) {
+			logger.error("Unable to get item type for {}", itemName);
+
+			// Set type to null - data will be returned as StringType
+			item = null;
+		}
+
+		if (item instanceof GroupItem) {
+			// For Group Items is BaseItem needed to get correct Type of Value.
+			item = GroupItem.class.cast(item).getBaseItem();
+		}
+		return item;
+	}
+
+	private String getQueryString(FilterCriteria filter, String table) {
+		String filterString = getTimeFilter(filter);
+
+		if (filter.getOrdering() == Ordering.ASCENDING) {
+			filterString += " ORDER BY Time ASC";
+		} else {
+			filterString += " ORDER BY Time DESC";
+		}
+
+		if (filter.getPageSize() != 0x7fffffff)
+			filterString += " LIMIT " + filter.getPageNumber() * filter.getPageSize() + "," + filter.getPageSize();
+
+		return "SELECT Time, Value FROM " + table + filterString;
+	}
+
+	private String getPageQueryString(FilterCriteria filter, String table, Date after, int limit) {
+		String filterString = getTimeFilter(filter);
+		boolean ascending = filter.getOrdering() == Ordering.ASCENDING;
+
+		long offset = 0;
+		if (after == null) {
+			if (filter.getPageSize() != 0x7fffffff)
+				offset = (long) filter.getPageNumber() * filter.getPageSize();
+		} else {
+			SimpleDateFormat mysqlDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+			filterString += filterString.isEmpty() ? " WHERE" : " AND";
+			filterString += " TIME" + (ascending ? ">" : "<") + "'" + mysqlDateFormat.format(after) + "'";
+		}
+
+		filterString += ascending ? " ORDER BY Time ASC" : " ORDER BY Time DESC";
+		filterString += " LIMIT " + offset + "," + limit;
+
+		return "SELECT Time, Value FROM " + table + filterString;
+	}
+
+	private State getState(Item item, ResultSet rs) throws SQLException {
+		if (item instanceof NumberItem)
+			return new DecimalType(rs.getDouble(2));
+		else if (item instanceof ColorItem)
+			return new HSBType(rs.getString(2));
+		else if (item instanceof DimmerItem)
+			return new PercentType(rs.getInt(2));
+		else if (item instanceof SwitchItem)
+			return OnOffType.valueOf(rs.getString(2));
+		else if (item instanceof ContactItem)
+			return OpenClosedType.valueOf(rs.getString(2));
+		else if (item instanceof RollershutterItem)
+			return new PercentType(rs.getInt(2));
+		else if (item instanceof DateTimeItem) {
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTimeInMillis(rs.getTimestamp(2).getTime());
+			return new DateTimeType(calendar);
+		} else	//Call, Location, String
+			return new StringType(rs.getString(2));
+	}
+
+	private void closeQuietly(ResultSet rs, Statement st, Connection con) {
+		try {
+			if (rs != null)
+				rs.close();
+			if (st != null)
+				st.close();
+		} catch (SQLException e) {
+			logger.debug("mySQL: Error closing query result : {}", e.getMessage());
+		}
+		try {
+			if (con != null)
+				con.close();
+		} catch (SQLException e) {
+			logger.debug("mySQL: Error closing connection : {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public boolean supportsAggregate(Aggregate aggregate) {
+		// time weighted averages would need the following row of every value, so these are left to the caller
+		return aggregate != Aggregate.TIME_WEIGHTED_AVERAGE;
+	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public HistoricItem aggregate(FilterCriteria filter, Aggregate aggregate) {
+		if (!supportsAggregate(aggregate)) {
+			throw new UnsupportedOperationException("mySQL does not support the aggregate " + aggregate);
+		}
+		if (!initialized) {
+			logger.debug("Aggregation aborted on item {} - mySQL not initialised!", filter.getItemName());
+			return null;
+		}
+
+		if (!isConnected())
+			connectToDatabase();
+
+		if (!isConnected()) {
+			logger.debug("Aggregation aborted on item {} - mySQL not connected!", filter.getItemName());
+			return null;
+		}
+
+		String itemName = filter.getItemName();
+		Item item = null;
+		try {
+			if (itemRegistry != null) {
+				item = itemRegistry.getItem(itemName);
+			}
+		} catch (ItemNotFoundException e1) {
+			logger.error("Unable to get item type for {}", itemName);
+		}
+		if (item instanceof GroupItem) {
+			item = GroupItem.class.cast(item).getBaseItem();
+		}
+		if (!(item instanceof NumberItem || item instanceof DimmerItem || item instanceof RollershutterItem)) {
+			throw new UnsupportedOperationException("values of item '" + itemName + "' are not stored as numbers");
+		}
+
+		String table = sqlTables.get(itemName);
+		if (table == null) {
+			logger.debug("mySQL: Unable to find table for aggregation '{}'.", itemName);
+			return null;
+		}
+
+		String filterString = getTimeFilter(filter);
+		String queryString;
+		switch (aggregate) {
+			case MINIMUM:
+				queryString = "SELECT Time, Value FROM " + table + filterString + " ORDER BY Value ASC, Time ASC LIMIT 1";
+				break;
+			case MAXIMUM:
+				queryString = "SELECT Time, Value FROM " + table + filterString + " ORDER BY Value DESC, Time ASC LIMIT 1";
+				break;
+			case AVERAGE:
+				queryString = "SELECT AVG(Value) FROM " + table + filterString;
+				break;
+			case SUM:
+				queryString = "SELECT SUM(Value) FROM " + table + filterString;
+				break;
+			case SUM_OF_SQUARES:
+				queryString = "SELECT SUM(Value * Value) FROM " + table + filterString;
+				break;
+			default:
+				queryString = "SELECT COUNT(Value) FROM " + table + filterString;
+				break;
+		}
+
+		Statement st = null;
+		ResultSet rs = null;
+		try {
+			long timerStart = System.currentTimeMillis();
+			logger.debug("mySQL: aggregation query:" + queryString);
+
+			st = connection.createStatement();
+			rs = st.executeQuery(queryString);
+
+			HistoricItem result = null;
+			if (rs.next()) {
+				if (aggregate == Aggregate.MINIMUM || aggregate == Aggregate.MAXIMUM) {
+					State state = item instanceof NumberItem ? new DecimalType(rs.getDouble(2)) : new PercentType(rs.getInt(2));
+					result = new MysqlItem(itemName, state, rs.getTimestamp(1));
+				} else {
+					double value = rs.getDouble(1);
+					if (!rs.wasNull()) {
+						Date timestamp = filter.getEndDate() != null ? filter.getEndDate() : new Date();
+						result = new MysqlItem(itemName, new DecimalType(value), timestamp);
+					}
+				}
+			}
+
+			logger.debug("mySQL: aggregation {} took {}ms", aggregate, System.currentTimeMillis() - timerStart);
+
+			// Success
+			errCnt = 0;
+
+			return result;
+		} catch (SQLException e) {
+			errCnt++;
+			logger.error("mySQL: Error running aggregation : {}", e.getMessage());
+		} finally {
+			closeQuietly(rs, st, null);
+		}
+		return null;
+	}
+
+	private String getTimeFilter(FilterCriteria filter) {
+		SimpleDateFormat mysqlDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		String filterString = new String();
+
+		if (filter.getBeginDate() != null) {
+			if (filterString.isEmpty())
+				filterString += " WHERE";
+			else
+				filterString += " AND";
+			filterString += " TIME>'" + mysqlDateFormat.format(filter.getBeginDate()) + "'";
+		}
+		if (filter.getEndDate() != null) {
+			if (filterString.isEmpty())
+				filterString += " WHERE";
+			else
+				filterString += " AND";
+			filterString += " TIME<'" + mysqlDateFormat.format(filter.getEndDate().getTime()) + "'";
+		}
+		return filterString;
+	}
+
+	/**
+	 * A cursor, which reads the result of a query page by page.
+	 */
+	private class PagedCursor extends HistoricItemCursors.AbstractCursor {
+
+		private final FilterCriteria filter;
+		private final String table;
+		private final Item item;
+
+		/** the number of rows the query is limited to by the filter */
+		private long remaining;
+		private Iterator<HistoricItem> page;
+		private Date last;
+		private boolean lastPage;
+
+		PagedCursor(FilterCriteria filter, String table, Item item) {
+			this.filter = filter;
+			this.table = table;
+			this.item = item;
+			this.remaining = filter.getPageSize() != 0x7fffffff ? filter.getPageSize() : Long.MAX_VALUE;
+		}
+
+		@Override
+		protected HistoricItem fetchNext() {
+			if (page == null || !page.hasNext()) {
+				if (lastPage || remaining <= 0) {
+					return null;
+				}
+				int limit = (int) Math.min(cursorPageSize, remaining);
+				List<HistoricItem> items;
+				try {
+					items = queryPage(filter, table, item, last, limit);
+				} catch (IllegalStateException e) {
+					close();
+					throw e;
+				}
+				remaining -= items.size();
+				lastPage = items.size() < limit;
+				page = items.iterator();
+				if (!page.hasNext()) {
+					return null;
+				}
+			}
+			HistoricItem next = page.next();
+			last = next.getTimestamp();
+			return next;
+		}
+
+		@Override
+		protected void release() {
+			page = null;
+		}
+	}
 }
@@ -13,14 +13,17 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.items.Item;
@@ -33,11 +36,11 @@ import org.openhab.core.library.items.SwitchItem;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
-import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.State;
 import org.osgi.framework.BundleContext;
 import org.rrd4j.ConsolFun;
@@ -58,7 +61,7 @@ import org.slf4j.LoggerFactory;
  * @author Jan N. Klug
  * @since 1.0.0
  */
-public class RRD4jService implements QueryablePersistenceService {
+public class RRD4jService implements AggregatingPersistenceService {
 
 	private ConcurrentHashMap<String, RrdDefConfig> rrdDefs = new ConcurrentHashMap<String, RrdDefConfig>();
 
@@ -68,7 +71,25 @@ public class RRD4jService implements QueryablePersistenceService {
 
 	private static final Logger logger = LoggerFactory.getLogger(RRD4jService.class);
 
-	private Map<String,Timer> timers = new HashMap<String,Timer>();
+	private static final int DEFAULT_CACHE_SIZE = 500;
+
+	/** the items whose samples have to be stored again, as there already was a sample in the same second */
+	private final ConcurrentHashMap<String, Item> deferredItems = new ConcurrentHashMap<String, Item>();
+
+	/** a single thread for all deferred samples */
+	private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "rrd4j deferred samples");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private final AtomicLong deferredSamples = new AtomicLong();
+	private final AtomicLong droppedSamples = new AtomicLong();
+
+	/** the open database files, which are kept open between the accesses */
+	private final RrdDbCache dbCache = createCache(DEFAULT_CACHE_SIZE);
 
 	protected ItemRegistry itemRegistry;
 
@@ -90,74 +111,106 @@ public class RRD4jService implements QueryablePersistenceService {
 	/**
 	 * @{inheritDoc}
 	 */
-	public synchronized void store(final Item item, final String alias) {
+	public void store(final Item item, final String alias) {
 		final String name = alias==null ? item.getName() : alias;
-		RrdDb db = getDB(name);
-		if(db!=null) {
-			ConsolFun function = getConsolidationFunction(db);
-			long now = System.currentTimeMillis()/1000;
-			if(function!=ConsolFun.AVERAGE) {
-				try {
-					// we store the last value again, so that the value change in the database is not interpolated, but
-					// happens right at this spot
-					if(now - 1 > db.getLastUpdateTime()) {
-						// only do it if there is not already a value
-						double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
-						if(!Double.isNaN(lastValue)) {
-							Sample sample = db.createSample();
-							sample.setTime(now - 1);
-							sample.setValue(DATASOURCE_STATE, lastValue);
-							sample.update();
-							logger.debug("Stored '{}' with state '{}' in rrd4j database (again)", name, mapToState(lastValue, item.getName()));
-						}
-					}
-				} catch (IOException e) {
-					logger.debug("Error storing last value (again): {}", e.getMessage());
-				}
+		RrdDbCache.Handle handle = dbCache.acquire(name);
+		if(handle!=null) {
+			try {
+				store(item, name, handle.getDb());
+			} finally {
+				dbCache.release(handle);
 			}
+		}
+	}
+
+	private void store(final Item item, final String name, RrdDb db) {
+		ConsolFun function = getConsolidationFunction(db);
+		long now = System.currentTimeMillis()/1000;
+		if(function!=ConsolFun.AVERAGE) {
 			try {
-				Sample sample = db.createSample();
-				sample.setTime(now);
-
-				DecimalType state = (DecimalType) item.getStateAs(DecimalType.class);
-				if (state!=null) {
-					double value = state.toBigDecimal().doubleValue();
-					if (db.getDatasource(DATASOURCE_STATE).getType()==DsType.COUNTER) { // counter values must be adjusted by stepsize
-						value = value * db.getRrdDef().getStep();
+				// we store the last value again, so that the value change in the database is not interpolated, but
+				// happens right at this spot
+				if(now - 1 > db.getLastUpdateTime()) {
+					// only do it if there is not already a value
+					double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
+					if(!Double.isNaN(lastValue)) {
+						Sample sample = db.createSample();
+						sample.setTime(now - 1);
+						sample.setValue(DATASOURCE_STATE, lastValue);
+						sample.update();
+						logger.debug("Stored '{}' with state '{}' in rrd4j database (again)", name, mapToState(lastValue, item.getName()));
 					}
-					sample.setValue(DATASOURCE_STATE, value);
-					sample.update();
-					logger.debug("Stored '{}' with state '{}' in rrd4j database", name, state);
 				}
-			} catch (IllegalArgumentException e) {
-				if(e.getMessage().contains("at least one second step is required")) {
-
-					// we try to store the value one second later
-					TimerTask task = new TimerTask() {
-						public void run() {
-							store(item, name);
-						}
-					};
-					Timer timer = timers.get(name);
-					if(timer!=null) {
-						timer.cancel();
-						timers.remove(name);
-					}
-					timer = new Timer();
-					timers.put(name, timer);
-					timer.schedule(task, 1000);
-				} else {
-					logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
+			} catch (IOException e) {
+				logger.debug("Error storing last value (again): {}", e.getMessage());
+			}
+		}
+		try {
+			Sample sample = db.createSample();
+			sample.setTime(now);
+
+			DecimalType state = (DecimalType) item.getStateAs(DecimalType.class);
+			if (state!=null) {
+				double value = state.toBigDecimal().doubleValue();
+				if (db.getDatasource(DATASOURCE_STATE).getType()==DsType.COUNTER) { // counter values must be adjusted by stepsize
+					value = value * db.getRrdDef().getStep();
 				}
-			} catch (Exception e) {
-				logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
+				sample.setValue(DATASOURCE_STATE, value);
+				sample.update();
+				logger.debug("Stored '{}' with state '{}' in rrd4j database", name, state);
 			}
-			try {
-				db.close();
-			} catch (IOException e) {
-				logger.debug("Error closing rrd4j database: {}", e.getMessage());
+		} catch (IllegalArgumentException e) {
+			if(e.getMessage().contains("at least one second step is required")) {
+
+				// we try to store the value one second later
+				deferStore(item, name);
+			} else {
+				logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
 			}
+		} catch (Exception e) {
+			logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
+		}
+	}
+
+	/**
+	 * Stores the state of the item one second later. If there is already a deferred sample for
+	 * this database, only the state which is current at that time is stored.
+	 */
+	private void deferStore(Item item, final String name) {
+		if(deferredItems.put(name, item)!=null) {
+			// the pending retry will store the latest state instead
+			droppedSamples.incrementAndGet();
+			return;
 		}
+		deferredSamples.incrementAndGet();
+		try {
+			retryScheduler.schedule(new Runnable() {
+				public void run() {
+					Item deferredItem = deferredItems.remove(name);
+					if(deferredItem!=null) {
+						store(deferredItem, name);
+					}
+				}
+			}, 1, TimeUnit.SECONDS);
+		} catch(RejectedExecutionException e) {
+			// this happens if the service is shut down
+			deferredItems.remove(name);
+			droppedSamples.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return the number of samples which have been stored one second later
+	 */
+	public long getDeferredSampleCount() {
+		return deferredSamples.get();
+	}
+
+	/**
+	 * @return the number of samples which have been replaced by a newer sample before they were stored
+	 */
+	public long getDroppedSampleCount() {
+		return droppedSamples.get();
 	}
 
 	/**
@@ -170,8 +223,9 @@ public class RRD4jService implements QueryablePersistenceService {
 	@Override
 	public Iterable<HistoricItem> query(FilterCriteria filter) {
 		String itemName = filter.getItemName();
-		RrdDb db = getDB(itemName);
-		if(db!=null) {
+		RrdDbCache.Handle handle = dbCache.acquire(itemName);
+		if(handle!=null) {
+			RrdDb db = handle.getDb();
 			ConsolFun consolidationFunction = getConsolidationFunction(db);
 			long start = 0L;
 			long end = filter.getEndDate()==null ? System.currentTimeMillis()/1000 : filter.getEndDate().getTime()/1000;
@@ -203,26 +257,99 @@ public class RRD4jService implements QueryablePersistenceService {
 				}
 				FetchRequest request = db.createFetchRequest(consolidationFunction, start, end, 1);
 
-				List<HistoricItem> items = new ArrayList<HistoricItem>();
 				FetchData result = request.fetchData();
-				long ts = result.getFirstTimestamp();
 				long step = result.getRowCount() > 1 ? result.getStep() : 0;
-				for(double value : result.getValues(DATASOURCE_STATE)) {
-					if(!Double.isNaN(value)) {
-						RRD4jItem rrd4jItem = new RRD4jItem(itemName, mapToState(value, itemName), new Date(ts * 1000));
-						items.add(rrd4jItem);
-					}
-					ts += step;
-				}
-				return items;
+				// the historic items are only created while iterating, so that large results do not need to be kept in memory
+				return new FetchedItems(itemName, result.getValues(DATASOURCE_STATE), result.getFirstTimestamp(), step);
 			} catch (IOException e) {
 				logger.warn("Could not query rrd4j database for item '{}': {}", new String[] { itemName, e.getMessage() });
+			} finally {
+				dbCache.release(handle);
 			}
 		}
 		return Collections.emptyList();
 	}
 
-	protected synchronized RrdDb getDB(String alias) {
+	/**
+	 * @{inheritDoc}
+	 */
+	public boolean supportsAggregate(Aggregate aggregate) {
+		return aggregate==Aggregate.MINIMUM || aggregate==Aggregate.MAXIMUM || aggregate==Aggregate.TIME_WEIGHTED_AVERAGE;
+	}
+
+	/**
+	 * Calculates the aggregate directly on the consolidated archive values, without
+	 * creating a historic item for every row. As all rows of an archive have the same
+	 * step, the mean of an AVERAGE archive is already weighted by time.
+	 * 
+	 * @{inheritDoc}
+	 */
+	public HistoricItem aggregate(FilterCriteria filter, Aggregate aggregate) {
+		if(!supportsAggregate(aggregate) || filter.getBeginDate()==null) {
+			throw new UnsupportedOperationException("rrd4j does not support the aggregate " + aggregate + " for this query");
+		}
+		String itemName = filter.getItemName();
+		RrdDbCache.Handle handle = dbCache.acquire(itemName);
+		if(handle==null) {
+			return null;
+		}
+		RrdDb db = handle.getDb();
+		try {
+			ConsolFun consolidationFunction = getConsolidationFunction(db);
+			if(aggregate==Aggregate.TIME_WEIGHTED_AVERAGE && consolidationFunction!=ConsolFun.AVERAGE) {
+				throw new UnsupportedOperationException("rrd4j can only calculate time weighted averages from AVERAGE archives");
+			}
+			long start = filter.getBeginDate().getTime()/1000;
+			long end = filter.getEndDate()==null ? System.currentTimeMillis()/1000 : filter.getEndDate().getTime()/1000;
+			FetchData result = db.createFetchRequest(consolidationFunction, start, end, 1).fetchData();
+			double[] values = result.getValues(DATASOURCE_STATE);
+			long[] timestamps = result.getTimestamps();
+
+			int index = -1;
+			double total = 0;
+			int quantity = 0;
+			for(int i = 0; i < values.length; i++) {
+				double value = values[i];
+				if(Double.isNaN(value)) {
+					continue;
+				}
+				total += value;
+				quantity++;
+				if(index<0 || (aggregate==Aggregate.MINIMUM && value<values[index]) 
+						|| (aggregate==Aggregate.MAXIMUM && value>values[index])) {
+					index = i;
+				}
+			}
+			if(quantity==0) {
+				return null;
+			} else if(aggregate==Aggregate.TIME_WEIGHTED_AVERAGE) {
+				return new RRD4jItem(itemName, new DecimalType(total / quantity), new Date(end * 1000));
+			} else {
+				return new RRD4jItem(itemName, mapToState(values[index], itemName), new Date(timestamps[index] * 1000));
+			}
+		} catch (IOException e) {
+			logger.warn("Could not aggregate rrd4j database for item '{}': {}", new String[] { itemName, e.getMessage() });
+			return null;
+		} finally {
+			dbCache.release(handle);
+		}
+	}
+
+	private RrdDbCache createCache(int capacity) {
+		return new RrdDbCache(capacity) {
+			@Override
+			protected RrdDb open(String name) {
+				return getDB(name);
+			}
+		};
+	}
+
+	/**
+	 * Opens the database file for the given alias or creates it, if it does not exist yet.
+	 * Callers should use the {@link RrdDbCache}, which keeps the files open and serializes 
+	 * the accesses to a single file.
+	 */
+	protected RrdDb getDB(String alias) {
 		RrdDb db = null;
 		File file = new File(DB_FOLDER + File.separator + alias + ".rrd");
 		try {
@@ -353,6 +480,19 @@ public class RRD4jService implements QueryablePersistenceService {
 				continue;
 			}
 
+			if (key.equals("cachesize")) {
+				String value = (String) config.get(key);
+				try {
+					int cacheSize = Integer.parseInt(value.trim());
+					if(cacheSize!=dbCache.getCapacity()) {
+						dbCache.setCapacity(cacheSize);
+					}
+				} catch (NumberFormatException e) {
+					logger.warn("Ignoring illegal cache size '{}'", value);
+				}
+				continue;
+			}
+
 			String[] subkeys = key.split("\\.");
 			if (subkeys.length != 2) {
 				logger.debug("config '{}' should have the format 'name.configkey'", key);
@@ -404,6 +544,63 @@ public class RRD4jService implements QueryablePersistenceService {
         }
 	}
 
+	/**
+	 * Stops storing deferred samples and closes all open database files.
+	 */
+	public void deactivate() {
+		retryScheduler.shutdownNow();
+		logger.debug("rrd4j deferred {} samples and dropped {} samples", deferredSamples.get(), droppedSamples.get());
+		dbCache.closeAll();
+	}
+
+	/**
+	 * The result of a fetch request, which creates the historic items for all
+	 * values which are not <code>NaN</code> on demand.
+	 */
+	private class FetchedItems implements Iterable<HistoricItem> {
+		private final String itemName;
+		private final double[] values;
+		private final long firstTimestamp, step;
+
+		public FetchedItems(String itemName, double[] values, long firstTimestamp, long step) {
+			this.itemName = itemName;
+			this.values = values;
+			this.firstTimestamp = firstTimestamp;
+			this.step = step;
+		}
+
+		public Iterator<HistoricItem> iterator() {
+			return new Iterator<HistoricItem>() {
+				private int index = skipNaN(0);
+
+				public boolean hasNext() {
+					return index < values.length;
+				}
+
+				public HistoricItem next() {
+					if(!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					long ts = firstTimestamp + index * step;
+					HistoricItem rrd4jItem = new RRD4jItem(itemName, mapToState(values[index], itemName), new Date(ts * 1000));
+					index = skipNaN(index + 1);
+					return rrd4jItem;
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		private int skipNaN(int index) {
+			while(index < values.length && Double.isNaN(values[index])) {
+				index++;
+			}
+			return index;
+		}
+	}
+
 	private class RrdArchiveDef {
 		public ConsolFun fcn;
 		public double xff;
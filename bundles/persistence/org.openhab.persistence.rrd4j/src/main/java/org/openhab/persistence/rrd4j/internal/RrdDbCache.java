@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.rrd4j.core.RrdDb;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded cache of open {@link RrdDb} handles. Every database file has its own
+ * lock, so that different items can be accessed in parallel, while the accesses
+ * to a single file are serialized. If the cache is full, the least recently used
+ * handles which are not in use are closed.
+ * <p>A handle must be requested with {@link #acquire(String)} and has to be given
+ * back by {@link #release(Handle)} in a <code>finally</code> block by the same thread.</p>
+ *
+ * @since 1.8.0
+ */
+public abstract class RrdDbCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(RrdDbCache.class);
+
+	private volatile int capacity;
+
+	/** the handles in access order, guarded by its own monitor */
+	private final LinkedHashMap<String, Handle> handles = new LinkedHashMap<String, Handle>(16, 0.75f, true);
+
+	/**
+	 * An open database, which is locked by the thread which has acquired it.
+	 */
+	public static final class Handle {
+		private final ReentrantLock lock = new ReentrantLock();
+		private RrdDb db;
+		private boolean evicted;
+
+		private Handle() {
+		}
+
+		/**
+		 * @return the open database
+		 */
+		public RrdDb getDb() {
+			return db;
+		}
+	}
+
+	public RrdDbCache(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Opens the database with the given name. This is called while holding the lock
+	 * for this name, whenever the database is not already open.
+	 *
+	 * @param name the name of the database
+	 * @return the opened database or <code>null</code>, if it could not be opened
+	 */
+	protected abstract RrdDb open(String name);
+
+	/**
+	 * Returns the handle of the open database with the given name and locks it for the
+	 * calling thread.
+	 *
+	 * @param name the name of the database
+	 * @return the locked handle or <code>null</code>, if the database could not be opened.
+	 *         In this case {@link #release(Handle)} must not be called.
+	 */
+	public Handle acquire(String name) {
+		while (true) {
+			Handle handle;
+			synchronized (handles) {
+				handle = handles.get(name);
+				if (handle == null) {
+					handle = new Handle();
+					handles.put(name, handle);
+				}
+			}
+			handle.lock.lock();
+			if (handle.evicted) {
+				// the handle has been closed while we were waiting for it
+				handle.lock.unlock();
+				continue;
+			}
+			if (handle.db == null || handle.db.isClosed()) {
+				handle.db = open(name);
+				if (handle.db == null) {
+					remove(name, handle);
+					handle.lock.unlock();
+					return null;
+				}
+			}
+			return handle;
+		}
+	}
+
+	/**
+	 * Unlocks a handle, which has been acquired by the calling thread before. Afterwards
+	 * unused handles are closed, if the cache exceeds its capacity.
+	 *
+	 * @param handle the handle returned by {@link #acquire(String)}
+	 */
+	public void release(Handle handle) {
+		handle.lock.unlock();
+		evict();
+	}
+
+	/**
+	 * Closes all open databases. Databases which are in use are closed as soon as they
+	 * are released. The cache can still be used afterwards.
+	 */
+	public void closeAll() {
+		List<Map.Entry<String, Handle>> closing;
+		synchronized (handles) {
+			closing = new ArrayList<Map.Entry<String, Handle>>(handles.entrySet());
+		}
+		for (Map.Entry<String, Handle> entry : closing) {
+			Handle handle = entry.getValue();
+			handle.lock.lock();
+			try {
+				// the handle stays cached until it is closed, so that the file is not opened twice
+				remove(entry.getKey(), handle);
+				close(handle);
+			} finally {
+				handle.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Changes the number of cached handles. If the cache shrinks, unused handles are
+	 * closed immediately.
+	 *
+	 * @param capacity the maximum number of open databases
+	 */
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+		evict();
+	}
+
+	/**
+	 * @return the maximum number of open databases
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of currently cached handles
+	 */
+	public int size() {
+		synchronized (handles) {
+			return handles.size();
+		}
+	}
+
+	private void evict() {
+		List<Handle> evicted = null;
+		synchronized (handles) {
+			if (handles.size() <= capacity) {
+				return;
+			}
+			Iterator<Handle> it = handles.values().iterator();
+			while (handles.size() > capacity && it.hasNext()) {
+				Handle handle = it.next();
+				// handles which are currently in use are skipped
+				if (!handle.lock.isHeldByCurrentThread() && handle.lock.tryLock()) {
+					it.remove();
+					handle.evicted = true;
+					if (evicted == null) {
+						evicted = new ArrayList<Handle>();
+					}
+					evicted.add(handle);
+				}
+			}
+		}
+		if (evicted != null) {
+			for (Handle handle : evicted) {
+				try {
+					close(handle);
+				} finally {
+					handle.lock.unlock();
+				}
+			}
+		}
+	}
+
+	private void remove(String name, Handle handle) {
+		synchronized (handles) {
+			if (handles.get(name) == handle) {
+				handles.remove(name);
+			}
+			handle.evicted = true;
+		}
+	}
+
+	private void close(Handle handle) {
+		if (handle.db != null) {
+			try {
+				handle.db.close();
+			} catch (IOException e) {
+				logger.debug("Error closing rrd4j database: {}", e.getMessage());
+			}
+			handle.db = null;
+		}
+	}
+
+}
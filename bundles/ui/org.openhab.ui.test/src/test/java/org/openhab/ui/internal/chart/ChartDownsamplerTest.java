@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.internal.chart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @since 1.8.0
+ */
+public class ChartDownsamplerTest {
+
+	@Test
+	public void testSmallSeriesIsNotReduced() {
+		ChartDownsampler data = new ChartDownsampler(new Date(0), new Date(1000), 100);
+		for(int i = 0; i < 10; i++) {
+			data.add(new Date(i * 100), i);
+		}
+
+		assertEquals(10, data.size());
+		assertEquals(10, data.getAddedCount());
+	}
+
+	@Test
+	public void testPeaksAreKept() {
+		ChartDownsampler data = new ChartDownsampler(new Date(0), new Date(1000), 1);
+		data.add(new Date(0), 5);
+		data.add(new Date(100), 7);
+		data.add(new Date(200), -3);
+		data.add(new Date(300), 20);
+		data.add(new Date(400), 6);
+		data.add(new Date(500), 5);
+
+		assertEquals(Arrays.asList(0L, 200L, 300L, 500L), toTimes(data));
+		assertEquals(Arrays.asList(5.0, -3.0, 20.0, 5.0), toValues(data));
+	}
+
+	@Test
+	public void testDuplicatePointsAreRemoved() {
+		ChartDownsampler data = new ChartDownsampler(new Date(0), new Date(1000), 1);
+		data.add(new Date(0), 1);
+		data.add(new Date(500), 1);
+		data.add(new Date(1000), 1);
+
+		assertEquals(Arrays.asList(0L, 1000L), toTimes(data));
+	}
+
+	@Test
+	public void testYearOfSensorData() {
+		long begin = 0;
+		long end = 365L * 24 * 3600 * 1000;
+		int width = 800;
+		ChartDownsampler data = new ChartDownsampler(new Date(begin), new Date(end), width);
+
+		double min = Double.MAX_VALUE;
+		double max = -Double.MAX_VALUE;
+		for(long time = begin; time <= end; time += 10000) {
+			double value = Math.sin(time / 3600000.0) * 10 + 20;
+			data.add(new Date(time), value);
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+
+		assertEquals(end / 10000 + 1, data.getAddedCount());
+		assertTrue(data.size() <= width * 4);
+		long last = Long.MIN_VALUE;
+		for(Date time : data.getXData()) {
+			assertTrue(time.getTime() >= last);
+			last = time.getTime();
+		}
+		// the extremes of the series survive the reduction
+		List<Double> values = toValues(data);
+		assertEquals(min, Collections.min(values), 0.0);
+		assertEquals(max, Collections.max(values), 0.0);
+	}
+
+	private static List<Long> toTimes(ChartDownsampler data) {
+		List<Long> times = new ArrayList<Long>();
+		for(Date time : data.getXData()) {
+			times.add(time.getTime());
+		}
+		return times;
+	}
+
+	private static List<Double> toValues(ChartDownsampler data) {
+		List<Double> values = new ArrayList<Double>();
+		for(Number value : data.getYData()) {
+			values.add(value.doubleValue());
+		}
+		return values;
+	}
+
+}
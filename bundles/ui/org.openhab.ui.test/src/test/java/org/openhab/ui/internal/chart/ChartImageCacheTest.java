@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.internal.chart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.image.BufferedImage;
+import java.util.Date;
+
+import org.junit.Test;
+
+/**
+ * @since 1.8.0
+ */
+public class ChartImageCacheTest {
+
+	@Test
+	public void testImagesAreReusedWithinBucket() {
+		ChartImageCache cache = new ChartImageCache(2);
+		Date now = new Date(1000000000000L);
+		Date dayAgo = new Date(now.getTime() - 86400000L);
+		Date secondLater = new Date(now.getTime() + 1000);
+
+		String key = ChartImageCache.createKey(null, null, dayAgo, now, 240, 480, "Temperature", null);
+		assertEquals(key, ChartImageCache.createKey(null, null, new Date(dayAgo.getTime() + 1000), secondLater,
+				240, 480, "Temperature", null));
+		assertNull(cache.get(key));
+
+		BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+		cache.put(key, image, 60000);
+		assertSame(image, cache.get(key));
+
+		cache.put("other", image, 60000);
+		cache.put("expired", image, -1);
+		assertNull(cache.get("expired"));
+		assertNotNull(cache.get("other"));
+		assertNull(cache.get(key));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+	}
+
+	@Test
+	public void testBucketIsAtLeastOnePixel() {
+		Date now = new Date();
+		assertEquals(ChartImageCache.MIN_BUCKET_SIZE, ChartImageCache.getBucketSize(new Date(now.getTime() - 3600000L), now, 800));
+		assertEquals(108000L, ChartImageCache.getBucketSize(new Date(now.getTime() - 86400000L), now, 800));
+	}
+
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.internal.items;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.items.ItemRegistryChangeListener;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.model.sitemap.SitemapFactory;
+import org.openhab.model.sitemap.Widget;
+import org.openhab.ui.items.ItemUIProvider;
+
+/**
+ * @since 1.8.0
+ */
+public class ItemUIRegistryLabelCacheTest {
+
+	private ItemRegistry registry;
+	private ItemUIRegistryImpl uiRegistry;
+
+	@Before
+	public void prepareRegistry() {
+		registry = mock(ItemRegistry.class);
+		uiRegistry = new ItemUIRegistryImpl();
+		uiRegistry.setItemRegistry(registry);
+	}
+
+	@Test
+	public void testLabelIsFormattedOncePerState() throws ItemNotFoundException {
+		Item item = mockItem("Temperature");
+		Widget w = mockWidget("Temperature", "Temperature [%.1f]");
+		CountingDecimalType state = new CountingDecimalType("21.5");
+		when(item.getState()).thenReturn(state);
+
+		String label = uiRegistry.getLabel(w);
+		assertEquals("Temperature [" + String.format("%.1f", 21.5) + "]", label);
+		for(int i = 0; i < 10; i++) {
+			assertSame(label, uiRegistry.getLabel(w));
+		}
+		assertEquals(1, state.formatCount);
+	}
+
+	@Test
+	public void testLabelIsFormattedAgainAfterStateChange() throws ItemNotFoundException {
+		Item item = mockItem("Status");
+		Widget w = mockWidget("Status", "Status [%s]");
+		when(item.getState()).thenReturn(new StringType("open"));
+		assertEquals("Status [open]", uiRegistry.getLabel(w));
+
+		when(item.getState()).thenReturn(new StringType("closed"));
+		assertEquals("Status [closed]", uiRegistry.getLabel(w));
+	}
+
+	@Test
+	public void testUndefinedStateIsFormattedOnce() throws ItemNotFoundException {
+		Widget w = mockWidget("Unknown", "Unknown [%.1f %%]");
+		when(w.eClass()).thenReturn(SitemapFactory.eINSTANCE.createText().eClass());
+		when(registry.getItem("Unknown")).thenThrow(new ItemNotFoundException("Unknown"));
+
+		String label = uiRegistry.getLabel(w);
+		assertEquals("Unknown [- %]", label);
+		assertSame(label, uiRegistry.getLabel(w));
+	}
+
+	@Test
+	public void testTransformedLabelIsNotCached() throws ItemNotFoundException {
+		// the transformation file might change, so the transformation is executed for every label
+		Item item = mockItem("Window");
+		Widget w = mockWidget("Window", "Window [MAP(de.map):%s]");
+		when(item.getState()).thenReturn(new StringType("OPEN"));
+
+		String label = uiRegistry.getLabel(w);
+		assertEquals("Window [OPEN]", label);
+		assertNotSame(label, uiRegistry.getLabel(w));
+	}
+
+	@Test
+	public void testProviderLabelsAreCachedUntilItemsChange() {
+		ItemUIProvider provider = mock(ItemUIProvider.class);
+		when(provider.getLabel("Item")).thenReturn("Item label");
+		uiRegistry.addItemUIProvider(provider);
+		ArgumentCaptor<ItemRegistryChangeListener> listener = ArgumentCaptor.forClass(ItemRegistryChangeListener.class);
+		verify(registry).addItemRegistryChangeListener(listener.capture());
+
+		for(int i = 0; i < 10; i++) {
+			assertEquals("Item label", uiRegistry.getLabel("Item"));
+			assertEquals(null, uiRegistry.getLabel("Other"));
+		}
+		verify(provider, times(1)).getLabel("Item");
+		verify(provider, times(1)).getLabel("Other");
+
+		when(provider.getLabel("Item")).thenReturn("New label");
+		listener.getValue().allItemsChanged(Collections.<String>emptyList());
+		assertEquals("New label", uiRegistry.getLabel("Item"));
+	}
+
+	@Test
+	public void testPageRefresh() throws ItemNotFoundException {
+		int widgetCount = 100;
+		int refreshCount = 10;
+		final Map<String, Item> items = new HashMap<String, Item>();
+		Widget[] widgets = new Widget[widgetCount];
+		for(int i = 0; i < widgetCount; i++) {
+			NumberItem item = new NumberItem("Sensor" + i);
+			item.setState(new DecimalType(i));
+			items.put(item.getName(), item);
+			widgets[i] = SitemapFactory.eINSTANCE.createText();
+			widgets[i].setItem(item.getName());
+			widgets[i].setLabel("Sensor " + i + " [%.1f °C]");
+		}
+		// the items are taken from the map instead of the mocked registry
+		uiRegistry = new ItemUIRegistryImpl() {
+			@Override
+			public Item getItem(String name) throws ItemNotFoundException {
+				return items.get(name);
+			}
+		};
+		uiRegistry.setItemRegistry(registry);
+
+		String[] labels = new String[widgetCount];
+		for(int i = 0; i < widgetCount; i++) {
+			labels[i] = uiRegistry.getLabel(widgets[i]);
+		}
+		// the labels of unchanged items are not formatted again
+		for(int refresh = 0; refresh < refreshCount; refresh++) {
+			for(int i = 0; i < widgetCount; i++) {
+				assertSame(labels[i], uiRegistry.getLabel(widgets[i]));
+			}
+		}
+
+		assertEquals("Sensor 5 [" + String.format("%.1f", 5.0) + " °C]", uiRegistry.getLabel(widgets[5]));
+	}
+
+	private Item mockItem(String name) throws ItemNotFoundException {
+		Item item = mock(Item.class);
+		when(item.getName()).thenReturn(name);
+		when(registry.getItem(name)).thenReturn(item);
+		return item;
+	}
+
+	private static Widget mockWidget(String itemName, String label) {
+		Widget w = mock(Widget.class);
+		when(w.getLabel()).thenReturn(label);
+		when(w.getItem()).thenReturn(itemName);
+		return w;
+	}
+
+	/**
+	 * Counts how often the state is formatted.
+	 */
+	private static class CountingDecimalType extends DecimalType {
+
+		private static final long serialVersionUID = 1L;
+
+		int formatCount;
+
+		CountingDecimalType(String value) {
+			super(value);
+		}
+
+		@Override
+		public String format(String pattern) {
+			formatCount++;
+			return super.format(pattern);
+		}
+	}
+
+}
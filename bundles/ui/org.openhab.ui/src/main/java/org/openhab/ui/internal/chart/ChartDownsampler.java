@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.internal.chart;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reduces the data points of a chart series to the resolution of the chart while
+ * the points are streamed from the persistence service. The time axis is split into
+ * one bucket per pixel and only the first, the minimum, the maximum and the last point
+ * of every bucket are kept, so that peaks and steps remain visible in the chart.
+ * <p>The points have to be added in ascending order of time.</p>
+ *
+ * @since 1.8.0
+ */
+public class ChartDownsampler {
+
+	private final long begin;
+	private final long end;
+	private final int buckets;
+
+	private final List<Date> xData = new ArrayList<Date>();
+	private final List<Number> yData = new ArrayList<Number>();
+
+	private int bucket = -1;
+	private int count;
+	private long firstX, minX, maxX, lastX;
+	private double firstY, minY, maxY, lastY;
+
+	private int addedCount;
+
+	/**
+	 * @param begin the begin of the time axis
+	 * @param end the end of the time axis
+	 * @param buckets the number of buckets, usually the width of the chart in pixels
+	 */
+	public ChartDownsampler(Date begin, Date end, int buckets) {
+		this.begin = begin.getTime();
+		this.end = end.getTime();
+		this.buckets = Math.max(1, buckets);
+	}
+
+	/**
+	 * Adds a data point to the series.
+	 *
+	 * @param time the time of the data point
+	 * @param value the value of the data point
+	 */
+	public void add(Date time, double value) {
+		addedCount++;
+		long x = time.getTime();
+		int pointBucket = getBucket(x);
+		if (pointBucket != bucket) {
+			flush();
+			bucket = pointBucket;
+			count = 0;
+		}
+		if (count == 0) {
+			firstX = minX = maxX = x;
+			firstY = minY = maxY = value;
+		} else {
+			if (value < minY) {
+				minX = x;
+				minY = value;
+			}
+			if (value > maxY) {
+				maxX = x;
+				maxY = value;
+			}
+		}
+		lastX = x;
+		lastY = value;
+		count++;
+	}
+
+	/**
+	 * @return the times of the reduced data points
+	 */
+	public Collection<Date> getXData() {
+		flush();
+		return xData;
+	}
+
+	/**
+	 * @return the values of the reduced data points
+	 */
+	public Collection<Number> getYData() {
+		flush();
+		return yData;
+	}
+
+	/**
+	 * @return the number of data points which have been added
+	 */
+	public int getAddedCount() {
+		return addedCount;
+	}
+
+	/**
+	 * @return the number of reduced data points
+	 */
+	public int size() {
+		flush();
+		return xData.size();
+	}
+
+	private int getBucket(long x) {
+		if (end <= begin || x <= begin) {
+			return 0;
+		}
+		if (x >= end) {
+			return buckets - 1;
+		}
+		return (int) ((x - begin) * buckets / (end - begin));
+	}
+
+	/**
+	 * Writes the kept points of the current bucket in the order of their time.
+	 */
+	private void flush() {
+		if (count == 0) {
+			return;
+		}
+		addPoint(firstX, firstY);
+		if (count > 2) {
+			if (minX <= maxX) {
+				addPoint(minX, minY);
+				addPoint(maxX, maxY);
+			} else {
+				addPoint(maxX, maxY);
+				addPoint(minX, minY);
+			}
+		}
+		if (count > 1) {
+			addPoint(lastX, lastY);
+		}
+		count = 0;
+	}
+
+	private void addPoint(long x, double y) {
+		int last = xData.size() - 1;
+		if (last >= 0 && xData.get(last).getTime() == x && yData.get(last).doubleValue() == y) {
+			return;
+		}
+		xData.add(new Date(x));
+		yData.add(y);
+	}
+
+}
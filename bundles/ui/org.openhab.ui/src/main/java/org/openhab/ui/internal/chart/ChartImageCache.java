@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.internal.chart;
+
+import java.awt.image.BufferedImage;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the most recently rendered chart images for a short time. Charts are
+ * usually requested for a period which ends now, so the end of a chart is
+ * rounded to a time bucket, which is at least as long as the time span of a
+ * single pixel. All requests for the same items, period and size within a
+ * bucket are served with the same image.
+ *
+ * @since 1.8.0
+ */
+public class ChartImageCache {
+
+	/** the minimum time span in milliseconds in which the same image is returned */
+	public static final long MIN_BUCKET_SIZE = 60000L;
+
+	private final int maxSize;
+
+	private final Map<String, CachedImage> images;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * @param maxSize the maximum number of images to keep
+	 */
+	public ChartImageCache(final int maxSize) {
+		this.maxSize = maxSize;
+		this.images = new LinkedHashMap<String, CachedImage>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedImage> eldest) {
+				return size() > ChartImageCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the size of the time bucket for a chart, which is the time span of a
+	 * single pixel, but at least {@link #MIN_BUCKET_SIZE}.
+	 *
+	 * @param startTime the begin of the chart
+	 * @param endTime the end of the chart
+	 * @param width the width of the chart in pixels
+	 * @return the size of the time bucket in milliseconds
+	 */
+	public static long getBucketSize(Date startTime, Date endTime, int width) {
+		long period = endTime.getTime() - startTime.getTime();
+		return Math.max(MIN_BUCKET_SIZE, period / Math.max(1, width));
+	}
+
+	/**
+	 * Creates the key of a chart.
+	 *
+	 * @return the key of the chart, which contains the time bucket of its end
+	 */
+	public static String createKey(String service, String theme, Date startTime, Date endTime, int height,
+			int width, String items, String groups) {
+		long period = endTime.getTime() - startTime.getTime();
+		long bucket = endTime.getTime() / getBucketSize(startTime, endTime, width);
+		return service + "|" + theme + "|" + items + "|" + groups + "|" + width + "x" + height + "|" + period + "@"
+				+ bucket;
+	}
+
+	/**
+	 * Returns a cached image.
+	 *
+	 * @param key the key of the chart
+	 * @return the image or <code>null</code>, if there is no image or it is outdated
+	 */
+	public BufferedImage get(String key) {
+		synchronized (images) {
+			CachedImage cachedImage = images.get(key);
+			if (cachedImage != null) {
+				if (cachedImage.expires > System.currentTimeMillis()) {
+					hitCount.incrementAndGet();
+					return cachedImage.image;
+				}
+				images.remove(key);
+			}
+		}
+		missCount.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Adds a rendered image to the cache.
+	 *
+	 * @param key the key of the chart
+	 * @param image the rendered image
+	 * @param timeToLive the time in milliseconds for which the image can be used
+	 */
+	public void put(String key, BufferedImage image, long timeToLive) {
+		synchronized (images) {
+			images.put(key, new CachedImage(image, System.currentTimeMillis() + timeToLive));
+		}
+	}
+
+	/**
+	 * Removes all images.
+	 */
+	public void clear() {
+		synchronized (images) {
+			images.clear();
+		}
+	}
+
+	/**
+	 * @return the number of cached images
+	 */
+	public int size() {
+		synchronized (images) {
+			return images.size();
+		}
+	}
+
+	/**
+	 * @return the number of requests which have been served with a cached image
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of requests for which the chart had to be rendered
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	private static class CachedImage {
+		final BufferedImage image;
+		final long expires;
+
+		CachedImage(BufferedImage image, long expires) {
+			this.image = image;
+			this.expires = expires;
+		}
+	}
+
+}
@@ -17,7 +17,6 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -31,6 +30,8 @@ import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.HistoricItemCursor;
+import org.openhab.core.persistence.HistoricItemCursors;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.ui.chart.ChartProvider;
@@ -82,6 +83,11 @@ public class DefaultChartProvider implements ChartProvider {
 
 	private int legendPosition = 0;
 	
+	/** the maximum number of rendered charts which are kept */
+	private static final int MAX_CACHED_CHARTS = 50;
+
+	private final ChartImageCache imageCache = new ChartImageCache(MAX_CACHED_CHARTS);
+	
 	public void setItemUIRegistry(ItemUIRegistry itemUIRegistry) {
 		this.itemUIRegistry = itemUIRegistry;
 	}
@@ -108,6 +114,7 @@ public class DefaultChartProvider implements ChartProvider {
 	}
 
 	protected void deactivate() {
+		imageCache.clear();
 	}
 
 	/**
@@ -124,6 +131,21 @@ public class DefaultChartProvider implements ChartProvider {
 	public BufferedImage createChart(String service, String theme, Date startTime, Date endTime,
 			int height, int width, String items, String groups) throws ItemNotFoundException, IllegalArgumentException {
 
+		// dashboards usually request the same chart again and again, so it is only rendered once per time bucket
+		String key = ChartImageCache.createKey(service, theme, startTime, endTime, height, width, items, groups);
+		BufferedImage image = imageCache.get(key);
+		if (image == null) {
+			image = renderChart(service, theme, startTime, endTime, height, width, items, groups);
+			imageCache.put(key, image, ChartImageCache.getBucketSize(startTime, endTime, width));
+		} else {
+			logger.debug("Using cached chart for '{}'.", key);
+		}
+		return image;
+	}
+
+	private BufferedImage renderChart(String service, String theme, Date startTime, Date endTime,
+			int height, int width, String items, String groups) throws ItemNotFoundException, IllegalArgumentException {
+
 		QueryablePersistenceService persistenceService;
 
 		int seriesCounter = 0;
@@ -181,7 +203,7 @@ public class DefaultChartProvider implements ChartProvider {
 			String[] itemNames = items.split(",");
 			for (String itemName : itemNames) {
 				Item item = itemUIRegistry.getItem(itemName);
-				if(addItem(chart, persistenceService, startTime, endTime, item, seriesCounter))
+				if(addItem(chart, persistenceService, startTime, endTime, width, item, seriesCounter))
 					seriesCounter++;
 			}
 		}
@@ -194,7 +216,7 @@ public class DefaultChartProvider implements ChartProvider {
 				if (item instanceof GroupItem) {
 					GroupItem groupItem = (GroupItem) item;
 					for (Item member : groupItem.getMembers()) {
-						if(addItem(chart, persistenceService, startTime, endTime, member, seriesCounter))
+						if(addItem(chart, persistenceService, startTime, endTime, width, member, seriesCounter))
 							seriesCounter++;
 					}
 				} else {
@@ -259,8 +281,8 @@ public class DefaultChartProvider implements ChartProvider {
 		}
 	}
 
-	boolean addItem(Chart chart, QueryablePersistenceService service, Date timeBegin, Date timeEnd, Item item,
-			int seriesCounter) {
+	boolean addItem(Chart chart, QueryablePersistenceService service, Date timeBegin, Date timeEnd, int width,
+			Item item, int seriesCounter) {
 		Color color = LINECOLORS[seriesCounter % LINECOLORS.length];
 
 		// Get the item label
@@ -279,9 +301,8 @@ public class DefaultChartProvider implements ChartProvider {
 		Iterable<HistoricItem> result;
 		FilterCriteria filter;
 
-		// Generate data collections
-		Collection<Date> xData = new ArrayList<Date>();
-		Collection<Number> yData = new ArrayList<Number>();
+		// Generate data collections, reduced to the points which are visible at the width of the chart
+		ChartDownsampler data = new ChartDownsampler(timeBegin, timeEnd, width);
 		
 		// Declare state here so it will hold the last value at the end of the process
 		org.openhab.core.types.State state = null;
@@ -299,8 +320,7 @@ public class DefaultChartProvider implements ChartProvider {
 			HistoricItem historicItem = result.iterator().next();
 
 			state = historicItem.getState();
-			xData.add(timeBegin);
-			yData.add(convertData(state));
+			data.add(timeBegin, convertData(state));
 		}
 
 		// Now, get all the data between the start and end time
@@ -309,35 +329,39 @@ public class DefaultChartProvider implements ChartProvider {
 		filter.setPageSize(Integer.MAX_VALUE);
 		filter.setOrdering(Ordering.ASCENDING);
 		
-		// Get the data from the persistence store
-		result = service.query(filter);
-		Iterator<HistoricItem> it = result.iterator();
+		// Get the data from the persistence store, without keeping all historic items in memory
+		HistoricItemCursor it = HistoricItemCursors.query(service, filter);
 
 		// Iterate through the data
-		while (it.hasNext()) {
-			HistoricItem historicItem = it.next();
-			
-			// For 'binary' states, we need to replicate the data
-			// to avoid diagonal lines
-			if(state instanceof OnOffType || state instanceof OpenClosedType) {
-				Calendar cal = Calendar.getInstance();
-				cal.setTime(historicItem.getTimestamp());
-				cal.add(Calendar.MILLISECOND, -1);
-				xData.add(cal.getTime());
-				yData.add(convertData(state));
+		try {
+			while (it.hasNext()) {
+				HistoricItem historicItem = it.next();
+				
+				// For 'binary' states, we need to replicate the data
+				// to avoid diagonal lines
+				if(state instanceof OnOffType || state instanceof OpenClosedType) {
+					Calendar cal = Calendar.getInstance();
+					cal.setTime(historicItem.getTimestamp());
+					cal.add(Calendar.MILLISECOND, -1);
+					data.add(cal.getTime(), convertData(state));
+				}
+	
+				state = historicItem.getState();
+				data.add(historicItem.getTimestamp(), convertData(state));
 			}
-
-			state = historicItem.getState();
-			xData.add(historicItem.getTimestamp());
-			yData.add(convertData(state));
+		} finally {
+			it.close();
 		}
 
 		// Lastly, add the final state at the endtime
 		if (state != null) {
-			xData.add(timeEnd);
-			yData.add(convertData(state));
+			data.add(timeEnd, convertData(state));
 		}
 
+		Collection<Date> xData = data.getXData();
+		Collection<Number> yData = data.getYData();
+		logger.trace("Reduced {} data points of item '{}' to {}.", new Object[] { data.getAddedCount(), item.getName(), xData.size() });
+
 		// Add the new series to the chart - only if there's data elements to display
 		// The chart engine will throw an exception if there's no data
 		if(xData.size() == 0) {
@@ -15,6 +15,8 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -86,26 +88,68 @@ public class ItemUIRegistryImpl implements ItemUIRegistry {
 	/* RegEx to identify format patterns. See java.util.Formatter#formatSpecifier (without the '%' at the very end). */
 	protected static final String IDENTIFY_FORMAT_PATTERN_PATTERN = "%(\\d+\\$)?([-#+ 0,(\\<]*)?(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z])";
 
+	/* the maximum number of label templates which are kept */
+	protected static final int MAX_LABEL_TEMPLATES = 1000;
+
+	/* marks items for which no item ui provider has a label */
+	private static final String NO_LABEL = new String();
+
 	protected Set<ItemUIProvider> itemUIProviders = new HashSet<ItemUIProvider>();
 
 	protected ItemRegistry itemRegistry;
 
+	/* the labels of the item ui providers by item name */
+	private final ConcurrentMap<String, String> itemLabels = new ConcurrentHashMap<String, String>();
+
+	/* the parsed labels by their unformatted text */
+	private final ConcurrentMap<String, LabelTemplate> labelTemplates = new ConcurrentHashMap<String, LabelTemplate>();
+
+	/* labels and item ui providers are defined together with the items, so they change together */
+	private final ItemRegistryChangeListener itemRegistryChangeListener = new ItemRegistryChangeListener() {
+		public void allItemsChanged(Collection<String> oldItemNames) {
+			clearLabelCaches();
+		}
+
+		public void itemAdded(Item item) {
+			clearLabelCaches();
+		}
+
+		public void itemRemoved(Item item) {
+			clearLabelCaches();
+		}
+	};
+
 	public ItemUIRegistryImpl() {}
 
 	public void setItemRegistry(ItemRegistry itemRegistry) {
 		this.itemRegistry = itemRegistry;
+		itemRegistry.addItemRegistryChangeListener(itemRegistryChangeListener);
+		clearLabelCaches();
 	}
 
 	public void unsetItemRegistry(ItemRegistry itemRegistry) {
+		itemRegistry.removeItemRegistryChangeListener(itemRegistryChangeListener);
 		this.itemRegistry = null;
+		clearLabelCaches();
 	}
 
 	public void addItemUIProvider(ItemUIProvider itemUIProvider) {
 		itemUIProviders.add(itemUIProvider);
+		clearLabelCaches();
 	}
 
 	public void removeItemUIProvider(ItemUIProvider itemUIProvider) {
 		itemUIProviders.remove(itemUIProvider);
+		clearLabelCaches();
+	}
+
+	/**
+	 * Removes all cached labels, so that they are read from the item ui providers
+	 * and formatted again.
+	 */
+	protected void clearLabelCaches() {
+		itemLabels.clear();
+		labelTemplates.clear();
 	}
 
 	/**
@@ -139,6 +183,18 @@ public class ItemUIRegistryImpl implements ItemUIRegistry {
 	 * {@inheritDoc}
 	 */
 	public String getLabel(String itemName) {
+		if(itemName==null) {
+			return getLabelFromProviders(itemName);
+		}
+		String label = itemLabels.get(itemName);
+		if(label==null) {
+			label = getLabelFromProviders(itemName);
+			itemLabels.put(itemName, label!=null ? label : NO_LABEL);
+		}
+		return label!=NO_LABEL ? label : null;
+	}
+
+	private String getLabelFromProviders(String itemName) {
 		for(ItemUIProvider provider : itemUIProviders) {
 			String currentLabel = provider.getLabel(itemName);
 			if(currentLabel!=null) {
@@ -243,57 +299,75 @@ public class ItemUIRegistryImpl implements ItemUIRegistry {
 		// now insert the value, if the state is a string or decimal value and
 		// there is some formatting pattern defined in the label
 		// (i.e. it contains at least a %)
-		if (itemName != null && label.contains("[")) {
-
-			int indexOpenBracket = label.indexOf("[");
-			int indexCloseBracket = label.indexOf("]");
+		if (itemName == null || !label.contains("[")) {
+			return transform(label, null);
+		}
 
-			State state = null;
-			String formatPattern = label.substring(indexOpenBracket + 1, indexCloseBracket);
-			// TODO: TEE: we should find a more generic solution here! When
-			// using indexes in formatString this 'contains' will fail again
-			// and will cause an
-			// 'java.util.IllegalFormatConversionException:
-			// d != java.lang.String' later on when trying to format a
-			// String
-			// as %d (number).
-			if (item != null) {
-				if (label.contains("%d")) {
-					// a number is requested
-					state = item.getState();
-					if (!(state instanceof DecimalType)) {
-						state = item.getStateAs(DecimalType.class);
-					}
-				} else {
-					state = item.getState();
+		LabelTemplate template = getLabelTemplate(label);
+		State state = null;
+		// TODO: TEE: we should find a more generic solution here! When
+		// using indexes in formatString this 'contains' will fail again
+		// and will cause an
+		// 'java.util.IllegalFormatConversionException:
+		// d != java.lang.String' later on when trying to format a
+		// String
+		// as %d (number).
+		if (item != null) {
+			if (template.numberRequested) {
+				// a number is requested
+				state = item.getState();
+				if (!(state instanceof DecimalType)) {
+					state = item.getStateAs(DecimalType.class);
 				}
+			} else {
+				state = item.getState();
 			}
+		}
 
-			if (state == null || state instanceof UnDefType) {
-				formatPattern = formatUndefined(formatPattern);
-			} else if (state instanceof Type) {
-				// The following exception handling has been added to work
-				// around a Java bug with formatting
-				// numbers. See http://bugs.sun.com/view_bug.do?bug_id=6476425
-				// Without this catch, the whole sitemap, or page can not be
-				// displayed!
-				// This also handles IllegalFormatConverionException, which is a
-				// subclass of IllegalArgument.
-				try {
-					formatPattern = ((Type) state).format(formatPattern);
-				} catch (IllegalArgumentException e) {
-					logger.warn("Exception while formatting value '{}' of item {} with format '{}': {}", state,
-							itemName, formatPattern, e);
-					formatPattern = new String("Err");
-				}
-			}
+		// the label only has to be formatted again, if the state of the item has changed
+		FormattedLabel formattedLabel = template.formattedLabels.get(itemName);
+		if (formattedLabel != null && formattedLabel.item == item && formattedLabel.state == state) {
+			return formattedLabel.label;
+		}
 
-			label = label.substring(0, indexOpenBracket + 1) + formatPattern + label.substring(indexCloseBracket);
+		String formatPattern = template.formatPattern;
+		if (state == null || state instanceof UnDefType) {
+			formatPattern = template.getUndefinedPattern();
+		} else if (state instanceof Type) {
+			// The following exception handling has been added to work
+			// around a Java bug with formatting
+			// numbers. See http://bugs.sun.com/view_bug.do?bug_id=6476425
+			// Without this catch, the whole sitemap, or page can not be
+			// displayed!
+			// This also handles IllegalFormatConverionException, which is a
+			// subclass of IllegalArgument.
+			try {
+				formatPattern = ((Type) state).format(formatPattern);
+			} catch (IllegalArgumentException e) {
+				logger.warn("Exception while formatting value '{}' of item {} with format '{}': {}", state,
+						itemName, formatPattern, e);
+				formatPattern = new String("Err");
+			}
 		}
 
-		label = transform(label);
+		formattedLabel = new FormattedLabel(item, state);
+		formattedLabel.label = transform(template.prefix + formatPattern + template.suffix, formattedLabel);
+		if (formattedLabel.cacheable) {
+			template.formattedLabels.put(itemName, formattedLabel);
+		}
+		return formattedLabel.label;
+	}
 
-		return label;
+	private LabelTemplate getLabelTemplate(String label) {
+		LabelTemplate template = labelTemplates.get(label);
+		if (template == null) {
+			if (labelTemplates.size() >= MAX_LABEL_TEMPLATES) {
+				labelTemplates.clear();
+			}
+			template = new LabelTemplate(label);
+			labelTemplates.put(label, template);
+		}
+		return template;
 	}
 
 	private String getLabelFromWidget(Widget w) {
@@ -340,11 +414,15 @@ public class ItemUIRegistryImpl implements ItemUIRegistry {
 	 * label (the right side is signified by being enclosed in square brackets [].
 	 * If so, check if the value starts with the call to a transformation service 
 	 * (e.g. "[MAP(en.map):%s]") and execute the transformation in this case.
+	 * A transformed label is marked as not cacheable, as the transformation file
+	 * might change, so that the transformation is executed again next time. The
+	 * transformation services keep the parsed files themselves.
 	 */
-	private String transform(String label) {
+	private String transform(String label, FormattedLabel formattedLabel) {
 		if(label.contains("[") && label.endsWith("]")) {
 			Matcher matcher = EXTRACT_TRANSFORMFUNCTION_PATTERN.matcher(label);
 			if(matcher.find()) {
+				if(formattedLabel!=null) formattedLabel.cacheable = false;
 				String type = matcher.group(1);
 				String pattern = matcher.group(2);
 				String value = matcher.group(3);
@@ -947,4 +1025,58 @@ public class ItemUIRegistryImpl implements ItemUIRegistry {
 			return this.value;
 		}
 	}
+
+	/**
+	 * A label with a value part, which has been split up once, so that it only
+	 * has to be filled with the state of its item. It also keeps the last formatted
+	 * label of every item, which is valid as long as the state of the item is the same.
+	 */
+	private class LabelTemplate {
+
+		/* the label up to and including the opening bracket */
+		final String prefix;
+
+		/* the pattern inside the brackets */
+		final String formatPattern;
+
+		/* the label from the closing bracket on */
+		final String suffix;
+
+		final boolean numberRequested;
+
+		final ConcurrentMap<String, FormattedLabel> formattedLabels = new ConcurrentHashMap<String, FormattedLabel>();
+
+		private volatile String undefinedPattern;
+
+		LabelTemplate(String label) {
+			int indexOpenBracket = label.indexOf("[");
+			int indexCloseBracket = label.indexOf("]");
+			this.prefix = label.substring(0, indexOpenBracket + 1);
+			this.formatPattern = label.substring(indexOpenBracket + 1, indexCloseBracket);
+			this.suffix = label.substring(indexCloseBracket);
+			this.numberRequested = label.contains("%d");
+		}
+
+		String getUndefinedPattern() {
+			if (undefinedPattern == null) {
+				undefinedPattern = formatUndefined(formatPattern);
+			}
+			return undefinedPattern;
+		}
+	}
+
+	/**
+	 * A label which has been formatted with a certain state of an item.
+	 */
+	private static class FormattedLabel {
+		final Item item;
+		final State state;
+		String label;
+		boolean cacheable = true;
+
+		FormattedLabel(Item item, State state) {
+			this.item = item;
+			this.state = state;
+		}
+	}
 }